@@ -0,0 +1,2 @@
+-- Record the size of objects stored in AWS S3, so it does not need to be requested before downloading them
+ALTER TABLE oc_aws_asset_mapping ADD COLUMN object_size BIGINT AFTER object_version;
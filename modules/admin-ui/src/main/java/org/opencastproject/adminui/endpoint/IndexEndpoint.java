@@ -39,6 +39,8 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.FormParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
@@ -142,15 +144,18 @@ public class IndexEndpoint {
   @POST
   @Path("recreateIndex")
   @RestQuery(name = "recreateIndex", description = "Clear and repopulates the Admin UI Index directly from the Services",
-    returnDescription = "OK if repopulation has started", responses = {
+    returnDescription = "OK if repopulation has started", restParameters = {
+      @RestParameter(name = "resume", isRequired = false, defaultValue = "false", type = RestParameter.Type.BOOLEAN,
+        description = "Whether to resume an interrupted rebuild instead of clearing the index and starting over") },
+    responses = {
     @RestResponse(description = "OK if repopulation has started", responseCode = HttpServletResponse.SC_OK) })
-  public Response recreateIndex() {
+  public Response recreateIndex(@DefaultValue("false") @FormParam("resume") final boolean resume) {
     final SecurityContext securityContext = new SecurityContext(securityService, securityService.getOrganization(),
             securityService.getUser());
     executor.execute(() -> securityContext.runInContext(() -> {
       try {
         logger.info("Starting to repopulate the index");
-        indexRebuildService.rebuildIndex(adminUISearchIndex);
+        indexRebuildService.rebuildIndex(adminUISearchIndex, resume);
       } catch (Throwable t) {
         logger.error("Repopulating the index failed", t);
       }
@@ -20,6 +20,8 @@
  */
 package org.opencastproject.assetmanager.api.query;
 
+import java.util.Iterator;
+
 /**
  * A select query for assets.
  *
@@ -48,4 +50,13 @@ public interface ASelectQuery {
    * Run the query and return the result.
    */
   AResult run();
+
+  /**
+   * Run the query and iterate its records, fetching them lazily in pages of <code>pageSize</code> snapshots.
+   * <p>
+   * Pages are retrieved using keyset pagination on organization, media package ID and version, so memory usage
+   * stays constant regardless of the total number of records. Records are returned in that order; any order or
+   * paging information of this query is ignored. Select only the targets you need to keep pages small.
+   */
+  Iterator<ARecord> cursor(int pageSize);
 }
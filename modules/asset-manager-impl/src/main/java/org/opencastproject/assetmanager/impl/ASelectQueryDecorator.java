@@ -20,11 +20,14 @@
  */
 package org.opencastproject.assetmanager.impl;
 
+import org.opencastproject.assetmanager.api.query.ARecord;
 import org.opencastproject.assetmanager.api.query.AResult;
 import org.opencastproject.assetmanager.api.query.ASelectQuery;
 import org.opencastproject.assetmanager.api.query.Order;
 import org.opencastproject.assetmanager.api.query.Predicate;
 
+import java.util.Iterator;
+
 public class ASelectQueryDecorator implements ASelectQuery {
   protected final ASelectQuery delegate;
 
@@ -48,6 +51,10 @@ public class ASelectQueryDecorator implements ASelectQuery {
     return delegate.run();
   }
 
+  @Override public Iterator<ARecord> cursor(int pageSize) {
+    return delegate.cursor(pageSize);
+  }
+
   protected ASelectQueryDecorator mkDecorator(ASelectQuery delegate) {
     return new ASelectQueryDecorator(delegate);
   }
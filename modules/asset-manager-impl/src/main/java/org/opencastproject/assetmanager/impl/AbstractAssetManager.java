@@ -48,9 +48,9 @@ import org.opencastproject.assetmanager.impl.storage.Source;
 import org.opencastproject.assetmanager.impl.storage.StoragePath;
 import org.opencastproject.mediapackage.MediaPackage;
 import org.opencastproject.mediapackage.MediaPackageElement;
-import org.opencastproject.mediapackage.MediaPackageParser;
 import org.opencastproject.mediapackage.MediaPackageSupport;
 import org.opencastproject.util.Checksum;
+import org.opencastproject.util.ChecksumIndex;
 import org.opencastproject.util.ChecksumType;
 import org.opencastproject.util.MimeTypes;
 import org.opencastproject.util.NotFoundException;
@@ -76,8 +76,16 @@ import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * Core implementation of the asset manager interface.
@@ -237,7 +245,53 @@ public abstract class AbstractAssetManager implements AssetManager {
    * Make sure each of the elements has a checksum.
    */
   void calcChecksumsForMediaPackageElements(PartialMediaPackage pmp) {
-    pmp.getElements().filter(hasNoChecksum.toFn()).each(addChecksum).run();
+    final List<MediaPackageElement> elements = pmp.getElements().filter(hasNoChecksum.toFn()).toList();
+    final Opt<ExecutorService> executor = getChecksumExecutor();
+    if (elements.size() <= 1 || executor.isNone()) {
+      $(elements).each(addChecksum).run();
+      return;
+    }
+    final List<Future<?>> futures = new ArrayList<>(elements.size());
+    try {
+      for (final MediaPackageElement mpe : elements) {
+        futures.add(executor.get().submit(inCurrentSecurityContext(new Runnable() {
+          @Override public void run() {
+            addChecksum.apply(mpe);
+          }
+        })));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new AssetManagerException("Interrupted while calculating checksums", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof AssetManagerException) {
+        throw (AssetManagerException) e.getCause();
+      }
+      throw new AssetManagerException(e.getCause());
+    } finally {
+      for (Future<?> future : futures) {
+        future.cancel(true);
+      }
+    }
+  }
+
+  /**
+   * Return the executor shared by all snapshots to calculate the checksums of their elements in parallel. Without
+   * one, checksums are calculated one after the other by the calling thread.
+   */
+  protected Opt<ExecutorService> getChecksumExecutor() {
+    return Opt.none();
+  }
+
+  /**
+   * Wrap a function so that it runs in the security context of the calling thread when executed by another thread.
+   * Implementations depending on a security context to access the workspace have to override this.
+   */
+  protected Runnable inCurrentSecurityContext(Runnable fn) {
+    return fn;
   }
 
   /** Mutates mp and its elements, so make sure to work on a copy. */
@@ -266,7 +320,8 @@ public abstract class AbstractAssetManager implements AssetManager {
     }
     // save manifest to element store
     // this is done at the end after the media package element ids have been rewritten to neutral URNs
-    storeManifest(pmp, version);
+    // the media package has been serialized for the database already, so store that XML as manifest
+    storeManifest(pmp, version, snapshotDto.getMediaPackageXml());
     return snapshotDto;
   }
 
@@ -276,7 +331,8 @@ public abstract class AbstractAssetManager implements AssetManager {
       try {
         logger.trace("Calculate checksum for {}", mpe.getURI());
         file = getWorkspace().get(mpe.getURI(), true);
-        mpe.setChecksum(Checksum.create(ChecksumType.DEFAULT_TYPE, file));
+        // Files downloaded or linked by the workspace usually have their checksum indexed already
+        mpe.setChecksum(Checksum.create(ChecksumType.DEFAULT_TYPE, ChecksumIndex.md5(file)));
       } catch (IOException | NotFoundException e) {
         throw new AssetManagerException(format(
             "Cannot calculate checksum for media package element %s",
@@ -296,12 +352,13 @@ public abstract class AbstractAssetManager implements AssetManager {
   private void storeAssets(final PartialMediaPackage pmp, final Version version) throws Exception {
     final String mpId = pmp.getMediaPackage().getIdentifier().toString();
     final String orgId = getCurrentOrgId();
+    final Map<String, StoragePath> archived = findAssetsInVersions(pmp);
     for (final MediaPackageElement e : pmp.getElements()) {
       logger.debug("Archiving {} {} {}", e.getFlavor(), e.getMimeType(), e.getURI());
       final StoragePath storagePath = StoragePath.mk(orgId, mpId, version, e.getIdentifier());
-      final Opt<StoragePath> existingAssetOpt = findAssetInVersions(e.getChecksum().toString());
-      if (existingAssetOpt.isSome()) {
-        final StoragePath existingAsset = existingAssetOpt.get();
+      final String checksum = e.getChecksum().toString();
+      final StoragePath existingAsset = archived.get(checksum);
+      if (existingAsset != null) {
         logger.debug("Content of asset {} with checksum {} has been archived before",
                     existingAsset.getMediaPackageElementId(), e.getChecksum());
         if (!getLocalAssetStore().copy(existingAsset, storagePath)) {
@@ -315,25 +372,32 @@ public abstract class AbstractAssetManager implements AssetManager {
         final Opt<Long> size = e.getSize() > 0 ? Opt.some(e.getSize()) : Opt.<Long>none();
         getLocalAssetStore().put(storagePath, Source.mk(e.getURI(), size, Opt.nul(e.getMimeType())));
       }
+      // elements with identical content within this media package can be linked to this copy
+      archived.putIfAbsent(checksum, storagePath);
     }
   }
 
-  /** Check if element <code>e</code> is already part of the history. */
-  private Opt<StoragePath> findAssetInVersions(final String checksum) throws Exception {
-    return getDb().findAssetByChecksumAndStore(checksum, getLocalAssetStore().getStoreType())
-        .map(new Fn<AssetDtos.Full, StoragePath>() {
-          @Override public StoragePath apply(AssetDtos.Full dto) {
-            return StoragePath.mk(
-                dto.getOrganizationId(),
-                dto.getMediaPackageId(),
-                dto.getVersion(),
-                dto.getAssetDto().getMediaPackageElementId()
-            );
-          }
-        });
+  /** Find the elements of <code>pmp</code> which are already part of the history, keyed by checksum. */
+  private Map<String, StoragePath> findAssetsInVersions(final PartialMediaPackage pmp) {
+    final Set<String> checksums = new HashSet<>();
+    for (final MediaPackageElement e : pmp.getElements()) {
+      checksums.add(e.getChecksum().toString());
+    }
+    final Map<String, StoragePath> archived = new HashMap<>();
+    for (final AssetDtos.Full dto
+            : getDb().findAssetsByChecksumsAndStore(checksums, getLocalAssetStore().getStoreType()).values()) {
+      archived.put(dto.getAssetDto().getChecksum(), StoragePath.mk(
+          dto.getOrganizationId(),
+          dto.getMediaPackageId(),
+          dto.getVersion(),
+          dto.getAssetDto().getMediaPackageElementId()
+      ));
+    }
+    return archived;
   }
 
-  private void storeManifest(final PartialMediaPackage pmp, final Version version) throws Exception {
+  private void storeManifest(final PartialMediaPackage pmp, final Version version, final String manifestXml)
+          throws Exception {
     final String mpId = pmp.getMediaPackage().getIdentifier().toString();
     final String orgId = getCurrentOrgId();
     // store the manifest.xml
@@ -345,7 +409,7 @@ public abstract class AbstractAssetManager implements AssetManager {
     final URI manifestTmpUri = getWorkspace().putInCollection(
             "archive",
             manifestFileName,
-            IOUtils.toInputStream(MediaPackageParser.getAsXml(pmp.getMediaPackage()), "UTF-8"));
+            IOUtils.toInputStream(manifestXml, "UTF-8"));
     try {
       getLocalAssetStore().put(
               StoragePath.mk(orgId, mpId, version, manifestAssetId(pmp, "manifest")),
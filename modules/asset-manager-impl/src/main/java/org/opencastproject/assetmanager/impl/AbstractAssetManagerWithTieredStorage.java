@@ -36,6 +36,7 @@ import org.opencastproject.assetmanager.api.query.RichAResult;
 import org.opencastproject.assetmanager.impl.persistence.AssetDtos;
 import org.opencastproject.assetmanager.impl.storage.AssetStore;
 import org.opencastproject.assetmanager.impl.storage.DeletionSelector;
+import org.opencastproject.assetmanager.impl.storage.RemoteAssetCache;
 import org.opencastproject.assetmanager.impl.storage.Source;
 import org.opencastproject.assetmanager.impl.storage.StoragePath;
 import org.opencastproject.mediapackage.MediaPackageElement;
@@ -46,6 +47,7 @@ import org.opencastproject.util.RequireUtil;
 
 import com.entwinemedia.fn.Fn;
 import com.entwinemedia.fn.data.Opt;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Sets;
 
 import org.apache.commons.io.IOUtils;
@@ -59,6 +61,9 @@ import java.io.InputStream;
 import java.net.URI;
 import java.security.NoSuchAlgorithmException;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.function.Consumer;
@@ -79,6 +84,11 @@ public abstract class AbstractAssetManagerWithTieredStorage
   // Base name of manifest file
   private static final String MANIFEST_DEFAULT_NAME = "manifest";
 
+  /** Returns the local cache of assets fetched from remote stores, if enabled. */
+  protected Opt<RemoteAssetCache> getRemoteAssetCache() {
+    return Opt.none();
+  }
+
   public Opt<AssetStore> getAssetStore(String storeId) {
     if (getLocalAssetStore().getStoreType().equals(storeId)) {
       return Opt.some(getLocalAssetStore());
@@ -337,8 +347,12 @@ public abstract class AbstractAssetManagerWithTieredStorage
     for (final AssetDtos.Medium asset : getDb().getAsset(RuntimeTypes.convert(version), mpId, mpeId)) {
       for (final String storageId : getSnapshotStorageLocation(version, mpId)) {
         for (final AssetStore store : getAssetStore(storageId)) {
-          for (final InputStream assetStream
-              : store.get(StoragePath.mk(asset.getOrganizationId(), mpId, version, mpeId))) {
+          final StoragePath path = StoragePath.mk(asset.getOrganizationId(), mpId, version, mpeId);
+          final Opt<RemoteAssetCache> cache = getRemoteAssetCache();
+          final Opt<InputStream> content = cache.isSome() && isRemoteAssetStoreId(storageId)
+              ? cache.get().get(path, asset.getAssetDto().getChecksum(), asset.getAssetDto().getSize(), store)
+              : store.get(path);
+          for (final InputStream assetStream : content) {
 
             Checksum checksum = null;
             try {
@@ -370,6 +384,10 @@ public abstract class AbstractAssetManagerWithTieredStorage
     final Version version = snap.getVersion();
     final String prettyMpId = mpId + "@v" + version;
     logger.debug("Moving assets for snapshot {} to store {}", prettyMpId, store.getStoreType());
+    // new content is transferred at once so that the store can move it concurrently
+    final Map<StoragePath, Source> transfers = new LinkedHashMap<>();
+    final Map<String, StoragePath> transferredChecksums = new HashMap<>();
+    final Map<StoragePath, StoragePath> links = new LinkedHashMap<>();
     for (final MediaPackageElement e : snap.getMediaPackage().getElements()) {
       if (!MOVABLE_TYPES.contains(e.getElementType())) {
         logger.debug("Skipping {} because type is {}", e.getIdentifier(), e.getElementType());
@@ -396,11 +414,28 @@ public abstract class AbstractAssetManagerWithTieredStorage
               existingAsset
           ));
         }
+        getDb().setAssetStorageLocation(VersionImpl.mk(version), mpId, e.getIdentifier(), store.getStoreType());
+      } else if (transferredChecksums.containsKey(e.getChecksum().toString())) {
+        // same content as another element of this snapshot, link to it once it is transferred
+        links.put(storagePath, transferredChecksums.get(e.getChecksum().toString()));
       } else {
         final Opt<Long> size = e.getSize() > 0 ? Opt.some(e.getSize()) : Opt.<Long>none();
-        store.put(storagePath, Source.mk(e.getURI(), size, Opt.nul(e.getMimeType())));
+        transfers.put(storagePath, Source.mk(e.getURI(), size, Opt.nul(e.getMimeType())));
+        transferredChecksums.put(e.getChecksum().toString(), storagePath);
       }
-      getDb().setAssetStorageLocation(VersionImpl.mk(version), mpId, e.getIdentifier(), store.getStoreType());
+    }
+    if (transfers.isEmpty()) {
+      return;
+    }
+    store.putAll(transfers);
+    for (final Map.Entry<StoragePath, StoragePath> link : links.entrySet()) {
+      if (!store.copy(link.getValue(), link.getKey())) {
+        throw new AssetManagerException(format("Linking asset %s to %s failed", link.getKey(), link.getValue()));
+      }
+    }
+    for (final StoragePath storagePath : Iterables.concat(transfers.keySet(), links.keySet())) {
+      getDb().setAssetStorageLocation(VersionImpl.mk(version), mpId, storagePath.getMediaPackageElementId(),
+              store.getStoreType());
     }
   }
 
@@ -20,19 +20,18 @@
  */
 package org.opencastproject.assetmanager.impl;
 
-import static org.opencastproject.assetmanager.api.fn.Enrichments.enrich;
-
 import org.opencastproject.assetmanager.api.Asset;
 import org.opencastproject.assetmanager.api.AssetManager;
 import org.opencastproject.assetmanager.api.Availability;
 import org.opencastproject.assetmanager.api.Property;
 import org.opencastproject.assetmanager.api.Snapshot;
 import org.opencastproject.assetmanager.api.Version;
-import org.opencastproject.assetmanager.api.fn.Snapshots;
 import org.opencastproject.assetmanager.api.query.AQueryBuilder;
+import org.opencastproject.assetmanager.api.query.ARecord;
 import org.opencastproject.assetmanager.api.query.RichAResult;
 import org.opencastproject.assetmanager.impl.persistence.Database;
 import org.opencastproject.assetmanager.impl.storage.AssetStore;
+import org.opencastproject.assetmanager.impl.storage.RemoteAssetCache;
 import org.opencastproject.assetmanager.impl.storage.RemoteAssetStore;
 import org.opencastproject.index.rebuild.AbstractIndexProducer;
 import org.opencastproject.index.rebuild.IndexProducer;
@@ -50,11 +49,14 @@ import org.opencastproject.security.api.SecurityService;
 import org.opencastproject.security.api.User;
 import org.opencastproject.security.util.SecurityUtil;
 import org.opencastproject.util.NotFoundException;
+import org.opencastproject.util.jmx.JmxUtil;
 import org.opencastproject.workspace.api.Workspace;
 
 import com.entwinemedia.fn.data.Opt;
 
 import org.apache.commons.lang3.BooleanUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.apache.commons.lang3.text.WordUtils;
 import org.osgi.service.component.ComponentContext;
 import org.osgi.service.component.annotations.Activate;
@@ -66,15 +68,21 @@ import org.osgi.service.component.annotations.ReferencePolicy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+import javax.management.ObjectInstance;
 import javax.persistence.EntityManagerFactory;
 
 /**
@@ -96,6 +104,18 @@ public class OsgiAssetManager extends AbstractIndexProducer implements AssetMana
    */
   private static final Logger logger = LoggerFactory.getLogger(OsgiAssetManager.class);
 
+  /** Number of snapshots loaded at once when repopulating an index */
+  private static final int REPOPULATE_PAGE_SIZE = 1000;
+
+  /** Number of threads calculating checksums of media package elements, kept small as the work is IO bound */
+  private static final int CHECKSUM_THREADS = 4;
+
+  /** Configuration key for the size of the local cache of remotely stored assets in MiB */
+  static final String REMOTE_ASSET_CACHE_SIZE = "remoteAssetCacheSize";
+
+  /** Configuration key for the eviction policy of the local cache of remotely stored assets */
+  static final String REMOTE_ASSET_CACHE_EVICTION = "remoteAssetCacheEviction";
+
   private SecurityService secSvc;
   private AuthorizationService authSvc;
   private OrganizationDirectoryService orgDir;
@@ -113,6 +133,7 @@ public class OsgiAssetManager extends AbstractIndexProducer implements AssetMana
   private AutoCloseable toClose;
 
   private TieredStorageAssetManager delegate;
+  private Database db;
 
   /**
    * OSGi callback.
@@ -120,8 +141,13 @@ public class OsgiAssetManager extends AbstractIndexProducer implements AssetMana
   @Activate
   public synchronized void activate(ComponentContext cc) {
     logger.info("Activating AssetManager");
-    final Database db = new Database(emf);
+    db = new Database(emf);
     systemUserName = SecurityUtil.getSystemUserName(cc);
+    final Opt<RemoteAssetCache> remoteAssetCache = createRemoteAssetCache(cc);
+    final ObjectInstance remoteAssetCacheMXBean = remoteAssetCache.isSome()
+        ? JmxUtil.registerMXBean(remoteAssetCache.get(), "RemoteAssetCache")
+        : null;
+    final ExecutorService checksumExecutor = Executors.newFixedThreadPool(CHECKSUM_THREADS);
     // create the core asset manager
     final AbstractAssetManagerWithTieredStorage core = new AbstractAssetManagerWithTieredStorage() {
       private HashMap<String, RemoteAssetStore> remoteStores = new LinkedHashMap<>();
@@ -174,6 +200,23 @@ public class OsgiAssetManager extends AbstractIndexProducer implements AssetMana
       protected String getCurrentOrgId() {
         return secSvc.getOrganization().getId();
       }
+
+      @Override
+      protected Opt<RemoteAssetCache> getRemoteAssetCache() {
+        return remoteAssetCache;
+      }
+
+      @Override
+      protected Opt<ExecutorService> getChecksumExecutor() {
+        return Opt.some(checksumExecutor);
+      }
+
+      @Override
+      protected Runnable inCurrentSecurityContext(final Runnable fn) {
+        final Organization org = secSvc.getOrganization();
+        final User user = secSvc.getUser();
+        return () -> SecurityUtil.runAs(secSvc, org, user, fn);
+      }
     };
     // compose with ActiveMQ messaging
     withMessaging = new AssetManagerWithMessaging(core, messageSender, authSvc, workspace);
@@ -192,10 +235,39 @@ public class OsgiAssetManager extends AbstractIndexProducer implements AssetMana
       @Override
       public void close() throws Exception {
         withMessaging.close();
+        checksumExecutor.shutdownNow();
+        if (remoteAssetCacheMXBean != null) {
+          JmxUtil.unregisterMXBean(remoteAssetCacheMXBean);
+        }
       }
     };
   }
 
+  /**
+   * Creates the local cache of assets fetched from remote stores if it has a size configured.
+   */
+  private Opt<RemoteAssetCache> createRemoteAssetCache(ComponentContext cc) {
+    final long size = NumberUtils.toLong(Objects.toString(cc.getProperties().get(REMOTE_ASSET_CACHE_SIZE), null));
+    if (size <= 0) {
+      return Opt.none();
+    }
+    final RemoteAssetCache.Eviction eviction = "LFU".equalsIgnoreCase(
+        StringUtils.trimToEmpty(Objects.toString(cc.getProperties().get(REMOTE_ASSET_CACHE_EVICTION), null)))
+        ? RemoteAssetCache.Eviction.LFU
+        : RemoteAssetCache.Eviction.LRU;
+    final String cacheRoot = cc.getBundleContext().getProperty(RemoteAssetStore.ASSET_STORE_CACHE_ROOT);
+    final File directory = StringUtils.isNotBlank(cacheRoot)
+        ? new File(cacheRoot, "assets")
+        : new File(cc.getBundleContext().getProperty("org.opencastproject.storage.dir"), "assetcache");
+    try {
+      return Opt.some(new RemoteAssetCache(directory, size * 1024 * 1024, eviction));
+    } catch (IOException e) {
+      logger.error("Unable to create the remote asset cache in {}, assets are always fetched from the remote stores",
+          directory, e);
+      return Opt.none();
+    }
+  }
+
   /**
    * OSGi callback. Close the database.
    */
@@ -448,21 +520,37 @@ public class OsgiAssetManager extends AbstractIndexProducer implements AssetMana
       secSvc.setOrganization(defaultOrg);
       secSvc.setUser(systemUser);
 
-      final AQueryBuilder q = delegate.createQuery();
-      final RichAResult r = enrich(q.select(q.snapshot()).where(q.version().isLatest()).run());
-      final int total = r.countSnapshots();
-      int current = 0;
-      logIndexRebuildBegin(logger, indexName, total, "snapshot(s)");
+      // Snapshots of organizations which are no longer known cannot be indexed
+      final Set<String> orgIds = new HashSet<>();
+      for (Organization snapshotOrg : orgDir.getOrganizations()) {
+        orgIds.add(snapshotOrg.getId());
+      }
+      for (String orgId : db.getOrganizationIds()) {
+        if (!orgIds.contains(orgId)) {
+          logger.warn("Skipping {} snapshotted event(s) of unknown organization '{}' while repopulating index '{}'",
+                  db.countEvents(orgId), orgId, indexName);
+        }
+      }
 
-      final Map<String, List<Snapshot>> byOrg = r.getSnapshots().groupMulti(Snapshots.getOrganizationId);
-      for (String orgId : byOrg.keySet()) {
-        final Organization snapshotOrg;
+      // Page through the latest snapshots of each organization so only one page is held in memory at a time
+      for (Organization snapshotOrg : orgDir.getOrganizations()) {
         try {
-          snapshotOrg = orgDir.getOrganization(orgId);
           secSvc.setOrganization(snapshotOrg);
           secSvc.setUser(SecurityUtil.createSystemUser(systemUserName, snapshotOrg));
 
-          for (Snapshot snapshot : byOrg.get(orgId)) {
+          final int total = (int) delegate.countEvents(snapshotOrg.getId());
+          if (total == 0) {
+            continue;
+          }
+          int current = 0;
+          logIndexRebuildBegin(logger, indexName, total, "snapshot(s)", snapshotOrg);
+
+          final AQueryBuilder q = delegate.createQuery();
+          final Iterator<ARecord> records = q.select(q.snapshot())
+                  .where(q.organizationId(snapshotOrg.getId()).and(q.version().isLatest()))
+                  .cursor(REPOPULATE_PAGE_SIZE);
+          while (records.hasNext()) {
+            final Snapshot snapshot = records.next().getSnapshot().get();
             current += 1;
             try {
               AssetManagerItem.TakeSnapshot takeSnapshot = withMessaging.mkTakeSnapshotMessage(snapshot, null);
@@ -470,13 +558,14 @@ public class OsgiAssetManager extends AbstractIndexProducer implements AssetMana
                       AssetManagerItem.ASSETMANAGER_QUEUE_PREFIX + WordUtils.capitalize(indexName),
                       MessageSender.DestinationType.Queue, takeSnapshot);
             } catch (Throwable t) {
-              logSkippingElement(logger, "event", snapshot.getMediaPackage().getIdentifier().toString(), org, t);
+              logSkippingElement(logger, "event", snapshot.getMediaPackage().getIdentifier().toString(),
+                      snapshotOrg, t);
             }
-            logIndexRebuildProgress(logger, indexName, total, current);
+            logIndexRebuildProgress(logger, indexName, total, Math.min(current, total), snapshotOrg);
           }
         } catch (Throwable t) {
-          logIndexRebuildError(logger, indexName, t, org);
-          throw new IndexRebuildException(indexName, getService(), org, t);
+          logIndexRebuildError(logger, indexName, t, snapshotOrg);
+          throw new IndexRebuildException(indexName, getService(), snapshotOrg, t);
         } finally {
           secSvc.setOrganization(defaultOrg);
           secSvc.setUser(systemUser);
@@ -487,4 +576,5 @@ public class OsgiAssetManager extends AbstractIndexProducer implements AssetMana
       secSvc.setUser(user);
     }
   }
+
 }
@@ -23,33 +23,57 @@ package org.opencastproject.assetmanager.impl;
 
 import static org.opencastproject.util.data.Option.some;
 
+import org.opencastproject.assetmanager.api.Snapshot;
+import org.opencastproject.assetmanager.api.query.AQueryBuilder;
+import org.opencastproject.assetmanager.api.query.ARecord;
 import org.opencastproject.kernel.scanner.AbstractScanner;
+import org.opencastproject.mediapackage.MediaPackageElement;
 import org.opencastproject.security.api.Organization;
+import org.opencastproject.security.api.SecurityService;
+import org.opencastproject.security.util.SecurityContext;
 import org.opencastproject.util.Log;
 import org.opencastproject.util.NeedleEye;
 import org.opencastproject.util.NotFoundException;
+import org.opencastproject.util.jmx.JmxUtil;
 import org.opencastproject.workflow.api.WorkflowService;
 
+import com.google.common.util.concurrent.RateLimiter;
+
 import org.apache.commons.lang3.BooleanUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.osgi.service.cm.ConfigurationException;
 import org.osgi.service.cm.ManagedService;
+import org.osgi.service.component.ComponentContext;
 import org.quartz.CronExpression;
 import org.quartz.JobDetail;
 import org.quartz.JobExecutionContext;
 import org.quartz.impl.StdSchedulerFactory;
 import org.slf4j.LoggerFactory;
 
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.Dictionary;
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.ObjectInstance;
 
-public class TimedMediaArchiver extends AbstractScanner implements ManagedService {
+public class TimedMediaArchiver extends AbstractScanner implements ManagedService, TimedMediaArchiverMXBean {
   private static final Log logger = new Log(LoggerFactory.getLogger(TimedMediaArchiver.class));
 
   public static final String PARAM_KEY_STORE_ID = "store-id";
   public static final String PARAM_KEY_MAX_AGE = "max-age";
+  public static final String PARAM_KEY_MAX_CONCURRENT_MOVES = "max-concurrent-moves";
+  public static final String PARAM_KEY_MAX_BANDWIDTH = "max-bandwidth";
+  public static final String PARAM_KEY_OFF_PEAK_WINDOW = "off-peak-window";
   public static final String JOB_GROUP = "oc-asset-manager-timed-media-archiver-group";
   public static final String JOB_NAME = "oc-asset-manager-timed-media-archive-job";
   public static final String SCANNER_NAME = "Timed media archive offloader";
@@ -61,6 +85,37 @@ public class TimedMediaArchiver extends AbstractScanner implements ManagedServic
   private String storeId;
   private long ageModifier;
 
+  /** Default number of media packages moved concurrently */
+  private static final int DEFAULT_MAX_CONCURRENT_MOVES = 4;
+
+  /** Number of snapshots fetched from the database at once */
+  private static final int PAGE_SIZE = 100;
+
+  /** Time in milliseconds moves in progress are given to finish when the component is deactivated */
+  private static final long STOP_TIMEOUT = TimeUnit.SECONDS.toMillis(30);
+
+  private SecurityService securityService;
+  private int maxConcurrentMoves = DEFAULT_MAX_CONCURRENT_MOVES;
+  /** Bandwidth cap in KiB per second, null if unlimited */
+  private RateLimiter bandwidth = null;
+  /** Start and end of the window new moves may be started in, null if unrestricted */
+  private LocalTime offPeakStart = null;
+  private LocalTime offPeakEnd = null;
+  private volatile boolean shutdown = false;
+  /** The workers moving the snapshots of the latest scan */
+  private volatile ExecutorService moves = null;
+  private ObjectInstance registeredMXBean;
+
+  // statistics
+  private volatile boolean running = false;
+  private final AtomicLong snapshotsMoved = new AtomicLong();
+  private final AtomicLong snapshotsFailed = new AtomicLong();
+  private final AtomicInteger movesInProgress = new AtomicInteger();
+  private final AtomicLong bytesMoved = new AtomicLong();
+  private final AtomicLong runBytesMoved = new AtomicLong();
+  private volatile long runStart = 0;
+  private volatile long runEnd = 0;
+
   public TimedMediaArchiver() {
     try {
       quartz = new StdSchedulerFactory().getScheduler();
@@ -113,6 +168,54 @@ public class TimedMediaArchiver extends AbstractScanner implements ManagedServic
       if (ageModifier < 0) {
         throw new ConfigurationException(PARAM_KEY_MAX_AGE, "Max age must be greater than zero");
       }
+
+      final String concurrency = (String) properties.get(PARAM_KEY_MAX_CONCURRENT_MOVES);
+      try {
+        maxConcurrentMoves = StringUtils.isBlank(concurrency)
+                ? DEFAULT_MAX_CONCURRENT_MOVES
+                : Integer.parseInt(concurrency.trim());
+      } catch (NumberFormatException e) {
+        throw new ConfigurationException(PARAM_KEY_MAX_CONCURRENT_MOVES, "Invalid number of concurrent moves");
+      }
+      if (maxConcurrentMoves < 1) {
+        throw new ConfigurationException(PARAM_KEY_MAX_CONCURRENT_MOVES, "At least one move must be allowed");
+      }
+      logger.debug("Maximum number of concurrent moves: " + maxConcurrentMoves);
+
+      final String maxBandwidth = (String) properties.get(PARAM_KEY_MAX_BANDWIDTH);
+      bandwidth = null;
+      if (StringUtils.isNotBlank(maxBandwidth)) {
+        final double mibPerSecond;
+        try {
+          mibPerSecond = Double.parseDouble(maxBandwidth.trim());
+        } catch (NumberFormatException e) {
+          throw new ConfigurationException(PARAM_KEY_MAX_BANDWIDTH, "Invalid bandwidth");
+        }
+        if (mibPerSecond < 0) {
+          throw new ConfigurationException(PARAM_KEY_MAX_BANDWIDTH, "Bandwidth must not be negative");
+        }
+        if (mibPerSecond > 0) {
+          bandwidth = RateLimiter.create(mibPerSecond * 1024);
+        }
+      }
+      logger.debug("Timed media offload bandwidth cap: " + (bandwidth == null ? "none" : maxBandwidth + " MiB/s"));
+
+      final String offPeakWindow = (String) properties.get(PARAM_KEY_OFF_PEAK_WINDOW);
+      offPeakStart = null;
+      offPeakEnd = null;
+      if (StringUtils.isNotBlank(offPeakWindow)) {
+        final String[] window = offPeakWindow.trim().split("\\s*-\\s*");
+        try {
+          if (window.length != 2) {
+            throw new ConfigurationException(PARAM_KEY_OFF_PEAK_WINDOW, "Window must be given as HH:mm-HH:mm");
+          }
+          offPeakStart = LocalTime.parse(window[0]);
+          offPeakEnd = LocalTime.parse(window[1]);
+        } catch (DateTimeParseException e) {
+          throw new ConfigurationException(PARAM_KEY_OFF_PEAK_WINDOW, "Window must be given as HH:mm-HH:mm");
+        }
+        logger.debug("Timed media offload window: " + offPeakStart + " to " + offPeakEnd);
+      }
     }
 
     schedule();
@@ -138,6 +241,49 @@ public class TimedMediaArchiver extends AbstractScanner implements ManagedServic
     return TRIGGER_NAME;
   }
 
+  @Override
+  protected void activate(ComponentContext cc) {
+    super.activate(cc);
+    shutdown = false;
+    registeredMXBean = JmxUtil.registerMXBean(this, "TimedMediaArchiver");
+  }
+
+  @Override
+  public void deactivate() {
+    // stop starting new moves and give the moves in progress some time to finish before stopping them
+    shutdown = true;
+    final ExecutorService executor = moves;
+    if (executor != null) {
+      executor.shutdown();
+      try {
+        if (!executor.awaitTermination(getStopTimeout(), TimeUnit.MILLISECONDS)) {
+          logger.warn("Stopping {} media offload move(s) still in progress", movesInProgress.get());
+          executor.shutdownNow();
+        }
+      } catch (InterruptedException e) {
+        executor.shutdownNow();
+        Thread.currentThread().interrupt();
+      }
+    }
+    if (registeredMXBean != null) {
+      JmxUtil.unregisterMXBean(registeredMXBean);
+    }
+    super.deactivate();
+  }
+
+  @Override
+  protected void bindSecurityService(SecurityService securityService) {
+    super.bindSecurityService(securityService);
+    this.securityService = securityService;
+  }
+
+  /**
+   * Move all snapshots of the current organization archived before the maximum age to the configured store.
+   * <p>
+   * The snapshots are streamed from the database and moved by a pool of {@link #maxConcurrentMoves} workers while the
+   * next ones are read. Only snapshots which are not in the target store yet are selected, so a run interrupted by
+   * leaving the off-peak window or by a shutdown is resumed by the next one.
+   */
   @Override
   public void scan() {
     Date maxAge = Calendar.getInstance().getTime();
@@ -145,13 +291,191 @@ public class TimedMediaArchiver extends AbstractScanner implements ManagedServic
     if (assetManager.getAssetStore(storeId).isNone()) {
       throw new RuntimeException("Store " + storeId + " is not available to the asset manager");
     }
+    if (!isOffPeak(now())) {
+      logger.info("Not offloading media outside of the off-peak window {} to {}", offPeakStart, offPeakEnd);
+      return;
+    }
 
+    final SecurityContext securityContext = getAdminContextFor(securityService.getOrganization().getId());
+    final Iterator<ARecord> records = findSnapshotsToMove(maxAge);
+    final ExecutorService executor = Executors.newFixedThreadPool(maxConcurrentMoves);
+    moves = executor;
+    final Semaphore slots = new Semaphore(maxConcurrentMoves);
+    running = true;
+    runStart = System.nanoTime();
+    runEnd = 0;
+    runBytesMoved.set(0);
     try {
-      // Hardcoded date of zero.  Assumption: there is nothing with a date older than 0 which needs to be auto moved.
-      assetManager.moveSnapshotsByDate(new Date(0), maxAge, storeId);
+      while (records.hasNext() && mayStartMoves()) {
+        final Snapshot snapshot = records.next().getSnapshot().get();
+        final long size = sizeOf(snapshot);
+        final RateLimiter limiter = bandwidth;
+        if (limiter != null) {
+          // pace the moves so the average transfer rate stays below the cap
+          limiter.acquire((int) Math.max(1, Math.min(Integer.MAX_VALUE, size / 1024)));
+        }
+        slots.acquire();
+        // waiting for the bandwidth or a free worker may have taken a while
+        if (!mayStartMoves()) {
+          slots.release();
+          break;
+        }
+        movesInProgress.incrementAndGet();
+        try {
+          executor.execute(() -> {
+            try {
+              securityContext.runInContext(() -> move(snapshot, size));
+            } finally {
+              movesInProgress.decrementAndGet();
+              slots.release();
+            }
+          });
+        } catch (RejectedExecutionException e) {
+          // the component has been deactivated in the meantime
+          movesInProgress.decrementAndGet();
+          slots.release();
+          break;
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      logger.warn("Interrupted while offloading media");
+    } finally {
+      executor.shutdown();
+      try {
+        // wait for the moves in progress, unless the component is deactivated which stops them after a while
+        while (!executor.awaitTermination(1, TimeUnit.SECONDS) && !shutdown) {
+          logger.debug("Waiting for {} media offload move(s) to finish", movesInProgress.get());
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      runEnd = System.nanoTime();
+      running = false;
+    }
+    logger.info("Offloaded {} bytes to store {} at {} bytes/s", runBytesMoved.get(), storeId, getThroughput());
+  }
+
+  /** Check if new moves may be started, which is not the case after a shutdown or outside of the off-peak window. */
+  private boolean mayStartMoves() {
+    if (shutdown) {
+      logger.info("Shutting down, pausing media offload");
+      return false;
+    }
+    if (!isOffPeak(now())) {
+      logger.info("Left the off-peak window, pausing media offload until the next run");
+      return false;
+    }
+    return true;
+  }
+
+  private void move(Snapshot snapshot, long size) {
+    final String mpId = snapshot.getMediaPackage().getIdentifier().toString();
+    try {
+      assetManager.moveSnapshotToStore(snapshot.getVersion(), mpId, storeId);
+      snapshotsMoved.incrementAndGet();
+      bytesMoved.addAndGet(size);
+      runBytesMoved.addAndGet(size);
     } catch (NotFoundException e) {
-      throw new RuntimeException("Unable to offload asset manager data", e);
+      // the snapshot has been deleted in the meantime
+      logger.debug("Snapshot {}@{} vanished before it could be offloaded", mpId, snapshot.getVersion());
+    } catch (Exception e) {
+      snapshotsFailed.incrementAndGet();
+      logger.error(e, "Unable to offload snapshot {}@{} to store {}", mpId, snapshot.getVersion(), storeId);
+    }
+  }
+
+  /** Stream the snapshots archived before <code>maxAge</code> which are not in the target store yet. */
+  Iterator<ARecord> findSnapshotsToMove(Date maxAge) {
+    final AQueryBuilder q = assetManager.createQuery();
+    return q.select(q.snapshot())
+            .where(q.archived().le(maxAge).and(q.storage(storeId).not()))
+            .cursor(PAGE_SIZE);
+  }
+
+  /** Time in milliseconds moves in progress are given to finish when the component is deactivated. */
+  long getStopTimeout() {
+    return STOP_TIMEOUT;
+  }
+
+  /** The current time of day the off-peak window is checked against. */
+  LocalTime now() {
+    return LocalTime.now();
+  }
+
+  /** Check if <code>time</code> is within the configured off-peak window, which may span midnight. */
+  boolean isOffPeak(LocalTime time) {
+    final LocalTime start = offPeakStart;
+    final LocalTime end = offPeakEnd;
+    if (start == null || end == null) {
+      return true;
+    }
+    if (start.isBefore(end)) {
+      return !time.isBefore(start) && time.isBefore(end);
+    }
+    return !time.isBefore(start) || time.isBefore(end);
+  }
+
+  /** Sum of the sizes of all elements of the snapshot's media package, as far as they are known. */
+  private static long sizeOf(Snapshot snapshot) {
+    long size = 0;
+    for (MediaPackageElement element : snapshot.getMediaPackage().getElements()) {
+      size += Math.max(0, element.getSize());
+    }
+    return size;
+  }
+
+  /**
+   * @see org.opencastproject.assetmanager.impl.TimedMediaArchiverMXBean#isRunning()
+   */
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+
+  /**
+   * @see org.opencastproject.assetmanager.impl.TimedMediaArchiverMXBean#getSnapshotsMoved()
+   */
+  @Override
+  public long getSnapshotsMoved() {
+    return snapshotsMoved.get();
+  }
+
+  /**
+   * @see org.opencastproject.assetmanager.impl.TimedMediaArchiverMXBean#getSnapshotsFailed()
+   */
+  @Override
+  public long getSnapshotsFailed() {
+    return snapshotsFailed.get();
+  }
+
+  /**
+   * @see org.opencastproject.assetmanager.impl.TimedMediaArchiverMXBean#getMovesInProgress()
+   */
+  @Override
+  public int getMovesInProgress() {
+    return movesInProgress.get();
+  }
+
+  /**
+   * @see org.opencastproject.assetmanager.impl.TimedMediaArchiverMXBean#getBytesMoved()
+   */
+  @Override
+  public long getBytesMoved() {
+    return bytesMoved.get();
+  }
+
+  /**
+   * @see org.opencastproject.assetmanager.impl.TimedMediaArchiverMXBean#getThroughput()
+   */
+  @Override
+  public long getThroughput() {
+    if (runStart == 0) {
+      return 0;
     }
+    final long end = running ? System.nanoTime() : runEnd;
+    final long millis = TimeUnit.NANOSECONDS.toMillis(end - runStart);
+    return millis > 0 ? runBytesMoved.get() * 1000 / millis : 0;
   }
 
   @Override
@@ -0,0 +1,71 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package org.opencastproject.assetmanager.impl;
+
+/**
+ * JMX Bean interface exposing the progress of the timed media archiver.
+ */
+public interface TimedMediaArchiverMXBean {
+
+  /**
+   * Gets whether an archiving run is in progress
+   *
+   * @return true if the archiver is moving snapshots
+   */
+  boolean isRunning();
+
+  /**
+   * Gets the number of snapshots moved to the remote store
+   *
+   * @return the number of moved snapshots
+   */
+  long getSnapshotsMoved();
+
+  /**
+   * Gets the number of snapshots which could not be moved
+   *
+   * @return the number of failed moves
+   */
+  long getSnapshotsFailed();
+
+  /**
+   * Gets the number of snapshots currently being moved
+   *
+   * @return the number of moves in progress
+   */
+  int getMovesInProgress();
+
+  /**
+   * Gets the size of all snapshots moved to the remote store
+   *
+   * @return the size in bytes
+   */
+  long getBytesMoved();
+
+  /**
+   * Gets the throughput of the current or, if none is in progress, the last archiving run
+   *
+   * @return the throughput in bytes per second
+   */
+  long getThroughput();
+
+}
@@ -38,6 +38,7 @@ import com.entwinemedia.fn.Fx;
 import com.entwinemedia.fn.data.Opt;
 import com.mysema.query.Tuple;
 import com.mysema.query.jpa.EclipseLinkTemplates;
+import com.mysema.query.jpa.JPASubQuery;
 import com.mysema.query.jpa.JPQLTemplates;
 import com.mysema.query.jpa.impl.JPADeleteClause;
 import com.mysema.query.jpa.impl.JPAQuery;
@@ -49,8 +50,12 @@ import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.annotation.ParametersAreNonnullByDefault;
 import javax.inject.Provider;
@@ -375,6 +380,15 @@ public class Database implements EntityPaths {
     return SnapshotDto.countEvents(entityManagerFactory.createEntityManager(), organization);
   }
 
+  /**
+   * Get the identifiers of all organizations owning snapshots in the asset manager.
+   *
+   * @return The organization identifiers
+   */
+  public List<String> getOrganizationIds() {
+    return SnapshotDto.getOrganizationIds(entityManagerFactory.createEntityManager());
+  }
+
   public Opt<AssetDtos.Full> findAssetByChecksumAndStore(final String checksum, final String storeId) {
     return penv.tx(new Fn<EntityManager, Opt<AssetDtos.Full>>() {
       @Override
@@ -387,6 +401,45 @@ public class Database implements EntityPaths {
     });
   }
 
+  /**
+   * Find already archived assets for a set of checksums with a single query.
+   * <p>
+   * Every version of a media package records all of its assets, so a checksum is usually shared by many rows. Only
+   * the row with the highest ID is fetched per checksum, which keeps the result at one row per checksum no matter how
+   * many versions exist.
+   *
+   * @param checksums
+   *          the checksums to look up
+   * @param storeId
+   *          the store the assets have to reside in
+   * @return one archived asset per known checksum, keyed by checksum
+   */
+  public Map<String, AssetDtos.Full> findAssetsByChecksumsAndStore(final Collection<String> checksums,
+          final String storeId) {
+    if (checksums.isEmpty()) {
+      return Collections.emptyMap();
+    }
+    return penv.tx(new Fn<EntityManager, Map<String, AssetDtos.Full>>() {
+      @Override
+      public Map<String, AssetDtos.Full> apply(EntityManager em) {
+        final QAssetDto latest = new QAssetDto("latest");
+        final List<Tuple> result = AssetDtos.baseJoin(em)
+                .where(QAssetDto.assetDto.id.in(new JPASubQuery()
+                        .from(latest)
+                        .where(latest.checksum.in(checksums).and(latest.storageId.eq(storeId)))
+                        .groupBy(latest.checksum)
+                        .list(latest.id.max())))
+                .list(Full.select);
+        final Map<String, AssetDtos.Full> assets = new HashMap<>();
+        for (Tuple tuple : result) {
+          final Full asset = Full.fromTuple.apply(tuple);
+          assets.putIfAbsent(asset.getAssetDto().getChecksum(), asset);
+        }
+        return assets;
+      }
+    });
+  }
+
   //
   // Utility
   //
@@ -36,6 +36,7 @@ import org.slf4j.LoggerFactory;
 
 import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
 import java.util.Set;
 
 import javax.persistence.CascadeType;
@@ -71,6 +72,7 @@ import javax.persistence.UniqueConstraint;
 @NamedQueries({
         @NamedQuery(name = "Snapshot.countEvents", query = "select count(distinct s.mediaPackageId) from Snapshot s "
                 + "where s.organizationId = :organizationId"),
+        @NamedQuery(name = "Snapshot.organizationIds", query = "select distinct s.organizationId from Snapshot s"),
         @NamedQuery(name = "Snapshot.countByMediaPackage", query = "select count(s) from Snapshot s "
                 + "where s.mediaPackageId = :mediaPackageId"),
         @NamedQuery(name = "Snapshot.countByMediaPackageAndOrg", query = "select count(s) from Snapshot s "
@@ -175,6 +177,10 @@ public class SnapshotDto {
     return storageId;
   }
 
+  public String getMediaPackageXml() {
+    return mediaPackageXml;
+  }
+
   void setAvailability(Availability a) {
     this.availability = a.name();
   }
@@ -265,4 +271,17 @@ public class SnapshotDto {
     logger.debug("Executing query {}", query);
     return query.getSingleResult();
   }
+
+  /**
+   * Get the identifiers of all organizations owning snapshots.
+   *
+   * @param em
+   *          An entity manager to use
+   * @return The organization identifiers
+   */
+  public static List<String> getOrganizationIds(EntityManager em) {
+    TypedQuery<String> query = em.createNamedQuery("Snapshot.organizationIds", String.class);
+    logger.debug("Executing query {}", query);
+    return query.getResultList();
+  }
 }
@@ -54,9 +54,14 @@ import com.mysema.query.types.expr.BooleanExpression;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 public abstract class AbstractASelectQuery implements ASelectQuery, SelectQueryContributor, EntityPaths {
@@ -110,61 +115,24 @@ public abstract class AbstractASelectQuery implements ASelectQuery, SelectQueryC
     });
   }
 
+  @Override public Iterator<ARecord> cursor(final int pageSize) {
+    if (pageSize < 1) {
+      throw new IllegalArgumentException("Page size must be positive but is " + pageSize);
+    }
+    return new KeysetCursor(pageSize);
+  }
+
   private AResult run(JPAQueryFactory f) {
+    // resolve AST
+    return run(f, contributeSelect(f));
+  }
+
+  private AResult run(JPAQueryFactory f, SelectQueryContribution r) {
     // run query and map the result to records
     final long startTime = System.nanoTime();
-    // resolve AST
-    final SelectQueryContribution r = contributeSelect(f);
     final boolean toFetchProperties = r.fetch.exists(Booleans.<Expression<?>>eq(QPropertyDto.propertyDto));
     // # create Querydsl query
-    final JPAQuery q = f.query();
-    // # from
-    {
-      // Make sure that the snapshotDto is always contained in the from clause because the media package ID and
-      //   the ID are always selected.
-      // Use a mutable hash set to be able to use the removeAll operation.
-      final Set<EntityPath<?>> from = Stream.<EntityPath<?>>mk(Q_SNAPSHOT)
-              .append(r.from) // all collected from clauses
-              .append(r.join.map(Join.getFrom)) // all from clauses from the joins
-              .toSet(SetB.MH);
-      // Now remove everything that will be joined. Adding them in both the from and a join
-      //   clause is not allowed.
-      from.removeAll(r.join.map(Join.getJoin).toSet());
-      q.from(JpaFns.toEntityPathArray(from));
-    }
-    // # join
-    if (!r.join.isEmpty()) {
-      // Group joins by entity and combine all "on" clauses with "or" expressions.
-      // This way there is only one join clause per distinct entity which eliminates the need to alias entities
-      //   like this `new QPropertyDto("alias")`.
-      // Entity aliasing produces many issues which seem to cause a huge rewrite of the query building mechanism
-      //   so it should be prevented at all costs.
-      final Map<EntityPath<?>, BooleanExpression> joins = r.join.foldl(
-          new HashMap<EntityPath<?>, BooleanExpression>(),
-          new Fn2<Map<EntityPath<?>, BooleanExpression>, Join, Map<EntityPath<?>, BooleanExpression>>() {
-            @Override
-            public Map<EntityPath<?>, BooleanExpression> apply(Map<EntityPath<?>, BooleanExpression> sum, Join join) {
-              // get the on expression saved with the join, may be null
-              final BooleanExpression existing = sum.get(join.join);
-              final BooleanExpression combined;
-              // combine the existing and the current expression
-              if (existing == null) {
-                combined = join.on;
-              } else if (existing.equals(join.on)) {
-                // if both expressions are equal there is no need to combine them
-                combined = existing;
-              } else {
-                // if different combine with logical "or"
-                combined = existing.or(join.on);
-              }
-              sum.put(join.join, combined);
-              return sum;
-            }
-          });
-      for (final Map.Entry<EntityPath<?>, BooleanExpression> j : joins.entrySet()) {
-        q.leftJoin(j.getKey()).on(j.getValue());
-      }
-    }
+    final JPAQuery q = mkQuery(f, r);
     // # where
     q.where(r.where.orNull());
     // # paging
@@ -276,6 +244,62 @@ public abstract class AbstractASelectQuery implements ASelectQuery, SelectQueryC
     );
   }
 
+  /**
+   * Create a Querydsl query containing the <code>from</code> and <code>join</code> clauses of contribution
+   * <code>r</code>.
+   */
+  private JPAQuery mkQuery(JPAQueryFactory f, SelectQueryContribution r) {
+    final JPAQuery q = f.query();
+    // # from
+    {
+      // Make sure that the snapshotDto is always contained in the from clause because the media package ID and
+      //   the ID are always selected.
+      // Use a mutable hash set to be able to use the removeAll operation.
+      final Set<EntityPath<?>> from = Stream.<EntityPath<?>>mk(Q_SNAPSHOT)
+              .append(r.from) // all collected from clauses
+              .append(r.join.map(Join.getFrom)) // all from clauses from the joins
+              .toSet(SetB.MH);
+      // Now remove everything that will be joined. Adding them in both the from and a join
+      //   clause is not allowed.
+      from.removeAll(r.join.map(Join.getJoin).toSet());
+      q.from(JpaFns.toEntityPathArray(from));
+    }
+    // # join
+    if (!r.join.isEmpty()) {
+      // Group joins by entity and combine all "on" clauses with "or" expressions.
+      // This way there is only one join clause per distinct entity which eliminates the need to alias entities
+      //   like this `new QPropertyDto("alias")`.
+      // Entity aliasing produces many issues which seem to cause a huge rewrite of the query building mechanism
+      //   so it should be prevented at all costs.
+      final Map<EntityPath<?>, BooleanExpression> joins = r.join.foldl(
+          new HashMap<EntityPath<?>, BooleanExpression>(),
+          new Fn2<Map<EntityPath<?>, BooleanExpression>, Join, Map<EntityPath<?>, BooleanExpression>>() {
+            @Override
+            public Map<EntityPath<?>, BooleanExpression> apply(Map<EntityPath<?>, BooleanExpression> sum, Join join) {
+              // get the on expression saved with the join, may be null
+              final BooleanExpression existing = sum.get(join.join);
+              final BooleanExpression combined;
+              // combine the existing and the current expression
+              if (existing == null) {
+                combined = join.on;
+              } else if (existing.equals(join.on)) {
+                // if both expressions are equal there is no need to combine them
+                combined = existing;
+              } else {
+                // if different combine with logical "or"
+                combined = existing.or(join.on);
+              }
+              sum.put(join.join, combined);
+              return sum;
+            }
+          });
+      for (final Map.Entry<EntityPath<?>, BooleanExpression> j : joins.entrySet()) {
+        q.leftJoin(j.getKey()).on(j.getValue());
+      }
+    }
+    return q;
+  }
+
   /**
    * Transform a Querydsl result {@link Tuple} into an {@link ARecord}.
    * To do the transformation I need to know what targets have been selected.
@@ -311,6 +335,87 @@ public abstract class AbstractASelectQuery implements ASelectQuery, SelectQueryC
     }
   };
 
+  /**
+   * Iterate the records of the query in pages of snapshots using keyset pagination on
+   * (organization, media package ID, version).
+   * <p>
+   * Each page is fetched in two steps. The first step selects only the keys of the next <code>pageSize</code>
+   * snapshots following the last key of the previous page, the second one runs the actual query restricted to these
+   * snapshots. This way properties joined to the snapshots do not distort the page size and no offset needs to be
+   * skipped by the database. Only the current page is held in memory.
+   */
+  private final class KeysetCursor implements Iterator<ARecord> {
+    private final int pageSize;
+    private Iterator<ARecord> page = Collections.emptyIterator();
+    private Tuple lastKey = null;
+    private boolean exhausted = false;
+
+    KeysetCursor(int pageSize) {
+      this.pageSize = pageSize;
+    }
+
+    @Override public boolean hasNext() {
+      while (!page.hasNext() && !exhausted) {
+        page = am.getDb().run(new Fn<JPAQueryFactory, List<ARecord>>() {
+          @Override public List<ARecord> apply(JPAQueryFactory f) {
+            return nextPage(f);
+          }
+        }).iterator();
+      }
+      return page.hasNext();
+    }
+
+    @Override public ARecord next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      return page.next();
+    }
+
+    private List<ARecord> nextPage(JPAQueryFactory f) {
+      final SelectQueryContribution r = contributeSelect(f);
+      // # select the keys of the next page
+      final JPAQuery q = mkQuery(f, r);
+      q.where(r.where.orNull());
+      if (lastKey != null) {
+        q.where(after(lastKey));
+      }
+      q.orderBy(Q_SNAPSHOT.organizationId.asc(), Q_SNAPSHOT.mediaPackageId.asc(), Q_SNAPSHOT.version.asc());
+      q.limit(pageSize);
+      q.distinct();
+      am.getDb().logQuery(q);
+      final List<Tuple> keys = q.list(Q_SNAPSHOT.id, Q_SNAPSHOT.organizationId, Q_SNAPSHOT.mediaPackageId,
+              Q_SNAPSHOT.version);
+      exhausted = keys.size() < pageSize;
+      if (keys.isEmpty()) {
+        return Collections.emptyList();
+      }
+      lastKey = keys.get(keys.size() - 1);
+      // # fetch the records of the page
+      final Map<Long, Integer> position = new HashMap<>();
+      for (Tuple key : keys) {
+        position.put(key.get(Q_SNAPSHOT.id), position.size());
+      }
+      final SelectQueryContribution pageContrib = r
+              .andWhere(Q_SNAPSHOT.id.in(position.keySet()))
+              .offset(Opt.<Integer>none())
+              .limit(Opt.<Integer>none())
+              .order(Stream.<OrderSpecifier<?>>empty());
+      final List<ARecord> records = new ArrayList<>(run(f, pageContrib).getRecords().toList());
+      records.sort(Comparator.comparing(record -> position.get(record.getSnapshotId())));
+      return records;
+    }
+
+    /** Create a predicate matching all snapshots ordered after <code>key</code>. */
+    private BooleanExpression after(Tuple key) {
+      final String org = key.get(Q_SNAPSHOT.organizationId);
+      final String mpId = key.get(Q_SNAPSHOT.mediaPackageId);
+      return Q_SNAPSHOT.organizationId.gt(org)
+              .or(Q_SNAPSHOT.organizationId.eq(org).and(Q_SNAPSHOT.mediaPackageId.gt(mpId)
+                      .or(Q_SNAPSHOT.mediaPackageId.eq(mpId).and(Q_SNAPSHOT.version.gt(key.get(Q_SNAPSHOT.version))))));
+    }
+  }
+
   /**
    * Specification of fields whose fetch is mandatory.
    */
@@ -25,6 +25,7 @@ import org.opencastproject.storage.StorageUsage;
 import com.entwinemedia.fn.data.Opt;
 
 import java.io.InputStream;
+import java.util.Map;
 
 /**
  * Versioned storage for binary resources.
@@ -39,6 +40,16 @@ public interface AssetStore extends StorageUsage {
   /** Add the content of <code>soure</code> under the given path. */
   void put(StoragePath path, Source source) throws AssetStoreException;
 
+  /**
+   * Add the content of several sources, each under its path. Stores able to transfer content concurrently should
+   * override this to do so.
+   */
+  default void putAll(Map<StoragePath, Source> sources) throws AssetStoreException {
+    for (Map.Entry<StoragePath, Source> entry : sources.entrySet()) {
+      put(entry.getKey(), entry.getValue());
+    }
+  }
+
   /**
    * Copy a resource to a new location.
    *
@@ -0,0 +1,417 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package org.opencastproject.assetmanager.impl.storage;
+
+import static java.lang.String.format;
+
+import org.opencastproject.util.Checksum;
+
+import com.entwinemedia.fn.data.Opt;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Size bounded local disk cache of assets fetched from remote asset stores.
+ * <p>
+ * Assets are keyed by their checksum, so content shared by several versions or media packages is cached only once.
+ * Assets without checksum are keyed by their storage path. Since archived content never changes, entries do not have to
+ * be invalidated; they are evicted by the configured policy once the cache exceeds its size budget. Concurrent requests
+ * for an asset which is not yet cached wait for a single fetch from the remote store.
+ */
+public final class RemoteAssetCache implements RemoteAssetCacheMXBean {
+
+  /** Eviction policies */
+  public enum Eviction {
+    /** Evict the least recently used asset */
+    LRU,
+    /** Evict the least frequently used asset, the least recently used one among equally used assets */
+    LFU
+  }
+
+  /** The logging facility */
+  private static final Logger logger = LoggerFactory.getLogger(RemoteAssetCache.class);
+
+  /** Suffix of files which are being fetched */
+  private static final String PARTIAL_SUFFIX = ".partial";
+
+  /** An asset in the cache */
+  private static final class Entry {
+    private final long size;
+    private long lastAccess;
+    private long uses;
+
+    Entry(long size, long lastAccess) {
+      this.size = size;
+      this.lastAccess = lastAccess;
+    }
+  }
+
+  /** The cache directory */
+  private final File directory;
+
+  /** The size budget of the cache in bytes */
+  private final long maxSize;
+
+  /** Orders entries by the order of their eviction */
+  private final Comparator<Entry> evictionOrder;
+
+  /** The cached assets by key */
+  private final Map<String, Entry> entries = new HashMap<>();
+
+  /** Fetches in progress by key */
+  private final ConcurrentMap<String, CompletableFuture<Void>> fetches = new ConcurrentHashMap<>();
+
+  /** The size of all cached assets in bytes */
+  private long size = 0L;
+
+  /** Logical clock ordering accesses */
+  private long clock = 0L;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong coalesced = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+
+  /**
+   * Creates a cache in the given directory, picking up the entries of a previous run.
+   *
+   * @param directory
+   *          the cache directory
+   * @param maxSize
+   *          the size budget in bytes
+   * @param eviction
+   *          the eviction policy
+   * @throws IOException
+   *           if the cache directory cannot be created
+   */
+  public RemoteAssetCache(File directory, long maxSize, Eviction eviction) throws IOException {
+    this.directory = directory;
+    this.maxSize = maxSize;
+    final Comparator<Entry> lru = Comparator.comparingLong(entry -> entry.lastAccess);
+    this.evictionOrder = eviction == Eviction.LFU
+            ? Comparator.<Entry>comparingLong(entry -> entry.uses).thenComparing(lru)
+            : lru;
+    FileUtils.forceMkdir(directory);
+
+    File[] files = directory.listFiles(File::isFile);
+    if (files != null) {
+      Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+      synchronized (this) {
+        for (File file : files) {
+          if (file.getName().endsWith(PARTIAL_SUFFIX)) {
+            FileUtils.deleteQuietly(file);
+          } else {
+            entries.put(file.getName(), new Entry(file.length(), ++clock));
+            size += file.length();
+          }
+        }
+        evict(null);
+      }
+    }
+    logger.info("Remote asset cache at {} holds {} assets ({} of {} bytes, {} eviction)", directory, entries.size(),
+            size, maxSize, eviction);
+  }
+
+  /**
+   * Returns the cache key of an asset.
+   *
+   * @param path
+   *          the storage path of the asset
+   * @param checksum
+   *          the checksum of the asset, may be <code>null</code>
+   * @return the key, which is usable as file name
+   */
+  static String key(StoragePath path, String checksum) {
+    final String key = StringUtils.isNotBlank(checksum) ? "c-" + checksum
+            : StringUtils.join(new Object[] { "p-" + path.getOrganizationId(), path.getMediaPackageId(),
+                    path.getVersion(), path.getMediaPackageElementId() }, '_');
+    return key.replaceAll("[^A-Za-z0-9._-]", "_");
+  }
+
+  /**
+   * Gets an asset from the cache, fetching it from the remote store if it is not cached yet.
+   * <p>
+   * Fetched content is verified against the expected size and checksum before it is cached. Assets which are known to
+   * exceed the size budget are read from the remote store directly.
+   *
+   * @param path
+   *          the storage path of the asset
+   * @param checksum
+   *          the checksum of the asset in the form "value (type)", may be <code>null</code>
+   * @param size
+   *          the size of the asset in bytes, may be <code>null</code> if unknown
+   * @param store
+   *          the remote store holding the asset
+   * @return the content of the asset, none if the store does not hold it
+   * @throws AssetStoreException
+   *           if the asset cannot be fetched or does not match its size or checksum
+   */
+  public Opt<InputStream> get(StoragePath path, String checksum, Long size, AssetStore store)
+          throws AssetStoreException {
+    if (size != null && size > maxSize) {
+      logger.debug("{} exceeds the size of the remote asset cache", path);
+      misses.incrementAndGet();
+      return store.get(path);
+    }
+    final String key = key(path, checksum);
+    InputStream cached = open(key);
+    if (cached != null) {
+      hits.incrementAndGet();
+      return Opt.some(cached);
+    }
+    misses.incrementAndGet();
+
+    final CompletableFuture<Void> fetch = new CompletableFuture<>();
+    final CompletableFuture<Void> running = fetches.putIfAbsent(key, fetch);
+    if (running == null) {
+      try {
+        final InputStream content = fetch(key, path, checksum, size, store);
+        fetch.complete(null);
+        return content == null ? Opt.none() : Opt.some(content);
+      } catch (RuntimeException e) {
+        fetch.completeExceptionally(e);
+        throw e;
+      } finally {
+        fetches.remove(key);
+      }
+    }
+
+    coalesced.incrementAndGet();
+    try {
+      running.join();
+    } catch (CompletionException e) {
+      logger.debug("Concurrent fetch of {} failed", path, e);
+    }
+    cached = open(key);
+    if (cached != null) {
+      return Opt.some(cached);
+    }
+    // Not cacheable or already evicted again
+    return store.get(path);
+  }
+
+  /** Opens a cached asset, returns <code>null</code> if it is not cached. */
+  private InputStream open(String key) {
+    synchronized (this) {
+      final Entry entry = entries.get(key);
+      if (entry == null) {
+        return null;
+      }
+      entry.lastAccess = ++clock;
+      entry.uses++;
+    }
+    try {
+      return new FileInputStream(new File(directory, key));
+    } catch (FileNotFoundException e) {
+      // Removed from outside
+      synchronized (this) {
+        final Entry entry = entries.remove(key);
+        if (entry != null) {
+          size -= entry.size;
+        }
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Fetches an asset from the remote store into the cache.
+   *
+   * @return the content of the fetched asset, <code>null</code> if the store does not hold it
+   */
+  private InputStream fetch(String key, StoragePath path, String checksum, Long expectedSize, AssetStore store)
+          throws AssetStoreException {
+    final Opt<InputStream> content = store.get(path);
+    if (content.isNone()) {
+      return null;
+    }
+    File partial = null;
+    final File file = new File(directory, key);
+    final InputStream in;
+    try {
+      // Every fetch gets its own file, so an oversized download being read is never overwritten
+      partial = Files.createTempFile(directory.toPath(), key + "-", PARTIAL_SUFFIX).toFile();
+      // closes the stream
+      FileUtils.copyInputStreamToFile(content.get(), partial);
+      verify(path, partial, checksum, expectedSize);
+      if (partial.length() > maxSize) {
+        // The size was not known in advance. Serve the download instead of fetching it again.
+        logger.debug("{} exceeds the size of the remote asset cache", path);
+        final File download = partial;
+        partial = null;
+        return new FileInputStream(download) {
+          @Override
+          public void close() throws IOException {
+            super.close();
+            FileUtils.deleteQuietly(download);
+          }
+        };
+      }
+      // The stream stays readable when the file is moved or evicted
+      in = new FileInputStream(partial);
+      Files.move(partial.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      FileUtils.deleteQuietly(partial);
+      throw new AssetStoreException("Unable to cache " + path, e);
+    } catch (AssetStoreException e) {
+      FileUtils.deleteQuietly(partial);
+      throw e;
+    }
+
+    synchronized (this) {
+      final Entry previous = entries.put(key, new Entry(file.length(), ++clock));
+      if (previous != null) {
+        size -= previous.size;
+      }
+      size += file.length();
+      evict(key);
+    }
+    logger.debug("Cached {} from {} as {}", path, store.getStoreType(), key);
+    return in;
+  }
+
+  /** Verifies a fetched asset against its expected size and checksum, if they are known. */
+  private static void verify(StoragePath path, File file, String checksum, Long expectedSize)
+          throws IOException, AssetStoreException {
+    if (expectedSize != null && expectedSize >= 0 && file.length() != expectedSize) {
+      throw new AssetStoreException(format("%s has %d bytes instead of the expected %d", path, file.length(),
+              expectedSize));
+    }
+    if (StringUtils.isBlank(checksum)) {
+      return;
+    }
+    final Checksum expected;
+    try {
+      expected = Checksum.fromString(checksum);
+    } catch (NoSuchAlgorithmException | IllegalArgumentException e) {
+      logger.warn("Unable to verify {} against checksum {}", path, checksum, e);
+      return;
+    }
+    final Checksum actual = Checksum.create(expected.getType(), file);
+    if (!expected.equals(actual)) {
+      throw new AssetStoreException(format("%s has checksum %s instead of the expected %s", path, actual, expected));
+    }
+  }
+
+  /** Evicts entries until the cache fits its size budget, never evicting the entry with the given key. */
+  private void evict(String keep) {
+    while (size > maxSize) {
+      String victim = null;
+      Entry victimEntry = null;
+      for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+        if (!entry.getKey().equals(keep)
+                && (victimEntry == null || evictionOrder.compare(entry.getValue(), victimEntry) < 0)) {
+          victim = entry.getKey();
+          victimEntry = entry.getValue();
+        }
+      }
+      if (victim == null) {
+        return;
+      }
+      // Open streams of evicted assets stay readable
+      FileUtils.deleteQuietly(new File(directory, victim));
+      entries.remove(victim);
+      size -= victimEntry.size;
+      evictions.incrementAndGet();
+      logger.debug("Evicted {} from the remote asset cache", victim);
+    }
+  }
+
+  /**
+   * @see org.opencastproject.assetmanager.impl.storage.RemoteAssetCacheMXBean#getHits()
+   */
+  @Override
+  public long getHits() {
+    return hits.get();
+  }
+
+  /**
+   * @see org.opencastproject.assetmanager.impl.storage.RemoteAssetCacheMXBean#getMisses()
+   */
+  @Override
+  public long getMisses() {
+    return misses.get();
+  }
+
+  /**
+   * @see org.opencastproject.assetmanager.impl.storage.RemoteAssetCacheMXBean#getHitRate()
+   */
+  @Override
+  public double getHitRate() {
+    final long requests = hits.get() + misses.get();
+    return requests == 0 ? 0 : (double) hits.get() / requests;
+  }
+
+  /**
+   * @see org.opencastproject.assetmanager.impl.storage.RemoteAssetCacheMXBean#getCoalesced()
+   */
+  @Override
+  public long getCoalesced() {
+    return coalesced.get();
+  }
+
+  /**
+   * @see org.opencastproject.assetmanager.impl.storage.RemoteAssetCacheMXBean#getEvictions()
+   */
+  @Override
+  public long getEvictions() {
+    return evictions.get();
+  }
+
+  /**
+   * @see org.opencastproject.assetmanager.impl.storage.RemoteAssetCacheMXBean#getSize()
+   */
+  @Override
+  public synchronized long getSize() {
+    return size;
+  }
+
+  /**
+   * @see org.opencastproject.assetmanager.impl.storage.RemoteAssetCacheMXBean#getEntries()
+   */
+  @Override
+  public synchronized int getEntries() {
+    return entries.size();
+  }
+
+}
@@ -0,0 +1,78 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package org.opencastproject.assetmanager.impl.storage;
+
+/**
+ * JMX Bean interface exposing statistics of the local cache of remotely stored assets.
+ */
+public interface RemoteAssetCacheMXBean {
+
+  /**
+   * Gets the number of requests served from the cache
+   *
+   * @return the number of hits
+   */
+  long getHits();
+
+  /**
+   * Gets the number of requests which had to fetch the asset from a remote store
+   *
+   * @return the number of misses
+   */
+  long getMisses();
+
+  /**
+   * Gets the ratio of requests served from the cache
+   *
+   * @return the hit rate between 0 and 1
+   */
+  double getHitRate();
+
+  /**
+   * Gets the number of requests which waited for a fetch of the same asset already in progress
+   *
+   * @return the number of coalesced requests
+   */
+  long getCoalesced();
+
+  /**
+   * Gets the number of assets evicted from the cache
+   *
+   * @return the number of evictions
+   */
+  long getEvictions();
+
+  /**
+   * Gets the size of all cached assets
+   *
+   * @return the size in bytes
+   */
+  long getSize();
+
+  /**
+   * Gets the number of cached assets
+   *
+   * @return the number of assets
+   */
+  int getEntries();
+
+}
@@ -34,20 +34,41 @@ import org.opencastproject.assetmanager.api.PropertyId;
 import org.opencastproject.assetmanager.api.Value;
 import org.opencastproject.assetmanager.api.Version;
 import org.opencastproject.assetmanager.api.query.AResult;
+import org.opencastproject.assetmanager.impl.persistence.AssetDtos;
+import org.opencastproject.assetmanager.impl.persistence.Database;
 import org.opencastproject.assetmanager.impl.persistence.QSnapshotDto;
+import org.opencastproject.assetmanager.impl.storage.AssetStore;
+import org.opencastproject.mediapackage.Catalog;
 import org.opencastproject.mediapackage.MediaPackage;
 import org.opencastproject.mediapackage.MediaPackageBuilderFactory;
 import org.opencastproject.mediapackage.MediaPackageElement;
 import org.opencastproject.mediapackage.MediaPackageElement.Type;
 import org.opencastproject.mediapackage.MediaPackageElementBuilderImpl;
 import org.opencastproject.mediapackage.MediaPackageElements;
+import org.opencastproject.util.Checksum;
+import org.opencastproject.util.ChecksumIndex;
+import org.opencastproject.util.ChecksumType;
+import org.opencastproject.util.IoSupport;
+import org.opencastproject.util.NotFoundException;
+import org.opencastproject.workspace.api.Workspace;
 
 import com.entwinemedia.fn.data.Opt;
 
+import org.apache.commons.io.FileUtils;
+import org.easymock.EasyMock;
 import org.junit.Test;
 
+import java.io.File;
 import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 // CHECKSTYLE:OFF
 public class AbstractAssetManagerBasicTest extends AbstractAssetManagerTestBase {
@@ -80,6 +101,130 @@ public class AbstractAssetManagerBasicTest extends AbstractAssetManagerTestBase
     assertFalse(v1.equals(v2));
   }
 
+  @Test
+  public void testCalcChecksumsInParallel() throws Exception {
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+    try {
+      final AbstractAssetManager parallel = withChecksumExecutor(executor, am.getWorkspace(), threads);
+      final MediaPackage mp = mkMediaPackage(mkCatalog(), mkCatalog(), mkCatalog());
+      parallel.calcChecksumsForMediaPackageElements(AbstractAssetManager.assetsOnly(mp));
+      final Checksum expected = Checksum.create(ChecksumType.DEFAULT_TYPE,
+              IoSupport.classPathResourceAsFile("/dublincore-a.xml").get());
+      for (Catalog catalog : mp.getCatalogs()) {
+        assertEquals("The checksum should be calculated from the file", expected, catalog.getChecksum());
+      }
+      assertFalse("Checksums should be calculated by the executor", threads.isEmpty());
+      assertFalse("Checksums should not be calculated by the caller", threads.contains(Thread.currentThread()));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testCalcChecksumsReusesIndexedChecksum() throws Exception {
+    final File file = File.createTempFile("asset", ".xml");
+    FileUtils.copyFile(IoSupport.classPathResourceAsFile("/dublincore-a.xml").get(), file);
+    // A checksum known to the workspace is used instead of reading the file again
+    final String indexed = "0123456789abcdef0123456789abcdef";
+    ChecksumIndex.put(file, indexed);
+    final Workspace workspace = EasyMock.createNiceMock(Workspace.class);
+    EasyMock.expect(workspace.get(EasyMock.anyObject(URI.class), EasyMock.anyBoolean())).andReturn(file).anyTimes();
+    EasyMock.replay(workspace);
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      final AbstractAssetManager parallel = withChecksumExecutor(executor, workspace, ConcurrentHashMap.newKeySet());
+      final MediaPackage mp = mkMediaPackage(mkCatalog());
+      parallel.calcChecksumsForMediaPackageElements(AbstractAssetManager.assetsOnly(mp));
+      assertEquals(Checksum.create(ChecksumType.DEFAULT_TYPE, indexed), mp.getCatalogs()[0].getChecksum());
+    } finally {
+      executor.shutdownNow();
+      FileUtils.deleteQuietly(file);
+    }
+  }
+
+  @Test(expected = AssetManagerException.class)
+  public void testCalcChecksumsInParallelFailure() throws Exception {
+    final Workspace workspace = EasyMock.createNiceMock(Workspace.class);
+    EasyMock.expect(workspace.get(EasyMock.anyObject(URI.class), EasyMock.anyBoolean()))
+            .andThrow(new NotFoundException()).anyTimes();
+    EasyMock.replay(workspace);
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      final AbstractAssetManager parallel = withChecksumExecutor(executor, workspace, ConcurrentHashMap.newKeySet());
+      parallel.calcChecksumsForMediaPackageElements(AbstractAssetManager.assetsOnly(
+              mkMediaPackage(mkCatalog(), mkCatalog())));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testFindAssetsByChecksumsAndStore() throws Exception {
+    final Catalog a = mkCatalog();
+    a.setChecksum(Checksum.create(ChecksumType.DEFAULT_TYPE, "a"));
+    final Catalog b = mkCatalog();
+    b.setChecksum(Checksum.create(ChecksumType.DEFAULT_TYPE, "b"));
+    final MediaPackage mp = mkMediaPackage(a, b);
+    am.takeSnapshot(OWNER, mp);
+    am.takeSnapshot(OWNER, mp);
+    final Version latest = am.takeSnapshot(OWNER, mp).getVersion();
+    final String checksumA = a.getChecksum().toString();
+    final String checksumB = b.getChecksum().toString();
+    final String unknown = Checksum.create(ChecksumType.DEFAULT_TYPE, "c").toString();
+    final String storeType = am.getLocalAssetStore().getStoreType();
+
+    final Map<String, AssetDtos.Full> found = am.getDb().findAssetsByChecksumsAndStore(
+            Arrays.asList(checksumA, checksumB, unknown), storeType);
+    assertEquals("One asset per archived checksum should be found",
+            new HashSet<>(Arrays.asList(checksumA, checksumB)), found.keySet());
+    assertEquals(mp.getIdentifier().toString(), found.get(checksumA).getMediaPackageId());
+    assertEquals(a.getIdentifier(), found.get(checksumA).getAssetDto().getMediaPackageElementId());
+    assertEquals(b.getIdentifier(), found.get(checksumB).getAssetDto().getMediaPackageElementId());
+    assertEquals("Of the assets shared by all versions only the latest should be fetched",
+            latest, found.get(checksumA).getVersion());
+    assertTrue("Assets of other stores should not be found",
+            am.getDb().findAssetsByChecksumsAndStore(Arrays.asList(checksumA, checksumB), "other-store").isEmpty());
+    assertTrue(am.getDb().findAssetsByChecksumsAndStore(Collections.<String>emptyList(), storeType).isEmpty());
+  }
+
+  /** Creates an asset manager using the same storage as the one under test, but calculating checksums in parallel. */
+  private AbstractAssetManager withChecksumExecutor(final ExecutorService executor, final Workspace workspace,
+          final Set<Thread> threads) {
+    return new AbstractAssetManager() {
+      @Override public Database getDb() {
+        return am.getDb();
+      }
+
+      @Override public HttpAssetProvider getHttpAssetProvider() {
+        return am.getHttpAssetProvider();
+      }
+
+      @Override public AssetStore getLocalAssetStore() {
+        return am.getLocalAssetStore();
+      }
+
+      @Override protected Workspace getWorkspace() {
+        return workspace;
+      }
+
+      @Override protected String getCurrentOrgId() {
+        return AbstractAssetManagerBasicTest.this.getCurrentOrgId();
+      }
+
+      @Override protected Opt<ExecutorService> getChecksumExecutor() {
+        return Opt.some(executor);
+      }
+
+      @Override protected Runnable inCurrentSecurityContext(final Runnable fn) {
+        return () -> {
+          threads.add(Thread.currentThread());
+          fn.run();
+        };
+      }
+    };
+  }
+
   @Test
   public void testSerializeVersion() throws Exception {
     final MediaPackage mp = MediaPackageBuilderFactory.newInstance().newMediaPackageBuilder().createNew();
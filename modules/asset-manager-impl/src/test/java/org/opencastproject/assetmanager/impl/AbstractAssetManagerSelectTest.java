@@ -61,8 +61,12 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.MethodSorters;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 
 import junitparams.JUnitParamsRunner;
 import junitparams.Parameters;
@@ -754,4 +758,46 @@ public class AbstractAssetManagerSelectTest extends AbstractAssetManagerTestBase
     assertEquals(1, q.select().page(4, 5).where(q.seriesId().eq("series-1")).run().getSize());
     assertEquals(1, q.select().where(q.seriesId().eq("series-1")).page(4, 5).run().getSize());
   }
+
+  @Test
+  public void testCursor() throws Exception {
+    final String[] mp = createAndAddMediaPackagesSimple(5, 2, 2);
+    am.setProperty(p.approved.mk(mp[0], true));
+    am.setProperty(p.count.mk(mp[0], 1L));
+    am.setProperty(p.approved.mk(mp[3], false));
+    // properties are joined to the snapshots but must not distort the page size
+    final Iterator<ARecord> records = q.select(q.snapshot(), q.properties()).cursor(3);
+    final List<ARecord> all = new ArrayList<>();
+    while (records.hasNext()) {
+      all.add(records.next());
+    }
+    assertEquals("The cursor should return all snapshots", 10, all.size());
+    final Set<Long> ids = new HashSet<>();
+    for (ARecord r : all) {
+      ids.add(r.getSnapshotId());
+    }
+    assertEquals("The cursor should not return a snapshot twice", 10, ids.size());
+    for (int i = 1; i < all.size(); i++) {
+      final Snapshot prev = all.get(i - 1).getSnapshot().get();
+      final Snapshot cur = all.get(i).getSnapshot().get();
+      final int cmp = prev.getMediaPackage().getIdentifier().toString()
+              .compareTo(cur.getMediaPackage().getIdentifier().toString());
+      assertTrue("Records should be ordered by media package ID and version",
+              cmp < 0 || cmp == 0 && Long.parseLong(prev.getVersion().toString())
+                      < Long.parseLong(cur.getVersion().toString()));
+    }
+    for (ARecord r : all) {
+      final String mpId = r.getMediaPackageId();
+      final int expected = mpId.equals(mp[0]) ? 2 : mpId.equals(mp[3]) ? 1 : 0;
+      assertEquals("Record of " + mpId + " should carry its properties", expected, r.getProperties().toList().size());
+    }
+    final Iterator<ARecord> latest = q.select(q.nothing()).where(q.version().isLatest()).cursor(2);
+    int count = 0;
+    while (latest.hasNext()) {
+      latest.next();
+      count++;
+    }
+    assertEquals("The cursor should respect the query's predicates", 5, count);
+    assertFalse(q.select().where(q.mediaPackageId("unknown")).cursor(2).hasNext());
+  }
 }
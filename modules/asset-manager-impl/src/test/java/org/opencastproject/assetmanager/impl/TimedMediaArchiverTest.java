@@ -0,0 +1,297 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+ */
+package org.opencastproject.assetmanager.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.opencastproject.assetmanager.api.Snapshot;
+import org.opencastproject.assetmanager.api.Version;
+import org.opencastproject.assetmanager.api.query.ARecord;
+import org.opencastproject.assetmanager.impl.storage.AssetStore;
+import org.opencastproject.mediapackage.MediaPackage;
+import org.opencastproject.mediapackage.MediaPackageElement;
+import org.opencastproject.mediapackage.identifier.IdImpl;
+import org.opencastproject.security.api.DefaultOrganization;
+import org.opencastproject.security.api.SecurityService;
+import org.opencastproject.security.api.User;
+import org.opencastproject.security.util.SecurityContext;
+
+import com.entwinemedia.fn.data.Opt;
+
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class TimedMediaArchiverTest {
+
+  private static final String STORE_ID = "remote";
+  private static final long TIMEOUT = 10000L;
+
+  private final DefaultOrganization organization = new DefaultOrganization();
+
+  /** Identifiers of the moved media packages */
+  private final List<String> moved = Collections.synchronizedList(new ArrayList<>());
+  /** Moves wait for this latch if set */
+  private volatile CountDownLatch moveLatch = null;
+  private final CountDownLatch moveStarted = new CountDownLatch(1);
+
+  private TestArchiver archiver;
+
+  @Before
+  public void setUp() throws Exception {
+    final TieredStorageAssetManager assetManager = EasyMock.createNiceMock(TieredStorageAssetManager.class);
+    EasyMock.expect(assetManager.getAssetStore(STORE_ID))
+            .andReturn(Opt.some(EasyMock.createNiceMock(AssetStore.class))).anyTimes();
+    assetManager.moveSnapshotToStore(EasyMock.anyObject(Version.class), EasyMock.anyString(), EasyMock.eq(STORE_ID));
+    EasyMock.expectLastCall().andAnswer(() -> {
+      moveStarted.countDown();
+      final CountDownLatch latch = moveLatch;
+      if (latch != null) {
+        latch.await(TIMEOUT, TimeUnit.MILLISECONDS);
+      }
+      moved.add((String) EasyMock.getCurrentArguments()[1]);
+      return null;
+    }).anyTimes();
+    EasyMock.replay(assetManager);
+
+    final SecurityService securityService = EasyMock.createNiceMock(SecurityService.class);
+    EasyMock.expect(securityService.getOrganization()).andReturn(organization).anyTimes();
+    EasyMock.replay(securityService);
+
+    archiver = new TestArchiver(securityService);
+    archiver.setAssetManager(assetManager);
+  }
+
+  @After
+  public void tearDown() {
+    if (archiver != null) {
+      archiver.deactivate();
+    }
+  }
+
+  @Test
+  public void testOffPeakWindow() throws Exception {
+    configure(null, "01:00-05:30");
+    assertFalse(archiver.isOffPeak(LocalTime.of(0, 59)));
+    assertTrue(archiver.isOffPeak(LocalTime.of(1, 0)));
+    assertTrue(archiver.isOffPeak(LocalTime.of(5, 29)));
+    assertFalse(archiver.isOffPeak(LocalTime.of(5, 30)));
+    assertFalse(archiver.isOffPeak(LocalTime.of(12, 0)));
+  }
+
+  @Test
+  public void testOffPeakWindowAcrossMidnight() throws Exception {
+    configure(null, "22:00 - 04:00");
+    assertFalse(archiver.isOffPeak(LocalTime.of(21, 59)));
+    assertTrue(archiver.isOffPeak(LocalTime.of(22, 0)));
+    assertTrue(archiver.isOffPeak(LocalTime.of(23, 59)));
+    assertTrue(archiver.isOffPeak(LocalTime.MIDNIGHT));
+    assertTrue(archiver.isOffPeak(LocalTime.of(3, 59)));
+    assertFalse(archiver.isOffPeak(LocalTime.of(4, 0)));
+    assertFalse(archiver.isOffPeak(LocalTime.of(12, 0)));
+  }
+
+  @Test
+  public void testNoOffPeakWindow() throws Exception {
+    configure(null, null);
+    assertTrue(archiver.isOffPeak(LocalTime.of(12, 0)));
+  }
+
+  @Test
+  public void testScanOutsideOffPeakWindow() throws Exception {
+    configure(null, "22:00-04:00");
+    archiver.time = LocalTime.of(12, 0);
+    final Iterator<ARecord> records = records(3, 0);
+    archiver.records = records;
+    archiver.scan();
+    assertTrue(moved.isEmpty());
+    assertTrue(records.hasNext());
+  }
+
+  @Test
+  public void testBandwidthPacing() throws Exception {
+    // 1 MiB/s, so four snapshots of 512 KiB take at least 1.5 seconds since the first one is not delayed
+    configure("1", null);
+    archiver.records = records(4, 512 * 1024);
+    final long start = System.nanoTime();
+    archiver.scan();
+    final long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    assertEquals(4, moved.size());
+    assertEquals(4 * 512 * 1024, archiver.getBytesMoved());
+    assertTrue("Moves were not paced, took " + millis + "ms", millis >= 1400);
+  }
+
+  @Test
+  public void testShutdownPausesScan() throws Exception {
+    configure(null, null);
+    final Iterator<ARecord> records = records(3, 0);
+    archiver.records = records;
+    moveLatch = new CountDownLatch(1);
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      final Future<?> scan = executor.submit(archiver::scan);
+      assertTrue(moveStarted.await(TIMEOUT, TimeUnit.MILLISECONDS));
+      final Future<?> deactivate = executor.submit(archiver::deactivate);
+      moveLatch.countDown();
+      deactivate.get(TIMEOUT, TimeUnit.MILLISECONDS);
+      scan.get(TIMEOUT, TimeUnit.MILLISECONDS);
+    } finally {
+      executor.shutdownNow();
+    }
+    // The move in progress finishes, but no new moves are started for the remaining snapshots
+    assertTrue(moved.contains("mp-0"));
+    assertFalse(moved.contains("mp-2"));
+    assertTrue(records.hasNext());
+    assertFalse(archiver.isRunning());
+  }
+
+  @Test
+  public void testDeactivateStopsMovesInProgress() throws Exception {
+    configure(null, null);
+    archiver.records = records(3, 0);
+    archiver.stopTimeout = 100L;
+    moveLatch = new CountDownLatch(1);
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      final Future<?> scan = executor.submit(archiver::scan);
+      assertTrue(moveStarted.await(TIMEOUT, TimeUnit.MILLISECONDS));
+      // The move never finishes by itself, so it is interrupted once the stop timeout is over
+      final long start = System.nanoTime();
+      archiver.deactivate();
+      final long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+      assertTrue("Deactivation took " + millis + "ms", millis < TIMEOUT);
+      scan.get(TIMEOUT, TimeUnit.MILLISECONDS);
+    } finally {
+      moveLatch.countDown();
+      executor.shutdownNow();
+    }
+    assertFalse(moved.contains("mp-0"));
+    assertFalse(archiver.isRunning());
+  }
+
+  @Test
+  public void testLeavingOffPeakWindowWhileWaitingStopsScan() throws Exception {
+    configure("1024", "22:00-04:00");
+    // The window is left after the second snapshot has been read, while waiting for the bandwidth to start its move
+    archiver.offPeakChecks = 4;
+    final Iterator<ARecord> records = records(3, 0);
+    archiver.records = records;
+    archiver.scan();
+    assertEquals(Collections.singletonList("mp-0"), moved);
+    assertTrue(records.hasNext());
+  }
+
+  private void configure(String maxBandwidth, String offPeakWindow) throws Exception {
+    final Hashtable<String, String> properties = new Hashtable<>();
+    properties.put(TimedMediaArchiver.PARAM_KEY_ENABLED, "true");
+    properties.put(TimedMediaArchiver.PARAM_KEY_CRON_EXPR, "0 0 1 * * ?");
+    properties.put(TimedMediaArchiver.PARAM_KEY_STORE_ID, STORE_ID);
+    properties.put(TimedMediaArchiver.PARAM_KEY_MAX_AGE, "0");
+    properties.put(TimedMediaArchiver.PARAM_KEY_MAX_CONCURRENT_MOVES, "1");
+    if (maxBandwidth != null) {
+      properties.put(TimedMediaArchiver.PARAM_KEY_MAX_BANDWIDTH, maxBandwidth);
+    }
+    if (offPeakWindow != null) {
+      properties.put(TimedMediaArchiver.PARAM_KEY_OFF_PEAK_WINDOW, offPeakWindow);
+    }
+    archiver.updated(properties);
+  }
+
+  /** Creates records of snapshots with media packages "mp-0", "mp-1", ... holding a single element each. */
+  private static Iterator<ARecord> records(int count, long size) {
+    final List<ARecord> records = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      final MediaPackageElement element = EasyMock.createNiceMock(MediaPackageElement.class);
+      EasyMock.expect(element.getSize()).andReturn(size).anyTimes();
+      final MediaPackage mp = EasyMock.createNiceMock(MediaPackage.class);
+      EasyMock.expect(mp.getIdentifier()).andReturn(new IdImpl("mp-" + i)).anyTimes();
+      EasyMock.expect(mp.getElements()).andReturn(new MediaPackageElement[] { element }).anyTimes();
+      final Snapshot snapshot = EasyMock.createNiceMock(Snapshot.class);
+      EasyMock.expect(snapshot.getMediaPackage()).andReturn(mp).anyTimes();
+      EasyMock.expect(snapshot.getVersion()).andReturn(VersionImpl.mk(1L)).anyTimes();
+      final ARecord record = EasyMock.createNiceMock(ARecord.class);
+      EasyMock.expect(record.getSnapshot()).andReturn(Opt.some(snapshot)).anyTimes();
+      EasyMock.replay(element, mp, snapshot, record);
+      records.add(record);
+    }
+    return records.iterator();
+  }
+
+  /** Archiver reading the given records instead of querying the asset manager, without a quartz scheduler */
+  private final class TestArchiver extends TimedMediaArchiver {
+
+    private volatile Iterator<ARecord> records = Collections.emptyIterator();
+    private volatile LocalTime time = null;
+    private volatile long stopTimeout = TIMEOUT;
+    /** Number of times the time of day is within the off-peak window before it is left, unlimited if negative */
+    private volatile int offPeakChecks = -1;
+
+    private TestArchiver(SecurityService securityService) {
+      shutdown();
+      setQuartz(null);
+      bindSecurityService(securityService);
+    }
+
+    @Override
+    Iterator<ARecord> findSnapshotsToMove(Date maxAge) {
+      return records;
+    }
+
+    @Override
+    long getStopTimeout() {
+      return stopTimeout;
+    }
+
+    @Override
+    LocalTime now() {
+      if (offPeakChecks >= 0) {
+        return offPeakChecks-- > 0 ? LocalTime.of(23, 0) : LocalTime.of(12, 0);
+      }
+      return time != null ? time : super.now();
+    }
+
+    @Override
+    public SecurityContext getAdminContextFor(String orgId) {
+      final SecurityService securityService = EasyMock.createNiceMock(SecurityService.class);
+      final User user = EasyMock.createNiceMock(User.class);
+      EasyMock.replay(securityService, user);
+      return new SecurityContext(securityService, organization, user);
+    }
+  }
+
+}
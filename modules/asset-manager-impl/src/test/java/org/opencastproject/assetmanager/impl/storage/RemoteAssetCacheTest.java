@@ -0,0 +1,246 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package org.opencastproject.assetmanager.impl.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.opencastproject.assetmanager.impl.VersionImpl;
+import org.opencastproject.util.Checksum;
+import org.opencastproject.util.ChecksumType;
+
+import com.entwinemedia.fn.data.Opt;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.easymock.EasyMock;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RemoteAssetCacheTest {
+
+  private static final StoragePath PATH_A = StoragePath.mk("org", "mp", VersionImpl.mk(1L), "a");
+  private static final StoragePath PATH_B = StoragePath.mk("org", "mp", VersionImpl.mk(1L), "b");
+  private static final StoragePath PATH_C = StoragePath.mk("org", "mp", VersionImpl.mk(1L), "c");
+
+  @Rule
+  public TemporaryFolder testFolder = new TemporaryFolder();
+
+  private File directory;
+  private AtomicInteger fetches;
+
+  @Before
+  public void setUp() throws Exception {
+    directory = new File(testFolder.getRoot(), "cache");
+    fetches = new AtomicInteger();
+  }
+
+  /** Creates a store holding content of the given size for every path. */
+  private AssetStore store(final int size, final CountDownLatch release) {
+    AssetStore store = EasyMock.createNiceMock(AssetStore.class);
+    EasyMock.expect(store.get(EasyMock.anyObject(StoragePath.class))).andAnswer(() -> {
+      fetches.incrementAndGet();
+      if (release != null) {
+        release.await(10, TimeUnit.SECONDS);
+      }
+      return Opt.<InputStream>some(new ByteArrayInputStream(StringUtils.repeat('x', size).getBytes()));
+    }).anyTimes();
+    EasyMock.expect(store.getStoreType()).andReturn("remote").anyTimes();
+    EasyMock.replay(store);
+    return store;
+  }
+
+  private static String checksum(final int size) throws Exception {
+    return Checksum.create(ChecksumType.DEFAULT_TYPE,
+            new ByteArrayInputStream(StringUtils.repeat('x', size).getBytes())).toString();
+  }
+
+  private static String read(Opt<InputStream> content) throws Exception {
+    try (InputStream in = content.get()) {
+      return IOUtils.toString(in, StandardCharsets.UTF_8);
+    }
+  }
+
+  @Test
+  public void testReadThrough() throws Exception {
+    RemoteAssetCache cache = new RemoteAssetCache(directory, 1024, RemoteAssetCache.Eviction.LRU);
+    AssetStore store = store(10, null);
+
+    assertEquals(10, read(cache.get(PATH_A, checksum(10), null, store)).length());
+    assertEquals(10, read(cache.get(PATH_A, checksum(10), null, store)).length());
+    // Same content in another version
+    assertEquals(10, read(cache.get(PATH_B, checksum(10), null, store)).length());
+
+    assertEquals(1, fetches.get());
+    assertEquals(2, cache.getHits());
+    assertEquals(1, cache.getMisses());
+    assertEquals(1, cache.getEntries());
+  }
+
+  @Test
+  public void testConcurrentFetches() throws Exception {
+    RemoteAssetCache cache = new RemoteAssetCache(directory, 1024, RemoteAssetCache.Eviction.LRU);
+    CountDownLatch release = new CountDownLatch(1);
+    AssetStore store = store(10, release);
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<String>> results = new ArrayList<>();
+      for (int i = 0; i < 4; i++) {
+        results.add(executor.submit(() -> read(cache.get(PATH_A, checksum(10), null, store))));
+      }
+      // Give all requests the chance to wait for the first fetch
+      Thread.sleep(200);
+      release.countDown();
+      for (Future<String> result : results) {
+        assertEquals(10, result.get().length());
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    assertEquals(1, fetches.get());
+    assertEquals(3, cache.getCoalesced());
+  }
+
+  @Test
+  public void testLruEviction() throws Exception {
+    RemoteAssetCache cache = new RemoteAssetCache(directory, 25, RemoteAssetCache.Eviction.LRU);
+    AssetStore store = store(10, null);
+    read(cache.get(PATH_A, null, null, store));
+    read(cache.get(PATH_B, null, null, store));
+    read(cache.get(PATH_A, null, null, store));
+    read(cache.get(PATH_A, null, null, store));
+    read(cache.get(PATH_B, null, null, store));
+    // a is the least recently used asset
+    read(cache.get(PATH_C, null, null, store));
+
+    assertEquals(2, cache.getEntries());
+    assertEquals(1, cache.getEvictions());
+    read(cache.get(PATH_B, null, null, store));
+    assertEquals(3, fetches.get());
+    read(cache.get(PATH_A, null, null, store));
+    assertEquals(4, fetches.get());
+  }
+
+  @Test
+  public void testLfuEviction() throws Exception {
+    RemoteAssetCache cache = new RemoteAssetCache(directory, 25, RemoteAssetCache.Eviction.LFU);
+    AssetStore store = store(10, null);
+    read(cache.get(PATH_A, null, null, store));
+    read(cache.get(PATH_B, null, null, store));
+    read(cache.get(PATH_A, null, null, store));
+    read(cache.get(PATH_A, null, null, store));
+    read(cache.get(PATH_B, null, null, store));
+    // b is the least frequently used asset
+    read(cache.get(PATH_C, null, null, store));
+
+    assertEquals(2, cache.getEntries());
+    read(cache.get(PATH_A, null, null, store));
+    assertEquals(3, fetches.get());
+    read(cache.get(PATH_B, null, null, store));
+    assertEquals(4, fetches.get());
+  }
+
+  @Test
+  public void testTooLargeForCache() throws Exception {
+    RemoteAssetCache cache = new RemoteAssetCache(directory, 5, RemoteAssetCache.Eviction.LRU);
+    AssetStore store = store(10, null);
+    assertEquals(10, read(cache.get(PATH_A, null, null, store)).length());
+    assertEquals(0, cache.getEntries());
+    assertEquals(0, cache.getSize());
+    // The download is served instead of fetching the asset again
+    assertEquals(1, fetches.get());
+    assertEquals(0, directory.listFiles().length);
+  }
+
+  @Test
+  public void testKnownSizeTooLargeForCache() throws Exception {
+    RemoteAssetCache cache = new RemoteAssetCache(directory, 5, RemoteAssetCache.Eviction.LRU);
+    AssetStore store = store(10, null);
+    assertEquals(10, read(cache.get(PATH_A, checksum(10), 10L, store)).length());
+    assertEquals(1, fetches.get());
+    assertEquals(0, cache.getEntries());
+    assertEquals(0, directory.listFiles().length);
+  }
+
+  @Test
+  public void testSizeMismatch() throws Exception {
+    RemoteAssetCache cache = new RemoteAssetCache(directory, 1024, RemoteAssetCache.Eviction.LRU);
+    AssetStore store = store(10, null);
+    try {
+      cache.get(PATH_A, null, 11L, store);
+      fail("An asset of the wrong size must not be cached");
+    } catch (AssetStoreException e) {
+      // expected
+    }
+    assertEquals(0, cache.getEntries());
+    assertEquals(0, directory.listFiles().length);
+
+    assertEquals(10, read(cache.get(PATH_A, null, 10L, store)).length());
+    assertEquals(1, cache.getEntries());
+  }
+
+  @Test
+  public void testChecksumMismatch() throws Exception {
+    RemoteAssetCache cache = new RemoteAssetCache(directory, 1024, RemoteAssetCache.Eviction.LRU);
+    AssetStore store = store(10, null);
+    try {
+      cache.get(PATH_A, checksum(11), 10L, store);
+      fail("An asset with the wrong checksum must not be cached");
+    } catch (AssetStoreException e) {
+      // expected
+    }
+    assertEquals(0, cache.getEntries());
+    assertEquals(0, directory.listFiles().length);
+
+    assertEquals(10, read(cache.get(PATH_A, checksum(10), 10L, store)).length());
+    assertEquals(1, cache.getEntries());
+  }
+
+  @Test
+  public void testRestore() throws Exception {
+    read(new RemoteAssetCache(directory, 1024, RemoteAssetCache.Eviction.LRU).get(PATH_A, null, null, store(10, null)));
+
+    RemoteAssetCache cache = new RemoteAssetCache(directory, 1024, RemoteAssetCache.Eviction.LRU);
+    assertEquals(1, cache.getEntries());
+    assertEquals(10, cache.getSize());
+    assertTrue(cache.get(PATH_A, null, null, store(10, null)).isSome());
+    assertEquals(1, fetches.get());
+  }
+
+}
@@ -49,7 +49,10 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public abstract class AwsAbstractArchive implements AssetStore {
 
@@ -117,7 +120,7 @@ public abstract class AwsAbstractArchive implements AssetStore {
       // New mapping will point to the SAME AWS object, nothing will be uploaded
       logger.debug("Adding AWS {} link mapping to database: {} points to {}, version {}", getStoreType(),
               to, map.getObjectKey(), map.getObjectVersion());
-      database.storeMapping(to, map.getObjectKey(), map.getObjectVersion());
+      database.storeMapping(to, map.getObjectKey(), map.getObjectVersion(), map.getObjectSize());
       return true;
     } catch (AwsAssetDatabaseException e) {
       throw new AssetStoreException(e);
@@ -172,27 +175,82 @@ public abstract class AwsAbstractArchive implements AssetStore {
     // hard-link. If not, this will be a download + hard-link
     final File origin = getFileFromWorkspace(source);
 
-    String objectName = buildObjectName(origin, storagePath);
-    String objectVersion = null;
+    AwsUploadOperationResult result;
     try {
       // Upload file to AWS
-      AwsUploadOperationResult result = uploadObject(origin, objectName);
-      objectName = result.getObjectName();
-      objectVersion = result.getObjectVersion();
+      result = uploadObject(origin, buildObjectName(origin, storagePath));
     } catch (Exception e) {
       throw new AssetStoreException(e);
     }
+    storeMapping(storagePath, result);
+  }
+
+  /**
+   * @see org.opencastproject.assetmanager.impl.storage.AssetStore#putAll(Map)
+   */
+  public void putAll(Map<StoragePath, Source> sources) throws AssetStoreException {
+    final Map<String, File> origins = new LinkedHashMap<>();
+    final Map<StoragePath, String> objectNames = new LinkedHashMap<>();
+    for (Map.Entry<StoragePath, Source> entry : sources.entrySet()) {
+      final File origin = getFileFromWorkspace(entry.getValue());
+      final String objectName = buildObjectName(origin, entry.getKey());
+      origins.put(objectName, origin);
+      objectNames.put(entry.getKey(), objectName);
+    }
+
+    final Map<String, AwsUploadOperationResult> results = new HashMap<>();
+    try {
+      uploadObjects(origins, results);
+    } catch (Exception e) {
+      // Map the objects uploaded before the failure, so they are not left in the bucket without a mapping
+      final AssetStoreException failure = new AssetStoreException(e);
+      try {
+        storeMappings(objectNames, results);
+      } catch (AssetStoreException mappingFailure) {
+        failure.addSuppressed(mappingFailure);
+      }
+      throw failure;
+    }
+    storeMappings(objectNames, results);
+  }
+
+  private void storeMappings(Map<StoragePath, String> objectNames, Map<String, AwsUploadOperationResult> results)
+          throws AssetStoreException {
+    for (Map.Entry<StoragePath, String> entry : objectNames.entrySet()) {
+      final AwsUploadOperationResult result = results.get(entry.getValue());
+      if (result != null) {
+        storeMapping(entry.getKey(), result);
+      }
+    }
+  }
 
+  private void storeMapping(StoragePath storagePath, AwsUploadOperationResult result) throws AssetStoreException {
     try {
       // Upload was successful. Store mapping in the database
       logger.debug("Adding AWS {} mapping to database: {} points to {}, object version {}", getStoreType(),
-              storagePath, objectName, objectVersion);
-      database.storeMapping(storagePath, objectName, objectVersion);
+              storagePath, result.getObjectName(), result.getObjectVersion());
+      database.storeMapping(storagePath, result.getObjectName(), result.getObjectVersion(), result.getObjectSize());
     } catch (AwsAssetDatabaseException e) {
       throw new AssetStoreException(e);
     }
   }
 
+  /**
+   * Uploads several objects, by default one after another. Implementations able to transfer objects concurrently
+   * should override this.
+   *
+   * @param origins
+   *          the files to upload by object name
+   * @param results
+   *          receives the result of each completed upload by object name, even if another upload fails
+   */
+  protected void uploadObjects(Map<String, File> origins, Map<String, AwsUploadOperationResult> results)
+          throws AssetStoreException {
+    for (Map.Entry<String, File> entry : origins.entrySet()) {
+      results.put(entry.getKey(), uploadObject(entry.getValue(), entry.getKey()));
+    }
+  }
+
   protected abstract AwsUploadOperationResult uploadObject(File origin, String objectName) throws AssetStoreException;
 
   /** @see org.opencastproject.assetmanager.impl.storage.AssetStore#get(StoragePath) */
@@ -24,10 +24,16 @@ package org.opencastproject.assetmanager.aws;
 public class AwsUploadOperationResult {
   private String objectName;
   private String objectVersion;
+  private Long objectSize;
 
   public AwsUploadOperationResult(String objectName, String version) {
+    this(objectName, version, null);
+  }
+
+  public AwsUploadOperationResult(String objectName, String version, Long size) {
     this.objectName = objectName;
     this.objectVersion = version;
+    this.objectSize = size;
   }
 
   public String getObjectName() {
@@ -37,4 +43,9 @@ public class AwsUploadOperationResult {
   public String getObjectVersion() {
     return this.objectVersion;
   }
+
+  /** @return the size of the uploaded object in bytes or <code>null</code> if it is unknown */
+  public Long getObjectSize() {
+    return this.objectSize;
+  }
 }
@@ -30,6 +30,9 @@ public interface AwsAssetDatabase {
   AwsAssetMapping storeMapping(StoragePath path, String objectKey, String objectVersion) throws
           AwsAssetDatabaseException;
 
+  AwsAssetMapping storeMapping(StoragePath path, String objectKey, String objectVersion, Long objectSize) throws
+          AwsAssetDatabaseException;
+
   void deleteMapping(StoragePath path) throws AwsAssetDatabaseException;
 
   AwsAssetMapping findMapping(StoragePath path) throws AwsAssetDatabaseException;
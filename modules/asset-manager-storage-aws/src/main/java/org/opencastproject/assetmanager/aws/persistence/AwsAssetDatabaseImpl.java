@@ -77,8 +77,14 @@ public class AwsAssetDatabaseImpl implements AwsAssetDatabase {
   @Override
   public AwsAssetMapping storeMapping(StoragePath path, String objectKey, String objectVersion)
           throws AwsAssetDatabaseException {
+    return storeMapping(path, objectKey, objectVersion, null);
+  }
+
+  @Override
+  public AwsAssetMapping storeMapping(StoragePath path, String objectKey, String objectVersion, Long objectSize)
+          throws AwsAssetDatabaseException {
     AwsAssetMappingDto dto = AwsAssetMappingDto.storeMapping(emf.createEntityManager(), path, objectKey,
-            objectVersion);
+            objectVersion, objectSize);
     if (dto != null) {
       return dto.toAWSArchiveMapping();
     }
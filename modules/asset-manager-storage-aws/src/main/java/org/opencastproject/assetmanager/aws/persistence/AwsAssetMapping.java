@@ -32,11 +32,13 @@ public final class AwsAssetMapping {
   private final String objectKey;
   // This is the AWS object version (DIFFERENT FROM MH version, this is used for recovery when the object is deleted)
   private final String objectVersion;
+  // Size of the AWS object in bytes, unknown for objects stored by older versions
+  private final Long objectSize;
   // Date/time this asset was deleted
   private final Date deletionDate;
 
   public AwsAssetMapping(String organizationId, String mediaPackageId, String mediaPackageElementId, Long version,
-          String objectKey, String objectVersion, Date deletedDate) {
+          String objectKey, String objectVersion, Long objectSize, Date deletedDate) {
     super();
     this.organizationId = organizationId;
     this.mediaPackageId = mediaPackageId;
@@ -44,6 +46,7 @@ public final class AwsAssetMapping {
     this.version = version;
     this.objectKey = objectKey;
     this.objectVersion = objectVersion;
+    this.objectSize = objectSize;
     this.deletionDate = deletedDate;
   }
 
@@ -71,6 +74,10 @@ public final class AwsAssetMapping {
     return objectVersion;
   }
 
+  public Long getObjectSize() {
+    return objectSize;
+  }
+
   public Date getDeletionDate() {
     return deletionDate;
   }
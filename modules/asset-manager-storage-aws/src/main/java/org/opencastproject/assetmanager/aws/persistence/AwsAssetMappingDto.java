@@ -107,6 +107,10 @@ public final class AwsAssetMappingDto {
   @Column(name = "object_version", nullable = false, length = 1024)
   private String objectVersion;
 
+  // The size of the AWS object in bytes
+  @Column(name = "object_size")
+  private Long objectSize;
+
   @Column(name = "deletion_date")
   @Temporal(TemporalType.TIMESTAMP)
   private Date deletionDate;
@@ -116,25 +120,27 @@ public final class AwsAssetMappingDto {
 
   /** Constructor with all fields. */
   public AwsAssetMappingDto(String organizationId, String mediaPackageId, String elementId, Long version,
-          String objectKey, String objectVersion) {
+          String objectKey, String objectVersion, Long objectSize) {
     this.organizationId = organizationId;
     this.mediaPackageId = mediaPackageId;
     this.mediaPackageElementId = elementId;
     this.version = version;
     this.objectKey = objectKey;
     this.objectVersion = objectVersion;
+    this.objectSize = objectSize;
   }
 
   /** Convert into business object. */
   public AwsAssetMapping toAWSArchiveMapping() {
     return new AwsAssetMapping(organizationId, mediaPackageId, mediaPackageElementId, version, objectKey,
-            objectVersion, deletionDate);
+            objectVersion, objectSize, deletionDate);
   }
 
   public static AwsAssetMappingDto storeMapping(EntityManager em, StoragePath path, String objectKey,
-          String objectVersion) throws AwsAssetDatabaseException {
+          String objectVersion, Long objectSize) throws AwsAssetDatabaseException {
     AwsAssetMappingDto mapDto = new AwsAssetMappingDto(path.getOrganizationId(), path.getMediaPackageId(),
-            path.getMediaPackageElementId(), Long.valueOf(path.getVersion().toString()), objectKey, objectVersion);
+            path.getMediaPackageElementId(), Long.valueOf(path.getVersion().toString()), objectKey, objectVersion,
+            objectSize);
 
     EntityTransaction tx = em.getTransaction();
     try {
@@ -144,6 +150,9 @@ public final class AwsAssetMappingDto {
       if (null != existing && objectKey.equals(existing.objectKey) && objectVersion.equals(existing.objectVersion)) {
         tx.begin();
         existing.setDeletionDate(null);
+        if (existing.objectSize == null) {
+          existing.objectSize = objectSize;
+        }
         tx.commit();
         return existing;
       } else {
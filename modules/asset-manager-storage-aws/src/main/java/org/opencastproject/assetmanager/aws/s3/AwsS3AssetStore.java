@@ -25,14 +25,17 @@ import org.opencastproject.assetmanager.aws.AwsAbstractArchive;
 import org.opencastproject.assetmanager.aws.AwsUploadOperationResult;
 import org.opencastproject.assetmanager.aws.persistence.AwsAssetDatabase;
 import org.opencastproject.assetmanager.aws.persistence.AwsAssetMapping;
+import org.opencastproject.assetmanager.aws.s3.jmx.AwsS3TransferStatistics;
 import org.opencastproject.assetmanager.impl.storage.AssetStore;
 import org.opencastproject.assetmanager.impl.storage.AssetStoreException;
 import org.opencastproject.assetmanager.impl.storage.RemoteAssetStore;
 import org.opencastproject.util.ConfigurationException;
 import org.opencastproject.util.OsgiUtil;
 import org.opencastproject.util.data.Option;
+import org.opencastproject.util.jmx.JmxUtil;
 import org.opencastproject.workspace.api.Workspace;
 
+import com.amazonaws.AmazonClientException;
 import com.amazonaws.AmazonServiceException;
 import com.amazonaws.auth.AWSCredentialsProvider;
 import com.amazonaws.auth.AWSStaticCredentialsProvider;
@@ -42,24 +45,43 @@ import com.amazonaws.client.builder.AwsClientBuilder;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3ClientBuilder;
 import com.amazonaws.services.s3.model.BucketVersioningConfiguration;
+import com.amazonaws.services.s3.model.GetObjectRequest;
 import com.amazonaws.services.s3.model.S3Object;
 import com.amazonaws.services.s3.model.SetBucketVersioningConfigurationRequest;
 import com.amazonaws.services.s3.transfer.TransferManager;
+import com.amazonaws.services.s3.transfer.TransferManagerBuilder;
 import com.amazonaws.services.s3.transfer.Upload;
+import com.amazonaws.services.s3.transfer.model.UploadResult;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.BooleanUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.osgi.service.component.ComponentContext;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Reference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Dictionary;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.management.ObjectInstance;
 
 @Component(
     property = {
@@ -82,6 +104,15 @@ public class AwsS3AssetStore extends AwsAbstractArchive implements RemoteAssetSt
   public static final String AWS_S3_BUCKET_CONFIG = "org.opencastproject.assetmanager.aws.s3.bucket";
   public static final String AWS_S3_ENDPOINT_CONFIG = "org.opencastproject.assetmanager.aws.s3.endpoint";
   public static final String AWS_S3_PATH_STYLE_CONFIG = "org.opencastproject.assetmanager.aws.s3.path.style";
+  public static final String AWS_S3_PART_SIZE_CONFIG = "org.opencastproject.assetmanager.aws.s3.transfer.part.size";
+  public static final String AWS_S3_CONCURRENCY_CONFIG
+      = "org.opencastproject.assetmanager.aws.s3.transfer.concurrency";
+
+  /** Default size of the parts of multipart up- and downloads in MiB */
+  public static final long DEFAULT_PART_SIZE = 16;
+
+  /** Default number of parts transferred concurrently */
+  public static final int DEFAULT_CONCURRENCY = 10;
 
   /** The AWS client and transfer manager */
   private AmazonS3 s3 = null;
@@ -96,6 +127,19 @@ public class AwsS3AssetStore extends AwsAbstractArchive implements RemoteAssetSt
 
   private boolean bucketCreated = false;
 
+  /** Size of the parts of multipart up- and downloads in bytes */
+  private long partSize = DEFAULT_PART_SIZE * 1024 * 1024;
+
+  /** Executes the ranged requests of parallel downloads */
+  private ExecutorService downloadExecutor = null;
+
+  /** Directory to buffer parallel downloads in */
+  private File downloadDir = new File(System.getProperty("java.io.tmpdir"));
+
+  /** Transfer statistics */
+  private final AwsS3TransferStatistics statistics = new AwsS3TransferStatistics();
+  private ObjectInstance registeredMXBean;
+
   /** OSGi Di */
   @Override
   @Reference(name = "workspace")
@@ -175,13 +219,46 @@ public class AwsS3AssetStore extends AwsAbstractArchive implements RemoteAssetSt
               .withCredentials(provider)
               .build();
 
-      s3TransferManager = new TransferManager(s3);
+      partSize = NumberUtils.toLong(OsgiUtil.getComponentContextProperty(
+          cc, AWS_S3_PART_SIZE_CONFIG, Long.toString(DEFAULT_PART_SIZE)), DEFAULT_PART_SIZE) * 1024 * 1024;
+      final int concurrency = NumberUtils.toInt(OsgiUtil.getComponentContextProperty(
+          cc, AWS_S3_CONCURRENCY_CONFIG, Integer.toString(DEFAULT_CONCURRENCY)), DEFAULT_CONCURRENCY);
+      logger.info("AWS transfers use parts of {} bytes, {} at a time", partSize, concurrency);
+
+      // Use TransferManager to take advantage of multipart upload.
+      s3TransferManager = TransferManagerBuilder.standard()
+              .withS3Client(s3)
+              .withMinimumUploadPartSize(partSize)
+              .withMultipartUploadThreshold(partSize)
+              .withExecutorFactory(() -> Executors.newFixedThreadPool(concurrency))
+              .build();
+      downloadExecutor = Executors.newFixedThreadPool(concurrency);
+
+      final String cacheRoot = cc.getBundleContext().getProperty(RemoteAssetStore.ASSET_STORE_CACHE_ROOT);
+      if (StringUtils.isNotBlank(cacheRoot)) {
+        downloadDir = new File(cacheRoot, "aws-s3");
+      }
+      registeredMXBean = JmxUtil.registerMXBean(statistics, "AwsS3AssetStore");
 
       logger.info("AwsS3ArchiveAssetStore activated!");
     }
 
   }
 
+  @Deactivate
+  public void deactivate() {
+    if (s3TransferManager != null) {
+      // also shuts down the client
+      s3TransferManager.shutdownNow();
+    }
+    if (downloadExecutor != null) {
+      downloadExecutor.shutdownNow();
+    }
+    if (registeredMXBean != null) {
+      JmxUtil.unregisterMXBean(registeredMXBean);
+    }
+  }
+
   /**
    * Creates the AWS S3 bucket if it doesn't exist yet.
    */
@@ -221,47 +298,156 @@ public class AwsS3AssetStore extends AwsAbstractArchive implements RemoteAssetSt
     if (!bucketCreated) {
       createAWSBucket();
     }
+    return awaitUpload(startUpload(origin, objectName));
+  }
+
+  /**
+   * Uploads all objects concurrently. Each of the uploads is split into parts which are transferred in parallel, too.
+   */
+  @Override
+  protected void uploadObjects(Map<String, File> origins, Map<String, AwsUploadOperationResult> results)
+          throws AssetStoreException {
+    if (!bucketCreated) {
+      createAWSBucket();
+    }
+
+    // TransferManager processes all transfers asynchronously, so all uploads are started at once
+    final List<PendingUpload> uploads = new ArrayList<>(origins.size());
+    for (Map.Entry<String, File> entry : origins.entrySet()) {
+      uploads.add(startUpload(entry.getValue(), entry.getKey()));
+    }
+
+    // After a failure, uploads which are still running are aborted, but completed ones are reported nevertheless
+    AssetStoreException failure = null;
+    for (PendingUpload upload : uploads) {
+      if (failure != null && !upload.upload.isDone()) {
+        upload.upload.abort();
+        continue;
+      }
+      try {
+        results.put(upload.objectName, awaitUpload(upload));
+      } catch (AssetStoreException e) {
+        if (failure == null) {
+          failure = e;
+        } else {
+          failure.addSuppressed(e);
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
 
-    // Upload file to AWS S3
-    // Use TransferManager to take advantage of multipart upload.
-    // TransferManager processes all transfers asynchronously, so this call will return immediately.
+  private PendingUpload startUpload(File origin, String objectName) {
     logger.info("Uploading {} to archive bucket {}...", objectName, bucketName);
-    Upload upload = s3TransferManager.upload(bucketName, objectName, origin);
-    long start = System.currentTimeMillis();
+    statistics.transferStarted();
+    return new PendingUpload(objectName, origin.length(), s3TransferManager.upload(bucketName, objectName, origin));
+  }
 
-    S3Object obj = null;
+  private AwsUploadOperationResult awaitUpload(PendingUpload pending) throws AssetStoreException {
     try {
       // Block and wait for the upload to finish
-      upload.waitForCompletion();
-      logger.info("Upload of {} to archive bucket {} completed in {} seconds",
-              new Object[] { objectName, bucketName, (System.currentTimeMillis() - start) / 1000 });
-      obj = s3.getObject(bucketName, objectName);
+      final UploadResult result = pending.upload.waitForUploadResult();
+      final long time = System.currentTimeMillis() - pending.start;
+      statistics.uploaded(pending.size, time);
+      logger.info("Upload of {} to archive bucket {} completed in {} seconds ({} bytes/s)", pending.objectName,
+              bucketName, time / 1000, AwsS3TransferStatistics.throughput(pending.size, time));
       //If bucket versioning is disabled the versionId is null, so return a -1 to indicate no version
-      String versionId = obj.getObjectMetadata().getVersionId();
+      String versionId = result.getVersionId();
       //FIXME: We need to do better checking this, what if versioning is just suspended?
       if (null == versionId) {
-        return new AwsUploadOperationResult(objectName, "-1");
+        return new AwsUploadOperationResult(pending.objectName, "-1", pending.size);
       }
-      return new AwsUploadOperationResult(objectName, versionId);
+      return new AwsUploadOperationResult(pending.objectName, versionId, pending.size);
     } catch (InterruptedException e) {
+      statistics.uploadFailed();
       throw new AssetStoreException("Operation interrupted", e);
-    } finally {
-      try {
-        obj.close();
-      } catch (IOException e) {
-        //Swallow and ignore
-      }
+    } catch (AmazonClientException e) {
+      statistics.uploadFailed();
+      throw new AssetStoreException(e);
     }
   }
 
   /**
-   *
+   * Objects larger than the part size are fetched with concurrent ranged requests into a local buffer file which is
+   * removed once the returned stream is closed. Smaller objects are streamed directly.
    */
   protected InputStream getObject(AwsAssetMapping map) {
+    if (downloadExecutor != null) {
+      // Objects stored by older versions have no size recorded and need to be looked up
+      final long length = map.getObjectSize() != null
+          ? map.getObjectSize()
+          : s3.getObjectMetadata(bucketName, map.getObjectKey()).getContentLength();
+      if (length > partSize) {
+        return downloadInParallel(map.getObjectKey(), length);
+      }
+    }
     S3Object object = s3.getObject(bucketName, map.getObjectKey());
     return object.getObjectContent();
   }
 
+  private InputStream downloadInParallel(String objectKey, long length) {
+    logger.debug("Downloading {} bytes of {} in parts of {} bytes", length, objectKey, partSize);
+    statistics.transferStarted();
+    final long start = System.currentTimeMillis();
+    File buffer = null;
+    try {
+      FileUtils.forceMkdir(downloadDir);
+      buffer = File.createTempFile("download-", ".tmp", downloadDir);
+      try (FileChannel channel = FileChannel.open(buffer.toPath(), StandardOpenOption.WRITE)) {
+        final List<Future<Void>> parts = new ArrayList<>();
+        for (long first = 0; first < length; first += partSize) {
+          final long from = first;
+          final long to = Math.min(first + partSize, length) - 1;
+          parts.add(downloadExecutor.submit(() -> downloadRange(objectKey, from, to, channel)));
+        }
+        try {
+          for (Future<Void> part : parts) {
+            part.get();
+          }
+        } finally {
+          for (Future<Void> part : parts) {
+            part.cancel(true);
+          }
+        }
+      }
+      final long time = System.currentTimeMillis() - start;
+      statistics.downloaded(length, time);
+      logger.info("Download of {} from archive bucket {} completed in {} seconds ({} bytes/s)", objectKey,
+              bucketName, time / 1000, AwsS3TransferStatistics.throughput(length, time));
+      final File file = buffer;
+      return new FileInputStream(file) {
+        @Override
+        public void close() throws IOException {
+          super.close();
+          FileUtils.deleteQuietly(file);
+        }
+      };
+    } catch (IOException | ExecutionException | InterruptedException e) {
+      statistics.downloadFailed();
+      FileUtils.deleteQuietly(buffer);
+      throw new AssetStoreException("Download of " + objectKey + " failed", e);
+    }
+  }
+
+  /** Writes the given byte range of an object to the same position of a file. */
+  private Void downloadRange(String objectKey, long first, long last, FileChannel channel) throws IOException {
+    final GetObjectRequest request = new GetObjectRequest(bucketName, objectKey).withRange(first, last);
+    try (S3Object part = s3.getObject(request); InputStream in = part.getObjectContent()) {
+      final byte[] bytes = new byte[64 * 1024];
+      long position = first;
+      int read;
+      while ((read = in.read(bytes)) != -1) {
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, read);
+        while (buffer.hasRemaining()) {
+          position += channel.write(buffer, position);
+        }
+      }
+    }
+    return null;
+  }
+
   /**
   *
   */
@@ -287,4 +473,26 @@ public class AwsS3AssetStore extends AwsAbstractArchive implements RemoteAssetSt
     this.bucketName = bucketName;
   }
 
+  void setPartSize(long partSize) {
+    this.partSize = partSize;
+  }
+
+  void setDownloadExecutor(ExecutorService downloadExecutor) {
+    this.downloadExecutor = downloadExecutor;
+  }
+
+  /** An upload handled by the transfer manager */
+  private static final class PendingUpload {
+    private final String objectName;
+    private final long size;
+    private final Upload upload;
+    private final long start = System.currentTimeMillis();
+
+    PendingUpload(String objectName, long size, Upload upload) {
+      this.objectName = objectName;
+      this.size = size;
+      this.upload = upload;
+    }
+  }
+
 }
@@ -0,0 +1,146 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package org.opencastproject.assetmanager.aws.s3.jmx;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class AwsS3TransferStatistics implements AwsS3TransferStatisticsMXBean {
+
+  private final AtomicInteger activeTransfers = new AtomicInteger();
+
+  private final AtomicLong uploads = new AtomicLong();
+  private final AtomicLong failedUploads = new AtomicLong();
+  private final AtomicLong uploadedBytes = new AtomicLong();
+  private final AtomicLong uploadTime = new AtomicLong();
+
+  private final AtomicLong downloads = new AtomicLong();
+  private final AtomicLong failedDownloads = new AtomicLong();
+  private final AtomicLong downloadedBytes = new AtomicLong();
+  private final AtomicLong downloadTime = new AtomicLong();
+
+  public void transferStarted() {
+    activeTransfers.incrementAndGet();
+  }
+
+  public void uploaded(long bytes, long time) {
+    activeTransfers.decrementAndGet();
+    uploads.incrementAndGet();
+    uploadedBytes.addAndGet(bytes);
+    uploadTime.addAndGet(time);
+  }
+
+  public void uploadFailed() {
+    activeTransfers.decrementAndGet();
+    failedUploads.incrementAndGet();
+  }
+
+  public void downloaded(long bytes, long time) {
+    activeTransfers.decrementAndGet();
+    downloads.incrementAndGet();
+    downloadedBytes.addAndGet(bytes);
+    downloadTime.addAndGet(time);
+  }
+
+  public void downloadFailed() {
+    activeTransfers.decrementAndGet();
+    failedDownloads.incrementAndGet();
+  }
+
+  /**
+   * @see org.opencastproject.assetmanager.aws.s3.jmx.AwsS3TransferStatisticsMXBean#getActiveTransfers()
+   */
+  @Override
+  public int getActiveTransfers() {
+    return activeTransfers.get();
+  }
+
+  /**
+   * @see org.opencastproject.assetmanager.aws.s3.jmx.AwsS3TransferStatisticsMXBean#getUploads()
+   */
+  @Override
+  public long getUploads() {
+    return uploads.get();
+  }
+
+  /**
+   * @see org.opencastproject.assetmanager.aws.s3.jmx.AwsS3TransferStatisticsMXBean#getFailedUploads()
+   */
+  @Override
+  public long getFailedUploads() {
+    return failedUploads.get();
+  }
+
+  /**
+   * @see org.opencastproject.assetmanager.aws.s3.jmx.AwsS3TransferStatisticsMXBean#getUploadedBytes()
+   */
+  @Override
+  public long getUploadedBytes() {
+    return uploadedBytes.get();
+  }
+
+  /**
+   * @see org.opencastproject.assetmanager.aws.s3.jmx.AwsS3TransferStatisticsMXBean#getUploadThroughput()
+   */
+  @Override
+  public long getUploadThroughput() {
+    return throughput(uploadedBytes.get(), uploadTime.get());
+  }
+
+  /**
+   * @see org.opencastproject.assetmanager.aws.s3.jmx.AwsS3TransferStatisticsMXBean#getDownloads()
+   */
+  @Override
+  public long getDownloads() {
+    return downloads.get();
+  }
+
+  /**
+   * @see org.opencastproject.assetmanager.aws.s3.jmx.AwsS3TransferStatisticsMXBean#getFailedDownloads()
+   */
+  @Override
+  public long getFailedDownloads() {
+    return failedDownloads.get();
+  }
+
+  /**
+   * @see org.opencastproject.assetmanager.aws.s3.jmx.AwsS3TransferStatisticsMXBean#getDownloadedBytes()
+   */
+  @Override
+  public long getDownloadedBytes() {
+    return downloadedBytes.get();
+  }
+
+  /**
+   * @see org.opencastproject.assetmanager.aws.s3.jmx.AwsS3TransferStatisticsMXBean#getDownloadThroughput()
+   */
+  @Override
+  public long getDownloadThroughput() {
+    return throughput(downloadedBytes.get(), downloadTime.get());
+  }
+
+  /** Returns bytes per second, given a number of bytes transferred in a number of milliseconds. */
+  public static long throughput(long bytes, long time) {
+    return time == 0 ? 0 : bytes * 1000 / time;
+  }
+
+}
@@ -0,0 +1,92 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package org.opencastproject.assetmanager.aws.s3.jmx;
+
+/**
+ * JMX Bean interface exposing transfer statistics of the AWS S3 asset store.
+ */
+public interface AwsS3TransferStatisticsMXBean {
+
+  /**
+   * Gets the number of transfers currently in progress
+   *
+   * @return the number of active transfers
+   */
+  int getActiveTransfers();
+
+  /**
+   * Gets the number of completed uploads
+   *
+   * @return the number of uploads
+   */
+  long getUploads();
+
+  /**
+   * Gets the number of failed uploads
+   *
+   * @return the number of failed uploads
+   */
+  long getFailedUploads();
+
+  /**
+   * Gets the total number of uploaded bytes
+   *
+   * @return the number of bytes
+   */
+  long getUploadedBytes();
+
+  /**
+   * Gets the average throughput of a single upload
+   *
+   * @return the throughput in bytes per second
+   */
+  long getUploadThroughput();
+
+  /**
+   * Gets the number of completed downloads
+   *
+   * @return the number of downloads
+   */
+  long getDownloads();
+
+  /**
+   * Gets the number of failed downloads
+   *
+   * @return the number of failed downloads
+   */
+  long getFailedDownloads();
+
+  /**
+   * Gets the total number of downloaded bytes
+   *
+   * @return the number of bytes
+   */
+  long getDownloadedBytes();
+
+  /**
+   * Gets the average throughput of a single download
+   *
+   * @return the throughput in bytes per second
+   */
+  long getDownloadThroughput();
+
+}
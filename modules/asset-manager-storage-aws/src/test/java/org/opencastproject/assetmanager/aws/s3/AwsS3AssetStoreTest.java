@@ -24,22 +24,28 @@ package org.opencastproject.assetmanager.aws.s3;
 import org.opencastproject.assetmanager.aws.persistence.AwsAssetDatabaseImpl;
 import org.opencastproject.assetmanager.aws.persistence.AwsAssetMapping;
 import org.opencastproject.assetmanager.impl.VersionImpl;
+import org.opencastproject.assetmanager.impl.storage.AssetStoreException;
 import org.opencastproject.assetmanager.impl.storage.DeletionSelector;
 import org.opencastproject.assetmanager.impl.storage.Source;
 import org.opencastproject.assetmanager.impl.storage.StoragePath;
 import org.opencastproject.util.persistence.PersistenceUtil;
 import org.opencastproject.workspace.api.Workspace;
 
+import com.amazonaws.AmazonClientException;
 import com.amazonaws.services.s3.AmazonS3Client;
+import com.amazonaws.services.s3.model.GetObjectRequest;
 import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.S3Object;
 import com.amazonaws.services.s3.model.S3ObjectInputStream;
 import com.amazonaws.services.s3.transfer.TransferManager;
 import com.amazonaws.services.s3.transfer.Upload;
+import com.amazonaws.services.s3.transfer.model.UploadResult;
 import com.entwinemedia.fn.data.Opt;
 import com.mchange.v2.c3p0.ComboPooledDataSource;
 
+import org.apache.commons.io.IOUtils;
 import org.easymock.EasyMock;
+import org.easymock.IMocksControl;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
@@ -47,9 +53,15 @@ import org.junit.Test;
 import org.osgi.framework.BundleContext;
 import org.osgi.service.component.ComponentContext;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.InputStream;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class AwsS3AssetStoreTest {
   private ComboPooledDataSource pooledDataSource;
@@ -59,6 +71,7 @@ public class AwsS3AssetStoreTest {
   private AmazonS3Client s3Client;
   private TransferManager s3Transfer;
   private S3Object s3Object;
+  private UploadResult uploadResult;
   private Workspace workspace;
 
   private static final String BUCKET_NAME = "aws-archive-bucket";
@@ -94,15 +107,12 @@ public class AwsS3AssetStoreTest {
     sampleFile = new File(uri);
 
     // Set up the service
-    ObjectMetadata objMetadata = EasyMock.createStrictMock(ObjectMetadata.class);
-    EasyMock.expect(objMetadata.getVersionId()).andReturn(AWS_VERSION_1).anyTimes();
-    EasyMock.replay(objMetadata);
+    uploadResult = new UploadResult();
+    uploadResult.setVersionId(AWS_VERSION_1);
     s3Object = EasyMock.createNiceMock(S3Object.class);
-    EasyMock.expect(s3Object.getObjectMetadata()).andReturn(objMetadata).anyTimes();
     s3Client = EasyMock.createStrictMock(AmazonS3Client.class);
     s3Transfer = EasyMock.createStrictMock(TransferManager.class);
     EasyMock.expect(s3Client.listObjects(BUCKET_NAME)).andReturn(null);
-    EasyMock.expect(s3Client.getObject(BUCKET_NAME, KEY_VERSION_1 + ASSET_ID + ".xml")).andReturn(s3Object);
     // Replay will be called in each test
 
     workspace = EasyMock.createNiceMock(Workspace.class);
@@ -124,12 +134,10 @@ public class AwsS3AssetStoreTest {
   @Test
   public void testPut() throws Exception {
     Upload upload = EasyMock.createStrictMock(Upload.class);
-    upload.waitForCompletion();
-    EasyMock.expectLastCall().once();
+    EasyMock.expect(upload.waitForUploadResult()).andReturn(uploadResult).once();
     EasyMock.replay(upload);
 
     EasyMock.expect(s3Transfer.upload(BUCKET_NAME, KEY_VERSION_1 + ASSET_ID + ".xml", sampleFile)).andReturn(upload);
-    EasyMock.expect(s3Client.getObject(BUCKET_NAME, KEY_VERSION_1 + ASSET_ID + ".xml")).andReturn(s3Object);
     EasyMock.replay(s3Object, s3Client, s3Transfer);
 
     StoragePath path = new StoragePath(ORG_ID, MP_ID, new VersionImpl(1L), ASSET_ID);
@@ -142,13 +150,13 @@ public class AwsS3AssetStoreTest {
     Assert.assertEquals(MP_ID, mapping.getMediaPackageId());
     Assert.assertEquals(1L, mapping.getVersion().longValue());
     Assert.assertEquals(ASSET_ID, mapping.getMediaPackageElementId());
+    Assert.assertEquals(sampleFile.length(), mapping.getObjectSize().longValue());
   }
 
   @Test
   public void testCopy() throws Exception {
     Upload upload = EasyMock.createStrictMock(Upload.class);
-    upload.waitForCompletion();
-    EasyMock.expectLastCall().once();
+    EasyMock.expect(upload.waitForUploadResult()).andReturn(uploadResult).once();
     EasyMock.replay(upload);
 
     EasyMock.expect(s3Transfer.upload(BUCKET_NAME, KEY_VERSION_1 + ASSET_ID + ".xml", sampleFile)).andReturn(upload);
@@ -196,8 +204,7 @@ public class AwsS3AssetStoreTest {
   @Test
   public void testGet() throws Exception {
     Upload upload = EasyMock.createStrictMock(Upload.class);
-    upload.waitForCompletion();
-    EasyMock.expectLastCall().once();
+    EasyMock.expect(upload.waitForUploadResult()).andReturn(uploadResult).once();
     EasyMock.replay(upload);
 
     EasyMock.expect(s3Transfer.upload(BUCKET_NAME, KEY_VERSION_1 + ASSET_ID + ".xml", sampleFile)).andReturn(upload);
@@ -227,11 +234,9 @@ public class AwsS3AssetStoreTest {
   @Test
   public void testDeleteWithVersion() throws Exception {
     Upload upload = EasyMock.createStrictMock(Upload.class);
-    upload.waitForCompletion();
-    EasyMock.expectLastCall().times(2);
+    EasyMock.expect(upload.waitForUploadResult()).andReturn(uploadResult).times(2);
     EasyMock.replay(upload);
 
-    EasyMock.expect(s3Client.getObject(BUCKET_NAME, KEY_VERSION_2 + ASSET_ID + ".xml")).andReturn(s3Object);
     s3Client.deleteObject(BUCKET_NAME, KEY_VERSION_1 + ASSET_ID + ".xml");
     EasyMock.expectLastCall().once();
     EasyMock.expect(s3Transfer.upload(BUCKET_NAME, KEY_VERSION_1 + ASSET_ID + ".xml", sampleFile)).andReturn(upload)
@@ -273,11 +278,9 @@ public class AwsS3AssetStoreTest {
   @Test
   public void testDeleteNoneVersion() throws Exception {
     Upload upload = EasyMock.createStrictMock(Upload.class);
-    upload.waitForCompletion();
-    EasyMock.expectLastCall().times(2);
+    EasyMock.expect(upload.waitForUploadResult()).andReturn(uploadResult).times(2);
     EasyMock.replay(upload);
 
-    EasyMock.expect(s3Client.getObject(BUCKET_NAME, KEY_VERSION_2 + ASSET_ID + ".xml")).andReturn(s3Object);
     s3Client.deleteObject(BUCKET_NAME, KEY_VERSION_1 + ASSET_ID + ".xml");
     EasyMock.expectLastCall().once();
     s3Client.deleteObject(BUCKET_NAME, KEY_VERSION_2 + ASSET_ID + ".xml");
@@ -320,8 +323,7 @@ public class AwsS3AssetStoreTest {
   // @Test
   public void testDeleteNonExistentVersion() throws Exception {
     Upload upload = EasyMock.createStrictMock(Upload.class);
-    upload.waitForCompletion();
-    EasyMock.expectLastCall().once();
+    EasyMock.expect(upload.waitForUploadResult()).andReturn(uploadResult).once();
     EasyMock.replay(upload);
 
     s3Client.deleteObject(BUCKET_NAME, KEY_VERSION_1 + sampleFile.getName());
@@ -352,8 +354,7 @@ public class AwsS3AssetStoreTest {
   @Test
   public void testDeleteLinkedAsset() throws Exception {
     Upload upload = EasyMock.createStrictMock(Upload.class);
-    upload.waitForCompletion();
-    EasyMock.expectLastCall().once();
+    EasyMock.expect(upload.waitForUploadResult()).andReturn(uploadResult).once();
     EasyMock.replay(upload);
 
     EasyMock.expect(s3Transfer.upload(BUCKET_NAME, KEY_VERSION_1 + ASSET_ID + ".xml", sampleFile)).andReturn(upload)
@@ -398,4 +399,116 @@ public class AwsS3AssetStoreTest {
     Assert.assertNotNull(mapping2);
   }
 
+  @Test
+  public void testPutAll() throws Exception {
+    // Both uploads have to be started before waiting for the first one to complete
+    IMocksControl control = EasyMock.createStrictControl();
+    TransferManager transfer = control.createMock(TransferManager.class);
+    Upload upload1 = control.createMock(Upload.class);
+    Upload upload2 = control.createMock(Upload.class);
+    EasyMock.expect(transfer.upload(BUCKET_NAME, KEY_VERSION_1 + ASSET_ID + ".xml", sampleFile)).andReturn(upload1);
+    EasyMock.expect(transfer.upload(BUCKET_NAME, KEY_VERSION_1 + ASSET_ID2 + ".xml", sampleFile)).andReturn(upload2);
+    EasyMock.expect(upload1.waitForUploadResult()).andReturn(uploadResult);
+    EasyMock.expect(upload2.waitForUploadResult()).andReturn(uploadResult);
+    control.replay();
+    EasyMock.replay(s3Client);
+    store.setS3TransferManager(transfer);
+
+    StoragePath path = new StoragePath(ORG_ID, MP_ID, new VersionImpl(1L), ASSET_ID);
+    StoragePath path2 = new StoragePath(ORG_ID, MP_ID, new VersionImpl(1L), ASSET_ID2);
+    Map<StoragePath, Source> sources = new LinkedHashMap<>();
+    sources.put(path, Source.mk(uri));
+    sources.put(path2, Source.mk(uri));
+    store.putAll(sources);
+    control.verify();
+
+    // Check if both mappings saved to db
+    AwsAssetMapping mapping = database.findMapping(path);
+    Assert.assertNotNull(mapping);
+    Assert.assertEquals(KEY_VERSION_1 + ASSET_ID + ".xml", mapping.getObjectKey());
+    Assert.assertEquals(AWS_VERSION_1, mapping.getObjectVersion());
+    AwsAssetMapping mapping2 = database.findMapping(path2);
+    Assert.assertNotNull(mapping2);
+    Assert.assertEquals(KEY_VERSION_1 + ASSET_ID2 + ".xml", mapping2.getObjectKey());
+  }
+
+  @Test
+  public void testPutAllMapsCompletedUploadsOnFailure() throws Exception {
+    IMocksControl control = EasyMock.createStrictControl();
+    TransferManager transfer = control.createMock(TransferManager.class);
+    Upload upload1 = control.createMock(Upload.class);
+    Upload upload2 = control.createMock(Upload.class);
+    EasyMock.expect(transfer.upload(BUCKET_NAME, KEY_VERSION_1 + ASSET_ID + ".xml", sampleFile)).andReturn(upload1);
+    EasyMock.expect(transfer.upload(BUCKET_NAME, KEY_VERSION_1 + ASSET_ID2 + ".xml", sampleFile)).andReturn(upload2);
+    EasyMock.expect(upload1.waitForUploadResult()).andReturn(uploadResult);
+    EasyMock.expect(upload2.waitForUploadResult()).andThrow(new AmazonClientException("Upload failed"));
+    control.replay();
+    EasyMock.replay(s3Client);
+    store.setS3TransferManager(transfer);
+
+    StoragePath path = new StoragePath(ORG_ID, MP_ID, new VersionImpl(1L), ASSET_ID);
+    StoragePath path2 = new StoragePath(ORG_ID, MP_ID, new VersionImpl(1L), ASSET_ID2);
+    Map<StoragePath, Source> sources = new LinkedHashMap<>();
+    sources.put(path, Source.mk(uri));
+    sources.put(path2, Source.mk(uri));
+    try {
+      store.putAll(sources);
+      Assert.fail("The failed upload should be reported");
+    } catch (AssetStoreException e) {
+      // expected
+    }
+    control.verify();
+
+    // The completed upload is mapped so the object can be found and deleted later
+    AwsAssetMapping mapping = database.findMapping(path);
+    Assert.assertNotNull(mapping);
+    Assert.assertEquals(KEY_VERSION_1 + ASSET_ID + ".xml", mapping.getObjectKey());
+    Assert.assertNull(database.findMapping(path2));
+  }
+
+  @Test
+  public void testGetInParallel() throws Exception {
+    // The recorded size of the object is used, so no metadata needs to be requested
+    testGetInParallel(true);
+  }
+
+  @Test
+  public void testGetInParallelWithoutRecordedSize() throws Exception {
+    testGetInParallel(false);
+  }
+
+  private void testGetInParallel(boolean sizeRecorded) throws Exception {
+    final byte[] content = "0123456789abcdefghijklmnopqrstuvwxyz".getBytes(StandardCharsets.UTF_8);
+    final String key = KEY_VERSION_1 + ASSET_ID + ".xml";
+    AmazonS3Client client = EasyMock.createNiceMock(AmazonS3Client.class);
+    if (!sizeRecorded) {
+      ObjectMetadata metadata = new ObjectMetadata();
+      metadata.setContentLength(content.length);
+      EasyMock.expect(client.getObjectMetadata(BUCKET_NAME, key)).andReturn(metadata);
+    }
+    EasyMock.expect(client.getObject(EasyMock.anyObject(GetObjectRequest.class))).andAnswer(() -> {
+      GetObjectRequest request = (GetObjectRequest) EasyMock.getCurrentArguments()[0];
+      long[] range = request.getRange();
+      S3Object part = new S3Object();
+      part.setObjectContent(
+          new ByteArrayInputStream(content, (int) range[0], (int) (range[1] - range[0] + 1)));
+      return part;
+    }).times(5);
+    EasyMock.replay(client);
+
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    store.setS3(client);
+    store.setPartSize(8);
+    store.setDownloadExecutor(executor);
+
+    StoragePath path = new StoragePath(ORG_ID, MP_ID, new VersionImpl(1L), ASSET_ID);
+    database.storeMapping(path, key, AWS_VERSION_1, sizeRecorded ? Long.valueOf(content.length) : null);
+    try (InputStream in = store.get(path).get()) {
+      Assert.assertArrayEquals(content, IOUtils.toByteArray(in));
+    } finally {
+      executor.shutdownNow();
+    }
+    EasyMock.verify(client);
+  }
+
 }
@@ -97,6 +97,14 @@ import javax.persistence.Version;
                 + "j.status in :statuses order by j.dateCreated"),
         @NamedQuery(name = "Job.dispatchable.status.idfilter", query = "SELECT j.id FROM Job j "
                 + "WHERE j.dispatchable = true AND j.status IN :statuses AND j.id IN :jobids ORDER BY j.dateCreated"),
+        @NamedQuery(name = "Job.dispatchable.status.ids", query = "SELECT j FROM Job j "
+                + "WHERE j.dispatchable = true AND j.status IN :statuses AND j.id IN :jobids ORDER BY j.dateCreated"),
+        @NamedQuery(name = "Job.dispatchable.queue", query = "SELECT j.id, "
+                + "j.creatorServiceRegistration.serviceType, j.operation, j.status, j.dateCreated FROM Job j "
+                + "WHERE j.dispatchable = true AND j.status IN :statuses"),
+        @NamedQuery(name = "Job.dispatchable.queue.since", query = "SELECT j.id, "
+                + "j.creatorServiceRegistration.serviceType, j.operation, j.status, j.dateCreated FROM Job j "
+                + "WHERE j.dispatchable = true AND j.status IN :statuses AND j.dateCreated >= :since"),
         @NamedQuery(name = "Job.undispatchable.status", query = "SELECT j FROM Job j where j.dispatchable = false and "
                 + "j.status in :statuses order by j.dateCreated"),
         @NamedQuery(name = "Job.payload", query = "SELECT j.payload FROM Job j where j.operation = :operation "
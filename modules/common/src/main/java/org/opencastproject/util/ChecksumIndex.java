@@ -0,0 +1,196 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.UserDefinedFileAttributeView;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Index of md5 checksums of local files, allowing to look up the checksum of a file without reading its content.
+ * <p>
+ * Checksums are stored in a user defined extended attribute of the file, together with the size, the modification
+ * time and the file key (i.e. device and inode) the file had when the checksum was calculated. A stored checksum is
+ * only used as long as these still match, so a file replaced by another one is detected even if size and
+ * modification time are the same. Since hard links share their attributes, a checksum calculated once is also known
+ * to every link to the same file. On file systems without support for extended attributes, a bounded in-memory index
+ * is used. Code modifying a file in place or deleting files must {@link #invalidate(File)} them.
+ */
+public final class ChecksumIndex {
+
+  /** Logging facility */
+  private static final Logger logger = LoggerFactory.getLogger(ChecksumIndex.class);
+
+  /** Name of the extended attribute holding the checksum */
+  static final String ATTRIBUTE = "opencast.md5";
+
+  /** Maximum number of checksums held by the in-memory index */
+  private static final int MAX_ENTRIES = 10000;
+
+  /** The in-memory index for files that do not support extended attributes, by absolute path */
+  private static final Map<String, String> index = Collections.synchronizedMap(
+          new LinkedHashMap<String, String>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+              return size() > MAX_ENTRIES;
+            }
+          });
+
+  /** Disable construction of this utility class */
+  private ChecksumIndex() {
+  }
+
+  /**
+   * Returns the md5 checksum of a file, calculating and storing it if it is not yet known or out of date.
+   *
+   * @param file
+   *          the file
+   * @return the md5 checksum as a hex string
+   * @throws IOException
+   *           if the file cannot be read
+   */
+  public static String md5(File file) throws IOException {
+    String md5 = get(file);
+    if (md5 != null) {
+      logger.trace("Using indexed checksum of {}", file);
+      return md5;
+    }
+    String stamp = stamp(file.toPath());
+    md5 = Checksum.create(ChecksumType.DEFAULT_TYPE, file).getValue();
+    // Only store the checksum if the file did not change while it was read
+    if (stamp.equals(stamp(file.toPath())))
+      store(file.toPath(), stamp + ':' + md5);
+    return md5;
+  }
+
+  /**
+   * Returns the indexed md5 checksum of a file without calculating it.
+   *
+   * @param file
+   *          the file
+   * @return the checksum or <code>null</code> if it is unknown or the file was modified since it was indexed
+   * @throws IOException
+   *           if the file attributes cannot be read
+   */
+  public static String get(File file) throws IOException {
+    Path path = file.toPath();
+    String value = load(path);
+    if (value == null)
+      return null;
+    String stamp = stamp(path) + ':';
+    return value.startsWith(stamp) ? value.substring(stamp.length()) : null;
+  }
+
+  /**
+   * Records the md5 checksum of a file which is already known, e.g. because it has been calculated while writing the
+   * file.
+   *
+   * @param file
+   *          the file
+   * @param md5
+   *          the file's md5 checksum
+   * @throws IOException
+   *           if the file attributes cannot be read
+   */
+  public static void put(File file, String md5) throws IOException {
+    store(file.toPath(), stamp(file.toPath()) + ':' + md5);
+  }
+
+  /**
+   * Removes the checksum of a file that is about to be modified in place or deleted. Invalidating a directory removes
+   * the checksums of all files in it from the in-memory index.
+   *
+   * @param file
+   *          the file or directory
+   */
+  public static void invalidate(File file) {
+    Path path = file.toPath();
+    UserDefinedFileAttributeView view = Files.getFileAttributeView(path, UserDefinedFileAttributeView.class);
+    if (view != null && Files.isRegularFile(path)) {
+      try {
+        if (view.list().contains(ATTRIBUTE))
+          view.delete(ATTRIBUTE);
+      } catch (IOException | UnsupportedOperationException | SecurityException e) {
+        logger.trace("Unable to remove checksum attribute of {}: {}", path, e.getMessage());
+      }
+    }
+    String key = path.toAbsolutePath().toString();
+    String prefix = key + File.separator;
+    synchronized (index) {
+      index.keySet().removeIf(entry -> entry.equals(key) || entry.startsWith(prefix));
+    }
+  }
+
+  /**
+   * Returns the size, modification time and file key of a file, which invalidate the indexed checksum once they change
+   */
+  private static String stamp(Path path) throws IOException {
+    BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+    return attributes.size() + ":" + attributes.lastModifiedTime().toMillis() + ":" + Objects.toString(
+            attributes.fileKey(), "");
+  }
+
+  private static String load(Path path) {
+    UserDefinedFileAttributeView view = Files.getFileAttributeView(path, UserDefinedFileAttributeView.class);
+    if (view != null) {
+      try {
+        if (view.list().contains(ATTRIBUTE)) {
+          ByteBuffer buffer = ByteBuffer.allocate(view.size(ATTRIBUTE));
+          view.read(ATTRIBUTE, buffer);
+          buffer.flip();
+          return StandardCharsets.UTF_8.decode(buffer).toString();
+        }
+      } catch (IOException | UnsupportedOperationException | SecurityException e) {
+        logger.trace("Unable to read checksum attribute of {}: {}", path, e.getMessage());
+      }
+    }
+    return index.get(path.toAbsolutePath().toString());
+  }
+
+  private static void store(Path path, String value) {
+    UserDefinedFileAttributeView view = Files.getFileAttributeView(path, UserDefinedFileAttributeView.class);
+    if (view != null) {
+      try {
+        view.write(ATTRIBUTE, StandardCharsets.UTF_8.encode(value));
+        index.remove(path.toAbsolutePath().toString());
+        return;
+      } catch (IOException | UnsupportedOperationException | SecurityException e) {
+        logger.trace("Unable to write checksum attribute of {}: {}", path, e.getMessage());
+      }
+    }
+    index.put(path.toAbsolutePath().toString(), value);
+  }
+
+}
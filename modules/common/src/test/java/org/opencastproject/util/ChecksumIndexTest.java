@@ -0,0 +1,111 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+public class ChecksumIndexTest {
+
+  /** A checksum which does not match the test file content, to tell an indexed checksum from a calculated one */
+  private static final String MD5 = "00000000000000000000000000000000";
+
+  @Rule
+  public TemporaryFolder testFolder = new TemporaryFolder();
+
+  @Test
+  public void testMd5() throws Exception {
+    File file = testFolder.newFile();
+    FileUtils.writeStringToFile(file, "opencast", StandardCharsets.UTF_8);
+    String md5 = Checksum.create(ChecksumType.DEFAULT_TYPE, file).getValue();
+    assertNull(ChecksumIndex.get(file));
+    assertEquals(md5, ChecksumIndex.md5(file));
+    assertEquals(md5, ChecksumIndex.get(file));
+  }
+
+  @Test
+  public void testIndexedChecksumIsUsed() throws Exception {
+    File file = testFolder.newFile();
+    FileUtils.writeStringToFile(file, "opencast", StandardCharsets.UTF_8);
+    ChecksumIndex.put(file, MD5);
+    assertEquals(MD5, ChecksumIndex.md5(file));
+  }
+
+  @Test
+  public void testModificationInvalidatesChecksum() throws Exception {
+    File file = testFolder.newFile();
+    FileUtils.writeStringToFile(file, "opencast", StandardCharsets.UTF_8);
+    ChecksumIndex.put(file, MD5);
+    FileUtils.writeStringToFile(file, "opencast project", StandardCharsets.UTF_8);
+    assertNull(ChecksumIndex.get(file));
+    assertEquals(Checksum.create(ChecksumType.DEFAULT_TYPE, file).getValue(), ChecksumIndex.md5(file));
+  }
+
+  @Test
+  public void testReplacementInvalidatesChecksum() throws Exception {
+    File file = testFolder.newFile();
+    FileUtils.writeStringToFile(file, "opencast", StandardCharsets.UTF_8);
+    ChecksumIndex.put(file, MD5);
+
+    // Same size and modification time, but a different file
+    File replacement = testFolder.newFile();
+    FileUtils.writeStringToFile(replacement, "OPENCAST", StandardCharsets.UTF_8);
+    replacement.setLastModified(file.lastModified());
+    Files.move(replacement.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    assertNull(ChecksumIndex.get(file));
+  }
+
+  @Test
+  public void testInvalidate() throws Exception {
+    File file = testFolder.newFile();
+    FileUtils.writeStringToFile(file, "opencast", StandardCharsets.UTF_8);
+    ChecksumIndex.put(file, MD5);
+    ChecksumIndex.invalidate(file);
+    assertNull(ChecksumIndex.get(file));
+  }
+
+  @Test
+  public void testInvalidateDirectory() throws Exception {
+    File directory = testFolder.newFolder();
+    File file = new File(directory, "file");
+    FileUtils.writeStringToFile(file, "opencast", StandardCharsets.UTF_8);
+    ChecksumIndex.put(file, MD5);
+    ChecksumIndex.invalidate(directory);
+    FileUtils.deleteDirectory(directory);
+
+    // A new file at the same path must not inherit the checksum
+    FileUtils.writeStringToFile(file, "opencast", StandardCharsets.UTF_8);
+    assertNull(ChecksumIndex.get(file));
+  }
+
+}
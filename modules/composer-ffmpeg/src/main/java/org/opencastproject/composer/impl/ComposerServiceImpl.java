@@ -22,7 +22,11 @@
 package org.opencastproject.composer.impl;
 
 import static java.lang.String.format;
+import static org.opencastproject.composer.impl.EncoderEngine.ADAPTIVE_TYPE_SUFFIX;
 import static org.opencastproject.composer.impl.EncoderEngine.CMD_SUFFIX;
+import static org.opencastproject.composer.impl.EncoderEngine.PROP_DISABLE_STREAMS;
+import static org.opencastproject.composer.impl.EncoderEngine.PROP_SEGMENT_DURATION;
+import static org.opencastproject.composer.impl.EncoderEngine.PROP_SEGMENT_START;
 import static org.opencastproject.serviceregistry.api.Incidents.NO_DETAILS;
 import static org.opencastproject.util.data.Option.none;
 import static org.opencastproject.util.data.Option.some;
@@ -33,6 +37,7 @@ import org.opencastproject.composer.api.EncoderException;
 import org.opencastproject.composer.api.EncodingProfile;
 import org.opencastproject.composer.api.LaidOutElement;
 import org.opencastproject.composer.api.VideoClip;
+import org.opencastproject.composer.impl.jmx.EncodingStatistics;
 import org.opencastproject.composer.layout.Dimension;
 import org.opencastproject.composer.layout.Layout;
 import org.opencastproject.composer.layout.Serializer;
@@ -76,6 +81,7 @@ import org.opencastproject.util.UnknownFileTypeException;
 import org.opencastproject.util.data.Collections;
 import org.opencastproject.util.data.Option;
 import org.opencastproject.util.data.Tuple;
+import org.opencastproject.util.jmx.JmxUtil;
 import org.opencastproject.workspace.api.Workspace;
 
 import com.google.gson.Gson;
@@ -120,8 +126,11 @@ import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
+import java.util.UUID;
 import java.util.stream.Collectors;
 
+import javax.management.ObjectInstance;
+
 /** FFMPEG based implementation of the composer service api. */
 @Component(
   property = {
@@ -217,17 +226,33 @@ public class ComposerServiceImpl extends AbstractJobProducer implements Composer
   public static final String MULTI_ENCODE_FADE_MILLISECONDS = "org.composer.multi_encode.fade.milliseconds";
   private int multiEncodeFade = DEFAULT_MULTI_ENCODE_FADE_MILLISECONDS;
 
+  // Segmented encoding - long tracks are split into segments which are encoded in parallel as separate jobs
+  public static final long DEFAULT_ENCODE_SEGMENT_MIN_LENGTH = 0L;
+  public static final String ENCODE_SEGMENT_MIN_LENGTH = "encode.segment.min.length";
+  private long encodeSegmentMinLength = DEFAULT_ENCODE_SEGMENT_MIN_LENGTH;
+
+  public static final int DEFAULT_ENCODE_SEGMENT_MAX_COUNT = 8;
+  public static final String ENCODE_SEGMENT_MAX_COUNT = "encode.segment.max.count";
+  private int encodeSegmentMaxCount = DEFAULT_ENCODE_SEGMENT_MAX_COUNT;
+
   /** default transition */
   private int transitionDuration = (int) (DEFAULT_PROCESS_SMIL_CLIP_TRANSITION_DURATION * 1000);
 
   /** List of available operations on jobs */
   enum Operation {
-    Encode, Image, ImageConversion, Mux, Trim, Composite, Concat, ImageToVideo, ParallelEncode, Demux, ProcessSmil, MultiEncode
+    Encode, Image, ImageConversion, Mux, Trim, Composite, Concat, ImageToVideo, ParallelEncode, Demux, ProcessSmil, MultiEncode,
+    EncodeSegment
   }
 
   /** tracked encoder engines */
   private Set<EncoderEngine> activeEncoder = new HashSet<>();
 
+  /** The progress of the encodings */
+  private final EncodingStatistics encodingStatistics = new EncodingStatistics();
+
+  /** The registered JMX bean of the encoding statistics */
+  private ObjectInstance encodingStatisticsBean;
+
   /** Encoding profile manager */
   private EncodingProfileScanner profileScanner = null;
 
@@ -273,6 +298,7 @@ public class ComposerServiceImpl extends AbstractJobProducer implements Composer
     ffmpegBinary = StringUtils.defaultString(cc.getBundleContext().getProperty(CONFIG_FFMPEG_PATH),
             FFMPEG_BINARY_DEFAULT);
     logger.debug("ffmpeg binary: {}", ffmpegBinary);
+    encodingStatisticsBean = JmxUtil.registerMXBean(encodingStatistics, "ComposerEncodingStatistics");
     logger.info("Activating composer service");
   }
 
@@ -285,6 +311,10 @@ public class ComposerServiceImpl extends AbstractJobProducer implements Composer
     for (EncoderEngine engine: activeEncoder) {
       engine.close();
     }
+    if (encodingStatisticsBean != null) {
+      JmxUtil.unregisterMXBean(encodingStatisticsBean);
+      encodingStatisticsBean = null;
+    }
     logger.debug("Closed encoder engine factory");
   }
 
@@ -430,6 +460,232 @@ public class ComposerServiceImpl extends AbstractJobProducer implements Composer
     return some(inspectedTrack);
   }
 
+  /**
+   * Returns the number of segments to split the encoding of a track into.
+   *
+   * @param track
+   *          the track to encode
+   * @param profile
+   *          the encoding profile
+   * @return the number of segments or <code>1</code> if the track is to be encoded as a whole
+   */
+  private int getEncodeSegments(Track track, EncodingProfile profile) {
+    if (encodeSegmentMinLength <= 0 || track.getDuration() == null) {
+      return 1;
+    }
+    // Only profiles producing a single video file can be concatenated without re-encoding. Audio is always encoded
+    // as a whole, since joining separately encoded audio leaves gaps at the segment boundaries.
+    final EncodingProfile.MediaType outputType = profile.getOutputType();
+    if (outputType != EncodingProfile.MediaType.AudioVisual && outputType != EncodingProfile.MediaType.Visual) {
+      return 1;
+    }
+    if (profile.getExtension(ADAPTIVE_TYPE_SUFFIX) != null || !profile.getTags().isEmpty()) {
+      return 1;
+    }
+    // Streams of a filter graph can't be left out of the output selectively
+    if (StringUtils.contains(profile.getExtension(CMD_SUFFIX), "-filter_complex")) {
+      return 1;
+    }
+    return (int) Math.min(encodeSegmentMaxCount, track.getDuration() / (encodeSegmentMinLength * 1000L));
+  }
+
+  /**
+   * Encodes a track by splitting it into segments which are encoded as separate jobs, so that they can be processed in
+   * parallel on all available nodes, and concatenating the encoded segments without re-encoding them.
+   * <p>
+   * The segments only contain the video. The audio is encoded as a whole by this job and muxed with the concatenated
+   * video, since concatenating separately encoded audio causes gaps and clicks at the segment boundaries.
+   *
+   * @param job
+   *          Job in which context the encoding is done
+   * @param track
+   *          Source track
+   * @param profileId
+   *          the encoding profile
+   * @param segments
+   *          the number of segments
+   * @return the encoded track
+   * @throws EncoderException
+   *           if encoding fails
+   */
+  private Option<Track> segmentedEncode(final Job job, Track track, String profileId, int segments)
+          throws EncoderException, MediaPackageException {
+    final EncodingProfile profile = getProfile(job, profileId);
+    final long duration = track.getDuration();
+    final long segmentLength = duration / segments;
+    logger.info("Encoding {} in {} segments of {}ms using profile {}", track.getIdentifier(), segments,
+            segmentLength, profileId);
+
+    final boolean separateAudio = profile.getOutputType() == EncodingProfile.MediaType.AudioVisual && track.hasAudio();
+    final String trackXml = MediaPackageElementParser.getAsXml(track);
+    final Job[] segmentJobs = new Job[segments];
+    try {
+      for (int i = 0; i < segments; i++) {
+        final long start = i * segmentLength;
+        final long length = i == segments - 1 ? duration - start : segmentLength;
+        segmentJobs[i] = serviceRegistry.createJob(JOB_TYPE, Operation.EncodeSegment.toString(),
+                Arrays.asList(profileId, trackXml, Long.toString(start), Long.toString(length),
+                        Boolean.toString(separateAudio)),
+                profile.getJobLoad());
+      }
+    } catch (ServiceRegistryException e) {
+      throw new EncoderException("Unable to create segment encoding jobs", e);
+    }
+
+    final List<URI> segmentURIs = new ArrayList<>(segments);
+    File segmentList = null;
+    File audio = null;
+    try {
+      final boolean success = new JobBarrier(job, serviceRegistry, segmentJobs).waitForJobs().isSuccess();
+      for (Job segmentJob : segmentJobs) {
+        if (StringUtils.isNotBlank(segmentJob.getPayload())) {
+          segmentURIs.add(URI.create(segmentJob.getPayload()));
+        }
+      }
+      if (!success) {
+        throw new EncoderException(format("Encoding the segments of %s failed", track.getIdentifier()));
+      }
+      if (separateAudio) {
+        audio = encodeStreams(job, track, profile, "-vn", null);
+      }
+
+      final List<File> segmentFiles = new ArrayList<>(segments);
+      for (URI segmentURI : segmentURIs) {
+        segmentFiles.add(loadURIIntoWorkspace(job, "segment", segmentURI));
+      }
+
+      // Concatenate the segments using ffmpeg's concat demuxer, which copies the streams
+      final File firstSegment = segmentFiles.get(0);
+      segmentList = new File(firstSegment.getParentFile(), UUID.randomUUID() + "-segments.txt");
+      try (PrintWriter writer = new PrintWriter(new FileWriter(segmentList))) {
+        for (File segmentFile : segmentFiles) {
+          writer.println("file '" + segmentFile.getAbsolutePath().replace("'", "'\\''") + "'");
+        }
+      }
+      final File output = new File(firstSegment.getParentFile(), FilenameUtils.getBaseName(track.getURI().getPath())
+              + "_" + UUID.randomUUID() + "." + FilenameUtils.getExtension(firstSegment.getName()));
+
+      final List<String> command = new ArrayList<>(Arrays.asList("-nostats", "-hide_banner", "-f", "concat",
+              "-safe", "0", "-i", segmentList.getAbsolutePath()));
+      if (audio != null) {
+        command.addAll(Arrays.asList("-i", audio.getAbsolutePath(), "-map", "0:v", "-map", "1:a"));
+      }
+      command.addAll(Arrays.asList("-c", "copy", output.getAbsolutePath()));
+
+      final EncoderEngine encoder = getEncoderEngine();
+      try {
+        encoder.process(command);
+      } catch (EncoderException e) {
+        Map<String, String> params = new HashMap<>();
+        params.put("video", track.getIdentifier());
+        params.put("profile", profile.getIdentifier());
+        params.put("properties", "EMPTY");
+        incident().recordFailure(job, ENCODING_FAILED, e, params, detailsFor(e, encoder));
+        throw e;
+      } finally {
+        activeEncoder.remove(encoder);
+      }
+
+      // Put the file in the workspace and have it inspected
+      URI workspaceURI = putToCollection(job, output, "encoded file");
+      Track inspectedTrack = inspect(job, workspaceURI);
+      inspectedTrack.setIdentifier(IdImpl.fromUUID().toString());
+      return some(inspectedTrack);
+    } catch (IOException e) {
+      throw new EncoderException(format("Unable to concatenate the segments of %s", track.getIdentifier()), e);
+    } finally {
+      FileUtils.deleteQuietly(segmentList);
+      FileUtils.deleteQuietly(audio);
+      cleanupWorkspace(segmentURIs.toArray(new URI[0]));
+    }
+  }
+
+  /**
+   * Encodes a segment of a track as part of a segmented encoding.
+   *
+   * @param job
+   *          Job in which context the encoding is done
+   * @param track
+   *          Source track
+   * @param profileId
+   *          the encoding profile
+   * @param start
+   *          the start of the segment in milliseconds
+   * @param duration
+   *          the duration of the segment in milliseconds
+   * @param videoOnly
+   *          whether to leave out the audio, which is then encoded as a whole
+   * @return the workspace URI of the encoded segment
+   * @throws EncoderException
+   *           if encoding fails
+   */
+  private URI encodeSegment(final Job job, Track track, String profileId, long start, long duration,
+          boolean videoOnly) throws EncoderException {
+    final EncodingProfile profile = getProfile(job, profileId);
+
+    DecimalFormatSymbols ffmpegFormat = new DecimalFormatSymbols();
+    ffmpegFormat.setDecimalSeparator('.');
+    DecimalFormat seconds = new DecimalFormat("0.000", ffmpegFormat);
+    Map<String, String> properties = new HashMap<>();
+    properties.put(PROP_SEGMENT_START, seconds.format(start / 1000.0));
+    properties.put(PROP_SEGMENT_DURATION, seconds.format(duration / 1000.0));
+
+    return putToCollection(job, encodeStreams(job, track, profile, videoOnly ? "-an" : null, properties),
+            "encoded segment");
+  }
+
+  /**
+   * Encodes a track into a single file, possibly leaving out the audio or video streams.
+   *
+   * @param job
+   *          Job in which context the encoding is done
+   * @param track
+   *          Source track
+   * @param profile
+   *          the encoding profile
+   * @param disableStreams
+   *          the ffmpeg option to leave out streams, i.e. <code>-an</code> or <code>-vn</code>, or <code>null</code>
+   * @param encodingProperties
+   *          encoding properties, may be <code>null</code>
+   * @return the encoded file
+   * @throws EncoderException
+   *           if encoding fails
+   */
+  private File encodeStreams(final Job job, Track track, EncodingProfile profile, String disableStreams,
+          Map<String, String> encodingProperties) throws EncoderException {
+    final File mediaFile = loadTrackIntoWorkspace(job, "source", track, false);
+    Map<String, String> properties = new HashMap<>();
+    if (encodingProperties != null) {
+      properties.putAll(encodingProperties);
+    }
+    if (disableStreams != null) {
+      properties.put(PROP_DISABLE_STREAMS, disableStreams);
+    }
+
+    final EncoderEngine encoder = getEncoderEngine();
+    List<File> output;
+    try {
+      output = encoder.process(Collections.map(tuple("video", mediaFile)), profile, properties);
+    } catch (EncoderException e) {
+      Map<String, String> params = new HashMap<>();
+      params.put("video", track.getIdentifier());
+      params.put("profile", profile.getIdentifier());
+      params.put("properties", getPropertiesAsString(properties));
+      incident().recordFailure(job, ENCODING_FAILED, e, params, detailsFor(e, encoder));
+      throw e;
+    } finally {
+      activeEncoder.remove(encoder);
+    }
+
+    if (output.size() != 1) {
+      for (File file : output) {
+        FileUtils.deleteQuietly(file);
+      }
+      throw new EncoderException(format("Segmented encoding expects one output file (%s found)", output.size()));
+    }
+    return output.get(0);
+  }
+
   /**
    * Encodes audio and video track to a file. If both an audio and a video track are given, they are muxed together into
    * one movie container.
@@ -1391,8 +1647,16 @@ public class ComposerServiceImpl extends AbstractJobProducer implements Composer
       switch (op) {
         case Encode:
           firstTrack = (Track) MediaPackageElementParser.getFromXml(arguments.get(1));
-          serialized = encode(job, Collections.map(tuple("video", firstTrack)), encodingProfile).map(
-                  MediaPackageElementParser.getAsXml()).getOrElse("");
+          final int encodeSegments = getEncodeSegments(firstTrack, getProfile(job, encodingProfile));
+          final Option<Track> encodedTrack = encodeSegments > 1
+                  ? segmentedEncode(job, firstTrack, encodingProfile, encodeSegments)
+                  : encode(job, Collections.map(tuple("video", firstTrack)), encodingProfile);
+          serialized = encodedTrack.map(MediaPackageElementParser.getAsXml()).getOrElse("");
+          break;
+        case EncodeSegment:
+          firstTrack = (Track) MediaPackageElementParser.getFromXml(arguments.get(1));
+          serialized = encodeSegment(job, firstTrack, encodingProfile, Long.parseLong(arguments.get(2)),
+                  Long.parseLong(arguments.get(3)), Boolean.parseBoolean(arguments.get(4))).toString();
           break;
         case ParallelEncode:
           firstTrack = (Track) MediaPackageElementParser.getFromXml(arguments.get(1));
@@ -1609,6 +1873,11 @@ public class ComposerServiceImpl extends AbstractJobProducer implements Composer
 
   private EncoderEngine getEncoderEngine() {
     EncoderEngine engine = new EncoderEngine(ffmpegBinary);
+    final Job job = serviceRegistry.getCurrentJob();
+    if (job != null) {
+      final long jobId = job.getId();
+      engine.setProgressListener(progress -> encodingStatistics.updateProgress(jobId, progress));
+    }
     activeEncoder.add(engine);
     return engine;
   }
@@ -2104,6 +2373,26 @@ public class ComposerServiceImpl extends AbstractJobProducer implements Composer
     }
     transitionDuration = (int) (1000 * LoadUtil.getConfiguredLoadValue(properties,
             PROCESS_SMIL_CLIP_TRANSITION_DURATION, DEFAULT_PROCESS_SMIL_CLIP_TRANSITION_DURATION, serviceRegistry));
+    String encodeSegmentMinLengthStr = StringUtils.trimToNull((String) properties.get(ENCODE_SEGMENT_MIN_LENGTH));
+    long segmentMinLength = DEFAULT_ENCODE_SEGMENT_MIN_LENGTH;
+    if (encodeSegmentMinLengthStr != null) {
+      segmentMinLength = NumberUtils.toLong(encodeSegmentMinLengthStr, -1L);
+      if (segmentMinLength < 0) {
+        throw new ConfigurationException(ENCODE_SEGMENT_MIN_LENGTH,
+                format("'%s' is not a positive number of seconds or 0", encodeSegmentMinLengthStr));
+      }
+    }
+    String encodeSegmentMaxCountStr = StringUtils.trimToNull((String) properties.get(ENCODE_SEGMENT_MAX_COUNT));
+    int segmentMaxCount = DEFAULT_ENCODE_SEGMENT_MAX_COUNT;
+    if (encodeSegmentMaxCountStr != null) {
+      segmentMaxCount = NumberUtils.toInt(encodeSegmentMaxCountStr, 0);
+      if (segmentMaxCount < 1) {
+        throw new ConfigurationException(ENCODE_SEGMENT_MAX_COUNT,
+                format("'%s' is not a positive number of segments", encodeSegmentMaxCountStr));
+      }
+    }
+    encodeSegmentMinLength = segmentMinLength;
+    encodeSegmentMaxCount = segmentMaxCount;
   }
 
   /**
@@ -54,6 +54,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -73,6 +74,12 @@ public class EncoderEngine implements AutoCloseable {
   static final String PROP_TRIMMING_START_TIME = "trim.start";
   /** The trimming duration property name */
   static final String PROP_TRIMMING_DURATION = "trim.duration";
+  /** The start time in seconds of the segment of the input to encode */
+  static final String PROP_SEGMENT_START = "segment.start";
+  /** The duration in seconds of the segment of the input to encode */
+  static final String PROP_SEGMENT_DURATION = "segment.duration";
+  /** The ffmpeg option leaving out a type of streams from the output, i.e. <code>-an</code> or <code>-vn</code> */
+  static final String PROP_DISABLE_STREAMS = "disable.streams";
   /** If true STDERR and STDOUT of the spawned process will be mixed so that both can be read via STDIN */
   private static final boolean REDIRECT_ERROR_STREAM = true;
 
@@ -85,6 +92,13 @@ public class EncoderEngine implements AutoCloseable {
   private final Pattern outputPattern = Pattern.compile("Output .* (\\S+) to '(.*)':");
   // ffmpeg4 generates HLS output files and may use a .tmp suffix while writing
   private final Pattern outputPatternHLS = Pattern.compile("Opening \'([^\']+)\\.tmp\'|([^\']+)\' for writing");
+  // ffmpeg's machine readable progress output requested by -progress. Only its own keys are accepted so that other
+  // output of the process is not taken for progress.
+  private static final Pattern progressPattern = Pattern.compile("(frame|fps|stream_\\d+_\\d+_q|bitrate|total_size"
+          + "|out_time_us|out_time_ms|out_time|dup_frames|drop_frames|speed|progress)=\\s*(\\S*)");
+
+  /** Listener to notify about the progress of the encoding processes, may be <code>null</code> */
+  private Consumer<EncoderProgress> progressListener = null;
 
   // These are common video options that may be mapped in HLS streams. This will help catch some common mistakes
   private static List<String> mappableOptions = Stream.of("-bf", "-b_strategy", "-bitrate", "-bufsize", "-crf",
@@ -100,6 +114,17 @@ public class EncoderEngine implements AutoCloseable {
     this.binary = binary;
   }
 
+  /**
+   * Sets the listener to notify about the progress of the encoding processes run by this engine. The listener is
+   * notified of a final progress report when a process ends, whether it succeeded or not.
+   *
+   * @param progressListener
+   *          the listener or <code>null</code> to not report any progress
+   */
+  void setProgressListener(Consumer<EncoderProgress> progressListener) {
+    this.progressListener = progressListener;
+  }
+
   /**
    * {@inheritDoc}
    *
@@ -214,9 +239,25 @@ public class EncoderEngine implements AutoCloseable {
 
     // create encoder process.
     final List<String> command = buildCommand(profile, params);
+
+    // Restrict the input to a segment by seeking the input, which keeps the encoding profile untouched
+    if (params.containsKey(PROP_SEGMENT_START) && params.containsKey(PROP_SEGMENT_DURATION)) {
+      final int input = command.indexOf("-i");
+      if (input < 0) {
+        throw new EncoderException("Encoding profile " + profile.getIdentifier() + " does not specify an input");
+      }
+      command.addAll(input, Arrays.asList("-ss", params.get(PROP_SEGMENT_START),
+              "-t", params.get(PROP_SEGMENT_DURATION)));
+    }
+
+    // Leave out the audio or video streams by adding the option right before the output file
+    if (params.containsKey(PROP_DISABLE_STREAMS)) {
+      command.add(command.size() - 1, params.get(PROP_DISABLE_STREAMS));
+    }
     logger.info("Executing encoding command: {}", command);
 
     List<File> outFiles = new ArrayList<>();
+    ProgressParser progress = new ProgressParser();
     BufferedReader in = null;
     Process encoderProcess = null;
     try {
@@ -229,7 +270,8 @@ public class EncoderEngine implements AutoCloseable {
       in = new BufferedReader(new InputStreamReader(encoderProcess.getInputStream()));
       String line;
       while ((line = in.readLine()) != null) {
-        handleEncoderOutput(outFiles, line);
+        if (!progress.parse(line))
+          handleEncoderOutput(outFiles, line);
       }
 
       // wait until the task is finished
@@ -252,6 +294,7 @@ public class EncoderEngine implements AutoCloseable {
       }
       throw new EncoderException(e);
     } finally {
+      progress.finish();
       IoSupport.closeQuietly(in);
       IoSupport.closeQuietly(encoderProcess);
     }
@@ -281,9 +324,12 @@ public class EncoderEngine implements AutoCloseable {
     Process encoderProcess = null;
     BufferedReader in = null;
     List<File> outFiles = new ArrayList<>();
+    ProgressParser progress = new ProgressParser();
     try {
       List<String> command = new ArrayList<>();
       command.add(binary);
+      command.add("-progress");
+      command.add("pipe:2");
       command.addAll(commandopts);
       logger.info("Executing encoding command: {}", StringUtils.join(command, " "));
 
@@ -294,7 +340,8 @@ public class EncoderEngine implements AutoCloseable {
       in = new BufferedReader(new InputStreamReader(encoderProcess.getInputStream()));
       String line;
       while ((line = in.readLine()) != null) {
-        handleEncoderOutput(outFiles, line); // get names of output files
+        if (!progress.parse(line))
+          handleEncoderOutput(outFiles, line); // get names of output files
       }
       // wait until the task is finished
       encoderProcess.waitFor();
@@ -316,6 +363,7 @@ public class EncoderEngine implements AutoCloseable {
       }
       throw new EncoderException(e);
     } finally {
+      progress.finish();
       IoSupport.closeQuietly(in);
       IoSupport.closeQuietly(encoderProcess);
     }
@@ -353,6 +401,8 @@ public class EncoderEngine implements AutoCloseable {
     command.add(binary);
     command.add("-nostdin");
     command.add("-nostats");
+    command.add("-progress");
+    command.add("pipe:2");
 
     String commandline = profile.getExtension(CMD_SUFFIX);
 
@@ -492,6 +542,52 @@ public class EncoderEngine implements AutoCloseable {
     }
   }
 
+  /**
+   * Collects the progress values an encoding process reports and notifies the progress listener once a report is
+   * complete.
+   */
+  private final class ProgressParser {
+
+    /** The values reported since the last complete report */
+    private final Map<String, String> values = new HashMap<>();
+
+    /** The last complete report */
+    private EncoderProgress last = null;
+
+    /**
+     * Parses a line of the process output.
+     *
+     * @param line
+     *          the line
+     * @return whether the line was part of a progress report
+     */
+    boolean parse(String line) {
+      Matcher matcher = progressPattern.matcher(line.trim());
+      if (!matcher.matches())
+        return false;
+
+      // Reports are blocks of key value pairs terminated by the progress key
+      values.put(matcher.group(1), matcher.group(2));
+      if ("progress".equals(matcher.group(1))) {
+        last = EncoderProgress.parse(values);
+        values.clear();
+        logger.trace("Encoding progress: {}", last);
+        if (progressListener != null)
+          progressListener.accept(last);
+      }
+      return true;
+    }
+
+    /**
+     * Notifies the progress listener of the end of the process if ffmpeg did not report it.
+     */
+    void finish() {
+      if (last != null && !last.isEnd() && progressListener != null)
+        progressListener.accept(last.ended());
+    }
+
+  }
+
   /**
    * Splits a line into tokens - mindful of single and double quoted string as single token Apache common and guava do
    * not deal with quotes
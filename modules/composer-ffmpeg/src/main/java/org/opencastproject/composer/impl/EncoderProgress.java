@@ -0,0 +1,109 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.composer.impl;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+
+import java.util.Map;
+
+/**
+ * Snapshot of the progress of an encoding process, as reported by ffmpeg's machine readable <code>-progress</code>
+ * output.
+ */
+public final class EncoderProgress {
+
+  private final long frame;
+  private final float fps;
+  private final float speed;
+  private final long outTime;
+  private final boolean end;
+
+  EncoderProgress(long frame, float fps, float speed, long outTime, boolean end) {
+    this.frame = frame;
+    this.fps = fps;
+    this.speed = speed;
+    this.outTime = outTime;
+    this.end = end;
+  }
+
+  /**
+   * Creates a progress snapshot from a block of ffmpeg progress key value pairs.
+   *
+   * @param values
+   *          the reported values, the block being terminated by the <code>progress</code> key
+   * @return the progress
+   */
+  static EncoderProgress parse(Map<String, String> values) {
+    // Despite its name, out_time_ms is reported in microseconds
+    long outTimeUs = NumberUtils.toLong(values.get("out_time_us"), NumberUtils.toLong(values.get("out_time_ms")));
+    return new EncoderProgress(
+            NumberUtils.toLong(values.get("frame")),
+            NumberUtils.toFloat(values.get("fps")),
+            NumberUtils.toFloat(StringUtils.removeEnd(StringUtils.trim(values.get("speed")), "x")),
+            Math.max(0L, outTimeUs / 1000L),
+            "end".equals(values.get("progress")));
+  }
+
+  /**
+   * Returns this progress as the final report of a process that ended without ffmpeg reporting its end, e.g. because
+   * it failed or was destroyed.
+   *
+   * @return the final progress
+   */
+  EncoderProgress ended() {
+    return end ? this : new EncoderProgress(frame, fps, speed, outTime, true);
+  }
+
+  /** The number of frames processed so far */
+  public long getFrame() {
+    return frame;
+  }
+
+  /** The current processing rate in frames per second */
+  public float getFps() {
+    return fps;
+  }
+
+  /** The current processing speed relative to real time, e.g. <code>2.0</code> if encoding twice as fast */
+  public float getSpeed() {
+    return speed;
+  }
+
+  /** The media time written so far in milliseconds */
+  public long getOutTime() {
+    return outTime;
+  }
+
+  /** Whether this is the final progress report of the process */
+  public boolean isEnd() {
+    return end;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("frame=%d fps=%.1f speed=%.2fx out_time=%dms%s", frame, fps, speed, outTime,
+            end ? " (end)" : "");
+  }
+
+}
@@ -0,0 +1,93 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.composer.impl.jmx;
+
+import org.opencastproject.composer.impl.EncoderProgress;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects the progress reported by the encoding processes of the composer service.
+ */
+public class EncodingStatistics implements EncodingStatisticsMXBean {
+
+  /** The latest progress of the running encodings by job identifier */
+  private final Map<Long, EncoderProgress> running = new ConcurrentHashMap<>();
+  private final AtomicLong ended = new AtomicLong();
+  private final AtomicLong encodedMediaTime = new AtomicLong();
+
+  /**
+   * Updates the progress of the encoding process of a job.
+   *
+   * @param jobId
+   *          the job identifier
+   * @param progress
+   *          the latest progress report of the process
+   */
+  public void updateProgress(long jobId, EncoderProgress progress) {
+    if (progress.isEnd()) {
+      running.remove(jobId);
+      ended.incrementAndGet();
+      encodedMediaTime.addAndGet(progress.getOutTime());
+    } else {
+      running.put(jobId, progress);
+    }
+  }
+
+  /**
+   * @see org.opencastproject.composer.impl.jmx.EncodingStatisticsMXBean#getRunningEncodings()
+   */
+  @Override
+  public int getRunningEncodings() {
+    return running.size();
+  }
+
+  /**
+   * @see org.opencastproject.composer.impl.jmx.EncodingStatisticsMXBean#getEncodingProgress()
+   */
+  @Override
+  public String[] getEncodingProgress() {
+    return running.entrySet().stream()
+            .map(entry -> "Job " + entry.getKey() + ": " + entry.getValue())
+            .toArray(String[]::new);
+  }
+
+  /**
+   * @see org.opencastproject.composer.impl.jmx.EncodingStatisticsMXBean#getEndedEncodings()
+   */
+  @Override
+  public long getEndedEncodings() {
+    return ended.get();
+  }
+
+  /**
+   * @see org.opencastproject.composer.impl.jmx.EncodingStatisticsMXBean#getEncodedMediaTime()
+   */
+  @Override
+  public long getEncodedMediaTime() {
+    return encodedMediaTime.get();
+  }
+
+}
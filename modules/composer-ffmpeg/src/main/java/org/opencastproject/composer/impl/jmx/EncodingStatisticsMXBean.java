@@ -0,0 +1,58 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.composer.impl.jmx;
+
+/**
+ * JMX Bean interface exposing the progress of the encodings run by the composer service.
+ */
+public interface EncodingStatisticsMXBean {
+
+  /**
+   * Gets the number of encoding processes currently running
+   *
+   * @return the number of running encodings
+   */
+  int getRunningEncodings();
+
+  /**
+   * Gets the latest progress report of every running encoding process
+   *
+   * @return the progress of the running encodings, one entry per job
+   */
+  String[] getEncodingProgress();
+
+  /**
+   * Gets the number of encoding processes that ended
+   *
+   * @return the number of ended encodings
+   */
+  long getEndedEncodings();
+
+  /**
+   * Gets the total media time written by the encoding processes that ended
+   *
+   * @return the media time in milliseconds
+   */
+  long getEncodedMediaTime();
+
+}
@@ -288,6 +288,7 @@ public class ComplexCmdsEncoderEngineTest {
               job.setPayload(composerService.process(job));
               return job;
             }).anyTimes();
+    EasyMock.expect(serviceRegistry.getCurrentJob()).andReturn(null).anyTimes();
     EasyMock.replay(serviceRegistry);
 
     // Create and populate the composer service
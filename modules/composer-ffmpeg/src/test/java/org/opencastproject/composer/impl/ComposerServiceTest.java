@@ -69,6 +69,7 @@ import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.osgi.framework.BundleContext;
+import org.osgi.service.cm.ConfigurationException;
 import org.osgi.service.component.ComponentContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -77,11 +78,19 @@ import java.awt.image.BufferedImage;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.net.URI;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Hashtable;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Stream;
 
 import javax.imageio.ImageIO;
@@ -236,6 +245,7 @@ public class ComposerServiceTest {
               job.setPayload(composerService.process(job));
               return job;
             }).anyTimes();
+    EasyMock.expect(serviceRegistry.getCurrentJob()).andReturn(null).anyTimes();
     composerService.setServiceRegistry(serviceRegistry);
     composerService.setProfileScanner(profileScanner);
     composerService.setWorkspace(workspace);
@@ -594,4 +604,117 @@ public class ComposerServiceTest {
     inspectedTrack.setMimeType(MimeType.mimeType("video", "mp4"));
     Assert.assertEquals(inspectedTrack, imageToVideoTrack);
   }
+
+  @Test
+  public void testSegmentedEncode() throws Exception {
+    File source = new File(testDir, "audiovideo-" + UUID.randomUUID() + ".mov");
+    FileUtils.copyFile(getFile("/audiovideo.mov"), source);
+    Track sourceTrack = (Track) MediaPackageElementParser.getFromXml(IOUtils.toString(
+            ComposerServiceTest.class.getResourceAsStream("/composer_test_source_track_audiovideo.xml"),
+            Charset.defaultCharset()));
+
+    // Keep everything put into the workspace, the last file being the concatenated track
+    final List<File> stored = new ArrayList<>();
+    Workspace workspace = EasyMock.createNiceMock(Workspace.class);
+    EasyMock.expect(workspace.get(EasyMock.anyObject(), EasyMock.anyBoolean())).andReturn(source).anyTimes();
+    EasyMock.expect(workspace.get(EasyMock.anyObject()))
+            .andAnswer(() -> new File((URI) EasyMock.getCurrentArguments()[0])).anyTimes();
+    EasyMock.expect(workspace.putInCollection(EasyMock.anyString(), EasyMock.anyString(), EasyMock.anyObject()))
+            .andAnswer(() -> {
+              File file = new File(testDir, UUID.randomUUID() + "-" + EasyMock.getCurrentArguments()[1]);
+              try (InputStream in = (InputStream) EasyMock.getCurrentArguments()[2]) {
+                FileUtils.copyInputStreamToFile(in, file);
+              }
+              stored.add(file);
+              return file.toURI();
+            }).anyTimes();
+    EasyMock.replay(workspace);
+    composerService.setWorkspace(workspace);
+
+    // Run the segment jobs right away and report them as finished to the job barrier
+    final Map<Long, Job> jobs = new ConcurrentHashMap<>();
+    final AtomicLong ids = new AtomicLong();
+    final Capture<String> type = EasyMock.newCapture();
+    final Capture<String> operation = EasyMock.newCapture();
+    final Capture<List<String>> args = EasyMock.newCapture();
+    ServiceRegistry serviceRegistry = EasyMock.createNiceMock(ServiceRegistry.class);
+    EasyMock.expect(serviceRegistry.createJob(capture(type), capture(operation), capture(args), EasyMock.anyFloat()))
+            .andAnswer(() -> {
+              Job job = new JobImpl(ids.incrementAndGet());
+              job.setJobType(type.getValue());
+              job.setOperation(operation.getValue());
+              job.setArguments(args.getValue());
+              jobs.put(job.getId(), job);
+              job.setPayload(composerService.process(job));
+              job.setStatus(Job.Status.FINISHED);
+              return job;
+            }).anyTimes();
+    EasyMock.expect(serviceRegistry.getJob(EasyMock.anyLong()))
+            .andAnswer(() -> jobs.get((Long) EasyMock.getCurrentArguments()[0])).anyTimes();
+    EasyMock.expect(serviceRegistry.updateJob(EasyMock.anyObject()))
+            .andAnswer(() -> (Job) EasyMock.getCurrentArguments()[0]).anyTimes();
+    EasyMock.replay(serviceRegistry);
+    composerService.setServiceRegistry(serviceRegistry);
+
+    Hashtable<String, String> properties = new Hashtable<>();
+    properties.put(ComposerServiceImpl.ENCODE_SEGMENT_MIN_LENGTH, "3");
+    composerService.updated(properties);
+
+    Job job = composerService.encode(sourceTrack, "av-segmented.work");
+    assertNotNull(MediaPackageElementParser.getFromXml(job.getPayload()));
+    assertEquals(3, jobs.values().stream()
+            .filter(j -> ComposerServiceImpl.Operation.EncodeSegment.toString().equals(j.getOperation())).count());
+
+    // The audio must neither be cut short nor be stretched by gaps at the segment boundaries
+    Map<String, Double> durations = probeStreamDurations(stored.get(stored.size() - 1));
+    assertTrue(durations.containsKey("video"));
+    assertTrue(durations.containsKey("audio"));
+    assertEquals(sourceTrack.getDuration() / 1000.0, durations.get("video"), 0.25);
+    assertEquals(durations.get("video"), durations.get("audio"), 0.1);
+
+    FileUtils.deleteQuietly(source);
+    for (File file : stored) {
+      FileUtils.deleteQuietly(file);
+    }
+  }
+
+  @Test(expected = ConfigurationException.class)
+  public void testInvalidSegmentMinLength() throws Exception {
+    Hashtable<String, String> properties = new Hashtable<>();
+    properties.put(ComposerServiceImpl.ENCODE_SEGMENT_MIN_LENGTH, "ten minutes");
+    updateWithoutHosts(properties);
+  }
+
+  @Test(expected = ConfigurationException.class)
+  public void testInvalidSegmentMaxCount() throws Exception {
+    Hashtable<String, String> properties = new Hashtable<>();
+    properties.put(ComposerServiceImpl.ENCODE_SEGMENT_MIN_LENGTH, "600");
+    properties.put(ComposerServiceImpl.ENCODE_SEGMENT_MAX_COUNT, "0");
+    updateWithoutHosts(properties);
+  }
+
+  private void updateWithoutHosts(Hashtable<String, String> properties) throws ConfigurationException {
+    ServiceRegistry serviceRegistry = EasyMock.createNiceMock(ServiceRegistry.class);
+    EasyMock.replay(serviceRegistry);
+    composerService.setServiceRegistry(serviceRegistry);
+    composerService.updated(properties);
+  }
+
+  /** Returns the durations in seconds of the streams of the given media file, by codec type */
+  private static Map<String, Double> probeStreamDurations(File file) throws Exception {
+    Process process = new ProcessBuilder("ffprobe", "-v", "error", "-show_entries", "stream=codec_type,duration",
+            "-of", "csv=p=0", file.getAbsolutePath()).start();
+    Map<String, Double> durations = new HashMap<>();
+    try (BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+      String line;
+      while ((line = in.readLine()) != null) {
+        String[] stream = line.trim().split(",");
+        if (stream.length == 2) {
+          durations.put(stream[0], Double.parseDouble(stream[1]));
+        }
+      }
+    }
+    assertEquals(0, process.waitFor());
+    return durations;
+  }
 }
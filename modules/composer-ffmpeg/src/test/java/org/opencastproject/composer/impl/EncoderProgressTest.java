@@ -0,0 +1,91 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.composer.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.opencastproject.composer.impl.jmx.EncodingStatistics;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tests the parsing of ffmpeg's progress reports and their statistics.
+ */
+public class EncoderProgressTest {
+
+  @Test
+  public void testParse() {
+    Map<String, String> values = new HashMap<>();
+    values.put("frame", "250");
+    values.put("fps", "49.8");
+    values.put("out_time_us", "10000000");
+    values.put("out_time_ms", "10000000");
+    values.put("speed", "1.99x");
+    values.put("progress", "continue");
+
+    EncoderProgress progress = EncoderProgress.parse(values);
+    assertEquals(250L, progress.getFrame());
+    assertEquals(49.8f, progress.getFps(), 0.001f);
+    assertEquals(1.99f, progress.getSpeed(), 0.001f);
+    assertEquals(10000L, progress.getOutTime());
+    assertFalse(progress.isEnd());
+  }
+
+  @Test
+  public void testParseEnd() {
+    Map<String, String> values = new HashMap<>();
+    // Older ffmpeg versions only report out_time_ms, in microseconds as well
+    values.put("out_time_ms", "5000000");
+    values.put("speed", "N/A");
+    values.put("progress", "end");
+
+    EncoderProgress progress = EncoderProgress.parse(values);
+    assertEquals(5000L, progress.getOutTime());
+    assertEquals(0f, progress.getSpeed(), 0f);
+    assertTrue(progress.isEnd());
+    assertSame(progress, progress.ended());
+  }
+
+  @Test
+  public void testStatistics() {
+    EncodingStatistics statistics = new EncodingStatistics();
+    EncoderProgress progress = new EncoderProgress(100L, 25f, 1f, 4000L, false);
+    statistics.updateProgress(1L, progress);
+    statistics.updateProgress(2L, progress);
+    assertEquals(2, statistics.getRunningEncodings());
+    assertEquals(2, statistics.getEncodingProgress().length);
+
+    // A process ending without ffmpeg reporting it still ends the encoding
+    statistics.updateProgress(1L, progress.ended());
+    assertEquals(1, statistics.getRunningEncodings());
+    assertEquals(1L, statistics.getEndedEncodings());
+    assertEquals(4000L, statistics.getEncodedMediaTime());
+  }
+
+}
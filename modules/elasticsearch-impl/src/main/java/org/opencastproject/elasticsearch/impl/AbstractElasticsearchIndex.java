@@ -26,23 +26,23 @@ import org.opencastproject.elasticsearch.api.SearchIndex;
 import org.opencastproject.elasticsearch.api.SearchIndexException;
 import org.opencastproject.elasticsearch.api.SearchQuery;
 import org.opencastproject.elasticsearch.api.SearchQuery.Order;
+import org.opencastproject.util.jmx.JmxUtil;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.HttpHost;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.ElasticsearchStatusException;
+import org.elasticsearch.action.DocWriteRequest;
 import org.elasticsearch.action.DocWriteResponse;
 import org.elasticsearch.action.admin.indices.delete.DeleteIndexRequest;
 import org.elasticsearch.action.bulk.BulkItemResponse;
-import org.elasticsearch.action.bulk.BulkRequest;
-import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.action.delete.DeleteRequest;
-import org.elasticsearch.action.delete.DeleteResponse;
 import org.elasticsearch.action.get.GetRequest;
 import org.elasticsearch.action.get.GetResponse;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.action.search.SearchType;
 import org.elasticsearch.action.support.WriteRequest;
 import org.elasticsearch.action.support.master.AcknowledgedResponse;
@@ -74,8 +74,11 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import javax.management.ObjectInstance;
+
 /**
  * A search index implementation based on ElasticSearch.
  */
@@ -96,6 +99,19 @@ public abstract class AbstractElasticsearchIndex implements SearchIndex {
   /** Configuration key defining the port of an external Elasticsearch server */
   public static final String ELASTICSEARCH_SERVER_PORT_KEY = "org.opencastproject.elasticsearch.server.port";
 
+  /** Configuration key defining the number of buffered index operations triggering a bulk request */
+  public static final String ELASTICSEARCH_BULK_SIZE_KEY = "org.opencastproject.elasticsearch.bulk.size";
+
+  /** Configuration key defining the maximum time in milliseconds index operations are buffered */
+  public static final String ELASTICSEARCH_BULK_FLUSH_INTERVAL_KEY
+          = "org.opencastproject.elasticsearch.bulk.flush.interval";
+
+  /** Default number of buffered index operations triggering a bulk request */
+  private static final int ELASTICSEARCH_BULK_SIZE_DEFAULT = 500;
+
+  /** By default, index operations are not buffered */
+  private static final long ELASTICSEARCH_BULK_FLUSH_INTERVAL_DEFAULT = 0;
+
   /** Default port of an external Elasticsearch server */
   private static final int ELASTICSEARCH_SERVER_PORT_DEFAULT = 9200;
 
@@ -105,6 +121,9 @@ public abstract class AbstractElasticsearchIndex implements SearchIndex {
   /** Default scheme of an external Elasticsearch server */
   private static final String ELASTICSEARCH_SERVER_SCHEME_DEFAULT = "http";
 
+  /** Number of attempts to apply a conditional update to a document which is being modified concurrently */
+  private static final int CONDITIONAL_UPDATE_ATTEMPTS = 10;
+
   /** Identifier of the root entry */
   private static final String ROOT_ID = "root";
 
@@ -117,6 +136,12 @@ public abstract class AbstractElasticsearchIndex implements SearchIndex {
   /** The high level client */
   private RestHighLevelClient client = null;
 
+  /** Sends index and delete operations in bulk */
+  private BulkIndexWriter writer = null;
+
+  /** The writer's JMX registration */
+  private ObjectInstance writerMXBean = null;
+
   /** List of sites with prepared index */
   private final List<String> preparedIndices = new ArrayList<>();
 
@@ -135,6 +160,12 @@ public abstract class AbstractElasticsearchIndex implements SearchIndex {
   /** Port of an external Elasticsearch server to connect to */
   private int externalServerPort = ELASTICSEARCH_SERVER_PORT_DEFAULT;
 
+  /** Number of buffered index operations triggering a bulk request */
+  private int bulkSize = ELASTICSEARCH_BULK_SIZE_DEFAULT;
+
+  /** Maximum time in milliseconds index operations are buffered */
+  private long bulkFlushInterval = ELASTICSEARCH_BULK_FLUSH_INTERVAL_DEFAULT;
+
   /**
    * Returns an array of document types for the index. For every one of these, the corresponding document type
    * definition will be loaded.
@@ -165,6 +196,12 @@ public abstract class AbstractElasticsearchIndex implements SearchIndex {
     externalServerPort = Integer.parseInt(StringUtils
             .defaultIfBlank(ctx.getBundleContext().getProperty(ELASTICSEARCH_SERVER_PORT_KEY),
                     ELASTICSEARCH_SERVER_PORT_DEFAULT + ""));
+    bulkSize = Integer.parseInt(StringUtils
+            .defaultIfBlank(ctx.getBundleContext().getProperty(ELASTICSEARCH_BULK_SIZE_KEY),
+                    ELASTICSEARCH_BULK_SIZE_DEFAULT + ""));
+    bulkFlushInterval = Long.parseLong(StringUtils
+            .defaultIfBlank(ctx.getBundleContext().getProperty(ELASTICSEARCH_BULK_FLUSH_INTERVAL_KEY),
+                    ELASTICSEARCH_BULK_FLUSH_INTERVAL_DEFAULT + ""));
   }
 
   @Override
@@ -175,6 +212,8 @@ public abstract class AbstractElasticsearchIndex implements SearchIndex {
   @Override
   public void clear() throws IOException {
     try {
+      // Send buffered operations first so they cannot re-create documents in the new index
+      writer.flush(WriteRequest.RefreshPolicy.NONE);
       final DeleteIndexRequest request = new DeleteIndexRequest(
               Arrays.stream(getDocumentTypes()).map(this::getIndexName).toArray(String[]::new));
       final AcknowledgedResponse delete = client.indices().delete(request, RequestOptions.DEFAULT);
@@ -210,10 +249,8 @@ public abstract class AbstractElasticsearchIndex implements SearchIndex {
         createSubIndex(type, getIndexName(type));
       }
       logger.debug("Removing element with id '{}' from searching index", uid);
-      final DeleteRequest deleteRequest = new DeleteRequest(getIndexName(type), uid)
-              .setRefreshPolicy(WriteRequest.RefreshPolicy.IMMEDIATE);
-      final DeleteResponse delete = client.delete(deleteRequest, RequestOptions.DEFAULT);
-      if (delete.getResult().equals(DocWriteResponse.Result.NOT_FOUND)) {
+      final BulkItemResponse response = writer.write(new DeleteRequest(getIndexName(type), uid));
+      if (response.getResponse().getResult().equals(DocWriteResponse.Result.NOT_FOUND)) {
         logger.trace("Document {} to delete was not found", uid);
         return false;
       }
@@ -224,38 +261,121 @@ public abstract class AbstractElasticsearchIndex implements SearchIndex {
   }
 
   /**
-   * Posts the input document to the search index.
+   * Posts the input document to the search index. Depending on the configuration, the documents may be buffered and
+   * sent along with other updates later. Searches on this index will see the documents in any case.
    *
    * @param documents
    *          the input documents
-   * @return the query response
    * @throws SearchIndexException
    *           if posting to the index fails
    */
-  protected BulkResponse update(ElasticsearchDocument... documents) throws SearchIndexException {
+  protected void update(ElasticsearchDocument... documents) throws SearchIndexException {
+    try {
+      for (ElasticsearchDocument doc : documents) {
+        writer.add(new IndexRequest(getIndexName(doc.getType())).id(doc.getUID()).source(doc));
+      }
+    } catch (Throwable t) {
+      throw new SearchIndexException("Cannot update documents in index " + getIndexName(), t);
+    }
+  }
 
-    final BulkRequest bulkRequest = new BulkRequest().setRefreshPolicy(WriteRequest.RefreshPolicy.IMMEDIATE);
-    for (ElasticsearchDocument doc : documents) {
-      bulkRequest.add(new IndexRequest(getIndexName(doc.getType())).id(doc.getUID()).source(doc));
+  /**
+   * Posts the input document to the search index right away, using the given refresh policy. This is meant for callers
+   * which need the documents to be visible to clients reading the index directly, e.g. on other nodes.
+   *
+   * @param refreshPolicy
+   *          the refresh policy
+   * @param documents
+   *          the input documents
+   * @return the responses to the documents
+   * @throws SearchIndexException
+   *           if posting to the index fails
+   */
+  protected BulkItemResponse[] update(WriteRequest.RefreshPolicy refreshPolicy, ElasticsearchDocument... documents)
+          throws SearchIndexException {
+    final DocWriteRequest<?>[] requests = new DocWriteRequest<?>[documents.length];
+    for (int i = 0; i < documents.length; i++) {
+      requests[i] = new IndexRequest(getIndexName(documents[i].getType())).id(documents[i].getUID())
+              .source(documents[i]);
+    }
+    try {
+      return writer.write(refreshPolicy, requests);
+    } catch (Throwable t) {
+      throw new SearchIndexException("Cannot update documents in index " + getIndexName(), t);
     }
+  }
 
+  /**
+   * Updates a single document based on its current version, using optimistic concurrency control.
+   * <p>
+   * The current document is read in real time, so there is no need to refresh the index first. The new version is only
+   * written if the document has not been modified in the meantime, based on its sequence number and primary term. If
+   * another update got in between, the update is applied again to the latest version of the document. Callers
+   * therefore don't need to hold a lock on the document.
+   *
+   * @param type
+   *          the document type
+   * @param uid
+   *          the document identifier
+   * @param update
+   *          creates the new document from the source of the current one, which is <code>null</code> if the document
+   *          does not exist. Returning <code>null</code> deletes the document.
+   * @return <code>true</code> if the document existed
+   * @throws SearchIndexException
+   *           if reading or writing the document fails or the document is modified concurrently too often
+   */
+  protected boolean update(String type, String uid, Function<Map<String, Object>, ElasticsearchDocument> update)
+          throws SearchIndexException {
+    final String indexName = getIndexName(type);
+    // Make sure that no buffered write of this document is sent after the update
+    writer.flush(indexName, uid);
     try {
-      final BulkResponse bulkResponse = client.bulk(bulkRequest, RequestOptions.DEFAULT);
-
-      // Check for errors
-      if (bulkResponse.hasFailures()) {
-        for (BulkItemResponse item : bulkResponse) {
-          if (item.isFailed()) {
-            logger.warn("Error updating {}: {}", item, item.getFailureMessage());
-            throw new SearchIndexException(item.getFailureMessage());
+      for (int attempt = 1; attempt <= CONDITIONAL_UPDATE_ATTEMPTS; attempt++) {
+        final GetResponse current = client.get(new GetRequest(indexName, uid), RequestOptions.DEFAULT);
+        final ElasticsearchDocument doc = update.apply(current.isExists() ? current.getSourceAsMap() : null);
+        try {
+          if (doc != null) {
+            final IndexRequest request = new IndexRequest(indexName).id(uid).source(doc);
+            if (current.isExists()) {
+              request.setIfSeqNo(current.getSeqNo()).setIfPrimaryTerm(current.getPrimaryTerm());
+            } else {
+              request.create(true);
+            }
+            client.index(request, RequestOptions.DEFAULT);
+          } else if (current.isExists()) {
+            client.delete(new DeleteRequest(indexName, uid).setIfSeqNo(current.getSeqNo())
+                    .setIfPrimaryTerm(current.getPrimaryTerm()), RequestOptions.DEFAULT);
+          }
+          writer.written(indexName);
+          return current.isExists();
+        } catch (ElasticsearchStatusException e) {
+          if (e.status() != RestStatus.CONFLICT) {
+            throw e;
           }
+          logger.debug("Document {} has been modified concurrently, retrying update (attempt {})", uid, attempt);
         }
       }
-
-      return bulkResponse;
-    } catch (Throwable t) {
-      throw new SearchIndexException("Cannot update documents in index " + getIndexName(), t);
+    } catch (IOException | ElasticsearchException e) {
+      throw new SearchIndexException("Cannot update document " + uid + " in index " + indexName, e);
     }
+    throw new SearchIndexException("Cannot update document " + uid + " in index " + indexName
+            + " because it is being modified concurrently");
+  }
+
+  /**
+   * Executes a search request. Pending writes to the searched indices are made visible to the search first.
+   *
+   * @param request
+   *          the search request
+   * @return the search response
+   * @throws SearchIndexException
+   *           if pending writes cannot be sent
+   * @throws IOException
+   *           if the search fails
+   */
+  protected SearchResponse search(SearchRequest request) throws SearchIndexException, IOException {
+    writer.refresh(request.indices());
+    return client.search(request, RequestOptions.DEFAULT);
   }
 
   /**
@@ -284,6 +404,10 @@ public abstract class AbstractElasticsearchIndex implements SearchIndex {
       client = new RestHighLevelClient(
               RestClient.builder(new HttpHost(externalServerHostname, externalServerPort, externalServerScheme)));
     }
+    if (writer == null) {
+      writer = new BulkIndexWriter(client, bulkSize, bulkFlushInterval);
+      writerMXBean = JmxUtil.registerMXBean(writer, "ElasticsearchBulkWriter-" + index);
+    }
 
     // Create the index
     createIndex(index);
@@ -296,6 +420,12 @@ public abstract class AbstractElasticsearchIndex implements SearchIndex {
    *           if stopping the Elasticsearch node fails
    */
   protected void close() throws IOException {
+    if (writer != null) {
+      writer.close();
+      if (writerMXBean != null) {
+        JmxUtil.unregisterMXBean(writerMXBean);
+      }
+    }
     if (client != null) {
       client.close();
     }
@@ -0,0 +1,531 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.elasticsearch.impl;
+
+import org.opencastproject.elasticsearch.api.SearchIndexException;
+
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.admin.indices.refresh.RefreshRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.support.WriteRequest.RefreshPolicy;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Buffers index and delete operations and sends them to Elasticsearch in bulk requests, either once the buffer is full
+ * or after the flush interval has passed.
+ * <p>
+ * Operations are written without forcing a refresh of the index. Instead, the writer remembers the indices which have
+ * been written to and refreshes them before they are searched, so each search still sees all writes which have been
+ * made before. A burst of writes therefore causes at most one refresh instead of one per document. Later operations on
+ * a document which is still buffered replace the earlier ones.
+ */
+public class BulkIndexWriter implements BulkIndexWriterMXBean {
+
+  /** Logging facility */
+  private static final Logger logger = LoggerFactory.getLogger(BulkIndexWriter.class);
+
+  /** The Elasticsearch client */
+  private final RestHighLevelClient client;
+
+  /** The maximum number of operations to buffer */
+  private final int maxActions;
+
+  /** The buffered operations by index and document identifier */
+  private final Map<String, Operation> pending = new LinkedHashMap<>();
+
+  /** Numbers the writes to the indices */
+  private final AtomicLong writeSequence = new AtomicLong();
+
+  /** The sequence number of the last write by index */
+  private final Map<String, Long> written = new ConcurrentHashMap<>();
+
+  /** The sequence number of the last write covered by a refresh by index, guarded by the refresh lock */
+  private final Map<String, Long> refreshed = new HashMap<>();
+
+  /** Makes sure that a refresh in flight is waited for instead of being taken for a completed one */
+  private final Object refreshLock = new Object();
+
+  /** Makes sure that bulk requests are sent in order */
+  private final Object flushLock = new Object();
+
+  /** Flushes the buffer periodically, <code>null</code> if operations are sent immediately */
+  private final ScheduledExecutorService flushExecutor;
+
+  private final AtomicLong batches = new AtomicLong();
+  private final AtomicLong failedBatches = new AtomicLong();
+  private final AtomicLong operations = new AtomicLong();
+  private final AtomicLong coalesced = new AtomicLong();
+  private final AtomicLong flushTime = new AtomicLong();
+  private final AtomicLong refreshes = new AtomicLong();
+  private volatile int lastBatchSize = 0;
+  private volatile long lastFlushLatency = 0;
+
+  /**
+   * Creates a new writer.
+   *
+   * @param client
+   *          the Elasticsearch client
+   * @param maxActions
+   *          the number of buffered operations triggering a flush
+   * @param flushInterval
+   *          the maximum time in milliseconds operations are buffered, or <code>0</code> to send them immediately
+   */
+  public BulkIndexWriter(RestHighLevelClient client, int maxActions, long flushInterval) {
+    this.client = client;
+    this.maxActions = Math.max(1, maxActions);
+    if (flushInterval > 0) {
+      flushExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "Elasticsearch bulk writer");
+        thread.setDaemon(true);
+        return thread;
+      });
+      flushExecutor.scheduleWithFixedDelay(this::flushQuietly, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+    } else {
+      flushExecutor = null;
+    }
+  }
+
+  /**
+   * Adds an index or delete operation. The operation is sent right away if the buffer is full or if buffering is
+   * disabled.
+   *
+   * @param request
+   *          the operation
+   * @throws SearchIndexException
+   *           if buffering is disabled and the operation fails, or if the buffer is full and cannot be sent
+   */
+  public void add(DocWriteRequest<?> request) throws SearchIndexException {
+    if (flushExecutor == null) {
+      write(RefreshPolicy.NONE, request);
+      return;
+    }
+    if (enqueue(request, null)) {
+      flush(RefreshPolicy.NONE);
+    }
+  }
+
+  /**
+   * Sends an operation to Elasticsearch right away, together with all buffered operations.
+   *
+   * @param request
+   *          the operation
+   * @return the response to the operation
+   * @throws SearchIndexException
+   *           if the operation failed
+   */
+  public BulkItemResponse write(DocWriteRequest<?> request) throws SearchIndexException {
+    return write(RefreshPolicy.NONE, request)[0];
+  }
+
+  /**
+   * Sends operations to Elasticsearch right away, together with all buffered operations. Only failures of the given
+   * operations are reported. If an operation replaces a buffered operation on the same document, the callers waiting
+   * for the replaced operation get the response to the new one.
+   *
+   * @param refreshPolicy
+   *          the refresh policy of the bulk request
+   * @param requests
+   *          the operations
+   * @return the responses to the operations, in the same order
+   * @throws SearchIndexException
+   *           if one of the operations failed
+   */
+  public BulkItemResponse[] write(RefreshPolicy refreshPolicy, DocWriteRequest<?>... requests)
+          throws SearchIndexException {
+    final List<CompletableFuture<BulkItemResponse>> results = new ArrayList<>(requests.length);
+    for (DocWriteRequest<?> request : requests) {
+      final CompletableFuture<BulkItemResponse> result = new CompletableFuture<>();
+      enqueue(request, result);
+      results.add(result);
+    }
+    try {
+      flush(refreshPolicy);
+    } catch (SearchIndexException e) {
+      // The failure is reported to each waiting caller
+      logger.debug("Unable to send bulk request", e);
+    }
+
+    // The operations may have been sent by a concurrent flush, so wait for their own responses
+    final BulkItemResponse[] items = new BulkItemResponse[requests.length];
+    for (int i = 0; i < requests.length; i++) {
+      items[i] = await(results.get(i));
+    }
+    for (BulkItemResponse item : items) {
+      if (item.isFailed()) {
+        throw new SearchIndexException("Cannot write document " + item.getId() + " to index " + item.getIndex()
+                + ": " + item.getFailureMessage(), item.getFailure().getCause());
+      }
+    }
+    if (refreshPolicy != RefreshPolicy.NONE) {
+      // A concurrent flush may have sent the operations without a refresh
+      refreshStale(Arrays.stream(requests).map(DocWriteRequest::index).distinct().toArray(String[]::new));
+    }
+    return items;
+  }
+
+  /**
+   * Sends all buffered operations to Elasticsearch. Failed operations are reported to the callers waiting for them.
+   *
+   * @param refreshPolicy
+   *          the refresh policy of the bulk request
+   * @return the response or <code>null</code> if there was nothing to send
+   * @throws SearchIndexException
+   *           if the bulk request could not be sent
+   */
+  public BulkResponse flush(RefreshPolicy refreshPolicy) throws SearchIndexException {
+    synchronized (flushLock) {
+      final List<Operation> batch;
+      synchronized (pending) {
+        if (pending.isEmpty()) {
+          return null;
+        }
+        batch = new ArrayList<>(pending.values());
+        pending.clear();
+      }
+      return send(batch, refreshPolicy);
+    }
+  }
+
+  /**
+   * Sends the buffered operation on a single document, if there is one, and waits for operations on it which are
+   * being sent concurrently. Afterwards, no buffered operation can overwrite a write to the document which bypasses
+   * this writer.
+   *
+   * @param index
+   *          the name of the index
+   * @param id
+   *          the document identifier
+   * @throws SearchIndexException
+   *           if the bulk request could not be sent
+   */
+  public void flush(String index, String id) throws SearchIndexException {
+    synchronized (flushLock) {
+      final Operation operation;
+      synchronized (pending) {
+        operation = pending.remove(key(index, id));
+      }
+      if (operation != null) {
+        send(Collections.singletonList(operation), RefreshPolicy.NONE);
+      }
+    }
+  }
+
+  /**
+   * Sends operations in a bulk request and reports the responses to the callers waiting for them. Must be called while
+   * holding the flush lock.
+   */
+  private BulkResponse send(List<Operation> batch, RefreshPolicy refreshPolicy) throws SearchIndexException {
+    final BulkRequest bulkRequest = new BulkRequest().setRefreshPolicy(refreshPolicy);
+    batch.forEach(operation -> bulkRequest.add(operation.request));
+    final long start = System.nanoTime();
+    final BulkResponse response;
+    try {
+      response = bulk(bulkRequest);
+    } catch (IOException | RuntimeException e) {
+      failedBatches.incrementAndGet();
+      final SearchIndexException failure = new SearchIndexException(
+              "Cannot send " + batch.size() + " operations to the index", e);
+      requeue(batch);
+      batch.forEach(operation -> operation.results.forEach(result -> result.completeExceptionally(failure)));
+      throw failure;
+    } finally {
+      lastFlushLatency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+      flushTime.addAndGet(lastFlushLatency);
+      lastBatchSize = batch.size();
+      batches.incrementAndGet();
+      operations.addAndGet(batch.size());
+    }
+    if (refreshPolicy == RefreshPolicy.NONE) {
+      batch.stream().map(operation -> operation.request.index()).distinct().forEach(this::markWritten);
+    }
+    logger.debug("Sent {} operations to the index in {} ms", batch.size(), lastFlushLatency);
+
+    // The items of a bulk response are in the order of the request
+    if (response.hasFailures()) {
+      failedBatches.incrementAndGet();
+    }
+    final BulkItemResponse[] items = response.getItems();
+    for (int i = 0; i < batch.size(); i++) {
+      final Operation operation = batch.get(i);
+      if (items[i].isFailed() && operation.results.isEmpty()) {
+        logger.warn("Error updating {}: {}", items[i].getId(), items[i].getFailureMessage());
+      }
+      for (CompletableFuture<BulkItemResponse> result : operation.results) {
+        result.complete(items[i]);
+      }
+    }
+    return response;
+  }
+
+  /**
+   * Makes all operations on the given indices visible to searches. Buffered operations are sent and the indices are
+   * refreshed if they have been written to since their last refresh.
+   *
+   * @param indices
+   *          the names of the indices about to be searched
+   * @throws SearchIndexException
+   *           if sending the buffered operations or refreshing the indices fails
+   */
+  public void refresh(String... indices) throws SearchIndexException {
+    flush(RefreshPolicy.NONE);
+    refreshStale(indices);
+  }
+
+  /**
+   * Records that an index has been written to directly, bypassing this writer, so it is refreshed before the next
+   * search.
+   *
+   * @param index
+   *          the name of the index
+   */
+  public void written(String index) {
+    markWritten(index);
+  }
+
+  /**
+   * Stops the periodic flush and sends the remaining buffered operations.
+   */
+  public void close() {
+    if (flushExecutor != null) {
+      flushExecutor.shutdown();
+    }
+    flushQuietly();
+  }
+
+  /**
+   * Sends a bulk request to Elasticsearch.
+   *
+   * @param request
+   *          the bulk request
+   * @return the response
+   * @throws IOException
+   *           if the request could not be sent
+   */
+  BulkResponse bulk(BulkRequest request) throws IOException {
+    return client.bulk(request, RequestOptions.DEFAULT);
+  }
+
+  /**
+   * Refreshes indices in Elasticsearch.
+   *
+   * @param indices
+   *          the names of the indices
+   * @throws IOException
+   *           if the request could not be sent
+   */
+  void refreshIndices(String... indices) throws IOException {
+    client.indices().refresh(new RefreshRequest(indices), RequestOptions.DEFAULT);
+  }
+
+  /** Records a completed write to an index */
+  private void markWritten(String index) {
+    written.merge(index, writeSequence.incrementAndGet(), Math::max);
+  }
+
+  /**
+   * Refreshes those of the given indices which have been written to since their last refresh. Returns once all writes
+   * made before the call are covered by a completed refresh, which may also be one another thread has started.
+   */
+  private void refreshStale(String... indices) throws SearchIndexException {
+    final Map<String, Long> required = new LinkedHashMap<>();
+    for (String index : indices) {
+      required.put(index, written.getOrDefault(index, 0L));
+    }
+    synchronized (refreshLock) {
+      final String[] stale = required.entrySet().stream()
+              .filter(entry -> refreshed.getOrDefault(entry.getKey(), 0L) < entry.getValue())
+              .map(Map.Entry::getKey)
+              .toArray(String[]::new);
+      if (stale.length == 0) {
+        return;
+      }
+      // The refresh covers every write completed before it starts
+      final Map<String, Long> covered = new HashMap<>();
+      for (String index : stale) {
+        covered.put(index, written.get(index));
+      }
+      try {
+        refreshIndices(stale);
+        refreshes.incrementAndGet();
+      } catch (IOException | RuntimeException e) {
+        throw new SearchIndexException("Cannot refresh indices " + Arrays.toString(stale), e);
+      }
+      covered.forEach((index, sequence) -> refreshed.merge(index, sequence, Math::max));
+    }
+  }
+
+  /** Flushes the buffer from the background, leaving failed operations buffered for the next attempt */
+  private void flushQuietly() {
+    try {
+      flush(RefreshPolicy.NONE);
+    } catch (SearchIndexException e) {
+      logger.warn("Unable to flush buffered index operations", e);
+    } catch (Throwable t) {
+      logger.error("Unexpected error while flushing buffered index operations", t);
+    }
+  }
+
+  /**
+   * Buffers an operation, replacing a buffered operation on the same document.
+   *
+   * @param request
+   *          the operation
+   * @param result
+   *          completed with the response to the operation, or <code>null</code> if nobody waits for it
+   * @return whether the buffer is full
+   */
+  private boolean enqueue(DocWriteRequest<?> request, CompletableFuture<BulkItemResponse> result) {
+    synchronized (pending) {
+      final Operation operation = new Operation(request);
+      final Operation replaced = pending.put(key(request), operation);
+      if (replaced != null) {
+        coalesced.incrementAndGet();
+        operation.results.addAll(replaced.results);
+      }
+      if (result != null) {
+        operation.results.add(result);
+      }
+      return pending.size() >= maxActions;
+    }
+  }
+
+  /**
+   * Puts operations which nobody waits for back into the buffer unless they have been superseded in the meantime.
+   * Without buffering, there is no periodic flush to retry them, so they are dropped.
+   */
+  private void requeue(List<Operation> batch) {
+    if (flushExecutor == null) {
+      return;
+    }
+    synchronized (pending) {
+      final Map<String, Operation> newer = new LinkedHashMap<>(pending);
+      pending.clear();
+      batch.stream()
+              .filter(operation -> operation.results.isEmpty())
+              .forEach(operation -> pending.put(key(operation.request), operation));
+      pending.putAll(newer);
+    }
+  }
+
+  private static BulkItemResponse await(CompletableFuture<BulkItemResponse> result) throws SearchIndexException {
+    try {
+      return result.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SearchIndexException("Interrupted while waiting for the index operation", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof SearchIndexException) {
+        throw (SearchIndexException) e.getCause();
+      }
+      throw new SearchIndexException(e.getCause());
+    }
+  }
+
+  private static String key(DocWriteRequest<?> request) {
+    return key(request.index(), request.id());
+  }
+
+  private static String key(String index, String id) {
+    return index + "/" + id;
+  }
+
+  @Override
+  public int getPendingOperations() {
+    synchronized (pending) {
+      return pending.size();
+    }
+  }
+
+  @Override
+  public long getBatches() {
+    return batches.get();
+  }
+
+  @Override
+  public long getFailedBatches() {
+    return failedBatches.get();
+  }
+
+  @Override
+  public long getOperations() {
+    return operations.get();
+  }
+
+  @Override
+  public long getCoalescedOperations() {
+    return coalesced.get();
+  }
+
+  @Override
+  public int getLastBatchSize() {
+    return lastBatchSize;
+  }
+
+  @Override
+  public long getLastFlushLatency() {
+    return lastFlushLatency;
+  }
+
+  @Override
+  public long getAverageFlushLatency() {
+    final long count = batches.get();
+    return count == 0 ? 0 : flushTime.get() / count;
+  }
+
+  @Override
+  public long getRefreshes() {
+    return refreshes.get();
+  }
+
+  /** A buffered operation and the callers waiting for its response */
+  private static final class Operation {
+    private final DocWriteRequest<?> request;
+    private final List<CompletableFuture<BulkItemResponse>> results = new ArrayList<>();
+
+    private Operation(DocWriteRequest<?> request) {
+      this.request = request;
+    }
+  }
+
+}
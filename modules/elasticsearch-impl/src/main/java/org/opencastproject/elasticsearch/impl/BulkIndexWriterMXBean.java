@@ -0,0 +1,94 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.elasticsearch.impl;
+
+/**
+ * JMX interface of the {@link BulkIndexWriter}.
+ */
+public interface BulkIndexWriterMXBean {
+
+  /**
+   * Gets the number of operations waiting to be sent to Elasticsearch
+   *
+   * @return the number of buffered operations
+   */
+  int getPendingOperations();
+
+  /**
+   * Gets the number of bulk requests sent to Elasticsearch
+   *
+   * @return the number of batches
+   */
+  long getBatches();
+
+  /**
+   * Gets the number of failed bulk requests
+   *
+   * @return the number of failed batches
+   */
+  long getFailedBatches();
+
+  /**
+   * Gets the number of index and delete operations sent to Elasticsearch
+   *
+   * @return the number of operations
+   */
+  long getOperations();
+
+  /**
+   * Gets the number of operations which have been superseded by a later operation on the same document before being
+   * sent to Elasticsearch
+   *
+   * @return the number of coalesced operations
+   */
+  long getCoalescedOperations();
+
+  /**
+   * Gets the number of operations of the last bulk request
+   *
+   * @return the last batch size
+   */
+  int getLastBatchSize();
+
+  /**
+   * Gets the time it took to execute the last bulk request in milliseconds
+   *
+   * @return the last flush latency
+   */
+  long getLastFlushLatency();
+
+  /**
+   * Gets the average time it took to execute a bulk request in milliseconds
+   *
+   * @return the average flush latency
+   */
+  long getAverageFlushLatency();
+
+  /**
+   * Gets the number of explicit index refreshes triggered to make written documents visible to searches
+   *
+   * @return the number of refreshes
+   */
+  long getRefreshes();
+
+}
@@ -0,0 +1,356 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.elasticsearch.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.opencastproject.elasticsearch.api.SearchIndexException;
+
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.action.delete.DeleteResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.action.support.WriteRequest.RefreshPolicy;
+import org.elasticsearch.index.shard.ShardId;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Test case for {@link BulkIndexWriter}.
+ */
+public class BulkIndexWriterTest {
+
+  /** Long enough for the periodic flush never to run during a test */
+  private static final long FLUSH_INTERVAL = TimeUnit.HOURS.toMillis(1);
+
+  private TestWriter writer = null;
+
+  @After
+  public void tearDown() {
+    if (writer != null) {
+      writer.close();
+    }
+  }
+
+  @Test
+  public void testCoalescing() throws Exception {
+    writer = new TestWriter(10, FLUSH_INTERVAL);
+    writer.add(index("events", "a"));
+    writer.add(index("events", "b"));
+    writer.add(index("series", "a"));
+    writer.add(new DeleteRequest("events", "a"));
+    assertEquals(3, writer.getPendingOperations());
+    assertEquals(1, writer.getCoalescedOperations());
+
+    writer.flush(RefreshPolicy.NONE);
+    assertEquals(1, writer.bulkRequests.size());
+    final List<DocWriteRequest<?>> sent = writer.bulkRequests.get(0).requests();
+    assertEquals(3, sent.size());
+    assertEquals(DocWriteRequest.OpType.DELETE, sent.get(0).opType());
+    assertEquals("a", sent.get(0).id());
+    assertEquals("b", sent.get(1).id());
+    assertEquals("series", sent.get(2).index());
+  }
+
+  @Test
+  public void testFlushWhenFull() throws Exception {
+    writer = new TestWriter(2, FLUSH_INTERVAL);
+    writer.add(index("events", "a"));
+    assertTrue(writer.bulkRequests.isEmpty());
+    writer.add(index("events", "b"));
+    assertEquals(1, writer.bulkRequests.size());
+    assertEquals(0, writer.getPendingOperations());
+  }
+
+  @Test
+  public void testRequeueWhenBuffered() throws Exception {
+    writer = new TestWriter(10, FLUSH_INTERVAL);
+    writer.add(index("events", "a"));
+    writer.add(index("events", "b"));
+    writer.unavailable = true;
+    try {
+      writer.flush(RefreshPolicy.NONE);
+      fail("Flush should fail if the index is unavailable");
+    } catch (SearchIndexException e) {
+      // expected
+    }
+    assertEquals(2, writer.getPendingOperations());
+
+    // A newer operation on a requeued document replaces it
+    writer.add(new DeleteRequest("events", "a"));
+    writer.unavailable = false;
+    writer.flush(RefreshPolicy.NONE);
+    final List<DocWriteRequest<?>> sent = writer.bulkRequests.get(1).requests();
+    assertEquals(2, sent.size());
+    assertEquals(DocWriteRequest.OpType.DELETE, sent.get(0).opType());
+    assertEquals("b", sent.get(1).id());
+  }
+
+  @Test
+  public void testNoRequeueWithoutBuffering() throws Exception {
+    writer = new TestWriter(10, 0);
+    writer.unavailable = true;
+    try {
+      writer.add(index("events", "a"));
+      fail("Adding should fail if the index is unavailable");
+    } catch (SearchIndexException e) {
+      // expected
+    }
+    assertEquals(0, writer.getPendingOperations());
+
+    writer.unavailable = false;
+    writer.add(index("events", "b"));
+    assertEquals(2, writer.bulkRequests.size());
+    assertEquals(1, writer.bulkRequests.get(1).requests().size());
+    assertEquals("b", writer.bulkRequests.get(1).requests().get(0).id());
+  }
+
+  @Test
+  public void testWriteReportsOwnResult() throws Exception {
+    writer = new TestWriter(10, FLUSH_INTERVAL);
+    writer.failing.add("b");
+    writer.add(index("events", "b"));
+
+    // The failure of the buffered operation is not reported to another caller
+    final BulkItemResponse response = writer.write(new DeleteRequest("events", "a"));
+    assertEquals("a", response.getId());
+    assertFalse(response.isFailed());
+    assertEquals(1, writer.bulkRequests.size());
+    assertEquals(2, writer.bulkRequests.get(0).requests().size());
+
+    try {
+      writer.write(index("events", "b"));
+      fail("Writing should report the failure of the operation");
+    } catch (SearchIndexException e) {
+      assertTrue(e.getMessage().contains("b"));
+    }
+  }
+
+  @Test
+  public void testWriteSentByConcurrentFlush() throws Exception {
+    writer = new TestWriter(10, FLUSH_INTERVAL);
+    final ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      // Block the first bulk request so the following writes are sent together by one of their callers
+      writer.blocked = new CountDownLatch(1);
+      writer.add(index("events", "x"));
+      final Future<?> blocking = executor.submit(() -> writer.flush(RefreshPolicy.NONE));
+      while (writer.getPendingOperations() > 0) {
+        Thread.sleep(10);
+      }
+      final Future<BulkItemResponse> a = executor.submit(() -> writer.write(index("events", "a")));
+      final Future<BulkItemResponse> b = executor.submit(() -> writer.write(new DeleteRequest("events", "b")));
+      while (writer.getPendingOperations() < 2) {
+        Thread.sleep(10);
+      }
+      writer.blocked.countDown();
+      blocking.get(10, TimeUnit.SECONDS);
+
+      assertEquals("a", a.get(10, TimeUnit.SECONDS).getId());
+      assertEquals(DocWriteRequest.OpType.INDEX, a.get().getOpType());
+      assertEquals("b", b.get(10, TimeUnit.SECONDS).getId());
+      assertEquals(DocWriteRequest.OpType.DELETE, b.get().getOpType());
+      assertEquals(2, writer.bulkRequests.size());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testFlushSingleDocument() throws Exception {
+    writer = new TestWriter(10, FLUSH_INTERVAL);
+    writer.add(index("events", "a"));
+    writer.add(index("events", "b"));
+    writer.flush("events", "a");
+    assertEquals(1, writer.bulkRequests.size());
+    assertEquals(1, writer.bulkRequests.get(0).requests().size());
+    assertEquals("a", writer.bulkRequests.get(0).requests().get(0).id());
+    assertEquals(1, writer.getPendingOperations());
+
+    // Nothing is buffered for this document any more
+    writer.flush("events", "a");
+    assertEquals(1, writer.bulkRequests.size());
+  }
+
+  @Test
+  public void testRefreshOnSearch() throws Exception {
+    writer = new TestWriter(10, FLUSH_INTERVAL);
+    writer.add(index("events", "a"));
+    writer.refresh("events", "series");
+    assertEquals(1, writer.bulkRequests.size());
+    assertEquals(1, writer.refreshed.size());
+    assertArrayEquals(new String[] { "events" }, writer.refreshed.get(0));
+
+    // Nothing has been written since the last refresh
+    writer.refresh("events", "series");
+    assertEquals(1, writer.refreshed.size());
+
+    writer.written("series");
+    writer.refresh("events", "series");
+    assertEquals(2, writer.refreshed.size());
+    assertArrayEquals(new String[] { "series" }, writer.refreshed.get(1));
+    assertEquals(2, writer.getRefreshes());
+  }
+
+  @Test
+  public void testRefreshWaitsForRefreshInFlight() throws Exception {
+    writer = new TestWriter(10, FLUSH_INTERVAL);
+    writer.add(index("events", "a"));
+    final CountDownLatch release = new CountDownLatch(1);
+    writer.refreshBlocked = release;
+
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      final Future<?> first = executor.submit(() -> {
+        writer.refresh("events");
+        return null;
+      });
+      assertTrue(writer.refreshStarted.await(5, TimeUnit.SECONDS));
+
+      // The write is covered by the refresh in flight, which has to complete before searching
+      final Future<?> second = executor.submit(() -> {
+        writer.refresh("events");
+        return null;
+      });
+      try {
+        second.get(200, TimeUnit.MILLISECONDS);
+        fail("Refresh returned before the refresh in flight completed");
+      } catch (TimeoutException e) {
+        // expected
+      }
+
+      release.countDown();
+      first.get(5, TimeUnit.SECONDS);
+      second.get(5, TimeUnit.SECONDS);
+      assertEquals(1, writer.refreshed.size());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testWriteWithRefreshPolicy() throws Exception {
+    writer = new TestWriter(10, FLUSH_INTERVAL);
+    final BulkItemResponse[] responses = writer.write(RefreshPolicy.IMMEDIATE, index("events", "a"),
+            index("events", "b"));
+    assertEquals(2, responses.length);
+    assertEquals("a", responses[0].getId());
+    assertEquals("b", responses[1].getId());
+    assertEquals(RefreshPolicy.IMMEDIATE, writer.bulkRequests.get(0).getRefreshPolicy());
+
+    // The write has been refreshed already
+    writer.refresh("events");
+    assertTrue(writer.refreshed.isEmpty());
+  }
+
+  private static IndexRequest index(String index, String id) {
+    return new IndexRequest(index).id(id).source(Collections.singletonMap("id", id));
+  }
+
+  /** Writer answering bulk requests locally instead of sending them to Elasticsearch */
+  private static final class TestWriter extends BulkIndexWriter {
+
+    private final List<BulkRequest> bulkRequests = Collections.synchronizedList(new ArrayList<>());
+    private final List<String[]> refreshed = Collections.synchronizedList(new ArrayList<>());
+    private final Set<String> failing = Collections.synchronizedSet(new HashSet<>());
+    private volatile boolean unavailable = false;
+    private volatile CountDownLatch blocked = null;
+    private volatile CountDownLatch refreshBlocked = null;
+    private final CountDownLatch refreshStarted = new CountDownLatch(1);
+
+    private TestWriter(int maxActions, long flushInterval) {
+      super(null, maxActions, flushInterval);
+    }
+
+    @Override
+    BulkResponse bulk(BulkRequest request) throws IOException {
+      bulkRequests.add(request);
+      final CountDownLatch latch = blocked;
+      if (latch != null) {
+        blocked = null;
+        try {
+          latch.await();
+        } catch (InterruptedException e) {
+          throw new IOException(e);
+        }
+      }
+      if (unavailable) {
+        throw new IOException("Index unavailable");
+      }
+      final List<DocWriteRequest<?>> requests = request.requests();
+      final BulkItemResponse[] items = new BulkItemResponse[requests.size()];
+      for (int i = 0; i < items.length; i++) {
+        final DocWriteRequest<?> item = requests.get(i);
+        final ShardId shard = new ShardId(item.index(), item.index(), 0);
+        if (failing.contains(item.id())) {
+          items[i] = new BulkItemResponse(i, item.opType(), new BulkItemResponse.Failure(item.index(), "_doc",
+                  item.id(), new IllegalStateException("Cannot write " + item.id())));
+        } else if (item.opType() == DocWriteRequest.OpType.DELETE) {
+          items[i] = new BulkItemResponse(i, item.opType(), new DeleteResponse(shard, "_doc", item.id(), 1, 1, 1,
+                  true));
+        } else {
+          items[i] = new BulkItemResponse(i, item.opType(), new IndexResponse(shard, "_doc", item.id(), 1, 1, 1,
+                  true));
+        }
+      }
+      return new BulkResponse(items, 1);
+    }
+
+    @Override
+    void refreshIndices(String... indices) throws IOException {
+      refreshStarted.countDown();
+      final CountDownLatch latch = refreshBlocked;
+      if (latch != null) {
+        refreshBlocked = null;
+        try {
+          latch.await();
+        } catch (InterruptedException e) {
+          throw new IOException(e);
+        }
+      }
+      refreshed.add(indices);
+    }
+  }
+
+}
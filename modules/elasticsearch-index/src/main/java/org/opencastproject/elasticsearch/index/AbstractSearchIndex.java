@@ -35,6 +35,7 @@ import org.opencastproject.elasticsearch.impl.SearchMetadataImpl;
 import org.opencastproject.elasticsearch.impl.SearchResultImpl;
 import org.opencastproject.elasticsearch.impl.SearchResultItemImpl;
 import org.opencastproject.elasticsearch.index.event.Event;
+import org.opencastproject.elasticsearch.index.event.EventIndexSchema;
 import org.opencastproject.elasticsearch.index.event.EventIndexUtils;
 import org.opencastproject.elasticsearch.index.event.EventQueryBuilder;
 import org.opencastproject.elasticsearch.index.event.EventSearchQuery;
@@ -50,17 +51,12 @@ import org.opencastproject.elasticsearch.index.theme.Theme;
 import org.opencastproject.elasticsearch.index.theme.ThemeIndexUtils;
 import org.opencastproject.elasticsearch.index.theme.ThemeQueryBuilder;
 import org.opencastproject.elasticsearch.index.theme.ThemeSearchQuery;
-import org.opencastproject.security.api.User;
 import org.opencastproject.util.NotFoundException;
 import org.opencastproject.util.data.Option;
 
-import org.elasticsearch.action.DocWriteResponse;
-import org.elasticsearch.action.delete.DeleteRequest;
-import org.elasticsearch.action.delete.DeleteResponse;
+import org.apache.commons.io.IOUtils;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchResponse;
-import org.elasticsearch.action.support.WriteRequest;
-import org.elasticsearch.client.RequestOptions;
 import org.elasticsearch.common.document.DocumentField;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.aggregations.AggregationBuilder;
@@ -72,10 +68,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Function;
+import java.util.function.UnaryOperator;
 
 import javax.xml.bind.Unmarshaller;
 
@@ -109,6 +108,65 @@ public abstract class AbstractSearchIndex extends AbstractElasticsearchIndex {
     }
   }
 
+  /**
+   * Updates a single event in the search index based on its latest version. Concurrent modifications of the event are
+   * detected and the update is re-applied to the new version, so callers don't need to hold a lock on the event.
+   *
+   * @param mediapackageId
+   *          the mediapackage identifier
+   * @param organization
+   *          the organization
+   * @param create
+   *          whether to create the event if it does not exist yet
+   * @param update
+   *          modifies the event. It may be called several times and returning <code>null</code> deletes the event.
+   * @return <code>true</code> if the event existed before
+   * @throws SearchIndexException
+   *           if the event cannot be updated
+   */
+  public boolean updateEvent(String mediapackageId, String organization, boolean create, UnaryOperator<Event> update)
+          throws SearchIndexException {
+    try {
+      final Unmarshaller unmarshaller = Event.createUnmarshaller();
+      return update(Event.DOCUMENT_TYPE, mediapackageId.concat(organization), source -> {
+        final Event event;
+        if (source != null) {
+          event = toEvent(source, unmarshaller);
+        } else if (create) {
+          event = new Event(mediapackageId, organization);
+        } else {
+          return null;
+        }
+        final Event updated = update.apply(event);
+        if (updated == null) {
+          return null;
+        }
+        final SearchMetadataCollection inputDocument = EventIndexUtils.toSearchMetadata(updated);
+        return new ElasticsearchDocument(inputDocument.getIdentifier(), inputDocument.getDocumentType(),
+                inputDocument.getMetadata());
+      });
+    } catch (SearchIndexException e) {
+      throw e;
+    } catch (Throwable t) {
+      throw new SearchIndexException("Cannot update event " + mediapackageId + " in index", t);
+    }
+  }
+
+  /**
+   * Reads an event from the source of its index document.
+   */
+  private static Event toEvent(Map<String, Object> source, Unmarshaller unmarshaller) {
+    Object xml = source.get(EventIndexSchema.OBJECT);
+    if (xml instanceof List) {
+      xml = ((List<?>) xml).get(0);
+    }
+    try {
+      return Event.valueOf(IOUtils.toInputStream((String) xml, StandardCharsets.UTF_8), unmarshaller);
+    } catch (IOException e) {
+      return chuck(e);
+    }
+  }
+
   /**
    * Adds or updates the group in the search index.
    *
@@ -179,19 +237,7 @@ public abstract class AbstractSearchIndex extends AbstractElasticsearchIndex {
   @Override
   public boolean delete(String type, String uid) throws SearchIndexException {
     logger.debug("Removing element with id '{}' from searching index '{}'", uid, getIndexName(type));
-    final DeleteRequest deleteRequest = new DeleteRequest(getIndexName(type), uid)
-            .setRefreshPolicy(WriteRequest.RefreshPolicy.IMMEDIATE);
-    try {
-      final DeleteResponse delete = getClient().delete(deleteRequest, RequestOptions.DEFAULT);
-      if (delete.getResult().equals(DocWriteResponse.Result.NOT_FOUND)) {
-        logger.trace("Document {} to delete was not found on index '{}'", uid, getIndexName(type));
-        return false;
-      }
-    } catch (IOException e) {
-      throw new SearchIndexException(e);
-    }
-
-    return true;
+    return super.delete(type, uid);
   }
 
   /**
@@ -211,8 +257,6 @@ public abstract class AbstractSearchIndex extends AbstractElasticsearchIndex {
    *
    * @param organization
    *          The organization the event is a part of.
-   * @param user
-   *          The user that is requesting to delete the event.
    * @param uid
    *          The identifier of the event.
    * @throws SearchIndexException
@@ -220,19 +264,14 @@ public abstract class AbstractSearchIndex extends AbstractElasticsearchIndex {
    * @throws NotFoundException
    *           Thrown if the event cannot be found.
    */
-  public void deleteAssets(String organization, User user, String uid) throws SearchIndexException, NotFoundException {
-    Event event = EventIndexUtils.getEvent(uid, organization, user, this);
-    if (event == null) {
+  public void deleteAssets(String organization, String uid) throws SearchIndexException, NotFoundException {
+    boolean found = updateEvent(uid, organization, false, event -> {
+      event.setArchiveVersion(null);
+      return toDelete(event) ? null : event;
+    });
+    if (!found) {
       throw new NotFoundException("No event with id " + uid + " found.");
     }
-
-    event.setArchiveVersion(null);
-
-    if (toDelete(event)) {
-      delete(Event.DOCUMENT_TYPE, uid.concat(organization));
-    } else {
-      addOrUpdate(event);
-    }
   }
 
   /**
@@ -240,8 +279,6 @@ public abstract class AbstractSearchIndex extends AbstractElasticsearchIndex {
    *
    * @param organization
    *          The organization the event is a part of.
-   * @param user
-   *          The user that is requesting to delete the event.
    * @param uid
    *          The identifier of the event.
    * @throws SearchIndexException
@@ -249,20 +286,15 @@ public abstract class AbstractSearchIndex extends AbstractElasticsearchIndex {
    * @throws NotFoundException
    *           Thrown if the event cannot be found.
    */
-  public void deleteScheduling(String organization, User user, String uid)
+  public void deleteScheduling(String organization, String uid)
           throws SearchIndexException, NotFoundException {
-    Event event = EventIndexUtils.getEvent(uid, organization, user, this);
-    if (event == null) {
+    boolean found = updateEvent(uid, organization, false, event -> {
+      event.setAgentId(null);
+      return toDelete(event) ? null : event;
+    });
+    if (!found) {
       throw new NotFoundException("No event with id " + uid + " found.");
     }
-
-    event.setAgentId(null);
-
-    if (toDelete(event)) {
-      delete(Event.DOCUMENT_TYPE, uid.concat(organization));
-    } else {
-      addOrUpdate(event);
-    }
   }
 
   /**
@@ -270,8 +302,6 @@ public abstract class AbstractSearchIndex extends AbstractElasticsearchIndex {
    *
    * @param organization
    *          The organization the event is a part of.
-   * @param user
-   *          The user that is requesting to delete the event.
    * @param uid
    *          The identifier of the event.
    * @param workflowId
@@ -281,25 +311,20 @@ public abstract class AbstractSearchIndex extends AbstractElasticsearchIndex {
    * @throws NotFoundException
    *           Thrown if the event cannot be found.
    */
-  public void deleteWorkflow(String organization, User user, String uid, Long workflowId)
+  public void deleteWorkflow(String organization, String uid, Long workflowId)
           throws SearchIndexException, NotFoundException {
-    Event event = EventIndexUtils.getEvent(uid, organization, user, this);
-    if (event == null) {
+    boolean found = updateEvent(uid, organization, false, event -> {
+      if (event.getWorkflowId() != null && event.getWorkflowId().equals(workflowId)) {
+        logger.debug("Workflow {} is the current workflow of event {}. Removing it from event.", uid, workflowId);
+        event.setWorkflowId(null);
+        event.setWorkflowDefinitionId(null);
+        event.setWorkflowState(null);
+      }
+      return toDelete(event) ? null : event;
+    });
+    if (!found) {
       throw new NotFoundException("No event with id " + uid + " found.");
     }
-
-    if (event.getWorkflowId() != null && event.getWorkflowId().equals(workflowId)) {
-      logger.debug("Workflow {} is the current workflow of event {}. Removing it from event.", uid, workflowId);
-      event.setWorkflowId(null);
-      event.setWorkflowDefinitionId(null);
-      event.setWorkflowState(null);
-    }
-
-    if (toDelete(event)) {
-      delete(Event.DOCUMENT_TYPE, uid.concat(organization));
-    } else {
-      addOrUpdate(event);
-    }
   }
 
   /**
@@ -427,7 +452,7 @@ public abstract class AbstractSearchIndex extends AbstractElasticsearchIndex {
     }
     final SearchRequest searchRequest = new SearchRequest(indices.toArray(new String[0])).source(searchSource);
     try {
-      final SearchResponse response = getClient().search(searchRequest, RequestOptions.DEFAULT);
+      final SearchResponse response = search(searchRequest);
 
       final List<String> terms = new ArrayList<>();
       final Terms aggs = response.getAggregations().get(facetName);
@@ -437,7 +462,7 @@ public abstract class AbstractSearchIndex extends AbstractElasticsearchIndex {
       }
 
       return terms;
-    } catch (IOException e) {
+    } catch (IOException | SearchIndexException e) {
       return chuck(e);
     }
   }
@@ -459,7 +484,7 @@ public abstract class AbstractSearchIndex extends AbstractElasticsearchIndex {
     // Execute the query and try to get hold of a query response
     SearchResponse response = null;
     try {
-      response = getClient().search(request, RequestOptions.DEFAULT);
+      response = search(request);
     } catch (Throwable t) {
       throw new SearchIndexException(t);
     }
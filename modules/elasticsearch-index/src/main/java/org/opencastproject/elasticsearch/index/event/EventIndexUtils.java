@@ -522,26 +522,69 @@ public final class EventIndexUtils {
    */
   public static void updateSeriesName(Event event, String organization, User user, AbstractSearchIndex searchIndex,
           int tries, long sleep) throws SearchIndexException {
-    if (event.getSeriesId() != null) {
-      for (int i = 1; i <= tries; i++) {
-        SearchResult<Series> result = searchIndex.getByQuery(
-                new SeriesSearchQuery(organization, user).withoutActions().withIdentifier(event.getSeriesId()));
-        if (result.getHitCount() > 0) {
-          event.setSeriesName(result.getItems()[0].getSource().getTitle());
-          break;
-        } else {
-          Integer triesLeft = tries - i;
-          logger.debug("Not able to find the series {} in the search index for the event {}. Will try {} more times.",
-                  event.getSeriesId(), event.getIdentifier(), triesLeft);
-          try {
-            Thread.sleep(sleep);
-          } catch (InterruptedException e) {
-            logger.warn("Interrupted while sleeping before checking for the series being added to the index", e);
-          }
-        }
+    String seriesTitle = getSeriesTitle(event.getSeriesId(), organization, user, searchIndex, tries, sleep);
+    if (seriesTitle != null) {
+      event.setSeriesName(seriesTitle);
+    }
+  }
 
+  /**
+   * A function to get the title of a series from the search index. Uses the default number of attempts to get the
+   * series title and the default amount of time to sleep between attempts.
+   *
+   * @param seriesId
+   *          The identifier of the series, may be <code>null</code>
+   * @param organization
+   *          The organization of the series
+   * @param user
+   *          The user
+   * @param searchIndex
+   *          The index to search for the series
+   * @return the series title or <code>null</code> if the series has not been found
+   */
+  public static String getSeriesTitle(String seriesId, String organization, User user,
+          AbstractSearchIndex searchIndex) throws SearchIndexException {
+    return getSeriesTitle(seriesId, organization, user, searchIndex, DEFAULT_ATTEMPTS, DEFAULT_SLEEP);
+  }
+
+  /**
+   * A function to get the title of a series from the search index.
+   *
+   * @param seriesId
+   *          The identifier of the series, may be <code>null</code>
+   * @param organization
+   *          The organization of the series
+   * @param user
+   *          The user
+   * @param searchIndex
+   *          The index to search for the series
+   * @param tries
+   *          The number of attempts to try to get the series title
+   * @param sleep
+   *          The amount of time in ms to sleep between attempts to get the series title.
+   * @return the series title or <code>null</code> if the series has not been found
+   */
+  public static String getSeriesTitle(String seriesId, String organization, User user,
+          AbstractSearchIndex searchIndex, int tries, long sleep) throws SearchIndexException {
+    if (seriesId == null) {
+      return null;
+    }
+    for (int i = 1; i <= tries; i++) {
+      SearchResult<Series> result = searchIndex.getByQuery(
+              new SeriesSearchQuery(organization, user).withoutActions().withIdentifier(seriesId));
+      if (result.getHitCount() > 0) {
+        return result.getItems()[0].getSource().getTitle();
+      }
+      Integer triesLeft = tries - i;
+      logger.debug("Not able to find the series {} in the search index. Will try {} more times.", seriesId,
+              triesLeft);
+      try {
+        Thread.sleep(sleep);
+      } catch (InterruptedException e) {
+        logger.warn("Interrupted while sleeping before checking for the series being added to the index", e);
       }
     }
+    return null;
   }
 
   /**
@@ -575,18 +618,20 @@ public final class EventIndexUtils {
       throw new IllegalStateException(
           "Invalid comment update request: You can't have an needs cutting comment without having any open comments!");
     }
-    Event event = getEvent(eventId, organization, user, searchIndex);
-    if (event == null) {
-      throw new NotFoundException("No event with id " + eventId + " found.");
-    }
-
-    event.setHasComments(hasComments);
-    event.setHasOpenComments(hasOpenComments);
-    event.setNeedsCutting(needsCutting);
+    boolean found;
     try {
-      searchIndex.addOrUpdate(event);
+      found = searchIndex.updateEvent(eventId, organization, false, event -> {
+        event.setHasComments(hasComments);
+        event.setHasOpenComments(hasOpenComments);
+        event.setNeedsCutting(needsCutting);
+        return event;
+      });
     } catch (SearchIndexException e) {
-      logger.warn("Unable to update event '{}'", event, e);
+      logger.warn("Unable to update event '{}'", eventId, e);
+      return;
+    }
+    if (!found) {
+      throw new NotFoundException("No event with id " + eventId + " found.");
     }
   }
 
@@ -617,9 +662,11 @@ public final class EventIndexUtils {
     if (result != null && result.getHitCount() > 0) {
       for (SearchResultItem<Event> eventItem : result.getItems()) {
         Event event = eventItem.getSource();
-        event.setManagedAcl(newManagedAcl);
         try {
-          searchIndex.addOrUpdate(event);
+          searchIndex.updateEvent(event.getIdentifier(), organization, false, current -> {
+            current.setManagedAcl(newManagedAcl);
+            return current;
+          });
         } catch (SearchIndexException e) {
           logger.warn(
                   "Unable to update event '{}' from current managed acl '{}' to new managed acl name '{}'",
@@ -654,9 +701,11 @@ public final class EventIndexUtils {
     if (result != null && result.getHitCount() > 0) {
       for (SearchResultItem<Event> eventItem : result.getItems()) {
         Event event = eventItem.getSource();
-        event.setManagedAcl(null);
         try {
-          searchIndex.addOrUpdate(event);
+          searchIndex.updateEvent(event.getIdentifier(), organization, false, current -> {
+            current.setManagedAcl(null);
+            return current;
+          });
         } catch (SearchIndexException e) {
           logger.warn("Unable to update event '{}' to remove managed acl '{}'", event, managedAcl, e);
         }
@@ -246,8 +246,10 @@ public final class SeriesIndexUtils {
             .getByQuery(new EventSearchQuery(organization, user).withoutActions().withSeriesId(series.getIdentifier()));
     for (SearchResultItem<Event> searchResultItem : events.getItems()) {
       Event event = searchResultItem.getSource();
-      event.setSeriesName(series.getTitle());
-      searchIndex.addOrUpdate(event);
+      searchIndex.updateEvent(event.getIdentifier(), organization, false, current -> {
+        current.setSeriesName(series.getTitle());
+        return current;
+      });
     }
   }
 
@@ -0,0 +1,198 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package org.opencastproject.elasticsearch.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.opencastproject.elasticsearch.api.SearchIndexException;
+import org.opencastproject.elasticsearch.impl.ElasticsearchDocument;
+import org.opencastproject.elasticsearch.impl.SearchMetadataCollection;
+import org.opencastproject.elasticsearch.index.event.Event;
+import org.opencastproject.elasticsearch.index.event.EventIndexSchema;
+import org.opencastproject.elasticsearch.index.event.EventIndexUtils;
+import org.opencastproject.security.api.DefaultOrganization;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Test cases for the conditional updates of events in {@link AbstractSearchIndex}.
+ */
+public class AbstractSearchIndexTest {
+
+  private static final String EVENT_ID = "event";
+  private static final String ORGANIZATION = DefaultOrganization.DEFAULT_ORGANIZATION_ID;
+
+  private TestSearchIndex index;
+
+  @Before
+  public void setUp() {
+    index = new TestSearchIndex();
+  }
+
+  @Test
+  public void testUpdateEventCreatesEvent() throws Exception {
+    assertFalse(index.updateEvent(EVENT_ID, ORGANIZATION, true, event -> {
+      event.setTitle("Title");
+      return event;
+    }));
+    assertEquals("Title", index.getEvent().getTitle());
+  }
+
+  @Test
+  public void testUpdateEventDoesNotCreateEvent() throws Exception {
+    final AtomicInteger calls = new AtomicInteger();
+    assertFalse(index.updateEvent(EVENT_ID, ORGANIZATION, false, event -> {
+      calls.incrementAndGet();
+      return event;
+    }));
+    assertEquals(0, calls.get());
+    assertNull(index.document);
+  }
+
+  @Test
+  public void testUpdateEventIsReappliedAfterConflict() throws Exception {
+    createEvent("Title");
+
+    // Another update of the event is written between reading and writing the first attempt
+    index.concurrentUpdates = 1;
+    final AtomicInteger calls = new AtomicInteger();
+    assertTrue(index.updateEvent(EVENT_ID, ORGANIZATION, true, event -> {
+      calls.incrementAndGet();
+      event.setCreator("Creator");
+      return event;
+    }));
+
+    assertEquals(2, calls.get());
+    assertEquals(2, index.attempts);
+    final Event event = index.getEvent();
+    assertEquals("Concurrent title", event.getTitle());
+    assertEquals("Creator", event.getCreator());
+  }
+
+  @Test
+  public void testUpdateEventDeletesEventAfterConflict() throws Exception {
+    createEvent("Title");
+
+    index.concurrentUpdates = 2;
+    final AtomicInteger calls = new AtomicInteger();
+    assertTrue(index.updateEvent(EVENT_ID, ORGANIZATION, false, event -> {
+      calls.incrementAndGet();
+      return null;
+    }));
+
+    assertEquals(3, calls.get());
+    assertNull(index.document);
+  }
+
+  @Test(expected = SearchIndexException.class)
+  public void testUpdateEventGivesUpOnContinuousConflicts() throws Exception {
+    createEvent("Title");
+
+    index.concurrentUpdates = Integer.MAX_VALUE;
+    index.updateEvent(EVENT_ID, ORGANIZATION, false, event -> event);
+  }
+
+  private void createEvent(String title) throws SearchIndexException {
+    index.updateEvent(EVENT_ID, ORGANIZATION, true, event -> {
+      event.setTitle(title);
+      return event;
+    });
+    index.attempts = 0;
+  }
+
+  /**
+   * Keeps a single event document in memory and simulates the optimistic concurrency control of Elasticsearch. While
+   * there are concurrent updates left, the document is modified by someone else between reading and writing it.
+   */
+  private static final class TestSearchIndex extends AbstractSearchIndex {
+
+    private static final int ATTEMPTS = 10;
+
+    private Map<String, Object> document = null;
+    private int concurrentUpdates = 0;
+    private int attempts = 0;
+
+    @Override
+    public String getIndexName() {
+      return "test";
+    }
+
+    @Override
+    public String[] getDocumentTypes() {
+      return new String[] { Event.DOCUMENT_TYPE };
+    }
+
+    @Override
+    protected boolean update(String type, String uid, Function<Map<String, Object>, ElasticsearchDocument> update)
+            throws SearchIndexException {
+      for (int attempt = 1; attempt <= ATTEMPTS; attempt++) {
+        attempts++;
+        final Map<String, Object> current = document;
+        final ElasticsearchDocument doc = update.apply(current);
+        if (concurrentUpdates > 0) {
+          concurrentUpdates--;
+          document = modify(current);
+          continue;
+        }
+        document = doc;
+        return current != null;
+      }
+      throw new SearchIndexException("Document " + uid + " is being modified concurrently");
+    }
+
+    private ElasticsearchDocument modify(Map<String, Object> source) {
+      final Event event = toEvent(source);
+      event.setTitle("Concurrent title");
+      return toDocument(event);
+    }
+
+    private Event getEvent() {
+      return toEvent(document);
+    }
+
+    private static Event toEvent(Map<String, Object> source) {
+      try {
+        final String xml = (String) ((List<?>) source.get(EventIndexSchema.OBJECT)).get(0);
+        return Event.valueOf(IOUtils.toInputStream(xml, StandardCharsets.UTF_8), Event.createUnmarshaller());
+      } catch (Exception e) {
+        throw new IllegalStateException(e);
+      }
+    }
+
+    private static ElasticsearchDocument toDocument(Event event) {
+      final SearchMetadataCollection metadata = EventIndexUtils.toSearchMetadata(event);
+      return new ElasticsearchDocument(metadata.getIdentifier(), metadata.getDocumentType(), metadata.getMetadata());
+    }
+  }
+
+}
@@ -65,6 +65,8 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.FormParam;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
@@ -295,15 +297,20 @@ public class BaseEndpoint {
 
   @POST
   @Path("recreateIndex")
-  @RestQuery(name = "recreateIndex", description = "Repopulates the External Index directly from the Services", returnDescription = "OK if repopulation has started", responses = {
+  @RestQuery(name = "recreateIndex", description = "Repopulates the External Index directly from the Services",
+          returnDescription = "OK if repopulation has started", restParameters = {
+          @RestParameter(name = "resume", isRequired = false, defaultValue = "false", type = RestParameter.Type.BOOLEAN,
+                  description = "Whether to resume an interrupted rebuild instead of clearing the index and "
+                          + "starting over") },
+          responses = {
           @RestResponse(description = "OK if repopulation has started", responseCode = HttpServletResponse.SC_OK) })
-  public Response recreateIndex() {
+  public Response recreateIndex(@DefaultValue("false") @FormParam("resume") final boolean resume) {
     final SecurityContext securityContext = new SecurityContext(securityService, securityService.getOrganization(),
             securityService.getUser());
     executor.execute(() -> securityContext.runInContext(() -> {
       try {
         logger.info("Starting to repopulate the external index");
-        indexRebuildService.rebuildIndex(externalIndex);
+        indexRebuildService.rebuildIndex(externalIndex, resume);
         logger.info("Finished repopulating the external index");
       } catch (Throwable t) {
         logger.error("Repopulating the external index failed", t);
@@ -36,6 +36,8 @@ import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.util.concurrent.TimeUnit;
+
 /** Unit tests for {@link BaseEndpoint} */
 public class BaseEndpointTest {
 
@@ -142,10 +144,21 @@ public class BaseEndpointTest {
     assertEquals("v1.5.0", json.get("default"));
   }
 
-  /** Test case for {@link BaseEndpoint#recreateIndex()} */
+  /** Test case for {@link BaseEndpoint#recreateIndex(boolean)} */
   @Test
   public void testRecreateIndex() throws Exception {
+    TestBaseEndpoint.REBUILDS.clear();
     given().log().all().expect().statusCode(SC_OK).when().post(env.host("/recreateIndex"));
+    assertEquals(Boolean.FALSE, TestBaseEndpoint.REBUILDS.poll(5, TimeUnit.SECONDS));
+  }
+
+  /** Test case for {@link BaseEndpoint#recreateIndex(boolean)} resuming an interrupted rebuild */
+  @Test
+  public void testResumeIndexRebuild() throws Exception {
+    TestBaseEndpoint.REBUILDS.clear();
+    given().formParam("resume", "true").log().all().expect().statusCode(SC_OK).when()
+            .post(env.host("/recreateIndex"));
+    assertEquals(Boolean.TRUE, TestBaseEndpoint.REBUILDS.poll(5, TimeUnit.SECONDS));
   }
 
 }
@@ -27,7 +27,9 @@ import static org.opencastproject.systems.OpencastConstants.ADMIN_DOC_URL_ORG_PR
 import static org.opencastproject.systems.OpencastConstants.EXTERNAL_API_URL_ORG_PROPERTY;
 import static org.opencastproject.systems.OpencastConstants.FEED_URL_ORG_PROPERTY;
 
+import org.opencastproject.elasticsearch.index.AbstractSearchIndex;
 import org.opencastproject.external.index.ExternalIndex;
+import org.opencastproject.index.rebuild.IndexRebuildService;
 import org.opencastproject.security.api.Organization;
 import org.opencastproject.security.api.Role;
 import org.opencastproject.security.api.SecurityService;
@@ -39,6 +41,8 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 
 import javax.ws.rs.Path;
 
@@ -46,6 +50,9 @@ import javax.ws.rs.Path;
 @Ignore
 public class TestBaseEndpoint extends BaseEndpoint {
 
+  /** Whether each requested index rebuild resumes an interrupted one, in order */
+  static final BlockingQueue<Boolean> REBUILDS = new LinkedBlockingQueue<>();
+
   public TestBaseEndpoint() {
 
     // Prepare mocked organization properties
@@ -90,6 +97,12 @@ public class TestBaseEndpoint extends BaseEndpoint {
 
     setSecurityService(securityService);
     setExternalIndex(new ExternalIndex());
+    setIndexRebuildService(new IndexRebuildService() {
+      @Override
+      public synchronized void rebuildIndex(AbstractSearchIndex index, boolean resume) {
+        REBUILDS.add(resume);
+      }
+    });
   }
 
 }
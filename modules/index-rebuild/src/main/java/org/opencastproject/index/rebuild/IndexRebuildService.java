@@ -34,9 +34,18 @@ import org.osgi.framework.ServiceRegistration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.EnumSet;
 import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 /**
  * The bundle activator is defined in the pom.xml of this bundle.
@@ -68,8 +77,13 @@ public class IndexRebuildService implements BundleActivator {
   }
 
   private static final Logger logger = LoggerFactory.getLogger(IndexRebuildService.class);
+
+  /** Key of the checkpoint property listing the services which have been re-added to the index */
+  private static final String CHECKPOINT_COMPLETED = "completed";
+
   private final Map<IndexRebuildService.Service, IndexProducer> indexProducers = new ConcurrentHashMap<>();
   private ServiceRegistration<?> serviceRegistration = null;
+  private BundleContext bundleContext = null;
 
   /**
    * Called by OSGI when this bundle is started.
@@ -81,6 +95,8 @@ public class IndexRebuildService implements BundleActivator {
    */
   @Override
   public void start(BundleContext bundleContext) throws Exception {
+    this.bundleContext = bundleContext;
+
     // check if there are already IndexProducers available
     ServiceReference<?>[] serviceReferences = bundleContext.getAllServiceReferences(IndexProducer.class.getName(),
             null);
@@ -122,11 +138,53 @@ public class IndexRebuildService implements BundleActivator {
    */
   public synchronized void rebuildIndex(AbstractSearchIndex index)
           throws IOException, IndexRebuildException {
-    index.clear();
-    logger.info("Index '{}' cleared, starting complete rebuild.", index.getIndexName());
+    rebuildIndex(index, false);
+  }
+
+  /**
+   * Rebuild the index from all services, either from scratch or by resuming an interrupted rebuild.
+   * <p>
+   * The services which have been re-added completely are recorded in a checkpoint. If a rebuild is interrupted, e.g.
+   * by a failure or a restart, it can be resumed explicitly with the first service which did not finish instead of
+   * clearing the index again. Otherwise, any checkpoint is discarded and the index is cleared.
+   *
+   * @param index
+   *           The index to rebuild.
+   * @param resume
+   *           Whether to resume an interrupted rebuild of this index. Without a checkpoint, the index is cleared and
+   *           rebuilt completely.
+   *
+   * @throws IOException
+   *           Thrown if the index cannot be cleared.
+   * @throws IndexRebuildException
+   *           Thrown if the index rebuild failed.
+   */
+  public synchronized void rebuildIndex(AbstractSearchIndex index, boolean resume)
+          throws IOException, IndexRebuildException {
+    final String indexName = index.getIndexName();
+    Set<IndexRebuildService.Service> finished = resume ? loadCheckpoint(indexName) : null;
+    if (finished == null) {
+      if (resume) {
+        logger.info("No interrupted rebuild of index '{}' to resume.", indexName);
+      }
+      index.clear();
+      logger.info("Index '{}' cleared, starting complete rebuild.", indexName);
+      finished = EnumSet.noneOf(IndexRebuildService.Service.class);
+      saveCheckpoint(indexName, finished);
+    } else {
+      logger.info("Resuming interrupted rebuild of index '{}', skipping already finished services {}.", indexName,
+              finished);
+    }
+
     for (IndexRebuildService.Service service: IndexRebuildService.Service.values()) {
+      if (finished.contains(service)) {
+        continue;
+      }
       rebuildIndex(index, service);
+      finished.add(service);
+      saveCheckpoint(indexName, finished);
     }
+    deleteCheckpoint(indexName);
   }
 
   /**
@@ -173,6 +231,85 @@ public class IndexRebuildService implements BundleActivator {
     logger.info("Finished to rebuild index '{}' from service '{}'", index.getIndexName(), service);
   }
 
+  /**
+   * Returns the file recording the progress of a rebuild of the given index.
+   *
+   * @param indexName
+   *           The name of the index.
+   * @return the checkpoint file or <code>null</code> if the bundle has no storage
+   */
+  private File getCheckpointFile(String indexName) {
+    return bundleContext == null ? null : bundleContext.getDataFile("rebuild-" + indexName + ".properties");
+  }
+
+  /**
+   * Load the services which have already been re-added by an interrupted rebuild.
+   *
+   * @param indexName
+   *           The name of the index.
+   * @return the finished services or <code>null</code> if there is no interrupted rebuild of this index
+   */
+  private Set<IndexRebuildService.Service> loadCheckpoint(String indexName) {
+    final File file = getCheckpointFile(indexName);
+    if (file == null || !file.isFile()) {
+      return null;
+    }
+    final Properties checkpoint = new Properties();
+    try (InputStream in = new FileInputStream(file)) {
+      checkpoint.load(in);
+    } catch (IOException e) {
+      logger.warn("Unable to read checkpoint of index rebuild from {}, starting over", file, e);
+      return null;
+    }
+    final Set<IndexRebuildService.Service> completed = EnumSet.noneOf(IndexRebuildService.Service.class);
+    for (String service : checkpoint.getProperty(CHECKPOINT_COMPLETED, "").split(",")) {
+      if (service.trim().isEmpty()) {
+        continue;
+      }
+      try {
+        completed.add(IndexRebuildService.Service.valueOf(service.trim()));
+      } catch (IllegalArgumentException e) {
+        logger.warn("Ignoring unknown service '{}' in checkpoint of index rebuild", service);
+      }
+    }
+    return completed;
+  }
+
+  /**
+   * Record the services which have been re-added to the index so far.
+   *
+   * @param indexName
+   *           The name of the index.
+   * @param completed
+   *           The finished services.
+   */
+  private void saveCheckpoint(String indexName, Set<IndexRebuildService.Service> completed) {
+    final File file = getCheckpointFile(indexName);
+    if (file == null) {
+      return;
+    }
+    final Properties checkpoint = new Properties();
+    checkpoint.setProperty(CHECKPOINT_COMPLETED, completed.stream().map(Enum::name).collect(Collectors.joining(",")));
+    try (OutputStream out = new FileOutputStream(file)) {
+      checkpoint.store(out, "Progress of the rebuild of index " + indexName);
+    } catch (IOException e) {
+      logger.warn("Unable to write checkpoint of index rebuild to {}", file, e);
+    }
+  }
+
+  /**
+   * Remove the checkpoint of a finished rebuild.
+   *
+   * @param indexName
+   *           The name of the index.
+   */
+  private void deleteCheckpoint(String indexName) {
+    final File file = getCheckpointFile(indexName);
+    if (file != null && file.exists() && !file.delete()) {
+      logger.warn("Unable to delete checkpoint of index rebuild {}", file);
+    }
+  }
+
   /**
    * Add IndexProducer service to internal map.
    *
@@ -0,0 +1,181 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package org.opencastproject.index.rebuild;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.opencastproject.elasticsearch.index.AbstractSearchIndex;
+import org.opencastproject.index.rebuild.IndexRebuildService.Service;
+
+import org.easymock.EasyMock;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceReference;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test cases for the checkpoints of {@link IndexRebuildService}.
+ */
+public class IndexRebuildServiceTest {
+
+  private static final String INDEX_NAME = "test";
+
+  @Rule
+  public TemporaryFolder testFolder = new TemporaryFolder();
+
+  private IndexRebuildService service;
+  private AbstractSearchIndex index;
+  private File checkpoint;
+
+  /** The number of times the index has been cleared */
+  private final AtomicInteger cleared = new AtomicInteger();
+
+  /** The services which have repopulated the index, in order */
+  private final List<Service> repopulated = Collections.synchronizedList(new ArrayList<>());
+
+  /** The service failing to repopulate the index, if any */
+  private volatile Service failing = null;
+
+  @Before
+  public void setUp() throws Exception {
+    final File dataDir = testFolder.newFolder();
+    checkpoint = new File(dataDir, "rebuild-" + INDEX_NAME + ".properties");
+
+    final List<ServiceReference<?>> references = new ArrayList<>();
+    final BundleContext bundleContext = EasyMock.createNiceMock(BundleContext.class);
+    for (Service s : Service.values()) {
+      final ServiceReference<?> reference = EasyMock.createNiceMock(ServiceReference.class);
+      EasyMock.replay(reference);
+      references.add(reference);
+      final IndexProducer producer = new IndexProducer() {
+        @Override
+        public void repopulate(String indexName) throws IndexRebuildException {
+          if (s == failing) {
+            throw new IndexRebuildException(indexName, s, new IllegalStateException("Cannot repopulate " + s));
+          }
+          repopulated.add(s);
+        }
+
+        @Override
+        public Service getService() {
+          return s;
+        }
+      };
+      EasyMock.expect(bundleContext.getService((ServiceReference) reference)).andReturn(producer).anyTimes();
+    }
+    EasyMock.expect(bundleContext.getAllServiceReferences(IndexProducer.class.getName(), null))
+            .andReturn(references.toArray(new ServiceReference<?>[0])).anyTimes();
+    EasyMock.expect(bundleContext.getDataFile(EasyMock.anyString()))
+            .andAnswer(() -> new File(dataDir, (String) EasyMock.getCurrentArguments()[0])).anyTimes();
+    EasyMock.replay(bundleContext);
+
+    index = EasyMock.createNiceMock(AbstractSearchIndex.class);
+    EasyMock.expect(index.getIndexName()).andReturn(INDEX_NAME).anyTimes();
+    index.clear();
+    EasyMock.expectLastCall().andAnswer(() -> {
+      cleared.incrementAndGet();
+      return null;
+    }).anyTimes();
+    EasyMock.replay(index);
+
+    service = new IndexRebuildService();
+    service.start(bundleContext);
+  }
+
+  @Test
+  public void testRebuildDeletesCheckpoint() throws Exception {
+    service.rebuildIndex(index, false);
+    assertEquals(1, cleared.get());
+    assertEquals(Arrays.asList(Service.values()), repopulated);
+    assertFalse(checkpoint.exists());
+  }
+
+  @Test
+  public void testFailedRebuildSavesCheckpoint() throws Exception {
+    failRebuild(Service.Workflow);
+    assertTrue(checkpoint.isFile());
+    final Properties properties = new Properties();
+    try (InputStream in = new FileInputStream(checkpoint)) {
+      properties.load(in);
+    }
+    assertEquals("Groups,Acl,Themes,Series,Scheduler", properties.getProperty("completed"));
+  }
+
+  @Test
+  public void testResumeSkipsFinishedServices() throws Exception {
+    failRebuild(Service.Workflow);
+    failing = null;
+    repopulated.clear();
+
+    service.rebuildIndex(index, true);
+    assertEquals(1, cleared.get());
+    assertEquals(Arrays.asList(Service.Workflow, Service.AssetManager, Service.Comments), repopulated);
+    assertFalse(checkpoint.exists());
+  }
+
+  @Test
+  public void testResumeWithoutCheckpointRebuildsCompletely() throws Exception {
+    service.rebuildIndex(index, true);
+    assertEquals(1, cleared.get());
+    assertEquals(Arrays.asList(Service.values()), repopulated);
+    assertFalse(checkpoint.exists());
+  }
+
+  @Test
+  public void testRebuildDiscardsCheckpoint() throws Exception {
+    failRebuild(Service.Workflow);
+    failing = null;
+    repopulated.clear();
+
+    // Not resuming starts over even if there is an interrupted rebuild
+    service.rebuildIndex(index, false);
+    assertEquals(2, cleared.get());
+    assertEquals(Arrays.asList(Service.values()), repopulated);
+    assertFalse(checkpoint.exists());
+  }
+
+  private void failRebuild(Service failingService) throws Exception {
+    failing = failingService;
+    try {
+      service.rebuildIndex(index, false);
+      fail("Rebuild did not fail");
+    } catch (IndexRebuildException e) {
+      // expected
+    }
+  }
+
+}
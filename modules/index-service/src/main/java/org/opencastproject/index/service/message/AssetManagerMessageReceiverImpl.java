@@ -21,13 +21,11 @@
 package org.opencastproject.index.service.message;
 
 import static org.apache.commons.lang3.StringUtils.isBlank;
-import static org.opencastproject.elasticsearch.index.event.EventIndexUtils.getOrCreateEvent;
 import static org.opencastproject.elasticsearch.index.event.EventIndexUtils.updateEvent;
 
 import org.opencastproject.authorization.xacml.manager.api.AclServiceFactory;
 import org.opencastproject.authorization.xacml.manager.api.ManagedAcl;
 import org.opencastproject.elasticsearch.api.SearchIndexException;
-import org.opencastproject.elasticsearch.index.event.Event;
 import org.opencastproject.elasticsearch.index.event.EventIndexUtils;
 import org.opencastproject.index.service.util.AccessInformationUtil;
 import org.opencastproject.mediapackage.MediaPackage;
@@ -36,11 +34,13 @@ import org.opencastproject.message.broker.api.assetmanager.AssetManagerItem;
 import org.opencastproject.message.broker.api.assetmanager.AssetManagerItem.DeleteEpisode;
 import org.opencastproject.message.broker.api.assetmanager.AssetManagerItem.DeleteSnapshot;
 import org.opencastproject.message.broker.api.assetmanager.AssetManagerItem.TakeSnapshot;
+import org.opencastproject.metadata.dublincore.DublinCore;
 import org.opencastproject.metadata.dublincore.DublinCoreCatalog;
 import org.opencastproject.security.api.AccessControlList;
 import org.opencastproject.security.api.AccessControlParser;
 import org.opencastproject.security.api.User;
 import org.opencastproject.util.NotFoundException;
+import org.opencastproject.util.data.Option;
 
 import com.entwinemedia.fn.Fn;
 import com.entwinemedia.fn.Fx;
@@ -82,42 +82,47 @@ public class AssetManagerMessageReceiverImpl extends BaseMessageReceiverImpl<Ass
     final String organization = getSecurityService().getOrganization().getId();
     final User user = getSecurityService().getUser();
 
-    // Load or create the corresponding recording event
-    final Event event;
-    try {
-      event = getOrCreateEvent(msg.getId(), organization, user, getSearchIndex());
-      final AccessControlList acl = msg.getAcl();
-      List<ManagedAcl> acls = aclServiceFactory.serviceFor(getSecurityService().getOrganization()).getAcls();
-      for (final ManagedAcl managedAcl : AccessInformationUtil.matchAcls(acls, acl)) {
-        event.setManagedAcl(managedAcl.getName());
-      }
-      event.setAccessPolicy(AccessControlParser.toJsonSilent(acl));
-      event.setArchiveVersion(msg.getVersion());
-      if (isBlank(event.getCreator()))
-        event.setCreator(getSecurityService().getUser().getName());
-      updateEvent(event, mp);
-      if (episodeDublincore.isSome()) {
-        updateEvent(event, episodeDublincore.get());
-      }
-    } catch (SearchIndexException e) {
-      logger.error("Error retrieving the recording event from the search index: {}", e.getMessage());
-      return;
-    }
+    final AccessControlList acl = msg.getAcl();
+    final List<ManagedAcl> acls = aclServiceFactory.serviceFor(getSecurityService().getOrganization()).getAcls();
+    final Option<ManagedAcl> managedAcls = AccessInformationUtil.matchAcls(acls, acl);
 
-    // Update series name if not already done
+    // Look up the series name before updating the event, so retrying a conflicting update does not search for it again
+    final String seriesId = episodeDublincore.isSome()
+            ? episodeDublincore.get().getFirst(DublinCore.PROPERTY_IS_PART_OF)
+            : mp.getSeries();
+    String seriesTitle = null;
     try {
-      EventIndexUtils.updateSeriesName(event, organization, user, getSearchIndex());
+      seriesTitle = EventIndexUtils.getSeriesTitle(seriesId, organization, user, getSearchIndex());
     } catch (SearchIndexException e) {
-      logger.error("Error updating the series name of the event to index", e);
+      logger.error("Error getting the series name of the event from the index", e);
     }
+    final String seriesName = seriesTitle;
 
-    // Persist the scheduling event
+    // Update or create the corresponding recording event
     try {
-      getSearchIndex().addOrUpdate(event);
-      logger.debug("Asset manager entry {} updated in the {} search index", event.getIdentifier(),
+      getSearchIndex().updateEvent(msg.getId(), organization, true, event -> {
+        for (final ManagedAcl managedAcl : managedAcls) {
+          event.setManagedAcl(managedAcl.getName());
+        }
+        event.setAccessPolicy(AccessControlParser.toJsonSilent(acl));
+        event.setArchiveVersion(msg.getVersion());
+        if (isBlank(event.getCreator()))
+          event.setCreator(user.getName());
+        updateEvent(event, mp);
+        if (episodeDublincore.isSome()) {
+          updateEvent(event, episodeDublincore.get());
+        }
+
+        // Update series name if not already done
+        if (seriesName != null && seriesId.equals(event.getSeriesId())) {
+          event.setSeriesName(seriesName);
+        }
+        return event;
+      });
+      logger.debug("Asset manager entry {} updated in the {} search index", msg.getId(),
               getSearchIndex().getIndexName());
     } catch (SearchIndexException e) {
-      logger.error("Error retrieving the recording event from the search index: {}", e.getMessage());
+      logger.error("Error updating the recording event {} in the search index: {}", msg.getId(), e.getMessage());
     }
   }
 
@@ -134,11 +139,10 @@ public class AssetManagerMessageReceiverImpl extends BaseMessageReceiverImpl<Ass
   private void handleMessage(DeleteEpisode msg) {
     final String eventId = msg.getMediaPackageId();
     final String organization = getSecurityService().getOrganization().getId();
-    final User user = getSecurityService().getUser();
     logger.debug("Received AssetManager delete episode message {}", eventId);
     // Remove the archived entry from the search index
     try {
-      getSearchIndex().deleteAssets(organization, user, eventId);
+      getSearchIndex().deleteAssets(organization, eventId);
       logger.debug("Archived media package {} removed from {} search index", eventId, getSearchIndex().getIndexName());
     } catch (NotFoundException e) {
       logger.warn("Archived media package {} not found for deletion", eventId);
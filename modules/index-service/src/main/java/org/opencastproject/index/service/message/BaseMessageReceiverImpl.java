@@ -22,6 +22,7 @@
 package org.opencastproject.index.service.message;
 
 import org.opencastproject.elasticsearch.index.AbstractSearchIndex;
+import org.opencastproject.index.service.message.jmx.MessageReceiverStatistics;
 import org.opencastproject.message.broker.api.BaseMessage;
 import org.opencastproject.message.broker.api.MessageReceiver;
 import org.opencastproject.message.broker.api.MessageSender;
@@ -29,21 +30,48 @@ import org.opencastproject.message.broker.api.MessageSender.DestinationType;
 import org.opencastproject.security.api.SecurityService;
 import org.opencastproject.util.OsgiUtil;
 import org.opencastproject.util.data.Effect2;
+import org.opencastproject.util.jmx.JmxUtil;
 
+import org.apache.commons.lang3.StringUtils;
 import org.osgi.service.component.ComponentContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
 
+import javax.management.ObjectInstance;
+
+/**
+ * Base class of the message receivers updating the search index.
+ * <p>
+ * Messages are received by a single watcher thread and handed over to a pool of consumers. Messages are partitioned by
+ * the identifier of the resource they refer to, so messages concerning the same resource are still processed one after
+ * the other and in order, while messages concerning different resources are processed concurrently. The watcher
+ * blocks if the queue of a consumer is full.
+ */
 public abstract class BaseMessageReceiverImpl<T extends Serializable> {
 
   private static final String DESTINATION_ID_KEY = "destinationId";
+
+  /** Configuration key for the number of consumers processing messages concurrently */
+  private static final String CONSUMERS_KEY = "consumers";
+
+  /** Configuration key for the number of messages each consumer may have waiting */
+  private static final String CONSUMER_QUEUE_SIZE_KEY = "consumer.queue.size";
+
+  private static final int DEFAULT_CONSUMERS = 1;
+  private static final int DEFAULT_CONSUMER_QUEUE_SIZE = 100;
+
   private static final Logger logger = LoggerFactory.getLogger(BaseMessageReceiverImpl.class);
   private final ExecutorService singleThreadExecutor = Executors.newSingleThreadExecutor();
 
@@ -55,6 +83,13 @@ public abstract class BaseMessageReceiverImpl<T extends Serializable> {
   private String destinationId;
   private MessageSender.DestinationType destinationType;
 
+  /** The queues of the consumers */
+  private final List<BlockingQueue<QueuedMessage>> partitions = new ArrayList<>();
+  private ExecutorService consumerExecutor;
+  private MessageReceiverStatistics statistics;
+  private ObjectInstance statisticsMXBean;
+  private volatile boolean consuming = true;
+
   public BaseMessageReceiverImpl(MessageSender.DestinationType destinationType) {
     this.destinationType = destinationType;
   }
@@ -63,6 +98,20 @@ public abstract class BaseMessageReceiverImpl<T extends Serializable> {
     logger.info("Activating {}", this.getClass().getName());
     destinationId = OsgiUtil.getComponentContextProperty(cc, DESTINATION_ID_KEY);
     logger.info("The {} for this message receiver is '{}'", DESTINATION_ID_KEY, destinationId);
+
+    final int consumers = getIntProperty(cc, CONSUMERS_KEY, DEFAULT_CONSUMERS);
+    final int queueSize = getIntProperty(cc, CONSUMER_QUEUE_SIZE_KEY, DEFAULT_CONSUMER_QUEUE_SIZE);
+    logger.info("Processing messages from '{}' with {} consumers", destinationId, consumers);
+    consuming = true;
+    consumerExecutor = Executors.newFixedThreadPool(consumers);
+    for (int i = 0; i < consumers; i++) {
+      final BlockingQueue<QueuedMessage> queue = new ArrayBlockingQueue<>(queueSize);
+      partitions.add(queue);
+      consumerExecutor.execute(new MessageConsumer(queue));
+    }
+    statistics = new MessageReceiverStatistics(consumers, this::getQueueSize, this::getLag);
+    statisticsMXBean = JmxUtil.registerMXBean(statistics, "MessageReceiver-" + destinationId);
+
     messageWatcher = new MessageWatcher(lockService);
     singleThreadExecutor.execute(messageWatcher);
   }
@@ -72,7 +121,35 @@ public abstract class BaseMessageReceiverImpl<T extends Serializable> {
     if (messageWatcher != null)
       messageWatcher.stopListening();
 
+    // The watcher may still be handing over a message, which needs the consumers and the partitions
     singleThreadExecutor.shutdown();
+    try {
+      if (!singleThreadExecutor.awaitTermination(30, TimeUnit.SECONDS)) {
+        singleThreadExecutor.shutdownNow();
+        singleThreadExecutor.awaitTermination(5, TimeUnit.SECONDS);
+      }
+    } catch (InterruptedException e) {
+      singleThreadExecutor.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+
+    // Let the consumers finish the messages which have already been received
+    consuming = false;
+    if (consumerExecutor != null) {
+      consumerExecutor.shutdown();
+      try {
+        if (!consumerExecutor.awaitTermination(30, TimeUnit.SECONDS)) {
+          logger.warn("Discarding {} unprocessed messages from '{}'", getQueueSize(), destinationId);
+          consumerExecutor.shutdownNow();
+        }
+      } catch (InterruptedException e) {
+        consumerExecutor.shutdownNow();
+        Thread.currentThread().interrupt();
+      }
+    }
+    partitions.clear();
+    if (statisticsMXBean != null)
+      JmxUtil.unregisterMXBean(statisticsMXBean);
   }
 
   protected abstract void execute(T messageContent);
@@ -93,6 +170,55 @@ public abstract class BaseMessageReceiverImpl<T extends Serializable> {
     return securityService;
   }
 
+  private static int getIntProperty(ComponentContext cc, String key, int defaultValue) {
+    final String value = StringUtils.trimToNull(
+            OsgiUtil.getComponentContextProperty(cc, key, Integer.toString(defaultValue)));
+    try {
+      return value == null ? defaultValue : Math.max(1, Integer.parseInt(value));
+    } catch (NumberFormatException e) {
+      logger.warn("Invalid value '{}' for {}, using default {}", value, key, defaultValue);
+      return defaultValue;
+    }
+  }
+
+  /** Returns the number of messages waiting to be processed */
+  private int getQueueSize() {
+    return partitions.stream().mapToInt(BlockingQueue::size).sum();
+  }
+
+  /** Returns the age of the oldest message waiting to be processed in milliseconds */
+  private long getLag() {
+    final long now = System.currentTimeMillis();
+    long lag = 0;
+    for (BlockingQueue<QueuedMessage> queue : partitions) {
+      final QueuedMessage message = queue.peek();
+      if (message != null)
+        lag = Math.max(lag, now - message.received);
+    }
+    return lag;
+  }
+
+  /**
+   * Hands a message over to the consumer responsible for the resource it refers to, waiting if the consumer's queue is
+   * full.
+   */
+  private void dispatch(BaseMessage baseMessage) throws InterruptedException {
+    final String id = baseMessage.getId().getOr("");
+    partitions.get(Math.floorMod(id.hashCode(), partitions.size())).put(new QueuedMessage(baseMessage));
+  }
+
+  /** A received message waiting to be processed */
+  private static final class QueuedMessage {
+
+    private final BaseMessage message;
+    private final long received = System.currentTimeMillis();
+
+    QueuedMessage(BaseMessage message) {
+      this.message = message;
+    }
+
+  }
+
   private class MessageWatcher implements Runnable {
 
     private final Logger logger = LoggerFactory.getLogger(MessageWatcher.class);
@@ -123,9 +249,7 @@ public abstract class BaseMessageReceiverImpl<T extends Serializable> {
           if (baseMessage == null) {
             continue;
           }
-          securityService.setOrganization(baseMessage.getOrganization());
-          securityService.setUser(baseMessage.getUser());
-          lockService.synchronize(baseMessage.getId().get(), execute.curry(baseMessage.getObject()).toFn());
+          dispatch(baseMessage);
         } catch (InterruptedException e) {
           logger.error("Problem while getting {} message events", clazzName, e);
         } catch (ExecutionException e) {
@@ -134,12 +258,52 @@ public abstract class BaseMessageReceiverImpl<T extends Serializable> {
           logger.trace("Listening for messages {} has been cancelled.", clazzName);
         } catch (Throwable t) {
           logger.error("Problem while getting {} message events", clazzName, t);
+        }
+      }
+      logger.info("Stopping listening for {} Messages", clazzName);
+    }
+  }
+
+  /** Processes the messages of one partition in the order they have been received */
+  private class MessageConsumer implements Runnable {
+
+    private final BlockingQueue<QueuedMessage> queue;
+    private final String clazzName = BaseMessageReceiverImpl.this.getClass().getName();
+
+    MessageConsumer(BlockingQueue<QueuedMessage> queue) {
+      this.queue = queue;
+    }
+
+    @Override
+    public void run() {
+      while (consuming || !queue.isEmpty()) {
+        final QueuedMessage queuedMessage;
+        try {
+          queuedMessage = queue.poll(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          logger.debug("Consumer of {} messages has been interrupted", clazzName);
+          return;
+        }
+        if (queuedMessage == null) {
+          continue;
+        }
+
+        final BaseMessage baseMessage = queuedMessage.message;
+        final long start = System.currentTimeMillis();
+        boolean success = false;
+        try {
+          securityService.setOrganization(baseMessage.getOrganization());
+          securityService.setUser(baseMessage.getUser());
+          lockService.synchronize(baseMessage.getId().get(), execute.curry(baseMessage.getObject()).toFn());
+          success = true;
+        } catch (Throwable t) {
+          logger.error("Problem while processing {} message events", clazzName, t);
         } finally {
           securityService.setOrganization(null);
           securityService.setUser(null);
+          statistics.updateProcessed(start - queuedMessage.received, System.currentTimeMillis() - start, success);
         }
       }
-      logger.info("Stopping listening for {} Messages", clazzName);
     }
   }
 
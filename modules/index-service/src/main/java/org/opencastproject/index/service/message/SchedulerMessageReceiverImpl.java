@@ -22,7 +22,6 @@
 package org.opencastproject.index.service.message;
 
 import static org.apache.commons.lang3.StringUtils.isBlank;
-import static org.opencastproject.elasticsearch.index.event.EventIndexUtils.getOrCreateEvent;
 
 import org.opencastproject.elasticsearch.api.SearchIndexException;
 import org.opencastproject.elasticsearch.index.event.Event;
@@ -30,6 +29,7 @@ import org.opencastproject.elasticsearch.index.event.EventIndexUtils;
 import org.opencastproject.message.broker.api.MessageSender;
 import org.opencastproject.message.broker.api.scheduler.SchedulerItem;
 import org.opencastproject.message.broker.api.scheduler.SchedulerItemList;
+import org.opencastproject.metadata.dublincore.DublinCore;
 import org.opencastproject.metadata.dublincore.DublinCoreCatalog;
 import org.opencastproject.security.api.AccessControlParser;
 import org.opencastproject.security.api.User;
@@ -40,6 +40,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.function.UnaryOperator;
 
 public class SchedulerMessageReceiverImpl extends BaseMessageReceiverImpl<SchedulerItemList> {
 
@@ -62,7 +63,6 @@ public class SchedulerMessageReceiverImpl extends BaseMessageReceiverImpl<Schedu
   private void executeSingle(final String mediaPackageId, final SchedulerItem schedulerItem) {
     DublinCoreCatalog dc = schedulerItem.getEvent();
 
-    Event event;
     String organization = getSecurityService().getOrganization().getId();
     User user = getSecurityService().getUser();
     logger.debug("Received message of type {} for event {}", schedulerItem.getType(), mediaPackageId);
@@ -70,88 +70,79 @@ public class SchedulerMessageReceiverImpl extends BaseMessageReceiverImpl<Schedu
     try {
       switch (schedulerItem.getType()) {
         case UpdateCatalog:
-          // Load or create the corresponding recording event
-          event = getOrCreateEvent(mediaPackageId, organization, user, getSearchIndex());
-          if (isBlank(event.getCreator()))
-            event.setCreator(getSecurityService().getUser().getName());
-          if (dc != null)
-            EventIndexUtils.updateEvent(event, dc);
-
-          // Update series name if not already done
-          EventIndexUtils.updateSeriesName(event, organization, user, getSearchIndex());
-
-          // Persist the scheduling event
-          updateEvent(event);
+          // Look up the series name before updating the event, so retrying a conflicting update does not search for
+          // it again
+          final String seriesId = dc != null ? dc.getFirst(DublinCore.PROPERTY_IS_PART_OF) : null;
+          final String seriesName = EventIndexUtils.getSeriesTitle(seriesId, organization, user, getSearchIndex());
+
+          // Update or create the corresponding recording event
+          updateEvent(mediaPackageId, organization, event -> {
+            if (isBlank(event.getCreator()))
+              event.setCreator(user.getName());
+            if (dc != null)
+              EventIndexUtils.updateEvent(event, dc);
+
+            // Update series name if not already done
+            if (seriesName != null && seriesId.equals(event.getSeriesId())) {
+              event.setSeriesName(seriesName);
+            }
+            return event;
+          });
           return;
         case UpdateAcl:
-          // Load the corresponding recording event
-          event = EventIndexUtils.getOrCreateEvent(mediaPackageId, organization, user, getSearchIndex());
-          event.setAccessPolicy(AccessControlParser.toJsonSilent(schedulerItem.getAcl()));
-
-          // Persist the scheduling event
-          updateEvent(event);
+          updateEvent(mediaPackageId, organization, event -> {
+            event.setAccessPolicy(AccessControlParser.toJsonSilent(schedulerItem.getAcl()));
+            return event;
+          });
           return;
         case UpdateAgentId:
-          // Load the corresponding recording event
-          event = EventIndexUtils.getOrCreateEvent(mediaPackageId, organization, user, getSearchIndex());
-          event.setAgentId(schedulerItem.getAgentId());
-
-          // Persist the scheduling event
-          updateEvent(event);
+          updateEvent(mediaPackageId, organization, event -> {
+            event.setAgentId(schedulerItem.getAgentId());
+            return event;
+          });
           return;
         case UpdateProperties:
-          // Load the corresponding recording event
-          event = EventIndexUtils.getOrCreateEvent(mediaPackageId, organization, user, getSearchIndex());
-          event.setAgentConfiguration(schedulerItem.getProperties());
-
-          // Persist the scheduling event
-          updateEvent(event);
+          updateEvent(mediaPackageId, organization, event -> {
+            event.setAgentConfiguration(schedulerItem.getProperties());
+            return event;
+          });
           return;
         case UpdateRecordingStatus:
-          // Load the corresponding recording event
-          event = EventIndexUtils.getOrCreateEvent(mediaPackageId, organization, user, getSearchIndex());
-          event.setRecordingStatus(schedulerItem.getRecordingState());
-
-          // Persist the scheduling event
-          updateEvent(event);
+          updateEvent(mediaPackageId, organization, event -> {
+            event.setRecordingStatus(schedulerItem.getRecordingState());
+            return event;
+          });
           return;
         case DeleteRecordingStatus:
-          // Load the corresponding recording event
-          event = EventIndexUtils.getOrCreateEvent(mediaPackageId, organization, user, getSearchIndex());
-          event.setRecordingStatus(null);
-
-          // Persist the scheduling event
-          updateEvent(event);
+          updateEvent(mediaPackageId, organization, event -> {
+            event.setRecordingStatus(null);
+            return event;
+          });
           return;
         case UpdateEnd:
           String endTime = schedulerItem.getEnd() == null ? null : DateTimeSupport.toUTC(schedulerItem.getEnd().getTime());
-          // Load the corresponding recording event
-          event = EventIndexUtils.getOrCreateEvent(mediaPackageId, organization, user, getSearchIndex());
-          event.setTechnicalEndTime(endTime);
-
-          // Persist the scheduling event
-          updateEvent(event);
+          updateEvent(mediaPackageId, organization, event -> {
+            event.setTechnicalEndTime(endTime);
+            return event;
+          });
           return;
         case UpdateStart:
           String startTime = schedulerItem.getStart() == null ? null : DateTimeSupport.toUTC(schedulerItem.getStart().getTime());
-          // Load the corresponding recording event
-          event = EventIndexUtils.getOrCreateEvent(mediaPackageId, organization, user, getSearchIndex());
-          event.setTechnicalStartTime(startTime);
-
-          // Persist the scheduling event
-          updateEvent(event);
+          updateEvent(mediaPackageId, organization, event -> {
+            event.setTechnicalStartTime(startTime);
+            return event;
+          });
           return;
         case UpdatePresenters:
-          event = EventIndexUtils.getOrCreateEvent(mediaPackageId, organization, user, getSearchIndex());
-          event.setTechnicalPresenters(new ArrayList<>(schedulerItem.getPresenters()));
-
-          // Persist the scheduling event
-          updateEvent(event);
+          updateEvent(mediaPackageId, organization, event -> {
+            event.setTechnicalPresenters(new ArrayList<>(schedulerItem.getPresenters()));
+            return event;
+          });
           return;
         case Delete:
           // Remove the scheduling from the search index
           try {
-            getSearchIndex().deleteScheduling(organization, user, mediaPackageId);
+            getSearchIndex().deleteScheduling(organization, mediaPackageId);
             logger.debug("Scheduled recording {} removed from the {} search index",
               mediaPackageId, getSearchIndex().getIndexName());
           } catch (NotFoundException e) {
@@ -162,18 +153,18 @@ public class SchedulerMessageReceiverImpl extends BaseMessageReceiverImpl<Schedu
           throw new IllegalArgumentException("Unhandled type of SchedulerItem");
       }
     } catch (SearchIndexException e) {
-      logger.error("Got {} message for event {} but failed to retrieve the event from the search index",
+      logger.error("Got {} message for event {} but failed to update the event in the search index",
               schedulerItem.getType(), mediaPackageId, e);
     }
   }
 
-  private void updateEvent(Event event) {
-    try {
-      getSearchIndex().addOrUpdate(event);
-      logger.debug("Scheduled recording {} updated in the {} search index",
-        event.getIdentifier(), getSearchIndex().getIndexName());
-    } catch (SearchIndexException e) {
-      logger.error("Error retrieving the recording event from the search index:", e);
-    }
+  /**
+   * Updates or creates the recording event in the search index, based on its latest version.
+   */
+  private void updateEvent(String mediaPackageId, String organization, UnaryOperator<Event> update)
+          throws SearchIndexException {
+    getSearchIndex().updateEvent(mediaPackageId, organization, true, update);
+    logger.debug("Scheduled recording {} updated in the {} search index", mediaPackageId,
+            getSearchIndex().getIndexName());
   }
 }
@@ -21,11 +21,9 @@
 
 package org.opencastproject.index.service.message;
 
-import static org.opencastproject.elasticsearch.index.event.EventIndexUtils.getOrCreateEvent;
 import static org.opencastproject.elasticsearch.index.event.EventIndexUtils.updateEvent;
 
 import org.opencastproject.elasticsearch.api.SearchIndexException;
-import org.opencastproject.elasticsearch.index.event.Event;
 import org.opencastproject.mediapackage.MediaPackage;
 import org.opencastproject.message.broker.api.MessageSender;
 import org.opencastproject.message.broker.api.workflow.WorkflowItem;
@@ -64,13 +62,12 @@ public class WorkflowMessageReceiverImpl extends BaseMessageReceiverImpl<Workflo
 
   private void deleteWorkflowInstance(WorkflowItem workflowItem) {
     final String organization = getSecurityService().getOrganization().getId();
-    final User user = getSecurityService().getUser();
     final String eventId = workflowItem.getId();
     logger.debug("Received Delete Workflow instance Entry {}", eventId);
 
     // Remove the Workflow instance entry from the search index
     try {
-      getSearchIndex().deleteWorkflow(organization, user, eventId, workflowItem.getWorkflowInstanceId());
+      getSearchIndex().deleteWorkflow(organization, eventId, workflowItem.getWorkflowInstanceId());
       logger.debug("Workflow instance media package {} removed from search index", eventId);
     } catch (NotFoundException e) {
       logger.warn("Workflow instance media package {} not found for deletion", eventId);
@@ -86,30 +83,27 @@ public class WorkflowMessageReceiverImpl extends BaseMessageReceiverImpl<Workflo
     final String eventId = workflowItem.getId();
     final MediaPackage mediaPackage = workflowItem.getMediaPackage();
 
-    // Load or create the corresponding recording event
+    // Update or create the corresponding recording event
     try {
-      Event event = getOrCreateEvent(eventId, organization, user, getSearchIndex());
-      event.setCreator(user.getName());
-      event.setWorkflowId(workflowItem.getWorkflowInstanceId());
-      event.setWorkflowDefinitionId(workflowItem.getWorkflowDefinitionId());
-      event.setWorkflowState(workflowItem.getState());
-      event.setAccessPolicy(workflowItem.getAccessControlListJSON());
-
-      // Update metadata
-      DublinCoreCatalog dcCatalog = workflowItem.getEpisodeDublincoreCatalog();
-      if (dcCatalog != null) {
-        updateEvent(event, dcCatalog);
-      }
-
-      // update publications
-      updateEvent(event, mediaPackage);
-
-
-      // Persist event
-      getSearchIndex().addOrUpdate(event);
+      final DublinCoreCatalog dcCatalog = workflowItem.getEpisodeDublincoreCatalog();
+      getSearchIndex().updateEvent(eventId, organization, true, event -> {
+        event.setCreator(user.getName());
+        event.setWorkflowId(workflowItem.getWorkflowInstanceId());
+        event.setWorkflowDefinitionId(workflowItem.getWorkflowDefinitionId());
+        event.setWorkflowState(workflowItem.getState());
+        event.setAccessPolicy(workflowItem.getAccessControlListJSON());
+
+        // Update metadata
+        if (dcCatalog != null) {
+          updateEvent(event, dcCatalog);
+        }
+
+        // update publications
+        return updateEvent(event, mediaPackage);
+      });
       logger.debug("Workflow instance {} updated in the search index", eventId);
     } catch (SearchIndexException e) {
-      logger.error("Error retrieving the recording event from the search index", e);
+      logger.error("Error updating the recording event {} in the search index", eventId, e);
     }
   }
 
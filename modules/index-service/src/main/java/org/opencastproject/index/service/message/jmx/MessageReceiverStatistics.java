@@ -0,0 +1,121 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.index.service.message.jmx;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+public class MessageReceiverStatistics implements MessageReceiverStatisticsMXBean {
+
+  private final int consumers;
+  private final IntSupplier queueSize;
+  private final LongSupplier lag;
+
+  private final AtomicLong processed = new AtomicLong();
+  private final AtomicLong failed = new AtomicLong();
+  private final AtomicLong processingTime = new AtomicLong();
+  private volatile long lastMessageLag = 0L;
+
+  /**
+   * Creates the statistics of a message receiver.
+   *
+   * @param consumers
+   *          the number of consumers processing messages
+   * @param queueSize
+   *          provides the number of messages waiting to be processed
+   * @param lag
+   *          provides the age of the oldest waiting message in milliseconds
+   */
+  public MessageReceiverStatistics(int consumers, IntSupplier queueSize, LongSupplier lag) {
+    this.consumers = consumers;
+    this.queueSize = queueSize;
+    this.lag = lag;
+  }
+
+  public void updateProcessed(long messageLag, long time, boolean success) {
+    processed.incrementAndGet();
+    processingTime.addAndGet(time);
+    lastMessageLag = messageLag;
+    if (!success)
+      failed.incrementAndGet();
+  }
+
+  /**
+   * @see org.opencastproject.index.service.message.jmx.MessageReceiverStatisticsMXBean#getConsumers()
+   */
+  @Override
+  public int getConsumers() {
+    return consumers;
+  }
+
+  /**
+   * @see org.opencastproject.index.service.message.jmx.MessageReceiverStatisticsMXBean#getQueueSize()
+   */
+  @Override
+  public int getQueueSize() {
+    return queueSize.getAsInt();
+  }
+
+  /**
+   * @see org.opencastproject.index.service.message.jmx.MessageReceiverStatisticsMXBean#getLag()
+   */
+  @Override
+  public long getLag() {
+    return lag.getAsLong();
+  }
+
+  /**
+   * @see org.opencastproject.index.service.message.jmx.MessageReceiverStatisticsMXBean#getLastMessageLag()
+   */
+  @Override
+  public long getLastMessageLag() {
+    return lastMessageLag;
+  }
+
+  /**
+   * @see org.opencastproject.index.service.message.jmx.MessageReceiverStatisticsMXBean#getProcessed()
+   */
+  @Override
+  public long getProcessed() {
+    return processed.get();
+  }
+
+  /**
+   * @see org.opencastproject.index.service.message.jmx.MessageReceiverStatisticsMXBean#getFailed()
+   */
+  @Override
+  public long getFailed() {
+    return failed.get();
+  }
+
+  /**
+   * @see org.opencastproject.index.service.message.jmx.MessageReceiverStatisticsMXBean#getAverageProcessingTime()
+   */
+  @Override
+  public long getAverageProcessingTime() {
+    final long count = processed.get();
+    return count == 0 ? 0 : processingTime.get() / count;
+  }
+
+}
@@ -0,0 +1,79 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.index.service.message.jmx;
+
+/**
+ * JMX Bean interface exposing statistics of a message receiver updating the search index.
+ */
+public interface MessageReceiverStatisticsMXBean {
+
+  /**
+   * Gets the number of consumers processing messages concurrently
+   *
+   * @return the number of consumers
+   */
+  int getConsumers();
+
+  /**
+   * Gets the number of received messages waiting to be processed
+   *
+   * @return the number of queued messages
+   */
+  int getQueueSize();
+
+  /**
+   * Gets the age of the oldest message waiting to be processed
+   *
+   * @return the lag of the receiver in milliseconds
+   */
+  long getLag();
+
+  /**
+   * Gets the time the last processed message waited before being processed
+   *
+   * @return the waiting time of the last message in milliseconds
+   */
+  long getLastMessageLag();
+
+  /**
+   * Gets the number of processed messages
+   *
+   * @return the number of processed messages
+   */
+  long getProcessed();
+
+  /**
+   * Gets the number of messages which failed to be processed
+   *
+   * @return the number of failed messages
+   */
+  long getFailed();
+
+  /**
+   * Gets the average time it took to process a message
+   *
+   * @return the average processing time in milliseconds
+   */
+  long getAverageProcessingTime();
+
+}
@@ -0,0 +1,287 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package org.opencastproject.index.service.message;
+
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.opencastproject.message.broker.api.BaseMessage;
+import org.opencastproject.message.broker.api.MessageItem;
+import org.opencastproject.message.broker.api.MessageReceiver;
+import org.opencastproject.message.broker.api.MessageSender.DestinationType;
+import org.opencastproject.security.api.DefaultOrganization;
+import org.opencastproject.security.api.SecurityService;
+
+import com.entwinemedia.fn.Fn;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.service.component.ComponentContext;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+public class BaseMessageReceiverImplTest {
+
+  private static final long TIMEOUT = 10000L;
+
+  private final DefaultOrganization organization = new DefaultOrganization();
+  private final SecurityService securityService = TestSearchIndex.createSecurityService(organization);
+
+  /** Messages waiting to be received from the message broker */
+  private final BlockingQueue<BaseMessage> inbox = new LinkedBlockingQueue<>();
+  private final AtomicInteger receiveCalls = new AtomicInteger();
+
+  /** Processed sequence numbers by resource identifier */
+  private final Map<String, List<Integer>> processed = Collections.synchronizedMap(new HashMap<>());
+
+  private TestReceiver receiver;
+  private ComponentContext cc;
+
+  @Before
+  public void setUp() {
+    receiver = null;
+    cc = null;
+  }
+
+  @After
+  public void tearDown() {
+    if (receiver != null) {
+      receiver.deactivate(cc);
+    }
+  }
+
+  @Test
+  public void testOrderPerId() throws Exception {
+    final CountDownLatch done = new CountDownLatch(100);
+    activate("order", 4, 100, item -> {
+      try {
+        // Vary the processing time so messages would overtake each other without partitioning
+        Thread.sleep(item.sequence % 3);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      done.countDown();
+    });
+    for (int i = 0; i < 100; i++) {
+      send("mp-" + (i % 7), i);
+    }
+    assertTrue(done.await(TIMEOUT, TimeUnit.MILLISECONDS));
+
+    assertEquals(7, processed.size());
+    for (Map.Entry<String, List<Integer>> entry : processed.entrySet()) {
+      final List<Integer> sequence = entry.getValue();
+      for (int i = 1; i < sequence.size(); i++) {
+        assertTrue("Messages for " + entry.getKey() + " processed out of order: " + sequence,
+                sequence.get(i - 1) < sequence.get(i));
+      }
+    }
+  }
+
+  @Test
+  public void testConcurrentProcessingAcrossIds() throws Exception {
+    // "a" and "b" are assigned to different consumers. Both messages can only pass the barrier if they are processed
+    // at the same time.
+    final CyclicBarrier barrier = new CyclicBarrier(2);
+    final CountDownLatch done = new CountDownLatch(2);
+    final AtomicInteger passed = new AtomicInteger();
+    activate("concurrent", 2, 10, item -> {
+      try {
+        barrier.await(TIMEOUT, TimeUnit.MILLISECONDS);
+        passed.incrementAndGet();
+      } catch (Exception e) {
+        // The barrier is broken, the messages have been processed sequentially
+      }
+      done.countDown();
+    });
+    send("a", 0);
+    send("b", 1);
+    assertTrue(done.await(2 * TIMEOUT, TimeUnit.MILLISECONDS));
+    assertEquals(2, passed.get());
+  }
+
+  @Test
+  public void testBackpressure() throws Exception {
+    final CountDownLatch release = new CountDownLatch(1);
+    final CountDownLatch done = new CountDownLatch(4);
+    activate("backpressure", 1, 1, item -> {
+      try {
+        release.await(TIMEOUT, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      done.countDown();
+    });
+    for (int i = 0; i < 4; i++) {
+      send("mp", i);
+    }
+
+    // The first message is being processed, the second one is queued and the watcher is blocked with the third one
+    awaitReceiveCalls(3);
+    Thread.sleep(500);
+    assertEquals(3, receiveCalls.get());
+    assertEquals(1, inbox.size());
+
+    release.countDown();
+    assertTrue(done.await(TIMEOUT, TimeUnit.MILLISECONDS));
+    assertEquals(4, processed.get("mp").size());
+  }
+
+  @Test
+  public void testDrainOnDeactivate() throws Exception {
+    final CountDownLatch release = new CountDownLatch(1);
+    activate("drain", 1, 10, item -> {
+      try {
+        release.await(TIMEOUT, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    for (int i = 0; i < 5; i++) {
+      send("mp", i);
+    }
+    // All messages have been dispatched once the watcher waits for the sixth one
+    awaitReceiveCalls(6);
+
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      final Future<?> deactivation = executor.submit(() -> receiver.deactivate(cc));
+      Thread.sleep(200);
+      assertFalse("Deactivation should wait for queued messages", deactivation.isDone());
+      release.countDown();
+      deactivation.get(TIMEOUT, TimeUnit.MILLISECONDS);
+      receiver = null;
+    } finally {
+      executor.shutdownNow();
+    }
+    assertEquals(5, processed.get("mp").size());
+  }
+
+  private void activate(String destinationId, int consumers, int queueSize, Consumer<TestItem> handler) {
+    final Hashtable<String, Object> properties = new Hashtable<>();
+    properties.put("destinationId", "BaseMessageReceiverImplTest-" + destinationId);
+    properties.put("consumers", Integer.toString(consumers));
+    properties.put("consumer.queue.size", Integer.toString(queueSize));
+    cc = createNiceMock(ComponentContext.class);
+    expect(cc.getProperties()).andReturn(properties).anyTimes();
+    replay(cc);
+
+    receiver = new TestReceiver(item -> {
+      processed.computeIfAbsent(item.id, id -> Collections.synchronizedList(new ArrayList<>())).add(item.sequence);
+      handler.accept(item);
+    });
+    receiver.setSecurityService(securityService);
+    receiver.setMessageReceiver(new MessageReceiver() {
+      @Override
+      public FutureTask<Serializable> receiveSerializable(String destinationId, DestinationType type) {
+        receiveCalls.incrementAndGet();
+        return new FutureTask<>(inbox::take);
+      }
+
+      @Override
+      public boolean isConnected() {
+        return true;
+      }
+
+      @Override
+      public boolean reconnect() {
+        return true;
+      }
+    });
+    // The partitioning alone has to keep the order, so the resources are not locked
+    receiver.setMessageReceiverLockService(new MessageReceiverLockService() {
+      @Override
+      public <K, A> A synchronize(K resource, Fn<K, A> function) {
+        return function.apply(resource);
+      }
+    });
+    receiver.activate(cc);
+  }
+
+  private void send(String id, int sequence) {
+    inbox.add(new BaseMessage(organization, securityService.getUser(), new TestItem(id, sequence)));
+  }
+
+  private void awaitReceiveCalls(int calls) throws InterruptedException {
+    final long deadline = System.currentTimeMillis() + TIMEOUT;
+    while (receiveCalls.get() < calls && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertTrue(receiveCalls.get() >= calls);
+  }
+
+  private static final class TestItem implements MessageItem {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String id;
+    private final int sequence;
+
+    TestItem(String id, int sequence) {
+      this.id = id;
+      this.sequence = sequence;
+    }
+
+    @Override
+    public String getId() {
+      return id;
+    }
+
+  }
+
+  private static final class TestReceiver extends BaseMessageReceiverImpl<TestItem> {
+
+    private final Consumer<TestItem> handler;
+
+    TestReceiver(Consumer<TestItem> handler) {
+      super(DestinationType.Queue);
+      this.handler = handler;
+    }
+
+    @Override
+    protected void execute(TestItem item) {
+      handler.accept(item);
+    }
+
+  }
+
+}
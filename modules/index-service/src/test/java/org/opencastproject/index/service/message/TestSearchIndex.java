@@ -39,6 +39,7 @@ import org.opencastproject.security.api.JaxbUser;
 import org.opencastproject.security.api.SecurityService;
 
 import java.util.HashSet;
+import java.util.function.UnaryOperator;
 
 public class TestSearchIndex extends AbstractSearchIndex {
 
@@ -92,6 +93,13 @@ public class TestSearchIndex extends AbstractSearchIndex {
     this.eventResult = event;
   }
 
+  @Override
+  public boolean updateEvent(String mediapackageId, String organization, boolean create, UnaryOperator<Event> update)
+          throws SearchIndexException {
+    this.eventResult = update.apply(initialEvent);
+    return true;
+  }
+
   @Override
   public void addOrUpdate(Series series) throws SearchIndexException {
     this.seriesResult = series;
@@ -520,14 +520,25 @@ public class SchedulerRestService {
         if (StringUtils.isNotBlank(ifNoneMatch) && ifNoneMatch.equals(lastModified)) {
           return Response.notModified(lastModified).expires(null).build();
         }
+        // HTTP dates have a precision of seconds
+        long ifModifiedSince = request.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE);
+        Date lastModifiedDate = toLastModifiedDate(lastModified);
+        if (StringUtils.isBlank(ifNoneMatch) && ifModifiedSince >= 0 && lastModifiedDate != null
+                && lastModifiedDate.getTime() / 1000 <= ifModifiedSince / 1000) {
+          return Response.notModified(lastModified).expires(null).build();
+        }
       }
 
       String result = service.getCalendar(Opt.nul(StringUtils.trimToNull(captureAgentId)),
               Opt.nul(StringUtils.trimToNull(seriesId)), Opt.nul(endDate));
 
       ResponseBuilder response = Response.ok(result).header(HttpHeaders.CONTENT_TYPE, "text/calendar; charset=UTF-8");
-      if (StringUtils.isNotBlank(lastModified))
+      if (StringUtils.isNotBlank(lastModified)) {
         response.header(HttpHeaders.ETAG, lastModified);
+        Date lastModifiedDate = toLastModifiedDate(lastModified);
+        if (lastModifiedDate != null)
+          response.lastModified(lastModifiedDate);
+      }
       return response.build();
     } catch (Exception e) {
       logger.error("Unable to get calendar for capture agent '{}':", captureAgentId, e);
@@ -536,6 +547,20 @@ public class SchedulerRestService {
   }
 
 
+  /**
+   * Extract the modification date from a last modified hash of a capture agent's schedule.
+   *
+   * @return the modification date or null if the schedule has never been modified
+   */
+  private static Date toLastModifiedDate(String lastModified) {
+    try {
+      long millis = Long.parseLong(StringUtils.removeStart(lastModified, "mod"));
+      return millis > 0 ? new Date(millis) : null;
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
   @GET
   @Produces(MediaType.TEXT_PLAIN)
   @Path("{id}/lastmodified")
@@ -0,0 +1,109 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package org.opencastproject.scheduler.impl;
+
+import org.opencastproject.scheduler.impl.persistence.ExtendedEventDto;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * In-memory index of the events booked on a capture agent which allows to find the events overlapping an interval
+ * without querying the database.
+ * <p>
+ * The events are sorted by start date and each position records the latest end date of all events up to it. A lookup
+ * finds the last event starting before the end of the interval by binary search and walks backwards until no earlier
+ * event can reach into the interval anymore, so the cost of a lookup is logarithmic plus the number of events close to
+ * the interval.
+ */
+final class EventIntervalIndex {
+
+  private final String[] mediaPackageIds;
+  private final long[] starts;
+  private final long[] ends;
+  /** The latest end of all events up to and including the position */
+  private final long[] maxEnds;
+
+  EventIntervalIndex(List<ExtendedEventDto> events) {
+    final List<ExtendedEventDto> sorted = new ArrayList<>(events);
+    sorted.sort(Comparator.comparing(ExtendedEventDto::getStartDate));
+    final int size = sorted.size();
+    mediaPackageIds = new String[size];
+    starts = new long[size];
+    ends = new long[size];
+    maxEnds = new long[size];
+    long maxEnd = Long.MIN_VALUE;
+    for (int i = 0; i < size; i++) {
+      final ExtendedEventDto event = sorted.get(i);
+      mediaPackageIds[i] = event.getMediaPackageId();
+      starts[i] = event.getStartDate().getTime();
+      ends[i] = event.getEndDate().getTime();
+      maxEnd = Math.max(maxEnd, ends[i]);
+      maxEnds[i] = maxEnd;
+    }
+  }
+
+  /**
+   * Find the events overlapping an interval.
+   *
+   * @param start
+   *          the start date of the interval to check
+   * @param end
+   *          the end date of the interval to check
+   * @param separationMillis
+   *          number of milliseconds to prepend and append to given interval
+   * @return the mediapackage IDs of the overlapping events, ordered by start date descending
+   */
+  Set<String> findOverlapping(Date start, Date end, int separationMillis) {
+    final long extendedStart = start.getTime() - separationMillis;
+    final long extendedEnd = end.getTime() + separationMillis;
+    final Set<String> overlapping = new LinkedHashSet<>();
+    for (int i = firstStartingAtOrAfter(extendedEnd) - 1; i >= 0 && maxEnds[i] > extendedStart; i--) {
+      if (ends[i] > extendedStart) {
+        overlapping.add(mediaPackageIds[i]);
+      }
+    }
+    return overlapping;
+  }
+
+  /** Number of indexed events. */
+  int size() {
+    return starts.length;
+  }
+
+  private int firstStartingAtOrAfter(long time) {
+    int low = 0;
+    int high = starts.length;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (starts[mid] < time) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+}
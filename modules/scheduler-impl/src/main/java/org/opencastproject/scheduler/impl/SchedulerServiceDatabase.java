@@ -135,6 +135,26 @@ public interface SchedulerServiceDatabase {
    */
   List<String> getEvents(String captureAgentId, Date start, Date end, int separationMillis) throws SchedulerServiceDatabaseException;
 
+  /**
+   * Like {@link #getEvents(String, Date, Date, int)} but return the events themselves instead of their mediapackage
+   * IDs. This allows to check many intervals against the bookings of a capture agent with a single query.
+   *
+   * @param captureAgentId
+   *          the capture agent ID of the capture agent to check
+   * @param start
+   *          the start date of the interval to check
+   * @param end
+   *          the end date of the interval to check
+   * @param separationMillis
+   *          number of milliseconds to prepend and append to given interval
+   * @return The events between start (inclusive) and end (inclusive) scheduled on the given capture agent, ordered by
+   * start date ascending.
+   * @throws SchedulerServiceDatabaseException
+   *           If the database cannot be queried.
+   */
+  List<ExtendedEventDto> getOverlappingEvents(String captureAgentId, Date start, Date end, int separationMillis)
+          throws SchedulerServiceDatabaseException;
+
   /**
    * Retrieve all events matching given filter ordered by start time ascending.
    *
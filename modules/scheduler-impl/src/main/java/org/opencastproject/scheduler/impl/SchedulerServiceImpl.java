@@ -137,6 +137,7 @@ import java.util.Date;
 import java.util.Dictionary;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -166,6 +167,9 @@ public class SchedulerServiceImpl extends AbstractIndexProducer implements Sched
   /** The default cache expire time in seconds */
   private static final int DEFAULT_CACHE_EXPIRE = 60;
 
+  /** The maximum number of capture agent calendars to cache */
+  private static final int CALENDAR_CACHE_SIZE = 1000;
+
   /** The Etag for an empty calendar */
   private static final String EMPTY_CALENDAR_ETAG = "mod0";
 
@@ -193,6 +197,10 @@ public class SchedulerServiceImpl extends AbstractIndexProducer implements Sched
   protected Cache<String, String> lastModifiedCache = CacheBuilder.newBuilder()
           .expireAfterWrite(DEFAULT_CACHE_EXPIRE, TimeUnit.SECONDS).build();
 
+  /** The rendered calendars of capture agents, keyed by organization and capture agent */
+  protected Cache<String, CachedCalendar> calendarCache = CacheBuilder.newBuilder()
+          .maximumSize(CALENDAR_CACHE_SIZE).expireAfterWrite(DEFAULT_CACHE_EXPIRE, TimeUnit.SECONDS).build();
+
   /** The message broker sender service */
   private MessageSender messageSender;
 
@@ -351,6 +359,8 @@ public class SchedulerServiceImpl extends AbstractIndexProducer implements Sched
       if (cacheExpireDuration.isSome()) {
         lastModifiedCache = CacheBuilder.newBuilder().expireAfterWrite(cacheExpireDuration.get(), TimeUnit.SECONDS)
                 .build();
+        calendarCache = CacheBuilder.newBuilder().maximumSize(CALENDAR_CACHE_SIZE)
+                .expireAfterWrite(cacheExpireDuration.get(), TimeUnit.SECONDS).build();
         logger.info("Set last modified cache to {}", getHumanReadableTimeString(cacheExpireDuration.get()));
       } else {
         logger.info("Set last modified cache to default {}", getHumanReadableTimeString(DEFAULT_CACHE_EXPIRE));
@@ -1074,17 +1084,65 @@ public class SchedulerServiceImpl extends AbstractIndexProducer implements Sched
     try {
       TimeZoneRegistry registry = TimeZoneRegistryFactory.getInstance().createRegistry();
 
-      Set<MediaPackage> events = new HashSet<>();
-
+      Date rangeStart = null;
+      Date rangeEnd = null;
       for (Period event : periods) {
         event.setTimeZone(registry.getTimeZone(tz.getID()));
-        final Date startDate = event.getStart();
-        final Date endDate = event.getEnd();
+        if (rangeStart == null || event.getStart().before(rangeStart)) {
+          rangeStart = event.getStart();
+        }
+        if (rangeEnd == null || event.getEnd().after(rangeEnd)) {
+          rangeEnd = event.getEnd();
+        }
+      }
+
+      // Load the bookings of the capture agent for the whole range at once and check all periods against them in
+      // memory instead of querying the database for each period
+      final Organization organization = securityService.getOrganization();
+      final User user = SecurityUtil.createSystemUser(systemUserName, organization);
+      final Date start = rangeStart;
+      final Date end = rangeEnd;
+      final List<ExtendedEventDto> bookings = new ArrayList<>();
+      SecurityUtil.runAs(securityService, organization, user, () -> {
+        try {
+          bookings.addAll(persistence.getOverlappingEvents(captureAgentId, start, end,
+                  Util.EVENT_MINIMUM_SEPARATION_MILLISECONDS));
+        } catch (SchedulerServiceDatabaseException e) {
+          logger.error("Failed to get conflicting events", e);
+        }
+      });
+      final EventIntervalIndex index = new EventIntervalIndex(bookings);
 
-        events.addAll(findConflictingEvents(captureAgentId, startDate, endDate));
+      final Set<String> conflicts = new LinkedHashSet<>();
+      for (Period event : periods) {
+        conflicts.addAll(index.findOverlapping(event.getStart(), event.getEnd(),
+                Util.EVENT_MINIMUM_SEPARATION_MILLISECONDS));
       }
+      logger.debug("Checked {} periods against {} bookings of capture agent {}, found {} conflicts",
+              periods.size(), index.size(), captureAgentId, conflicts.size());
 
-      return new ArrayList<>(events);
+      if (conflicts.isEmpty()) {
+        return Collections.emptyList();
+      }
+      final List<MediaPackage> events = new ArrayList<>(conflicts.size());
+      SecurityUtil.runAs(securityService, organization, user, () -> {
+        final AQueryBuilder query = assetManager.createQuery();
+        final AResult result = query.select(query.snapshot())
+                .where(withOrganization(query).and(query.mediaPackageIds(conflicts.toArray(new String[0])))
+                        .and(withOwner(query)).and(query.version().isLatest()))
+                .run();
+        events.addAll(result.getRecords().bind(recordToMp).toList());
+      });
+      if (events.size() != conflicts.size()) {
+        // Do not hide conflicts with events whose media package cannot be loaded
+        final Set<String> missing = new LinkedHashSet<>(conflicts);
+        for (MediaPackage mp : events) {
+          missing.remove(mp.getIdentifier().toString());
+        }
+        throw new RuntimeNotFoundException(new NotFoundException(
+                "Media packages of conflicting events " + missing + " not found"));
+      }
+      return events;
     } catch (Exception e) {
       throw new SchedulerException(e);
     }
@@ -1093,7 +1151,28 @@ public class SchedulerServiceImpl extends AbstractIndexProducer implements Sched
   @Override
   public String getCalendar(Opt<String> captureAgentId, Opt<String> seriesId, Opt<Date> cutoff)
           throws SchedulerException {
+    // Only the unfiltered calendar of a capture agent is polled regularly, so only that one is cached
+    if (captureAgentId.isNone() || seriesId.isSome() || cutoff.isSome()) {
+      return renderCalendar(captureAgentId, seriesId, cutoff, null).calendar;
+    }
+    final String key = calendarCacheKey(captureAgentId.get());
+    final String lastModified = getScheduleLastModified(captureAgentId.get());
+    final CachedCalendar cached = calendarCache.getIfPresent(key);
+    if (cached != null && cached.isValid(lastModified, System.currentTimeMillis())) {
+      logger.trace("Serving cached calendar of capture agent {}", captureAgentId.get());
+      return cached.calendar;
+    }
+    final CachedCalendar calendar = renderCalendar(captureAgentId, seriesId, cutoff, lastModified);
+    calendarCache.put(key, calendar);
+    return calendar.calendar;
+  }
 
+  /**
+   * Render a calendar. Events are only part of the calendar until an hour after they ended, so the calendar is valid
+   * until the first of its events drops out or its capture agent's schedule is modified.
+   */
+  private CachedCalendar renderCalendar(Opt<String> captureAgentId, Opt<String> seriesId, Opt<Date> cutoff,
+          String scheduleLastModified) throws SchedulerException {
     try {
       final Map<String, ExtendedEventDto> searchResult = persistence.search(captureAgentId, Opt.none(), cutoff,
           Opt.some(DateTime.now().minusHours(1).toDate()), Opt.none(), Opt.none()).stream()
@@ -1150,7 +1229,11 @@ public class SchedulerServiceImpl extends AbstractIndexProducer implements Sched
         cal.getCalendar().validate();
       }
 
-      return cal.getCalendar().toString();
+      long validUntil = Long.MAX_VALUE;
+      for (ExtendedEventDto event : searchResult.values()) {
+        validUntil = Math.min(validUntil, event.getEndDate().getTime() + TimeUnit.HOURS.toMillis(1));
+      }
+      return new CachedCalendar(cal.getCalendar().toString(), scheduleLastModified, validUntil);
 
     } catch (Exception e) {
       throw new SchedulerException(e);
@@ -1402,6 +1485,7 @@ public class SchedulerServiceImpl extends AbstractIndexProducer implements Sched
     try {
       logger.debug("Marking calendar feed for {} as modified", captureAgentId);
       persistence.touchLastEntry(captureAgentId);
+      calendarCache.invalidate(calendarCacheKey(captureAgentId));
       populateLastModifiedCache();
     } catch (SchedulerServiceDatabaseException e) {
       logger.error("Failed to update last modified entry of agent '{}':", captureAgentId, e);
@@ -1420,6 +1504,27 @@ public class SchedulerServiceImpl extends AbstractIndexProducer implements Sched
     }
   }
 
+  private String calendarCacheKey(String captureAgentId) {
+    return securityService.getOrganization().getId() + "/" + captureAgentId;
+  }
+
+  /** A rendered calendar together with the last modified hash of the schedule it was rendered from. */
+  static final class CachedCalendar {
+    private final String calendar;
+    private final String lastModified;
+    private final long validUntil;
+
+    CachedCalendar(String calendar, String lastModified, long validUntil) {
+      this.calendar = calendar;
+      this.lastModified = lastModified;
+      this.validUntil = validUntil;
+    }
+
+    boolean isValid(String currentLastModified, long now) {
+      return lastModified != null && lastModified.equals(currentLastModified) && now < validUntil;
+    }
+  }
+
   private String generateLastModifiedHash(Date lastModifiedDate) {
     return "mod" + Long.toString(lastModifiedDate.getTime());
   }
@@ -242,6 +242,27 @@ public class SchedulerServiceDatabaseImpl implements SchedulerServiceDatabase {
     }
   }
 
+  @Override
+  public List<ExtendedEventDto> getOverlappingEvents(String captureAgentId, Date start, Date end, int separationMillis)
+          throws SchedulerServiceDatabaseException {
+    final Date extendedStart = Date.from(start.toInstant().minusMillis(separationMillis));
+    final Date extendedEnd = Date.from(end.toInstant().plusMillis(separationMillis));
+    final EntityManager em = emf.createEntityManager();
+    final TypedQuery<ExtendedEventDto> query = em
+        .createNamedQuery("ExtendedEvent.findOverlappingEvents", ExtendedEventDto.class)
+        .setParameter("org", securityService.getOrganization().getId())
+        .setParameter("ca", captureAgentId)
+        .setParameter("start", extendedStart)
+        .setParameter("end", extendedEnd);
+    try {
+      return query.getResultList();
+    } catch (Exception e) {
+      throw new SchedulerServiceDatabaseException(e);
+    } finally {
+      em.close();
+    }
+  }
+
   @Override
   @SuppressWarnings("unchecked")
   public List<ExtendedEventDto> search(
@@ -0,0 +1,144 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package org.opencastproject.scheduler.impl;
+
+import org.opencastproject.scheduler.impl.persistence.ExtendedEventDto;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+public class EventIntervalIndexTest {
+  private static final Logger logger = LoggerFactory.getLogger(EventIntervalIndexTest.class);
+
+  private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+  private static final long DAY = TimeUnit.DAYS.toMillis(1);
+  private static final int SEPARATION = 60 * 1000;
+
+  @Test
+  public void testFindOverlapping() {
+    final List<ExtendedEventDto> events = new ArrayList<>();
+    events.add(mkEvent("a", 0, 2 * HOUR));
+    events.add(mkEvent("b", 3 * HOUR, 4 * HOUR));
+    events.add(mkEvent("long", HOUR, 10 * HOUR));
+    events.add(mkEvent("c", 5 * HOUR, 6 * HOUR));
+    final EventIntervalIndex index = new EventIntervalIndex(events);
+
+    Assert.assertEquals(set("a", "long"), index.findOverlapping(new Date(HOUR), new Date(2 * HOUR), SEPARATION));
+    // separation is added on both sides of the interval
+    Assert.assertEquals(set("long", "b"),
+            index.findOverlapping(new Date(2 * HOUR + SEPARATION), new Date(3 * HOUR - SEPARATION + 1), SEPARATION));
+    Assert.assertEquals(set("long"),
+            index.findOverlapping(new Date(2 * HOUR + SEPARATION), new Date(3 * HOUR - SEPARATION), SEPARATION));
+    Assert.assertEquals(set(), index.findOverlapping(new Date(11 * HOUR), new Date(12 * HOUR), SEPARATION));
+    Assert.assertEquals(set(), new EventIntervalIndex(new ArrayList<>()).findOverlapping(new Date(0), new Date(HOUR),
+            SEPARATION));
+  }
+
+  @Test
+  public void testMatchesLinearScan() {
+    final Random random = new Random(42);
+    final List<ExtendedEventDto> events = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      final long start = random.nextInt(365) * DAY + random.nextInt(24) * HOUR;
+      events.add(mkEvent("e" + i, start, start + (1 + random.nextInt(6)) * HOUR));
+    }
+    final EventIntervalIndex index = new EventIntervalIndex(events);
+    for (int i = 0; i < 1000; i++) {
+      final long start = random.nextInt(365) * DAY + random.nextInt(24) * HOUR;
+      final Date from = new Date(start);
+      final Date to = new Date(start + (1 + random.nextInt(3)) * HOUR);
+      Assert.assertEquals(linearScan(events, from, to), index.findOverlapping(from, to, SEPARATION));
+    }
+  }
+
+  /**
+   * Check a semester of daily recordings against a fully booked capture agent.
+   */
+  @Test
+  public void testBenchmarkSeries() {
+    final int occurrences = 500;
+    final List<ExtendedEventDto> bookings = new ArrayList<>();
+    for (int i = 0; i < occurrences; i++) {
+      bookings.add(mkEvent("booking" + i, i * DAY + 8 * HOUR, i * DAY + 10 * HOUR));
+    }
+    final List<Date[]> periods = new ArrayList<>();
+    for (int i = 0; i < occurrences; i++) {
+      periods.add(new Date[] { new Date(i * DAY + 9 * HOUR), new Date(i * DAY + 11 * HOUR) });
+    }
+
+    final long indexStart = System.nanoTime();
+    final EventIntervalIndex index = new EventIntervalIndex(bookings);
+    final Set<String> indexed = new HashSet<>();
+    for (Date[] period : periods) {
+      indexed.addAll(index.findOverlapping(period[0], period[1], SEPARATION));
+    }
+    final long indexNanos = System.nanoTime() - indexStart;
+
+    final long scanStart = System.nanoTime();
+    final Set<String> scanned = new HashSet<>();
+    for (Date[] period : periods) {
+      scanned.addAll(linearScan(bookings, period[0], period[1]));
+    }
+    final long scanNanos = System.nanoTime() - scanStart;
+
+    logger.info("Checked {} periods against {} bookings: index {} µs, linear scan {} µs", occurrences, occurrences,
+            TimeUnit.NANOSECONDS.toMicros(indexNanos), TimeUnit.NANOSECONDS.toMicros(scanNanos));
+    Assert.assertEquals(occurrences, indexed.size());
+    Assert.assertEquals(scanned, indexed);
+  }
+
+  private static Set<String> linearScan(List<ExtendedEventDto> events, Date start, Date end) {
+    final Set<String> overlapping = new HashSet<>();
+    for (ExtendedEventDto event : events) {
+      if (event.getStartDate().getTime() < end.getTime() + SEPARATION
+              && event.getEndDate().getTime() > start.getTime() - SEPARATION) {
+        overlapping.add(event.getMediaPackageId());
+      }
+    }
+    return overlapping;
+  }
+
+  private static ExtendedEventDto mkEvent(String mpId, long start, long end) {
+    final ExtendedEventDto event = new ExtendedEventDto();
+    event.setMediaPackageId(mpId);
+    event.setStartDate(new Date(start));
+    event.setEndDate(new Date(end));
+    return event;
+  }
+
+  private static Set<String> set(String... mpIds) {
+    final Set<String> set = new HashSet<>();
+    for (String mpId : mpIds) {
+      set.add(mpId);
+    }
+    return set;
+  }
+}
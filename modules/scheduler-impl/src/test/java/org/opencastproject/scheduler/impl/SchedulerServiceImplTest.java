@@ -637,6 +637,42 @@ public class SchedulerServiceImplTest {
     Assert.assertNotNull(response.getEntity());
   }
 
+  @Test
+  public void testCalendarCache() throws Exception {
+    final String device = "Cached Device";
+    final MediaPackage mediaPackage = generateEvent(Opt.<String> none());
+    final DublinCoreCatalog dublinCore = generateEvent(device, new Date(),
+            new Date(System.currentTimeMillis() + 60000));
+    addDublinCore(Opt.<String> none(), mediaPackage, dublinCore);
+    schedSvc.addEvent(new Date(), new Date(System.currentTimeMillis() + 60000), device, Collections.<String> emptySet(),
+            mediaPackage, Collections.<String, String> emptyMap(), Collections.<String, String> emptyMap(),
+            Opt.<String> none());
+    schedSvc.calendarCache.invalidateAll();
+
+    final String calendar = schedSvc.getCalendar(Opt.some(device), Opt.<String> none(), Opt.<Date> none());
+    assertEquals("The calendar of the capture agent should be cached", 1, schedSvc.calendarCache.size());
+    assertEquals(calendar, schedSvc.getCalendar(Opt.some(device), Opt.<String> none(), Opt.<Date> none()));
+    schedSvc.getCalendar(Opt.some(device), Opt.some("series"), Opt.<Date> none());
+    assertEquals("Filtered calendars should not be cached", 1, schedSvc.calendarCache.size());
+
+    // Modifying the schedule of the capture agent invalidates its calendar
+    schedSvc.updateEvent(mediaPackage.getIdentifier().toString(), Opt.<Date> none(), Opt.<Date> none(),
+            Opt.<String> none(), Opt.<Set<String>> none(), Opt.<MediaPackage> none(), Opt.some(wfPropertiesUpdated),
+            Opt.<Map<String, String>> none());
+    assertEquals(0, schedSvc.calendarCache.size());
+    schedSvc.getCalendar(Opt.some(device), Opt.<String> none(), Opt.<Date> none());
+    assertEquals(1, schedSvc.calendarCache.size());
+  }
+
+  @Test
+  public void testCachedCalendarValidity() {
+    final SchedulerServiceImpl.CachedCalendar calendar = new SchedulerServiceImpl.CachedCalendar("ical", "mod1", 100);
+    assertTrue(calendar.isValid("mod1", 99));
+    assertFalse("The schedule has been modified", calendar.isValid("mod2", 99));
+    assertFalse("An event has dropped out of the calendar", calendar.isValid("mod1", 100));
+    assertFalse(new SchedulerServiceImpl.CachedCalendar("ical", null, 100).isValid(null, 0));
+  }
+
   @Test
   public void testCalendarCutoff() throws Exception {
     long currentTime = System.currentTimeMillis();
@@ -34,12 +34,16 @@ import org.opencastproject.metadata.mpeg7.Mpeg7CatalogService;
 import org.opencastproject.search.api.SearchException;
 import org.opencastproject.search.api.SearchQuery;
 import org.opencastproject.search.api.SearchResult;
+import org.opencastproject.search.api.SearchResultItem;
 import org.opencastproject.search.api.SearchService;
+import org.opencastproject.search.impl.persistence.SearchEntity;
 import org.opencastproject.search.impl.persistence.SearchServiceDatabase;
 import org.opencastproject.search.impl.persistence.SearchServiceDatabaseException;
 import org.opencastproject.search.impl.solr.SolrIndexManager;
+import org.opencastproject.search.impl.solr.SolrQueryCache;
 import org.opencastproject.search.impl.solr.SolrRequester;
 import org.opencastproject.security.api.AccessControlList;
+import org.opencastproject.security.api.AccessControlParser;
 import org.opencastproject.security.api.AuthorizationService;
 import org.opencastproject.security.api.Organization;
 import org.opencastproject.security.api.OrganizationDirectoryService;
@@ -56,6 +60,7 @@ import org.opencastproject.solr.SolrServerFactory;
 import org.opencastproject.util.LoadUtil;
 import org.opencastproject.util.NotFoundException;
 import org.opencastproject.util.data.Tuple;
+import org.opencastproject.util.jmx.JmxUtil;
 import org.opencastproject.workspace.api.Workspace;
 
 import com.google.common.cache.CacheBuilder;
@@ -66,6 +71,7 @@ import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.apache.solr.client.solrj.SolrServer;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.osgi.framework.ServiceException;
@@ -86,12 +92,22 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.Dictionary;
-import java.util.Iterator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import javax.management.ObjectInstance;
+
 /**
  * A Solr-based {@link SearchService} implementation.
  */
@@ -122,12 +138,21 @@ public final class SearchServiceImpl extends AbstractJobProducer implements Sear
   /** The key to look for in the service configuration file to override the {@link DEFAULT_DELETE_JOB_LOAD} */
   public static final String DELETE_JOB_LOAD_KEY = "job.load.delete";
 
+  /** The key to look for in the service configuration file to override the {@link SolrQueryCache#DEFAULT_MAX_ITEMS} */
+  public static final String QUERY_CACHE_SIZE_KEY = "query.cache.size";
+
+  /** The key to look for in the service configuration file to override the {@link SolrQueryCache#DEFAULT_TTL} */
+  public static final String QUERY_CACHE_TTL_KEY = "query.cache.ttl";
+
   /** The load introduced on the system by creating an add job */
   private float addJobLoad = DEFAULT_ADD_JOB_LOAD;
 
   /** The load introduced on the system by creating a delete job */
   private float deleteJobLoad = DEFAULT_DELETE_JOB_LOAD;
 
+  /** Number of search entries loaded from the database at once while populating the index */
+  private static final int POPULATE_INDEX_PAGE_SIZE = 500;
+
   /** counter how often the index has already been tried to populate */
   private int retriesToPopulateIndex = 0;
 
@@ -143,6 +168,12 @@ public final class SearchServiceImpl extends AbstractJobProducer implements Sear
 
   private SolrIndexManager indexManager;
 
+  /** Cache for search queries checked for read access */
+  private final SolrQueryCache queryCache = new SolrQueryCache();
+
+  /** The JMX registration of the query cache */
+  private ObjectInstance registeredMXBean;
+
   private List<StaticMetadataService> mdServices = new ArrayList<StaticMetadataService>();
 
   private Mpeg7CatalogService mpeg7CatalogService;
@@ -253,6 +284,8 @@ public final class SearchServiceImpl extends AbstractJobProducer implements Sear
     // CHECKSTYLE:ON
 
     solrRequester = new SolrRequester(solrServer, securityService, serializer);
+    solrRequester.setQueryCache(queryCache);
+    registeredMXBean = JmxUtil.registerMXBean(queryCache, "SearchQueryCache");
     indexManager = new SolrIndexManager(solrServer, workspace, mdServices, seriesService, mpeg7CatalogService,
             securityService);
 
@@ -264,6 +297,9 @@ public final class SearchServiceImpl extends AbstractJobProducer implements Sear
    * Service deactivator, called via declarative services configuration.
    */
   public void deactivate() {
+    if (registeredMXBean != null) {
+      JmxUtil.unregisterMXBean(registeredMXBean);
+    }
     SolrServerFactory.shutdown(solrServer);
   }
 
@@ -395,7 +431,14 @@ public final class SearchServiceImpl extends AbstractJobProducer implements Sear
 
     Date now = new Date();
 
+    String previousSeriesId = null;
     try {
+      // Cached queries for the series the media package was published in before are affected as well
+      SearchResultItem[] previous = solrRequester.getForAdministrativeRead(new SearchQuery().withId(mediaPackageId))
+          .getItems();
+      if (previous.length > 0) {
+        previousSeriesId = previous[0].getDcIsPartOf();
+      }
       if (indexManager.add(mediaPackage, acl, seriesAcl, now)) {
         logger.info("Added media package `{}` to the search index, using ACL `{}`", mediaPackageId, acl);
       } else {
@@ -403,6 +446,8 @@ public final class SearchServiceImpl extends AbstractJobProducer implements Sear
       }
     } catch (SolrServerException e) {
       throw new SearchException(e);
+    } finally {
+      queryCache.invalidate(mediaPackageId, mediaPackage.getSeries(), previousSeriesId);
     }
 
     try {
@@ -438,6 +483,7 @@ public final class SearchServiceImpl extends AbstractJobProducer implements Sear
    */
   public boolean deleteSynchronously(final String mediaPackageId) throws SearchException {
     SearchResult result;
+    String seriesId = null;
     try {
       result = solrRequester.getForWrite(new SearchQuery().withId(mediaPackageId));
       if (result.getItems().length == 0) {
@@ -445,7 +491,7 @@ public final class SearchServiceImpl extends AbstractJobProducer implements Sear
                     + "search index.", mediaPackageId);
         return false;
       }
-      final String seriesId = result.getItems()[0].getDcIsPartOf();
+      seriesId = result.getItems()[0].getDcIsPartOf();
       logger.info("Removing media package {} from search index", mediaPackageId);
 
       Date now = new Date();
@@ -481,6 +527,8 @@ public final class SearchServiceImpl extends AbstractJobProducer implements Sear
     } catch (SolrServerException | SearchServiceDatabaseException e) {
       logger.info("Could not delete media package with id {} from search index", mediaPackageId);
       throw new SearchException(e);
+    } finally {
+      queryCache.invalidate(mediaPackageId, seriesId);
     }
   }
 
@@ -496,6 +544,8 @@ public final class SearchServiceImpl extends AbstractJobProducer implements Sear
       indexManager.clear();
     } catch (SolrServerException e) {
       throw new SearchException(e);
+    } finally {
+      queryCache.invalidateAll();
     }
   }
 
@@ -538,56 +588,97 @@ public final class SearchServiceImpl extends AbstractJobProducer implements Sear
 
     if (instancesInSolr == 0L) {
       logger.info("No search index found");
-      Iterator<Tuple<MediaPackage, String>> mediaPackages;
       int total = 0;
       try {
         total = persistence.countMediaPackages();
-        logger.info("Starting population of search index from {} items in database", total);
-        mediaPackages = persistence.getAllMediaPackages();
       } catch (SearchServiceDatabaseException e) {
         logger.error("Unable to load the search entries: {}", e.getMessage());
         throw new ServiceException(e.getMessage());
       }
+      logger.info("Starting population of search index from {} items in database", total);
+
       int errors = 0;
       int current = 0;
-      while (mediaPackages.hasNext()) {
-        current++;
-        try {
-          final Tuple<MediaPackage, String> episode = mediaPackages.next();
-          final MediaPackage mediaPackage = episode.getA();
-          final String mediaPackageId = mediaPackage.getIdentifier().toString();
-          final Organization organization = organizationDirectory.getOrganization(episode.getB());
-
-          securityService.setOrganization(organization);
-          securityService.setUser(SecurityUtil.createSystemUser(systemUserName, organization));
-
-          AccessControlList acl = persistence.getAccessControlList(mediaPackageId);
-          Date modificationDate = persistence.getModificationDate(mediaPackageId);
-          Date deletionDate = persistence.getDeletionDate(mediaPackageId);
-
-
-          AccessControlList seriesAcl = persistence.getAccessControlLists(mediaPackage.getSeries(), mediaPackageId)
-              .stream()
-              .reduce(new AccessControlList(acl.getEntries()), AccessControlList::mergeActions);
-          logger.debug("Updating series with merged access control list: {}", seriesAcl);
-
-          indexManager.add(episode.getA(), acl, seriesAcl, deletionDate, modificationDate);
-        } catch (Exception e) {
-          logger.error("Unable to index search instances", e);
-          if (retryToPopulateIndex(systemUserName)) {
-            logger.warn("Trying to re-index search index later. Aborting for now.");
+      final SolrIndexManager.Batch batch = indexManager.newBatch();
+      final Map<String, AccessControlList> seriesAcls = new HashMap<>();
+      final ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+      try {
+        String lastMediaPackageId = "";
+        List<SearchEntity> page;
+        do {
+          try {
+            page = persistence.getSearchEntities(lastMediaPackageId, POPULATE_INDEX_PAGE_SIZE);
+            final Set<String> seriesIds = new HashSet<>();
+            for (SearchEntity entity : page) {
+              if (entity.getSeriesId() != null && !seriesAcls.containsKey(entity.getSeriesId())) {
+                seriesIds.add(entity.getSeriesId());
+              }
+            }
+            final Map<String, AccessControlList> loaded = persistence.getSeriesAccessControlLists(seriesIds);
+            for (String seriesId : seriesIds) {
+              seriesAcls.put(seriesId, loaded.get(seriesId));
+            }
+          } catch (SearchServiceDatabaseException e) {
+            logger.error("Unable to load the search entries: {}", e.getMessage());
+            throw new ServiceException(e.getMessage());
+          }
+
+          // Parsing and document creation are CPU bound, so spread them over all cores
+          final List<Future<?>> results = new ArrayList<>(page.size());
+          for (final SearchEntity entity : page) {
+            final AccessControlList seriesAcl = seriesAcls.get(entity.getSeriesId());
+            results.add(executor.submit(() -> {
+              indexSearchEntity(entity, seriesAcl, batch, systemUserName);
+              return null;
+            }));
+          }
+          for (Future<?> result : results) {
+            current++;
+            try {
+              result.get();
+            } catch (ExecutionException e) {
+              logger.error("Unable to index search instances", e.getCause());
+              if (retryToPopulateIndex(systemUserName)) {
+                logger.warn("Trying to re-index search index later. Aborting for now.");
+                return;
+              }
+              errors++;
+            } catch (InterruptedException e) {
+              logger.warn("Population of the search index was interrupted");
+              Thread.currentThread().interrupt();
+              return;
+            }
+          }
+
+          // Only this thread posts the documents, so a failure is noticed for all documents of the batch
+          try {
+            batch.post();
+          } catch (SolrServerException e) {
+            logger.error("Unable to index search instances", e);
+            if (retryToPopulateIndex(systemUserName)) {
+              logger.warn("Trying to re-index search index later. Aborting for now.");
+            }
             return;
           }
-          errors++;
-        } finally {
-          securityService.setOrganization(null);
-          securityService.setUser(null);
-        }
 
-        // log progress
-        if (current % 100 == 0) {
-          logger.info("Indexing search {}/{} ({} percent done)", current, total, current * 100 / total);
+          if (!page.isEmpty()) {
+            lastMediaPackageId = page.get(page.size() - 1).getMediaPackageId();
+            logger.info("Indexing search {}/{} ({} percent done)", current, total, current * 100 / Math.max(total, 1));
+          }
+        } while (page.size() == POPULATE_INDEX_PAGE_SIZE);
+      } finally {
+        executor.shutdownNow();
+      }
+      try {
+        batch.flush();
+      } catch (SolrServerException e) {
+        logger.error("Unable to index search instances", e);
+        if (retryToPopulateIndex(systemUserName)) {
+          logger.warn("Trying to re-index search index later. Aborting for now.");
         }
+        return;
+      } finally {
+        queryCache.invalidateAll();
       }
       if (errors > 0) {
         logger.error("Skipped {} erroneous search entries while populating the search index", errors);
@@ -596,6 +687,39 @@ public final class SearchServiceImpl extends AbstractJobProducer implements Sear
     }
   }
 
+  /**
+   * Adds a search entry to the batch in the security context of its organization.
+   *
+   * @param entity
+   *          the search entry
+   * @param seriesAcl
+   *          the merged access control list of the episodes in the entry's series or <code>null</code>
+   * @param batch
+   *          the batch to add the entry to
+   * @param systemUserName
+   *          the name of the system user
+   */
+  private void indexSearchEntity(SearchEntity entity, AccessControlList seriesAcl, SolrIndexManager.Batch batch,
+          String systemUserName) throws Exception {
+    final Organization organization = organizationDirectory.getOrganization(entity.getOrganization().getId());
+    securityService.setOrganization(organization);
+    securityService.setUser(SecurityUtil.createSystemUser(systemUserName, organization));
+    try {
+      final MediaPackage mediaPackage = MediaPackageParser.getFromXml(entity.getMediaPackageXML());
+      final AccessControlList acl = AccessControlParser.parseAcl(entity.getAccessControl());
+      final AccessControlList mergedAcl = new AccessControlList(acl.getEntries());
+      if (seriesAcl != null) {
+        mergedAcl.mergeActions(seriesAcl);
+      }
+      logger.debug("Updating series with merged access control list: {}", mergedAcl);
+
+      batch.add(mediaPackage, acl, mergedAcl, entity.getDeletionDate(), entity.getModificationDate());
+    } finally {
+      securityService.setOrganization(null);
+      securityService.setUser(null);
+    }
+  }
+
   private boolean retryToPopulateIndex(final String systemUserName) {
     if (retriesToPopulateIndex > 0) {
       return false;
@@ -659,10 +783,16 @@ public final class SearchServiceImpl extends AbstractJobProducer implements Sear
     }
   }
 
+  /** For testing purposes only! */
+  SolrQueryCache getQueryCache() {
+    return queryCache;
+  }
+
   /** For testing purposes only! */
   void testSetup(SolrServer server, SolrRequester requester, SolrIndexManager manager) {
     this.solrServer = server;
     this.solrRequester = requester;
+    this.solrRequester.setQueryCache(queryCache);
     this.indexManager = manager;
   }
 
@@ -785,6 +915,12 @@ public final class SearchServiceImpl extends AbstractJobProducer implements Sear
     addJobLoad = LoadUtil.getConfiguredLoadValue(properties, ADD_JOB_LOAD_KEY, DEFAULT_ADD_JOB_LOAD, serviceRegistry);
     deleteJobLoad = LoadUtil.getConfiguredLoadValue(
         properties, DELETE_JOB_LOAD_KEY, DEFAULT_DELETE_JOB_LOAD, serviceRegistry);
+    final long queryCacheSize = Math.max(0, NumberUtils.toLong(
+        Objects.toString(properties.get(QUERY_CACHE_SIZE_KEY), null), SolrQueryCache.DEFAULT_MAX_ITEMS));
+    final long queryCacheTtl = Math.max(0, NumberUtils.toLong(
+        Objects.toString(properties.get(QUERY_CACHE_TTL_KEY), null), SolrQueryCache.DEFAULT_TTL));
+    queryCache.configure(queryCacheSize, queryCacheTtl);
+    logger.info("Caching search results of up to {} items for {} seconds", queryCacheSize, queryCacheTtl);
   }
 
   @Override
@@ -60,7 +60,16 @@ import javax.persistence.TemporalType;
         name = "Search.findBySeriesId",
         query = "SELECT s FROM SearchEntity s WHERE s.seriesId=:seriesId and s.deletionDate is null"
     ),
-    @NamedQuery(name = "Search.getNoSeries", query = "SELECT s FROM SearchEntity s WHERE s.seriesId IS NULL")
+    @NamedQuery(name = "Search.getNoSeries", query = "SELECT s FROM SearchEntity s WHERE s.seriesId IS NULL"),
+    @NamedQuery(
+        name = "Search.findAfterId",
+        query = "SELECT s FROM SearchEntity s WHERE s.mediaPackageId > :mediaPackageId ORDER BY s.mediaPackageId"
+    ),
+    @NamedQuery(
+        name = "Search.findAccessControlBySeriesIds",
+        query = "SELECT s.seriesId, s.accessControl FROM SearchEntity s WHERE s.seriesId IN :seriesIds "
+            + "AND s.deletionDate IS NULL AND s.accessControl IS NOT NULL"
+    )
 })
 public class SearchEntity {
 
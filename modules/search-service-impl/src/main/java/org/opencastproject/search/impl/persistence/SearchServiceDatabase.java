@@ -30,6 +30,8 @@ import org.opencastproject.util.data.Tuple;
 import java.util.Collection;
 import java.util.Date;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
 /**
  * API that defines persistent storage of series.
@@ -46,6 +48,34 @@ public interface SearchServiceDatabase {
    */
   Iterator<Tuple<MediaPackage, String>> getAllMediaPackages() throws SearchServiceDatabaseException;
 
+  /**
+   * Returns a page of search entries ordered by media package identifier. Use the identifier of the last entry of a
+   * page to fetch the next one.
+   *
+   * @param afterMediaPackageId
+   *          only return entries with a greater media package identifier, use an empty string to start with the first
+   *          entry
+   * @param limit
+   *          the maximum number of entries to return
+   * @return the search entries
+   * @throws SearchServiceDatabaseException
+   *           if an error occurs
+   */
+  List<SearchEntity> getSearchEntities(String afterMediaPackageId, int limit) throws SearchServiceDatabaseException;
+
+  /**
+   * Returns the access control lists of the non deleted episodes of the given series, merged into one access control
+   * list per series.
+   *
+   * @param seriesIds
+   *          the series identifiers
+   * @return the merged access control lists by series identifier, series without any access control list are missing
+   * @throws SearchServiceDatabaseException
+   *           if an error occurs
+   */
+  Map<String, AccessControlList> getSeriesAccessControlLists(Collection<String> seriesIds)
+          throws SearchServiceDatabaseException;
+
   /**
    * Returns the organization id of the selected media package
    *
@@ -49,9 +49,11 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
@@ -237,6 +239,61 @@ public class SearchServiceDatabaseImpl implements SearchServiceDatabase {
     return mediaPackageList.iterator();
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * @see org.opencastproject.search.impl.persistence.SearchServiceDatabase#getSearchEntities(String, int)
+   */
+  @Override
+  public List<SearchEntity> getSearchEntities(String afterMediaPackageId, int limit)
+          throws SearchServiceDatabaseException {
+    EntityManager em = emf.createEntityManager();
+    try {
+      return em.createNamedQuery("Search.findAfterId", SearchEntity.class)
+          .setParameter("mediaPackageId", afterMediaPackageId)
+          .setMaxResults(limit)
+          .getResultList();
+    } catch (Exception e) {
+      logger.error("Could not retrieve episodes after {}", afterMediaPackageId, e);
+      throw new SearchServiceDatabaseException(e);
+    } finally {
+      em.close();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @see org.opencastproject.search.impl.persistence.SearchServiceDatabase#getSeriesAccessControlLists(Collection)
+   */
+  @Override
+  public Map<String, AccessControlList> getSeriesAccessControlLists(Collection<String> seriesIds)
+          throws SearchServiceDatabaseException {
+    Map<String, AccessControlList> accessControlLists = new HashMap<>();
+    if (seriesIds.isEmpty()) {
+      return accessControlLists;
+    }
+    EntityManager em = emf.createEntityManager();
+    TypedQuery<Object[]> q = em.createNamedQuery("Search.findAccessControlBySeriesIds", Object[].class)
+        .setParameter("seriesIds", seriesIds);
+    try {
+      for (Object[] row : q.getResultList()) {
+        AccessControlList acl = AccessControlParser.parseAcl((String) row[1]);
+        AccessControlList merged = accessControlLists.get((String) row[0]);
+        if (merged == null) {
+          accessControlLists.put((String) row[0], acl);
+        } else {
+          merged.mergeActions(acl);
+        }
+      }
+    } catch (IOException | AccessControlParsingException e) {
+      throw new SearchServiceDatabaseException(e);
+    } finally {
+      em.close();
+    }
+    return accessControlLists;
+  }
+
   /**
    * {@inheritDoc}
    *
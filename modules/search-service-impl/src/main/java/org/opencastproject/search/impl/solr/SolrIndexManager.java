@@ -80,6 +80,7 @@ import org.opencastproject.workspace.api.Workspace;
 import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.client.solrj.SolrServer;
 import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.request.UpdateRequest;
 import org.apache.solr.client.solrj.response.QueryResponse;
 import org.apache.solr.client.solrj.util.ClientUtils;
 import org.apache.solr.common.SolrDocument;
@@ -99,11 +100,13 @@ import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Utility class used to manage the search index.
@@ -128,6 +131,18 @@ public class SolrIndexManager {
   /** Maximum number of important keywords to detect. */
   private static final int MAX_IMPORTANT_COUNT = 10;
 
+  /** Number of documents a {@link Batch} collects before {@link Batch#post()} sends them to solr. */
+  static final int BATCH_SIZE = 100;
+
+  /** Time in milliseconds within which solr has to make the documents posted by a {@link Batch} searchable. */
+  static final int BATCH_COMMIT_WITHIN = 10000;
+
+  /** Sequence number of the last update posted to solr. */
+  private final AtomicLong updates = new AtomicLong();
+
+  /** Sequence number of the last update covered by a commit. Guarded by <code>this</code>. */
+  private long committedUpdates = 0L;
+
   /** List of metadata services sorted by priority in reverse order. */
   private List<StaticMetadataService> mdServices;
 
@@ -207,7 +222,7 @@ public class SolrIndexManager {
   public void clear() throws SolrServerException {
     try {
       solrServer.deleteByQuery("*:*");
-      solrServer.commit();
+      commit(updates.incrementAndGet());
     } catch (IOException e) {
       throw new SolrServerException(e);
     }
@@ -250,8 +265,7 @@ public class SolrIndexManager {
 
       // Set the oc_deleted field to the current date, then update
       Schema.setOcDeleted(inputDocument, deletionDate);
-      solrServer.add(inputDocument);
-      solrServer.commit();
+      commit(post(Collections.singletonList(inputDocument), -1));
       return true;
     } catch (IOException e) {
       throw new SolrServerException(e);
@@ -285,11 +299,12 @@ public class SolrIndexManager {
       }
 
       // Post everything to the search index
-      solrServer.add(episodeDocument);
+      List<SolrInputDocument> documents = new ArrayList<>(2);
+      documents.add(episodeDocument);
       if (seriesDocument != null) {
-        solrServer.add(seriesDocument);
+        documents.add(seriesDocument);
       }
-      solrServer.commit();
+      commit(post(documents, -1));
       return true;
     } catch (Exception e) {
       throw new SolrServerException(
@@ -311,8 +326,7 @@ public class SolrIndexManager {
     try {
       SolrInputDocument seriesDocument = createSeriesInputDocument(seriesId, acl);
       if (seriesDocument != null) {
-        solrServer.add(seriesDocument);
-        solrServer.commit();
+        commit(post(Collections.singletonList(seriesDocument), -1));
       }
     } catch (Exception e) {
       throw new SolrServerException(String.format("Unable to add series %s to index", seriesId), e);
@@ -320,54 +334,172 @@ public class SolrIndexManager {
   }
 
   /**
-   * Posts the media package to solr. Depending on what is referenced in the media package, the method might create one
-   * or two entries: one for the episode and one for the series that the episode belongs to.
+   * Creates a new batch for posting many media packages to solr at once.
    *
-   * This implementation of the search service removes all references to non "engage/download" media tracks
+   * @return the batch
+   */
+  public Batch newBatch() {
+    return new Batch();
+  }
+
+  /**
+   * Posts the documents to solr without waiting for them to become searchable.
    *
-   * @param sourceMediaPackage
-   *          the media package to post
-   * @param acl
-   *          the access control list for this mediapackage
-   * @param seriesAcl
-   *          the access control list for the series
-   * @param deletionDate
-   *          the deletion date
-   * @param modificationDate
-   *          the modification date
-   * @return <code>true</code> if successfully added
-   * @throws SolrServerException
-   *           if an errors occurs while talking to solr
+   * @param documents
+   *          the documents to post
+   * @param commitWithin
+   *          time in milliseconds within which solr should commit the documents on its own or <code>-1</code> to leave
+   *          the commit to the caller
+   * @return the sequence number of this update
    */
-  public boolean add(MediaPackage sourceMediaPackage, AccessControlList acl,
-      AccessControlList seriesAcl, Date deletionDate,
-      Date modificationDate)
-          throws SolrServerException {
-    try {
-      SolrInputDocument episodeDocument = createEpisodeInputDocument(sourceMediaPackage, acl);
+  private long post(Collection<SolrInputDocument> documents, int commitWithin) throws SolrServerException,
+          IOException {
+    UpdateRequest request = new UpdateRequest();
+    request.add(documents);
+    request.setCommitWithin(commitWithin);
+    request.process(solrServer);
+    return updates.incrementAndGet();
+  }
 
-      SolrInputDocument seriesDocument = createSeriesInputDocument(sourceMediaPackage.getSeries(), seriesAcl);
+  /**
+   * Makes the update with the given sequence number searchable. Concurrent callers share commits: if a commit was
+   * started after the update had been posted, no further commit is issued for it.
+   *
+   * @param update
+   *          the sequence number of the update
+   */
+  private synchronized void commit(long update) throws SolrServerException, IOException {
+    if (committedUpdates >= update) {
+      return;
+    }
+    long lastUpdate = updates.get();
+    solrServer.commit();
+    committedUpdates = lastUpdate;
+  }
+
+  /**
+   * Collects the documents of many media packages and posts them to solr in batches of at least {@link #BATCH_SIZE}.
+   * Documents may be added by several threads, but only the thread owning the batch posts them, so it learns about
+   * every document which could not be posted. Posted documents become searchable within
+   * {@link #BATCH_COMMIT_WITHIN} milliseconds. {@link #flush()} posts the remaining documents and makes all of them
+   * searchable at once.
+   */
+  public final class Batch {
+
+    /** Documents not yet posted to solr, by their identifier */
+    private final Map<String, SolrInputDocument> documents = new LinkedHashMap<>();
+
+    private Batch() {
+    }
+
+    /**
+     * Adds the media package to this batch. The documents are created in the calling thread, so it has to run in the
+     * security context of the media package's organization. They are sent to solr by the next {@link #post()} or
+     * {@link #flush()}.
+     *
+     * @param sourceMediaPackage
+     *          the media package to post
+     * @param acl
+     *          the access control list for this mediapackage
+     * @param seriesAcl
+     *          the access control list for the series
+     * @param deletionDate
+     *          the deletion date
+     * @param modificationDate
+     *          the modification date
+     * @throws SolrServerException
+     *           if the documents could not be created
+     */
+    public void add(MediaPackage sourceMediaPackage, AccessControlList acl, AccessControlList seriesAcl,
+            Date deletionDate, Date modificationDate) throws SolrServerException {
+      SolrInputDocument episodeDocument;
+      SolrInputDocument seriesDocument;
+      try {
+        episodeDocument = createEpisodeInputDocument(sourceMediaPackage, acl);
+        seriesDocument = createSeriesInputDocument(sourceMediaPackage.getSeries(), seriesAcl);
+      } catch (Exception e) {
+        throw new SolrServerException(
+            String.format("Unable to add media package %s to index", sourceMediaPackage.getIdentifier()), e);
+      }
       if (seriesDocument != null) {
         Schema.enrich(episodeDocument, seriesDocument);
       }
-
       Schema.setOcModified(episodeDocument, modificationDate);
       if (deletionDate != null) {
         Schema.setOcDeleted(episodeDocument, deletionDate);
       }
 
-      solrServer.add(episodeDocument);
-      solrServer.add(seriesDocument);
-      solrServer.commit();
-      return true;
-    } catch (Exception e) {
-      logger.error("Unable to add mediapackage {} to index", sourceMediaPackage.getIdentifier());
+      synchronized (this) {
+        documents.put(sourceMediaPackage.getIdentifier().toString(), episodeDocument);
+        if (seriesDocument != null) {
+          // Episodes of the same series share one series document, the latest one wins
+          documents.put(sourceMediaPackage.getSeries(), seriesDocument);
+        }
+      }
+    }
+
+    /**
+     * Posts the documents collected so far to solr if there are at least {@link #BATCH_SIZE} of them. This must only
+     * be called by the thread owning the batch. If posting fails, the documents are kept in the batch to be posted
+     * again by the next call.
+     *
+     * @return the number of documents posted
+     * @throws SolrServerException
+     *           if an error occurs while talking to solr
+     */
+    public int post() throws SolrServerException {
+      final Map<String, SolrInputDocument> full;
+      synchronized (this) {
+        if (documents.size() < BATCH_SIZE) {
+          return 0;
+        }
+        full = take();
+      }
+      send(full);
+      return full.size();
+    }
+
+    /**
+     * Posts the remaining documents of this batch to solr and makes all documents posted so far searchable. This must
+     * only be called by the thread owning the batch. If posting fails, the documents are kept in the batch.
+     *
+     * @throws SolrServerException
+     *           if an errors occurs while talking to solr
+     */
+    public void flush() throws SolrServerException {
+      final Map<String, SolrInputDocument> rest;
+      synchronized (this) {
+        rest = take();
+      }
+      final long update = rest.isEmpty() ? updates.get() : send(rest);
       try {
-        solrServer.rollback();
-      } catch (IOException e1) {
-        throw new SolrServerException(e1);
+        commit(update);
+      } catch (IOException e) {
+        throw new SolrServerException(e);
+      }
+    }
+
+    /** Removes all documents from this batch. The caller has to hold the lock of the batch. */
+    private Map<String, SolrInputDocument> take() {
+      final Map<String, SolrInputDocument> taken = new LinkedHashMap<>(documents);
+      documents.clear();
+      return taken;
+    }
+
+    /** Posts the documents, putting them back into the batch if that fails. */
+    private long send(Map<String, SolrInputDocument> docs) throws SolrServerException {
+      try {
+        return post(docs.values(), BATCH_COMMIT_WITHIN);
+      } catch (IOException | SolrServerException | RuntimeException e) {
+        synchronized (this) {
+          // Documents added in the meantime are newer and therefore win
+          for (Map.Entry<String, SolrInputDocument> doc : docs.entrySet()) {
+            documents.putIfAbsent(doc.getKey(), doc.getValue());
+          }
+        }
+        throw e instanceof SolrServerException ? (SolrServerException) e
+                : new SolrServerException(String.format("Unable to post %d documents", docs.size()), e);
       }
-      throw new SolrServerException(e);
     }
   }
 
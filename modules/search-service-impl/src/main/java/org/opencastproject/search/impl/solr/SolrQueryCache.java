@@ -0,0 +1,189 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package org.opencastproject.search.impl.solr;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.SolrServer;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.response.QueryResponse;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches the solr responses of search queries. Responses are cached by the complete solr query, which contains the
+ * organization and the roles of the user for permission checked queries. Users with different roles therefore never
+ * share a cached response.
+ * <p>
+ * Responses of queries restricted to a media package or series are invalidated when that media package or series
+ * changes. All other responses are invalidated on any change to the search index. Changes made by other nodes sharing
+ * the same solr server become visible once the cached responses expire.
+ */
+public class SolrQueryCache implements SolrQueryCacheMXBean {
+
+  /** Default maximum number of search result items held by the cache */
+  public static final long DEFAULT_MAX_ITEMS = 10000;
+
+  /** Default time in seconds a response is cached */
+  public static final long DEFAULT_TTL = 60;
+
+  /** The cached responses, replaced on reconfiguration */
+  private volatile Cache<String, CachedResponse> cache;
+
+  /** Incremented on every invalidation. Guarded by <code>this</code>. */
+  private long generation = 0L;
+
+  /** Number of invalidations. Guarded by <code>this</code>. */
+  private long invalidations = 0L;
+
+  /**
+   * Creates a query cache with the default configuration.
+   */
+  public SolrQueryCache() {
+    configure(DEFAULT_MAX_ITEMS, DEFAULT_TTL);
+  }
+
+  /**
+   * Replaces the cache by an empty one with the given limits.
+   *
+   * @param maxItems
+   *          the maximum number of search result items held by the cache, <code>0</code> disables caching
+   * @param ttl
+   *          the time in seconds a response is cached
+   */
+  public synchronized void configure(long maxItems, long ttl) {
+    cache = CacheBuilder.newBuilder()
+        .maximumWeight(maxItems)
+        .weigher((String query, CachedResponse cached) -> cached.response.getResults().size() + 1)
+        .expireAfterWrite(ttl, TimeUnit.SECONDS)
+        .recordStats()
+        .build();
+    generation++;
+  }
+
+  /**
+   * Returns the cached response to the query or sends the query to solr and caches its response.
+   *
+   * @param solrServer
+   *          the solr server to query
+   * @param query
+   *          the query
+   * @param scope
+   *          the media package and series identifiers the query is restricted to or <code>null</code> if the query may
+   *          match any document
+   * @return the response
+   * @throws SolrServerException
+   *           if the query fails
+   */
+  QueryResponse query(SolrServer solrServer, SolrQuery query, Set<String> scope) throws SolrServerException {
+    final String key = query.toString();
+    final CachedResponse cached = cache.getIfPresent(key);
+    if (cached != null) {
+      return cached.response;
+    }
+
+    final long queryGeneration;
+    synchronized (this) {
+      queryGeneration = generation;
+    }
+    final QueryResponse response = solrServer.query(query);
+    synchronized (this) {
+      // Do not cache a response which may predate an invalidation
+      if (queryGeneration == generation) {
+        cache.put(key, new CachedResponse(response, scope));
+      }
+    }
+    return response;
+  }
+
+  /**
+   * Invalidates the cached responses which may be affected by a change of the given media packages or series.
+   *
+   * @param ids
+   *          the identifiers of the changed media packages and series, <code>null</code> values are ignored
+   */
+  public synchronized void invalidate(String... ids) {
+    final Set<String> changed = new HashSet<>(Arrays.asList(ids));
+    changed.remove(null);
+    generation++;
+    invalidations++;
+    cache.asMap().values().removeIf(cached -> cached.scope == null || !Collections.disjoint(cached.scope, changed));
+  }
+
+  /**
+   * Invalidates all cached responses.
+   */
+  public synchronized void invalidateAll() {
+    generation++;
+    invalidations++;
+    cache.invalidateAll();
+  }
+
+  @Override
+  public long getSize() {
+    return cache.size();
+  }
+
+  @Override
+  public long getHitCount() {
+    return cache.stats().hitCount();
+  }
+
+  @Override
+  public long getMissCount() {
+    return cache.stats().missCount();
+  }
+
+  @Override
+  public double getHitRate() {
+    return cache.stats().hitRate();
+  }
+
+  @Override
+  public long getEvictionCount() {
+    return cache.stats().evictionCount();
+  }
+
+  @Override
+  public synchronized long getInvalidationCount() {
+    return invalidations;
+  }
+
+  /** A cached response together with the identifiers its query is restricted to */
+  private static final class CachedResponse {
+    private final QueryResponse response;
+    private final Set<String> scope;
+
+    CachedResponse(QueryResponse response, Set<String> scope) {
+      this.response = Objects.requireNonNull(response);
+      this.scope = scope;
+    }
+  }
+
+}
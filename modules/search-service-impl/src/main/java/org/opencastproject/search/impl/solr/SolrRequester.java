@@ -63,10 +63,13 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.Properties;
 import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -97,6 +100,11 @@ public class SolrRequester {
    */
   private MediaPackageSerializer serializer = null;
 
+  /**
+   * The optional cache for read queries
+   */
+  private SolrQueryCache queryCache = null;
+
   /**
    * Creates a new requester for solr that will be using the given connection object to query the search index.
    *
@@ -156,11 +164,31 @@ public class SolrRequester {
    *           if the solr server is not working as expected
    */
   private SearchResult createSearchResult(final SolrQuery query, final boolean signed) throws SolrServerException {
+    return createSearchResult(query, signed, null);
+  }
+
+  /**
+   * Creates a search result from a given solr response, using the query cache if one is set.
+   *
+   * @param query
+   *          The solr query.
+   * @param cacheableQuery
+   *          The search query the solr query was created from or <code>null</code> to bypass the cache.
+   * @return The search result.
+   * @throws SolrServerException
+   *           if the solr server is not working as expected
+   */
+  private SearchResult createSearchResult(final SolrQuery query, final boolean signed,
+          final SearchQuery cacheableQuery) throws SolrServerException {
 
     // Execute the query and try to get hold of a query response
     QueryResponse solrResponse = null;
     try {
-      solrResponse = solrServer.query(query);
+      if (cacheableQuery != null && queryCache != null) {
+        solrResponse = queryCache.query(solrServer, query, getCacheScope(cacheableQuery));
+      } else {
+        solrResponse = solrServer.query(query);
+      }
     } catch (Exception e) {
       throw new SolrServerException(e);
     }
@@ -723,17 +751,21 @@ public class SolrRequester {
       sb.append(" AND ").append(Schema.OC_ORGANIZATION).append(":")
               .append(SolrUtils.clean(securityService.getOrganization().getId()));
       User user = securityService.getUser();
-      Set<Role> roles = user.getRoles();
+      // Sort the roles so that users with the same roles send the same query, which the query cache depends on
+      SortedSet<String> roles = new TreeSet<>();
+      for (Role role : user.getRoles()) {
+        roles.add(role.getName());
+      }
       boolean userHasAnonymousRole = false;
       if (roles.size() > 0) {
         sb.append(" AND (");
         StringBuilder roleList = new StringBuilder();
-        for (Role role : roles) {
+        for (String role : roles) {
           if (roleList.length() > 0) {
             roleList.append(" OR ");
           }
-          roleList.append(Schema.OC_ACL_PREFIX).append(action).append(":").append(SolrUtils.clean(role.getName()));
-          if (role.getName().equalsIgnoreCase(securityService.getOrganization().getAnonymousRole())) {
+          roleList.append(Schema.OC_ACL_PREFIX).append(action).append(":").append(SolrUtils.clean(role));
+          if (role.equalsIgnoreCase(securityService.getOrganization().getAnonymousRole())) {
             userHasAnonymousRole = true;
           }
         }
@@ -819,7 +851,29 @@ public class SolrRequester {
    */
   public SearchResult getForRead(SearchQuery q) throws SolrServerException {
     SolrQuery query = getForAction(q, READ.toString(), true);
-    return createSearchResult(query, q.isSignURLs());
+    return createSearchResult(query, q.isSignURLs(), q);
+  }
+
+  /**
+   * Returns the media package and series identifiers a search query is restricted to.
+   *
+   * @param q
+   *          the search query
+   * @return the identifiers or <code>null</code> if the query may match any document
+   */
+  static Set<String> getCacheScope(SearchQuery q) {
+    // A free text solr query may contain operators that lift the restriction
+    if (StringUtils.isNotBlank(q.getQuery())) {
+      return null;
+    }
+    Set<String> scope = new HashSet<>();
+    if (StringUtils.isNotBlank(q.getId())) {
+      scope.add(q.getId().trim());
+    }
+    if (StringUtils.isNotBlank(q.getSeriesId())) {
+      scope.add(q.getSeriesId().trim());
+    }
+    return scope.isEmpty() ? null : scope;
   }
 
   /**
@@ -855,6 +909,16 @@ public class SolrRequester {
     this.serializer = serializer;
   }
 
+  /**
+   * Sets the optional cache for queries checked for read access.
+   *
+   * @param queryCache
+   *          the query cache
+   */
+  public void setQueryCache(SolrQueryCache queryCache) {
+    this.queryCache = queryCache;
+  }
+
   /**
    * Returns the search index' field name that corresponds to the sort field.
    *
@@ -49,6 +49,7 @@ import org.opencastproject.search.api.SearchResult;
 import org.opencastproject.search.api.SearchResultItem;
 import org.opencastproject.search.impl.persistence.SearchServiceDatabaseImpl;
 import org.opencastproject.search.impl.solr.SolrIndexManager;
+import org.opencastproject.search.impl.solr.SolrQueryCache;
 import org.opencastproject.search.impl.solr.SolrRequester;
 import org.opencastproject.security.api.AccessControlEntry;
 import org.opencastproject.security.api.AccessControlList;
@@ -78,8 +79,11 @@ import org.apache.solr.client.solrj.SolrServer;
 import org.easymock.EasyMock;
 import org.easymock.IAnswer;
 import org.junit.After;
+import org.junit.Assume;
 import org.junit.Before;
 import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.InputStream;
@@ -91,6 +95,7 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
@@ -103,6 +108,8 @@ import javax.persistence.EntityManagerFactory;
  */
 public class SearchServiceImplTest {
 
+  private static final Logger logger = LoggerFactory.getLogger(SearchServiceImplTest.class);
+
   /** The search service */
   private SearchServiceImpl service = null;
 
@@ -578,6 +585,39 @@ public class SearchServiceImplTest {
     assertEquals(1, service.getByQuery(q).size());
   }
 
+  /**
+   * Repeated queries are answered from the cache until a media package they may match changes.
+   */
+  @Test
+  public void testQueryCache() throws Exception {
+    MediaPackage mediaPackage = getMediaPackage("/manifest-simple.xml");
+
+    // Make sure our mocked ACL has the read and write permission
+    acl.getEntries().add(new AccessControlEntry(ROLE_STUDENT, READ.toString(), true));
+    acl.getEntries().add(new AccessControlEntry(ROLE_STUDENT, WRITE.toString(), true));
+
+    final String mediaPackageId = mediaPackage.getIdentifier().toString();
+    final SearchQuery episodeQuery = new SearchQuery().withId(mediaPackageId);
+    final SearchQuery otherSeriesQuery = new SearchQuery().withSeriesId("other-series");
+    final SolrQueryCache queryCache = service.getQueryCache();
+
+    assertEquals(0, service.getByQuery(episodeQuery).size());
+    assertEquals(0, service.getByQuery(otherSeriesQuery).size());
+    assertEquals(0, queryCache.getHitCount());
+
+    // Adding the media package only invalidates the queries it may match
+    service.addSynchronously(mediaPackage);
+    assertEquals(1, service.getByQuery(episodeQuery).size());
+    assertEquals(0, service.getByQuery(otherSeriesQuery).size());
+    assertEquals(1, queryCache.getHitCount());
+    assertEquals(1, service.getByQuery(episodeQuery).size());
+    assertEquals(2, queryCache.getHitCount());
+
+    service.deleteSynchronously(mediaPackageId);
+    assertEquals(0, service.getByQuery(episodeQuery).size());
+    assertEquals(2, queryCache.getHitCount());
+  }
+
   /**
    * Test removal from the search index even when it is missing from database #MH-11616
    */
@@ -703,4 +743,30 @@ public class SearchServiceImplTest {
     // This time we should have 10 results
     assertEquals(10, service.getByQuery(new SearchQuery()).size());
   }
+
+  /**
+   * Index ten thousand media packages through a batch like a re-index would. This benchmark only runs if the system
+   * property <code>search.benchmark</code> is set to <code>true</code>, e.g. with <code>-Dsearch.benchmark=true</code>.
+   */
+  @Test
+  public void testBatchIndexingThroughput() throws Exception {
+    Assume.assumeTrue(Boolean.getBoolean("search.benchmark"));
+    final int mediaPackages = 10000;
+    final SolrIndexManager indexManager = service.getSolrIndexManager();
+    final SolrIndexManager.Batch batch = indexManager.newBatch();
+
+    final long start = System.nanoTime();
+    for (int i = 0; i < mediaPackages; i++) {
+      MediaPackage mediaPackage = MediaPackageBuilderFactory.newInstance().newMediaPackageBuilder().createNew();
+      mediaPackage.setIdentifier(IdImpl.fromUUID());
+      batch.add(mediaPackage, acl, acl, null, new Date());
+      batch.post();
+    }
+    batch.flush();
+    final long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+    logger.info("Indexed {} media packages in {} ms ({} per second)", mediaPackages, millis,
+            mediaPackages * 1000L / Math.max(millis, 1));
+    assertEquals(mediaPackages, indexManager.count());
+  }
 }
@@ -44,9 +44,11 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.Arrays;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
@@ -176,4 +178,33 @@ public class SearchServicePersistenceTest {
     Assert.assertEquals(1, i);
   }
 
+  @Test
+  public void testBulkRetrieving() throws Exception {
+    MediaPackage first = MediaPackageBuilderFactory.newInstance().newMediaPackageBuilder().createNew();
+    first.setSeries("series");
+    MediaPackage second = MediaPackageBuilderFactory.newInstance().newMediaPackageBuilder().createNew();
+    second.setSeries("series");
+    AccessControlList otherAccessControlList = new AccessControlList(
+            new AccessControlEntry("student", Permissions.Action.READ.toString(), true));
+    searchDatabase.storeMediaPackage(mediaPackage, accessControlList, new Date());
+    searchDatabase.storeMediaPackage(first, accessControlList, new Date());
+    searchDatabase.storeMediaPackage(second, otherAccessControlList, new Date());
+
+    List<SearchEntity> page = searchDatabase.getSearchEntities("", 2);
+    Assert.assertEquals(2, page.size());
+    Assert.assertTrue(page.get(0).getMediaPackageId().compareTo(page.get(1).getMediaPackageId()) < 0);
+    List<SearchEntity> rest = searchDatabase.getSearchEntities(page.get(1).getMediaPackageId(), 2);
+    Assert.assertEquals(1, rest.size());
+    Assert.assertTrue(page.get(1).getMediaPackageId().compareTo(rest.get(0).getMediaPackageId()) < 0);
+
+    Map<String, AccessControlList> seriesAcls = searchDatabase.getSeriesAccessControlLists(
+            Arrays.asList("series", "unknown"));
+    Assert.assertEquals(1, seriesAcls.size());
+    Assert.assertEquals(2, seriesAcls.get("series").getEntries().size());
+
+    searchDatabase.deleteMediaPackage(second.getIdentifier().toString(), new Date());
+    seriesAcls = searchDatabase.getSeriesAccessControlLists(Arrays.asList("series"));
+    Assert.assertEquals(accessControlList.getEntries(), seriesAcls.get("series").getEntries());
+  }
+
 }
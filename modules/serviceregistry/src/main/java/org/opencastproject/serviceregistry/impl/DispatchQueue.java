@@ -0,0 +1,276 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package org.opencastproject.serviceregistry.impl;
+
+import static org.opencastproject.serviceregistry.impl.ServiceRegistryJpaImpl.TYPE_WORKFLOW;
+
+import org.opencastproject.job.api.Job.Status;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory index of the jobs that are waiting to be dispatched, kept as one priority queue per job type.
+ * <p>
+ * The queue is fed by the job state transitions the service registry sees (job creation, job updates, restarts of lost
+ * jobs). Jobs recently created by other nodes are added in every dispatch round and the queue is periodically
+ * reconciled against the database to pick up all other changes made by other nodes. This allows the dispatcher to react
+ * to new jobs right away instead of polling the whole jobs table.
+ */
+final class DispatchQueue {
+
+  /** Orders the entries of a queue: restarted jobs first, then by creation date */
+  static final Comparator<Entry> ENTRY_ORDER = Comparator.comparing((Entry e) -> !e.isRestart())
+          .thenComparingLong(Entry::getDateCreated).thenComparingLong(Entry::getId);
+
+  /** The queued jobs by identifier */
+  private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+  /** The queued jobs by job type */
+  private final Map<String, NavigableSet<Entry>> queues = new ConcurrentHashMap<>();
+
+  /** Monitor used to signal the dispatcher that there is work to do */
+  private final Object signal = new Object();
+
+  /** Whether the queue changed since the dispatcher last looked at it */
+  private boolean changed = false;
+
+  /**
+   * Adds the job to the queue if it is dispatchable and in a dispatchable state, removes it otherwise.
+   *
+   * @param id
+   *          the job identifier
+   * @param jobType
+   *          the job type
+   * @param operation
+   *          the job's operation
+   * @param status
+   *          the job's current status
+   * @param dispatchable
+   *          whether the job is dispatchable at all
+   * @param dateCreated
+   *          the creation date of the job, may be <code>null</code>
+   */
+  void update(long id, String jobType, String operation, Status status, boolean dispatchable, Date dateCreated) {
+    if (dispatchable && jobType != null && (Status.QUEUED.equals(status) || Status.RESTART.equals(status))) {
+      offer(new Entry(id, jobType, operation, Status.RESTART.equals(status),
+              dateCreated != null ? dateCreated.getTime() : System.currentTimeMillis()));
+    } else {
+      remove(id);
+    }
+  }
+
+  /**
+   * Removes the job from the queue.
+   *
+   * @param id
+   *          the job identifier
+   */
+  void remove(long id) {
+    Entry entry = entries.remove(id);
+    if (entry != null) {
+      NavigableSet<Entry> queue = queues.get(entry.getJobType());
+      if (queue != null)
+        queue.remove(entry);
+    }
+  }
+
+  /**
+   * Returns the identifiers of the currently queued jobs. Take this snapshot before reading the dispatchable jobs from
+   * the database and pass it to {@link #reconcile(Set, Collection)}.
+   *
+   * @return the identifiers of the queued jobs
+   */
+  Set<Long> snapshot() {
+    return new HashSet<>(entries.keySet());
+  }
+
+  /**
+   * Replaces the contents of the queue with the given entries, as read from the database. Only jobs which were already
+   * queued when the snapshot was taken are removed, so jobs offered while the database was being read are kept.
+   *
+   * @param snapshot
+   *          the identifiers of the jobs queued before the database was read
+   * @param dispatchable
+   *          the currently dispatchable jobs
+   */
+  void reconcile(Set<Long> snapshot, Collection<Entry> dispatchable) {
+    Set<Long> stale = new HashSet<>(snapshot);
+    for (Entry entry : dispatchable) {
+      stale.remove(entry.getId());
+      offer(entry);
+    }
+    for (Long id : stale) {
+      remove(id);
+    }
+  }
+
+  /**
+   * Adds the given entries, as read from the database, to the queue without removing any other jobs.
+   *
+   * @param dispatchable
+   *          dispatchable jobs
+   */
+  void addAll(Collection<Entry> dispatchable) {
+    for (Entry entry : dispatchable) {
+      offer(entry);
+    }
+  }
+
+  /**
+   * Returns whether the job is currently queued.
+   *
+   * @param id
+   *          the job identifier
+   * @return <code>true</code> if the job is waiting for dispatch
+   */
+  boolean contains(long id) {
+    return entries.containsKey(id);
+  }
+
+  /**
+   * Returns the number of queued jobs.
+   *
+   * @return the queue size
+   */
+  int size() {
+    return entries.size();
+  }
+
+  /**
+   * Returns the queued jobs in dispatch order: Regular jobs by priority, followed by the workflow jobs, which are load
+   * balanced by the workflow service itself.
+   *
+   * @return the queued jobs in dispatch order
+   */
+  List<Entry> getEntries() {
+    List<Entry> jobs = new ArrayList<>();
+    for (Map.Entry<String, NavigableSet<Entry>> queue : queues.entrySet()) {
+      if (!TYPE_WORKFLOW.equals(queue.getKey()))
+        jobs.addAll(queue.getValue());
+    }
+    jobs.sort(ENTRY_ORDER);
+    NavigableSet<Entry> workflowQueue = queues.get(TYPE_WORKFLOW);
+    if (workflowQueue != null)
+      jobs.addAll(workflowQueue);
+    return jobs;
+  }
+
+  /**
+   * Waits until jobs have been added to the queue or the timeout elapsed.
+   *
+   * @param timeout
+   *          the maximum time to wait
+   * @param unit
+   *          the unit of the timeout
+   * @return <code>true</code> if the queue has changed, <code>false</code> if the timeout elapsed
+   * @throws InterruptedException
+   *           if the waiting thread has been interrupted
+   */
+  boolean awaitChanges(long timeout, TimeUnit unit) throws InterruptedException {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    synchronized (signal) {
+      while (!changed) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0)
+          return false;
+        TimeUnit.NANOSECONDS.timedWait(signal, remaining);
+      }
+      changed = false;
+      return true;
+    }
+  }
+
+  private void offer(Entry entry) {
+    Entry previous = entries.put(entry.getId(), entry);
+    if (previous != null) {
+      NavigableSet<Entry> queue = queues.get(previous.getJobType());
+      if (queue != null)
+        queue.remove(previous);
+    }
+    queues.computeIfAbsent(entry.getJobType(), type -> new ConcurrentSkipListSet<>(ENTRY_ORDER)).add(entry);
+
+    // Only wake up the dispatcher for jobs it does not know about yet. Jobs that are being put back into the queue
+    // after a failed dispatch attempt are picked up by the next regular round.
+    if (previous == null || previous.isRestart() != entry.isRestart()) {
+      synchronized (signal) {
+        changed = true;
+        signal.notifyAll();
+      }
+    }
+  }
+
+  /** A job waiting for dispatch */
+  static final class Entry {
+
+    private final long id;
+    private final String jobType;
+    private final String operation;
+    private final boolean restart;
+    private final long dateCreated;
+
+    Entry(long id, String jobType, String operation, boolean restart, long dateCreated) {
+      this.id = id;
+      this.jobType = jobType;
+      this.operation = operation;
+      this.restart = restart;
+      this.dateCreated = dateCreated;
+    }
+
+    long getId() {
+      return id;
+    }
+
+    String getJobType() {
+      return jobType;
+    }
+
+    String getOperation() {
+      return operation;
+    }
+
+    /** The signature used by the dispatcher to remember job types that cannot currently be dispatched */
+    String getSignature() {
+      return jobType + '@' + operation;
+    }
+
+    boolean isRestart() {
+      return restart;
+    }
+
+    long getDateCreated() {
+      return dateCreated;
+    }
+
+  }
+
+}
@@ -0,0 +1,141 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package org.opencastproject.serviceregistry.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps track of the load of the jobs running on each host without a global lock.
+ * <p>
+ * Every job is registered at most once, so updates of the same job can be applied concurrently and in any order. Loads
+ * are accumulated in thousandths of a load unit, which makes adding and removing the same job exact and keeps the
+ * accumulated host loads from drifting away from zero over time.
+ */
+final class HostLoadLedger {
+
+  /** Number of accounting units per load unit */
+  private static final float SCALE = 1000f;
+
+  /** The jobs currently accounted for, by identifier */
+  private final Map<Long, JobLoad> jobs = new ConcurrentHashMap<>();
+
+  /** The accumulated load per host, in accounting units */
+  private final Map<String, LongAdder> hosts = new ConcurrentHashMap<>();
+
+  /**
+   * Adds the job's load to the host, unless the job is already accounted for.
+   *
+   * @param jobId
+   *          the job identifier
+   * @param host
+   *          the host processing the job
+   * @param load
+   *          the job's load
+   * @return <code>true</code> if the job's load has been added
+   */
+  boolean add(long jobId, String host, float load) {
+    JobLoad jobLoad = new JobLoad(host, Math.round(load * SCALE));
+    // Create the host's adder before publishing the job, so a concurrent removal of the job always finds it
+    LongAdder hostLoad = hosts.computeIfAbsent(host, h -> new LongAdder());
+    if (jobs.putIfAbsent(jobId, jobLoad) != null)
+      return false;
+    hostLoad.add(jobLoad.units);
+    return true;
+  }
+
+  /**
+   * Removes the job's load from the host it has been accounted for.
+   *
+   * @param jobId
+   *          the job identifier
+   * @return the load that has been removed, or <code>null</code> if the job was not accounted for
+   */
+  Float remove(long jobId) {
+    JobLoad jobLoad = jobs.remove(jobId);
+    if (jobLoad == null)
+      return null;
+    hosts.computeIfAbsent(jobLoad.host, h -> new LongAdder()).add(-jobLoad.units);
+    return jobLoad.units / SCALE;
+  }
+
+  /**
+   * Returns whether the job is accounted for.
+   *
+   * @param jobId
+   *          the job identifier
+   * @return <code>true</code> if the job's load is part of a host's load
+   */
+  boolean contains(long jobId) {
+    return jobs.containsKey(jobId);
+  }
+
+  /**
+   * Returns the current load of the host.
+   *
+   * @param host
+   *          the host
+   * @return the sum of the loads of the jobs running on the host
+   */
+  float getLoad(String host) {
+    LongAdder load = hosts.get(host);
+    return load == null ? 0.0f : load.sum() / SCALE;
+  }
+
+  /**
+   * Returns the number of jobs accounted for.
+   *
+   * @return the number of jobs
+   */
+  int size() {
+    return jobs.size();
+  }
+
+  /**
+   * Returns a snapshot of the current loads of all hosts known to the ledger.
+   *
+   * @return the loads by host
+   */
+  Map<String, Float> getLoads() {
+    Map<String, Float> loads = new HashMap<>();
+    for (Map.Entry<String, LongAdder> host : hosts.entrySet()) {
+      loads.put(host.getKey(), host.getValue().sum() / SCALE);
+    }
+    return loads;
+  }
+
+  /** The load a job contributes to a host */
+  private static final class JobLoad {
+
+    private final String host;
+    private final long units;
+
+    JobLoad(String host, long units) {
+      this.host = host;
+      this.units = units;
+    }
+
+  }
+
+}
@@ -104,19 +104,29 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.Dictionary;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 import javax.management.ObjectInstance;
@@ -188,9 +198,24 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
   /** Configuration key for the dispatch interval, in seconds */
   protected static final String OPT_DISPATCHINTERVAL = "dispatch.interval";
 
+  /** Configuration key for enabling the in-memory dispatch queue */
+  protected static final String OPT_DISPATCHQUEUE = "dispatch.queue.enabled";
+
+  /** Configuration key for the interval to reconcile the in-memory dispatch queue with the database, in seconds */
+  protected static final String OPT_DISPATCHQUEUE_RECONCILEINTERVAL = "dispatch.queue.reconcile.interval";
+
+  /** Configuration key for the number of jobs that are dispatched concurrently */
+  protected static final String OPT_DISPATCHCONCURRENCY = "dispatch.concurrency";
+
   /** Configuration key for the interval to check whether the hosts in the service registry are still alive, in seconds */
   protected static final String OPT_HEARTBEATINTERVAL = "heartbeat.interval";
 
+  /** Configuration key for the maximum number of concurrent heartbeat requests */
+  protected static final String OPT_HEARTBEATCONCURRENCY = "heartbeat.concurrency";
+
+  /** Configuration key for the timeout of a heartbeat request, in seconds */
+  protected static final String OPT_HEARTBEATTIMEOUT = "heartbeat.timeout";
+
   /** Configuration key for the collection of job statistics */
   protected static final String OPT_JOBSTATISTICS = "jobstats.collect";
 
@@ -209,6 +234,18 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
   /** Default delay before starting job dispatching, in seconds */
   static final long DEFAULT_DISPATCH_START_DELAY = 60;
 
+  /** Default setting on the in-memory dispatch queue */
+  static final boolean DEFAULT_DISPATCH_QUEUE = false;
+
+  /** Default delay between two reconciliations of the in-memory dispatch queue with the database, in seconds */
+  static final long DEFAULT_DISPATCH_QUEUE_RECONCILE_INTERVAL = 60;
+
+  /** Delay between two consecutive rounds of the queue based dispatcher, in milliseconds */
+  static final long DISPATCH_QUEUE_ROUND_DELAY = 10;
+
+  /** Default number of jobs dispatched concurrently, a value of 1 dispatches the jobs one after the other */
+  static final int DEFAULT_DISPATCH_CONCURRENCY = 1;
+
   /** Default jobs limit during dispatching
    * (larger value will fetch more entries from the database at the same time and increase RAM usage) */
   static final int DEFAULT_DISPATCH_JOBS_LIMIT = 100;
@@ -231,6 +268,12 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
   /** Default delay between checking if hosts are still alive in seconds * */
   static final long DEFAULT_HEART_BEAT = 60;
 
+  /** Default maximum number of concurrent heartbeat requests */
+  static final int DEFAULT_HEART_BEAT_CONCURRENCY = 10;
+
+  /** Default timeout of a heartbeat request, in seconds */
+  static final int DEFAULT_HEART_BEAT_TIMEOUT = 10;
+
   /** Default job load when not passed by service creating the job * */
   static final float DEFAULT_JOB_LOAD = 0.1f;
 
@@ -252,6 +295,15 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
   /** The thread pool to use for dispatching queued jobs and checking on phantom services. */
   protected ScheduledExecutorService scheduledExecutor = null;
 
+  /** The thread pool used to send dispatch requests concurrently, or <code>null</code> to dispatch sequentially */
+  protected ExecutorService dispatchExecutor = null;
+
+  /** The thread pool used to send heartbeat requests, or <code>null</code> to send them sequentially */
+  protected ExecutorService heartbeatExecutor = null;
+
+  /** The timeout of a heartbeat request, in milliseconds */
+  protected int heartbeatTimeout = DEFAULT_HEART_BEAT_TIMEOUT * 1000;
+
   /** The security service */
   protected SecurityService securityService = null;
 
@@ -275,21 +327,25 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
   private static final Status[] activeJobStatus =
       Arrays.stream(Status.values()).filter(Status::isActive).collect(Collectors.toList()).toArray(new Status[0]);
 
-  protected static HashMap<Long, Float> jobCache = new HashMap<>();
-
   static {
     JOB_STATUSES_INFLUENCING_LOAD_BALANCING = new ArrayList<Status>();
     JOB_STATUSES_INFLUENCING_LOAD_BALANCING.add(Status.RUNNING);
   }
 
   /** The dispatcher priority list */
-  protected final Map<Long, String> dispatchPriorityList = new HashMap<>();
+  protected final Map<Long, String> dispatchPriorityList = new ConcurrentHashMap<>();
+
+  /** The in-memory queue of dispatchable jobs, or <code>null</code> if the dispatcher is polling the database */
+  protected volatile DispatchQueue dispatchQueue = null;
+
+  /** Interval between reconciliations of the dispatch queue with the database, in milliseconds */
+  protected long dispatchQueueReconcileInterval = DEFAULT_DISPATCH_QUEUE_RECONCILE_INTERVAL * 1000;
 
   /** Whether to accept a job whose load exceeds the host’s max load */
   protected Boolean acceptJobLoadsExeedingMaxLoad = true;
 
-  // Current system load
-  protected float localSystemLoad = 0.0f;
+  /** The load of the jobs processed on this host */
+  protected final HostLoadLedger hostLoadLedger = new HostLoadLedger();
 
   /** OSGi DI */
   @Reference(name = "entityManagerFactory", target = "(osgi.unit.name=org.opencastproject.common)")
@@ -385,13 +441,12 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
               .getOrElse(DEFAULT_ACCEPT_JOB_LOADS_EXCEEDING);
     }
 
-    localSystemLoad = 0;
     logger.info("Activated");
   }
 
   @Override
   public float getOwnLoad() {
-    return localSystemLoad;
+    return hostLoadLedger.getLoad(hostName);
   }
 
   @Override
@@ -415,6 +470,12 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
         logger.error("Error shutting down the Dispatcher", e);
       }
     }
+    if (dispatchExecutor != null) {
+      dispatchExecutor.shutdownNow();
+    }
+    if (heartbeatExecutor != null) {
+      heartbeatExecutor.shutdownNow();
+    }
 
     for (ObjectInstance mbean : jmxBeans) {
       JmxUtil.unregisterMXBean(mbean);
@@ -594,6 +655,7 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
       tx.commit();
 
       setJobUri(jpaJob);
+      updateDispatchQueue(jpaJob);
       Job job = jpaJob.toJob();
       return job;
     } catch (RollbackException e) {
@@ -635,6 +697,7 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
         deleteChildJobs(em, tx, jobId);
         em.remove(job);
         removeFromLoadCache(jobId);
+        removeFromDispatchQueue(jobId);
       }
 
       tx.commit();
@@ -660,6 +723,7 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
         JpaJob jobToDelete = em.find(JpaJob.class, job.getId());
         em.remove(jobToDelete);
         removeFromLoadCache(job.getId());
+        removeFromDispatchQueue(job.getId());
         logger.debug("{} deleted", job);
       }
       logger.debug("Deleted all child jobs of job '{}'", jobId);
@@ -780,6 +844,39 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
       }
     }
 
+    int heartbeatConcurrency = DEFAULT_HEART_BEAT_CONCURRENCY;
+    String heartbeatConcurrencyString = StringUtils.trimToNull((String) properties.get(OPT_HEARTBEATCONCURRENCY));
+    if (heartbeatConcurrencyString != null) {
+      try {
+        heartbeatConcurrency = Integer.parseInt(heartbeatConcurrencyString);
+      } catch (NumberFormatException e) {
+        logger.warn("Heartbeat concurrency '{}' is malformed, setting to {}", heartbeatConcurrencyString,
+                DEFAULT_HEART_BEAT_CONCURRENCY);
+      }
+      if (heartbeatConcurrency < 1) {
+        logger.warn("Heartbeat concurrency {} too low, adjusting to {}", heartbeatConcurrency,
+                DEFAULT_HEART_BEAT_CONCURRENCY);
+        heartbeatConcurrency = DEFAULT_HEART_BEAT_CONCURRENCY;
+      }
+    }
+
+    int heartbeatTimeoutSeconds = DEFAULT_HEART_BEAT_TIMEOUT;
+    String heartbeatTimeoutString = StringUtils.trimToNull((String) properties.get(OPT_HEARTBEATTIMEOUT));
+    if (heartbeatTimeoutString != null) {
+      try {
+        heartbeatTimeoutSeconds = Integer.parseInt(heartbeatTimeoutString);
+      } catch (NumberFormatException e) {
+        logger.warn("Heartbeat timeout '{}' is malformed, setting to {}", heartbeatTimeoutString,
+                DEFAULT_HEART_BEAT_TIMEOUT);
+      }
+      if (heartbeatTimeoutSeconds < 1) {
+        logger.warn("Heartbeat timeout {} seconds too low, adjusting to {}", heartbeatTimeoutSeconds,
+                DEFAULT_HEART_BEAT_TIMEOUT);
+        heartbeatTimeoutSeconds = DEFAULT_HEART_BEAT_TIMEOUT;
+      }
+    }
+    heartbeatTimeout = (int) TimeUnit.SECONDS.toMillis(heartbeatTimeoutSeconds);
+
     String jobStatsString = StringUtils.trimToNull((String) properties.get(OPT_JOBSTATISTICS));
     if (StringUtils.isNotBlank(jobStatsString)) {
       try {
@@ -802,6 +899,46 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
       }
     }
 
+    boolean dispatchQueueEnabled = DEFAULT_DISPATCH_QUEUE;
+    String dispatchQueueString = StringUtils.trimToNull((String) properties.get(OPT_DISPATCHQUEUE));
+    if (dispatchQueueString != null) {
+      dispatchQueueEnabled = Boolean.parseBoolean(dispatchQueueString);
+    }
+
+    long reconcileInterval = DEFAULT_DISPATCH_QUEUE_RECONCILE_INTERVAL;
+    String reconcileIntervalString = StringUtils.trimToNull(
+            (String) properties.get(OPT_DISPATCHQUEUE_RECONCILEINTERVAL));
+    if (reconcileIntervalString != null) {
+      try {
+        reconcileInterval = Long.parseLong(reconcileIntervalString);
+      } catch (NumberFormatException e) {
+        logger.warn("Dispatch queue reconcile interval '{}' is malformed, setting to {}", reconcileIntervalString,
+                DEFAULT_DISPATCH_QUEUE_RECONCILE_INTERVAL);
+      }
+      if (reconcileInterval < dispatchInterval) {
+        logger.warn("Dispatch queue reconcile interval {} seconds too low, adjusting to {}", reconcileInterval,
+                dispatchInterval);
+        reconcileInterval = dispatchInterval;
+      }
+    }
+    dispatchQueueReconcileInterval = TimeUnit.SECONDS.toMillis(reconcileInterval);
+
+    int dispatchConcurrency = DEFAULT_DISPATCH_CONCURRENCY;
+    String dispatchConcurrencyString = StringUtils.trimToNull((String) properties.get(OPT_DISPATCHCONCURRENCY));
+    if (dispatchConcurrencyString != null) {
+      try {
+        dispatchConcurrency = Integer.parseInt(dispatchConcurrencyString);
+      } catch (NumberFormatException e) {
+        logger.warn("Dispatch concurrency '{}' is malformed, setting to {}", dispatchConcurrencyString,
+                DEFAULT_DISPATCH_CONCURRENCY);
+      }
+      if (dispatchConcurrency < 1) {
+        logger.warn("Dispatch concurrency {} too low, adjusting to {}", dispatchConcurrency,
+                DEFAULT_DISPATCH_CONCURRENCY);
+        dispatchConcurrency = DEFAULT_DISPATCH_CONCURRENCY;
+      }
+    }
+
     long dispatchDelay = DEFAULT_DISPATCH_START_DELAY;
 
     // Stop the current scheduled executors so we can configure new ones
@@ -812,18 +949,43 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
 
     scheduledExecutor = Executors.newScheduledThreadPool(2);
 
+    if (dispatchExecutor != null) {
+      dispatchExecutor.shutdown();
+      dispatchExecutor = null;
+    }
+    if (dispatchInterval > 0 && dispatchConcurrency > 1) {
+      logger.info("Dispatching up to {} jobs concurrently", dispatchConcurrency);
+      dispatchExecutor = Executors.newFixedThreadPool(dispatchConcurrency);
+    }
+
+    if (heartbeatExecutor != null) {
+      heartbeatExecutor.shutdown();
+      heartbeatExecutor = null;
+    }
+
     // Schedule the service heartbeat if the interval is > 0
     if (heartbeatInterval > 0) {
+      heartbeatExecutor = Executors.newFixedThreadPool(heartbeatConcurrency);
       logger.debug("Starting service heartbeat at a custom interval of {}s", heartbeatInterval);
       scheduledExecutor.scheduleWithFixedDelay(new JobProducerHeartbeat(), heartbeatInterval, heartbeatInterval,
               TimeUnit.SECONDS);
     }
 
     // Schedule the job dispatching.
-    if (dispatchInterval > 0) {
+    if (dispatchInterval > 0 && dispatchQueueEnabled) {
+      logger.info("Starting queue based job dispatching, reconciling the queue every {}s", reconcileInterval);
+      if (dispatchQueue == null) {
+        dispatchQueue = new DispatchQueue();
+      }
+      scheduledExecutor.scheduleWithFixedDelay(new QueuedJobDispatcher(dispatchInterval),
+              TimeUnit.SECONDS.toMillis(dispatchDelay), DISPATCH_QUEUE_ROUND_DELAY, TimeUnit.MILLISECONDS);
+    } else if (dispatchInterval > 0) {
       logger.debug("Starting job dispatching at a custom interval of {}s", dispatchInterval);
+      dispatchQueue = null;
       scheduledExecutor.scheduleWithFixedDelay(new JobDispatcher(), dispatchDelay, dispatchInterval,
               TimeUnit.SECONDS);
+    } else {
+      dispatchQueue = null;
     }
   }
 
@@ -894,6 +1056,7 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
       em = emf.createEntityManager();
       Job oldJob = getJob(job.getId());
       JpaJob jpaJob = updateInternal(em, job);
+      updateDispatchQueue(jpaJob);
       if (!TYPE_WORKFLOW.equals(job.getJobType()) && job.getJobLoad() > 0.0f
               && job.getProcessorServiceRegistration() != null
               && job.getProcessorServiceRegistration().getHost().equals(getRegistryHostname())) {
@@ -932,37 +1095,53 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
    * @param job
    *   The job to apply to the load cache
    */
-  private synchronized void processCachedLoadChange(JpaJob job) {
-    if (JOB_STATUSES_INFLUENCING_LOAD_BALANCING.contains(job.getStatus()) && jobCache.get(job.getId()) == null) {
-      logger.debug("Adding to load cache: {}, type {}, load {}, status {}",
-              job, job.getJobType(), job.getJobLoad(), job.getStatus());
-      localSystemLoad += job.getJobLoad();
-      jobCache.put(job.getId(), job.getJobLoad());
-    } else if (jobCache.get(job.getId()) != null && Status.FINISHED.equals(job.getStatus())
-            || Status.FAILED.equals(job.getStatus()) || Status.WAITING.equals(job.getStatus())) {
-      logger.debug("Removing from load cache: {}, type {}, load {}, status {}",
-              job, job.getJobType(), job.getJobLoad(), job.getStatus());
-      localSystemLoad -= job.getJobLoad();
-      jobCache.remove(job.getId());
+  private void processCachedLoadChange(JpaJob job) {
+    Status status = job.getStatus();
+    if (JOB_STATUSES_INFLUENCING_LOAD_BALANCING.contains(status)) {
+      if (hostLoadLedger.add(job.getId(), job.getProcessorServiceRegistration().getHost(), job.getJobLoad())) {
+        logger.debug("Adding to load cache: {}, type {}, load {}, status {}",
+                job, job.getJobType(), job.getJobLoad(), status);
+      }
+    } else if (Status.WAITING.equals(status) || status.isTerminated()) {
+      if (hostLoadLedger.remove(job.getId()) != null) {
+        logger.debug("Removing from load cache: {}, type {}, load {}, status {}",
+                job, job.getJobType(), job.getJobLoad(), status);
+      }
     } else {
       logger.debug("Ignoring for load cache: {}, type {}, status {}",
-              job, job.getJobType(), job.getStatus());
+              job, job.getJobType(), status);
     }
-    logger.debug("Current host load: {}, job load cache size: {}", format("%.1f", localSystemLoad), jobCache.size());
-
-    if (jobCache.isEmpty() && Math.abs(localSystemLoad) > 0.01f) {
-      logger.warn("No jobs in the job load cache, but load is {}: setting job load to 0",
-              format("%.2f", localSystemLoad));
-      localSystemLoad = 0;
+    if (logger.isDebugEnabled()) {
+      logger.debug("Current host load: {}, job load cache size: {}", format("%.1f", getOwnLoad()),
+              hostLoadLedger.size());
     }
   }
 
-  private synchronized void removeFromLoadCache(Long jobId) {
-    if (jobCache.get(jobId) != null) {
-      float jobLoad = jobCache.get(jobId);
+  private void removeFromLoadCache(Long jobId) {
+    Float jobLoad = hostLoadLedger.remove(jobId);
+    if (jobLoad != null) {
       logger.debug("Removing deleted job from load cache: Job {}, load {}", jobId, jobLoad);
-      localSystemLoad -= jobLoad;
-      jobCache.remove(jobId);
+    }
+  }
+
+  /**
+   * Reflects the job's current state in the in-memory dispatch queue, if the queue is enabled.
+   *
+   * @param job
+   *          the job that has been created or updated
+   */
+  private void updateDispatchQueue(JpaJob job) {
+    DispatchQueue queue = dispatchQueue;
+    if (queue != null) {
+      queue.update(job.getId(), job.getJobType(), job.getOperation(), job.getStatus(), job.isDispatchable(),
+              job.getDateCreated());
+    }
+  }
+
+  private void removeFromDispatchQueue(long jobId) {
+    DispatchQueue queue = dispatchQueue;
+    if (queue != null) {
+      queue.remove(jobId);
     }
   }
 
@@ -1515,6 +1694,7 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
       if (unregisteredJobs.size() > 0) {
         logger.info("Found {} jobs to clean for {}@{}", unregisteredJobs.size(), serviceType, baseUrl);
       }
+      List<JpaJob> restartedJobs = new ArrayList<>();
       for (JpaJob job : unregisteredJobs) {
         if (job.isDispatchable()) {
           em.refresh(job);
@@ -1527,6 +1707,7 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
             rootJob.setStatus(Status.RESTART);
             rootJob.setOperation(START_OPERATION);
             em.merge(rootJob);
+            restartedJobs.add(rootJob);
             continue;
           }
 
@@ -1535,6 +1716,7 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
           logger.info("Rescheduling lost {}", job);
           job.setStatus(Status.RESTART);
           job.setProcessorServiceRegistration(null);
+          restartedJobs.add(job);
         } else {
           logger.info("Marking lost {} as failed", job);
           job.setStatus(Status.FAILED);
@@ -1542,6 +1724,9 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
         em.merge(job);
       }
       tx.commit();
+      for (JpaJob job : restartedJobs) {
+        updateDispatchQueue(job);
+      }
     } catch (Exception e) {
       if (tx != null && tx.isActive()) {
         tx.rollback();
@@ -2862,6 +3047,9 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
     /** A list with job types that cannot be dispatched in each interation */
     private List<String> undispatchableJobTypes = null;
 
+    /** The time of the last reconciliation of the dispatch queue with the database */
+    private long lastReconciliation = 0;
+
     /**
      * {@inheritDoc}
      *
@@ -2884,10 +3072,16 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
           jobsStatistics.updateJobCount(getCountPerHostService(em));
         }
 
+        DispatchQueue queue = dispatchQueue;
+        if (queue != null) {
+          reconcileDispatchQueue(em, queue);
+        }
+
         if (!dispatchPriorityList.isEmpty()) {
           logger.trace("Checking for outdated jobs in dispatchPriorityList's '{}' jobs", dispatchPriorityList.size());
           // Remove outdated jobs from priority list
-          List<Long> jobIds = getDispatchableJobsWithIdFilter(em, dispatchPriorityList.keySet());
+          Collection<Long> jobIds = queue != null ? getQueuedJobIds(queue)
+                  : getDispatchableJobsWithIdFilter(em, dispatchPriorityList.keySet());
           for (Long jobId : new HashSet<>(dispatchPriorityList.keySet())) {
             if (!jobIds.contains(jobId)) {
               logger.debug("Removing outdated dispatchPriorityList job '{}'", jobId);
@@ -2896,50 +3090,54 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
           }
         }
 
-        int jobsOffset = 0;
-        List<JpaJob> dispatchableJobs = null;
-        List<JpaJob> workflowJobs = new ArrayList();
-        boolean jobsFound = false;
-        do {
-          // dispatch all dispatchable jobs with status restarted
-          dispatchableJobs = getDispatchableJobsWithStatus(em, jobsOffset, DEFAULT_DISPATCH_JOBS_LIMIT, Status.RESTART);
-          jobsOffset += DEFAULT_DISPATCH_JOBS_LIMIT;
-          jobsFound = !dispatchableJobs.isEmpty();
-
-          // skip all jobs of type workflow, we will handle them next
-          for (JpaJob job : dispatchableJobs) {
-            if (TYPE_WORKFLOW.equals(job.getJobType())) {
-              workflowJobs.add(job);
+        if (queue != null) {
+          dispatchQueuedJobs(em, queue);
+        } else {
+          int jobsOffset = 0;
+          List<JpaJob> dispatchableJobs = null;
+          List<JpaJob> workflowJobs = new ArrayList();
+          boolean jobsFound = false;
+          do {
+            // dispatch all dispatchable jobs with status restarted
+            dispatchableJobs = getDispatchableJobsWithStatus(em, jobsOffset, DEFAULT_DISPATCH_JOBS_LIMIT, Status.RESTART);
+            jobsOffset += DEFAULT_DISPATCH_JOBS_LIMIT;
+            jobsFound = !dispatchableJobs.isEmpty();
+
+            // skip all jobs of type workflow, we will handle them next
+            for (JpaJob job : dispatchableJobs) {
+              if (TYPE_WORKFLOW.equals(job.getJobType())) {
+                workflowJobs.add(job);
+              }
             }
-          }
-          if (dispatchableJobs.removeAll(workflowJobs) && dispatchableJobs.isEmpty())
-            continue;
-
-          dispatchDispatchableJobs(em, dispatchableJobs);
-        } while (jobsFound);
-
-        jobsOffset = 0;
-        jobsFound = false;
-        do {
-          // dispatch all dispatchable jobs with status queued
-          dispatchableJobs = getDispatchableJobsWithStatus(em, jobsOffset, DEFAULT_DISPATCH_JOBS_LIMIT, Status.QUEUED);
-          jobsOffset += DEFAULT_DISPATCH_JOBS_LIMIT;
-          jobsFound = !dispatchableJobs.isEmpty();
-
-          // skip all jobs of type workflow, we will handle them next
-          for (JpaJob job : dispatchableJobs) {
-            if (TYPE_WORKFLOW.equals(job.getJobType())) {
-              workflowJobs.add(job);
+            if (dispatchableJobs.removeAll(workflowJobs) && dispatchableJobs.isEmpty())
+              continue;
+
+            dispatchDispatchableJobs(em, dispatchableJobs);
+          } while (jobsFound);
+
+          jobsOffset = 0;
+          jobsFound = false;
+          do {
+            // dispatch all dispatchable jobs with status queued
+            dispatchableJobs = getDispatchableJobsWithStatus(em, jobsOffset, DEFAULT_DISPATCH_JOBS_LIMIT, Status.QUEUED);
+            jobsOffset += DEFAULT_DISPATCH_JOBS_LIMIT;
+            jobsFound = !dispatchableJobs.isEmpty();
+
+            // skip all jobs of type workflow, we will handle them next
+            for (JpaJob job : dispatchableJobs) {
+              if (TYPE_WORKFLOW.equals(job.getJobType())) {
+                workflowJobs.add(job);
+              }
             }
-          }
-          if (dispatchableJobs.removeAll(workflowJobs) && dispatchableJobs.isEmpty())
-            continue;
+            if (dispatchableJobs.removeAll(workflowJobs) && dispatchableJobs.isEmpty())
+              continue;
 
-          dispatchDispatchableJobs(em, dispatchableJobs);
-        } while (jobsFound);
+            dispatchDispatchableJobs(em, dispatchableJobs);
+          } while (jobsFound);
 
-        if (!workflowJobs.isEmpty())
-          dispatchDispatchableJobs(em, workflowJobs);
+          if (!workflowJobs.isEmpty())
+            dispatchDispatchableJobs(em, workflowJobs);
+        }
 
       } catch (Throwable t) {
         logger.warn("Error dispatching jobs", t);
@@ -2952,6 +3150,111 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
       logger.debug("Finished job dispatching");
     }
 
+    /**
+     * Replaces the contents of the dispatch queue with the dispatchable jobs from the database if the reconcile
+     * interval has elapsed. Otherwise only the dispatchable jobs created since the last reconciliation are added. This
+     * picks up jobs that have been created by other nodes within one dispatch round and all other changes made by other
+     * nodes within the reconcile interval.
+     *
+     * @param em
+     *          the entity manager
+     * @param queue
+     *          the dispatch queue
+     */
+    private void reconcileDispatchQueue(EntityManager em, DispatchQueue queue) {
+      long now = System.currentTimeMillis();
+      if (now - lastReconciliation < dispatchQueueReconcileInterval) {
+        // Look back one more interval to account for clock skew and jobs committed after the last reconciliation
+        Query query = em.createNamedQuery("Job.dispatchable.queue.since");
+        query.setParameter("statuses", Arrays.asList(Status.RESTART.ordinal(), Status.QUEUED.ordinal()));
+        query.setParameter("since", new Date(lastReconciliation - dispatchQueueReconcileInterval),
+                TemporalType.TIMESTAMP);
+        queue.addAll(toDispatchQueueEntries(query.getResultList(), now));
+        return;
+      }
+
+      Set<Long> snapshot = queue.snapshot();
+      Query query = em.createNamedQuery("Job.dispatchable.queue");
+      query.setParameter("statuses", Arrays.asList(Status.RESTART.ordinal(), Status.QUEUED.ordinal()));
+      List<DispatchQueue.Entry> entries = toDispatchQueueEntries(query.getResultList(), now);
+      queue.reconcile(snapshot, entries);
+      lastReconciliation = now;
+      logger.debug("Reconciled dispatch queue with {} dispatchable jobs", entries.size());
+    }
+
+    private List<DispatchQueue.Entry> toDispatchQueueEntries(List<?> results, long now) {
+      List<DispatchQueue.Entry> entries = new ArrayList<>();
+      for (Object result : results) {
+        Object[] row = (Object[]) result;
+        Date dateCreated = (Date) row[4];
+        entries.add(new DispatchQueue.Entry(((Number) row[0]).longValue(), (String) row[1], (String) row[2],
+                Status.RESTART.ordinal() == ((Number) row[3]).intValue(),
+                dateCreated != null ? dateCreated.getTime() : now));
+      }
+      return entries;
+    }
+
+    private Set<Long> getQueuedJobIds(DispatchQueue queue) {
+      Set<Long> jobIds = new HashSet<>();
+      for (Long jobId : dispatchPriorityList.keySet()) {
+        if (queue.contains(jobId))
+          jobIds.add(jobId);
+      }
+      return jobIds;
+    }
+
+    /**
+     * Dispatches the jobs waiting in the dispatch queue. Jobs of a type that turned out to be undispatchable during
+     * this round are skipped without being loaded from the database.
+     *
+     * @param em
+     *          the entity manager
+     * @param queue
+     *          the dispatch queue
+     */
+    private void dispatchQueuedJobs(EntityManager em, DispatchQueue queue) throws ServiceRegistryException {
+      List<Long> jobIds = new ArrayList<>();
+      for (DispatchQueue.Entry entry : queue.getEntries()) {
+        if (undispatchableJobTypes.contains(entry.getSignature()) && !dispatchPriorityList.containsKey(entry.getId()))
+          continue;
+        jobIds.add(entry.getId());
+        if (jobIds.size() >= DEFAULT_DISPATCH_JOBS_LIMIT) {
+          dispatchJobsWithIds(em, queue, jobIds);
+          jobIds.clear();
+        }
+      }
+      if (!jobIds.isEmpty())
+        dispatchJobsWithIds(em, queue, jobIds);
+    }
+
+    private void dispatchJobsWithIds(EntityManager em, DispatchQueue queue, List<Long> jobIds)
+            throws ServiceRegistryException {
+      List<JpaJob> jobs;
+      try {
+        TypedQuery<JpaJob> query = em.createNamedQuery("Job.dispatchable.status.ids", JpaJob.class);
+        query.setParameter("jobids", jobIds);
+        query.setParameter("statuses", Arrays.asList(Status.RESTART.ordinal(), Status.QUEUED.ordinal()));
+        jobs = query.getResultList();
+      } catch (Exception e) {
+        throw new ServiceRegistryException(e);
+      }
+
+      // Jobs which are no longer dispatchable have been taken care of by another node
+      Set<Long> found = new HashSet<>();
+      for (JpaJob job : jobs) {
+        found.add(job.getId());
+      }
+      for (Long jobId : jobIds) {
+        if (!found.contains(jobId)) {
+          logger.debug("Removing outdated job '{}' from the dispatch queue", jobId);
+          queue.remove(jobId);
+        }
+      }
+
+      jobs.sort(new DispatchableComparator());
+      dispatchDispatchableJobs(em, jobs);
+    }
+
     /**
      * Dispatch the given jobs.
      *
@@ -2959,6 +3262,12 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
      * @param jobsToDispatch list with dispatchable jobs to dispatch
      */
     private void dispatchDispatchableJobs(EntityManager em, List<JpaJob> jobsToDispatch) {
+      ExecutorService executor = dispatchExecutor;
+      if (executor != null) {
+        dispatchJobBatch(em, jobsToDispatch, executor);
+        return;
+      }
+
       //Get the current system load
       SystemLoad systemLoad = getHostLoads(em);
 
@@ -3049,6 +3358,7 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
             }
 
             dispatchPriorityList.remove(job.getId());
+            removeFromDispatchQueue(job.getId());
           } catch (ServiceUnavailableException e) {
             logger.debug("Jobs of type {} currently cannot be dispatched", job.getOperation());
             // Don't mark workflow jobs as undispatchable to not impact worklfow operations
@@ -3071,6 +3381,179 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
       }
     }
 
+    /**
+     * Dispatches the given jobs as a batch. The host loads, service and host registrations are loaded once for the
+     * whole batch, the security context is resolved once per organization and creator, and the jobs are assigned to
+     * hosts in a single planning step which accounts for the load of the jobs planned before. The dispatch requests
+     * are then sent concurrently.
+     *
+     * @param em
+     *          the entity manager
+     * @param jobsToDispatch
+     *          list with dispatchable jobs to dispatch
+     * @param executor
+     *          the executor used to send the dispatch requests
+     */
+    private void dispatchJobBatch(EntityManager em, List<JpaJob> jobsToDispatch, ExecutorService executor) {
+      SystemLoad systemLoad = getHostLoads(em);
+      List<ServiceRegistration> services = getServiceRegistrations(em);
+      List<HostRegistration> hostRegistrations = getHostRegistrations(em);
+
+      Map<String, Organization> organizations = new HashMap<>();
+      Map<String, User> users = new HashMap<>();
+      Map<Long, Boolean> parentsWithRunningChildren = new HashMap<>();
+      Map<PlannedDispatch, Future<String>> dispatches = new LinkedHashMap<>();
+
+      for (JpaJob job : jobsToDispatch) {
+        String jobType = job.getJobType();
+        String jobSignature = new StringBuilder(jobType).append('@').append(job.getOperation()).toString();
+        if (undispatchableJobTypes.contains(jobSignature) && !dispatchPriorityList.containsKey(job.getId())) {
+          logger.trace("Skipping dispatching of {} with type '{}' for this round of dispatching", job, jobType);
+          continue;
+        }
+
+        // Resolve the security context once per organization and creator
+        String creatorOrganization = job.getOrganization();
+        if (!organizations.containsKey(creatorOrganization)) {
+          try {
+            organizations.put(creatorOrganization, organizationDirectoryService.getOrganization(creatorOrganization));
+          } catch (NotFoundException e) {
+            organizations.put(creatorOrganization, null);
+          }
+        }
+        Organization organization = organizations.get(creatorOrganization);
+        if (organization == null) {
+          logger.debug("Skipping dispatching of job for non-existing organization '{}'", creatorOrganization);
+          continue;
+        }
+
+        String userKey = creatorOrganization + '/' + job.getCreator();
+        if (!users.containsKey(userKey)) {
+          securityService.setOrganization(organization);
+          try {
+            users.put(userKey, userDirectoryService.loadUser(job.getCreator()));
+          } finally {
+            securityService.setOrganization(null);
+          }
+        }
+        User user = users.get(userKey);
+        if (user == null) {
+          logger.warn("Unable to dispatch {}: creator '{}' is not available", job, job.getCreator());
+          continue;
+        }
+
+        try {
+          // When a job A starts a series of child jobs, then those child jobs should only be dispatched at the same
+          // time if there is processing capacity available.
+          Long parentJobId = job.getParentJob() != null ? job.getParentJob().getId() : null;
+          boolean parentHasRunningChildren = false;
+          if (parentJobId != null) {
+            if (!parentsWithRunningChildren.containsKey(parentJobId)) {
+              boolean running = false;
+              for (Job child : getChildJobs(parentJobId)) {
+                if (Status.RUNNING.equals(child.getStatus())) {
+                  running = true;
+                  break;
+                }
+              }
+              parentsWithRunningChildren.put(parentJobId, running);
+            }
+            parentHasRunningChildren = parentsWithRunningChildren.get(parentJobId);
+          }
+
+          List<HostRegistration> hosts = $(hostRegistrations).filter(filterOutPriorityHosts._2(job.getId())).toList();
+          List<ServiceRegistration> candidateServices;
+          String plannedHost;
+          // The dispatch threads move reservations to the hosts which actually accepted the jobs
+          synchronized (systemLoad) {
+            if (parentJobId == null || TYPE_WORKFLOW.equals(jobType) || parentHasRunningChildren) {
+              candidateServices = getServiceRegistrationsWithCapacity(jobType, services, hosts, systemLoad);
+            } else {
+              candidateServices = getServiceRegistrationsByLoad(jobType, services, hosts, systemLoad);
+            }
+
+            if (candidateServices.isEmpty()) {
+              logger.debug("Jobs of type {} currently cannot be dispatched", job.getOperation());
+              // Don't mark workflow jobs as undispatchable to not impact worklfow operations
+              if (!TYPE_WORKFLOW.equals(jobType))
+                undispatchableJobTypes.add(jobSignature);
+              continue;
+            }
+
+            // Reserve the job's load on the host that is most likely to accept it, so that the following jobs are
+            // planned against the remaining capacity
+            plannedHost = candidateServices.get(0).getHost();
+            try {
+              systemLoad.updateNodeLoad(plannedHost, job.getJobLoad());
+            } catch (NotFoundException e) {
+              logger.info("Host {} not found in load list, cannot plan {} for it", plannedHost, job);
+            }
+          }
+
+          final PlannedDispatch dispatch = new PlannedDispatch(job, jobSignature, organization, user,
+                  candidateServices, systemLoad, plannedHost);
+          dispatches.put(dispatch, executor.submit(() -> dispatchPlanned(dispatch)));
+        } catch (ServiceRegistryException e) {
+          Throwable cause = (e.getCause() != null) ? e.getCause() : e;
+          logger.error("Error dispatching {}: {}", job, cause);
+        }
+      }
+
+      for (Map.Entry<PlannedDispatch, Future<String>> dispatch : dispatches.entrySet()) {
+        JpaJob job = dispatch.getKey().job;
+        try {
+          String hostAcceptingJob = dispatch.getValue().get();
+          dispatchPriorityList.remove(job.getId());
+          removeFromDispatchQueue(job.getId());
+          logger.debug("{} dispatched to {}", job, hostAcceptingJob);
+        } catch (InterruptedException e) {
+          logger.debug("Interrupted while dispatching {}", job);
+          Thread.currentThread().interrupt();
+          return;
+        } catch (ExecutionException e) {
+          Throwable cause = e.getCause();
+          if (cause instanceof ServiceUnavailableException) {
+            logger.debug("Jobs of type {} currently cannot be dispatched", job.getOperation());
+            if (!TYPE_WORKFLOW.equals(job.getJobType()))
+              undispatchableJobTypes.add(dispatch.getKey().signature);
+          } else if (cause instanceof UndispatchableJobException) {
+            logger.debug("{} currently cannot be dispatched", job);
+          } else {
+            Throwable root = (cause.getCause() != null) ? cause.getCause() : cause;
+            logger.error("Error dispatching {}: {}", job, root);
+          }
+        }
+      }
+    }
+
+    /**
+     * Sends the dispatch request of a planned job. This is executed on one of the dispatch threads, so it is using its
+     * own entity manager and security context.
+     *
+     * @param dispatch
+     *          the planned dispatch
+     * @return the host that accepted the job
+     */
+    private String dispatchPlanned(PlannedDispatch dispatch)
+            throws ServiceRegistryException, ServiceUnavailableException, UndispatchableJobException {
+      EntityManager em = null;
+      String hostAcceptingJob = null;
+      try {
+        em = emf.createEntityManager();
+        securityService.setOrganization(dispatch.organization);
+        securityService.setUser(dispatch.user);
+        hostAcceptingJob = dispatchJob(em, dispatch.job, dispatch.services);
+        return hostAcceptingJob;
+      } finally {
+        // Book the load on the host that accepted the job, or release it if no host did
+        moveLoad(dispatch.systemLoad, dispatch.plannedHost, hostAcceptingJob, dispatch.load);
+        securityService.setUser(null);
+        securityService.setOrganization(null);
+        if (em != null)
+          em.close();
+      }
+    }
+
     /**
      * Dispatches the job to the least loaded service that will accept the job, or throws a
      * <code>ServiceUnavailableException</code> if there is no such service.
@@ -3249,7 +3732,97 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
 
   }
 
-  /** A periodic check on each service registration to ensure that it is still alive. */
+  /**
+   * Moves a job's load that has been reserved on one host to another one.
+   *
+   * @param systemLoad
+   *          the host loads, which may be shared between threads
+   * @param from
+   *          the host the load has been reserved on, may be <code>null</code>
+   * @param to
+   *          the host to book the load on instead, or <code>null</code> to release the reservation
+   * @param load
+   *          the job load
+   */
+  static void moveLoad(SystemLoad systemLoad, String from, String to, float load) {
+    if (from == null ? to == null : from.equals(to))
+      return;
+    synchronized (systemLoad) {
+      NodeLoad reserved = systemLoad.get(from);
+      if (reserved != null)
+        reserved.modifyLoad(-load);
+      NodeLoad booked = systemLoad.get(to);
+      if (booked != null)
+        booked.modifyLoad(load);
+    }
+  }
+
+  /** A job which has been assigned to candidate services during batch dispatching */
+  private static final class PlannedDispatch {
+
+    private final JpaJob job;
+    private final String signature;
+    private final Organization organization;
+    private final User user;
+    private final List<ServiceRegistration> services;
+    private final SystemLoad systemLoad;
+    private final String plannedHost;
+    private final float load;
+
+    PlannedDispatch(JpaJob job, String signature, Organization organization, User user,
+            List<ServiceRegistration> services, SystemLoad systemLoad, String plannedHost) {
+      this.job = job;
+      this.signature = signature;
+      this.organization = organization;
+      this.user = user;
+      this.services = services;
+      this.systemLoad = systemLoad;
+      this.plannedHost = plannedHost;
+      this.load = job.getJobLoad();
+    }
+
+  }
+
+  /**
+   * Dispatcher working off the in-memory {@link DispatchQueue}. Each round waits until new jobs have been queued or the
+   * dispatch interval has elapsed, whatever comes first, so new jobs are dispatched right after they have been created.
+   */
+  class QueuedJobDispatcher extends JobDispatcher {
+
+    /** The maximum time to wait for new jobs, in seconds */
+    private final long dispatchInterval;
+
+    QueuedJobDispatcher(long dispatchInterval) {
+      this.dispatchInterval = dispatchInterval;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.lang.Thread#run()
+     */
+    @Override
+    public void run() {
+      DispatchQueue queue = dispatchQueue;
+      if (queue == null)
+        return;
+      try {
+        queue.awaitChanges(dispatchInterval, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        logger.debug("Interrupted while waiting for jobs to dispatch");
+        Thread.currentThread().interrupt();
+        return;
+      }
+      super.run();
+    }
+
+  }
+
+  /**
+   * A periodic check on each service registration to ensure that it is still alive. The services are checked
+   * concurrently with a bounded number of requests in flight, so a few slow nodes don't delay the detection of failed
+   * services on the other nodes.
+   */
   class JobProducerHeartbeat implements Runnable {
 
     /** List of service registrations that have been found unresponsive last time we checked */
@@ -3267,6 +3840,9 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
       try {
         List<ServiceRegistration> serviceRegistrations = getOnlineServiceRegistrations();
 
+        // Send the heartbeat requests to all job producers at once, the executor limits the number of parallel requests
+        ExecutorService executor = heartbeatExecutor;
+        Map<ServiceRegistration, HeartbeatCheck> checks = new LinkedHashMap<>();
         for (ServiceRegistration service : serviceRegistrations) {
           hostsStatistics.updateHost(((ServiceRegistrationJpaImpl) service).getHostRegistration());
           servicesStatistics.updateService(service);
@@ -3275,59 +3851,76 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
           if (service.isInMaintenanceMode())
             continue;
 
-          // We think this service is online and available. Prove it.
-          String serviceUrl = UrlSupport.concat(service.getHost(), service.getPath(), "dispatch");
+          HeartbeatCheck check = new HeartbeatCheck(() -> checkService(service));
+          if (executor != null) {
+            executor.execute(check);
+          } else {
+            check.run();
+          }
+          checks.put(service, check);
+        }
 
-          HttpHead options = new HttpHead(serviceUrl);
-          HttpResponse response = null;
+        // Each check can take at most the connection and socket timeouts of its request. It is timed from its start,
+        // so checks waiting for a pool thread behind stuck ones are not taken for unresponsive services.
+        long checkTimeout = 2L * heartbeatTimeout;
+        for (Map.Entry<ServiceRegistration, HeartbeatCheck> check : checks.entrySet()) {
+          ServiceRegistration service = check.getKey();
           try {
-            try {
-              response = client.execute(options);
-              if (response != null) {
-                switch (response.getStatusLine().getStatusCode()) {
-                  case HttpStatus.SC_OK:
-                    // this service is reachable, continue checking other services
-                    logger.trace("Service " + service.toString() + " is responsive: " + response.getStatusLine());
-                    if (unresponsive.remove(service)) {
-                      logger.info("Service {} is still online", service);
-                    } else if (!service.isOnline()) {
-                      try {
-                        setOnlineStatus(service.getServiceType(), service.getHost(), service.getPath(), true, true);
-                        logger.info("Service {} is back online", service);
-                      } catch (ServiceRegistryException e) {
-                        logger.warn("Error setting online status for {}", service);
-                      }
+            if (!check.getValue().awaitStart(checkTimeout)) {
+              // All pool threads are still blocked by earlier checks, the next round will check this service
+              check.getValue().cancel(false);
+              logger.warn("Unable to check {}, no heartbeat thread became available within {}ms", service,
+                      checkTimeout);
+              continue;
+            }
+            Integer statusCode = check.getValue().get(checkTimeout);
+            if (statusCode != null) {
+              switch (statusCode) {
+                case HttpStatus.SC_OK:
+                  // this service is reachable, continue checking other services
+                  logger.trace("Service {} is responsive", service);
+                  if (unresponsive.remove(service)) {
+                    logger.info("Service {} is still online", service);
+                  } else if (!service.isOnline()) {
+                    try {
+                      setOnlineStatus(service.getServiceType(), service.getHost(), service.getPath(), true, true);
+                      logger.info("Service {} is back online", service);
+                    } catch (ServiceRegistryException e) {
+                      logger.warn("Error setting online status for {}", service);
                     }
+                  }
+                  continue;
+                default:
+                  if (!service.isOnline())
                     continue;
-                  default:
-                    if (!service.isOnline())
-                      continue;
-                    logger.warn("Service {} is not working as expected: {}", service, response.getStatusLine());
-                }
-              } else {
-                logger.warn("Service {} does not respond: {}", service.toString());
+                  logger.warn("Service {} is not working as expected: {}", service, statusCode);
               }
-            } catch (TrustedHttpClientException e) {
-              if (!service.isOnline())
-                continue;
-              logger.warn("Unable to reach {} : {}", service, e);
+            } else {
+              logger.warn("Service {} does not respond", service);
             }
+          } catch (ExecutionException e) {
+            if (!service.isOnline())
+              continue;
+            logger.warn("Unable to reach {} : {}", service, e.getCause());
+          } catch (TimeoutException e) {
+            check.getValue().cancel(true);
+            if (!service.isOnline())
+              continue;
+            logger.warn("Service {} did not respond within {}ms", service, checkTimeout);
+          }
 
-            // If we get here, the service did not respond as expected
-            try {
-              if (unresponsive.contains(service)) {
-                unRegisterService(service.getServiceType(), service.getHost());
-                unresponsive.remove(service);
-                logger.warn("Marking {} as offline", service);
-              } else {
-                unresponsive.add(service);
-                logger.warn("Added {} to the watch list", service);
-              }
-            } catch (ServiceRegistryException e) {
-              logger.warn("Unable to unregister unreachable service: {} : {}", service, e);
+          // If we get here, the service did not respond as expected
+          try {
+            if (unresponsive.contains(service)) {
+              unRegisterService(service.getServiceType(), service.getHost());
+              unresponsive.remove(service);
+              logger.warn("Marking {} as offline", service);
+            } else {
+              unresponsive.add(service);
+              logger.warn("Added {} to the watch list", service);
             }
-          } finally {
-            client.close(response);
+          } catch (ServiceRegistryException e) {
+            logger.warn("Unable to unregister unreachable service: {} : {}", service, e);
           }
         }
       } catch (Throwable t) {
@@ -3337,6 +3930,69 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
       logger.debug("Finished checking for unresponsive services");
     }
 
+    /** A heartbeat request which is timed from the moment it starts running rather than from being queued */
+    private final class HeartbeatCheck extends FutureTask<Integer> {
+
+      private final CountDownLatch started = new CountDownLatch(1);
+      private volatile long startTime;
+
+      HeartbeatCheck(Callable<Integer> check) {
+        super(check);
+      }
+
+      @Override
+      public void run() {
+        startTime = System.nanoTime();
+        started.countDown();
+        super.run();
+      }
+
+      /** Waits for the check to be picked up by a pool thread, returns whether it has started. */
+      boolean awaitStart(long timeout) throws InterruptedException {
+        return started.await(timeout, TimeUnit.MILLISECONDS);
+      }
+
+      /** Waits for the result of a started check until <code>timeout</code> milliseconds after its start. */
+      Integer get(long timeout) throws InterruptedException, ExecutionException, TimeoutException {
+        long remaining = startTime + TimeUnit.MILLISECONDS.toNanos(timeout) - System.nanoTime();
+        return get(Math.max(0, remaining), TimeUnit.NANOSECONDS);
+      }
+
+    }
+
+    /**
+     * Sends a heartbeat request to the service and records the round trip time.
+     *
+     * @param service
+     *          the service to check
+     * @return the response's status code, or <code>null</code> if there was no response
+     * @throws TrustedHttpClientException
+     *           if the service could not be reached
+     */
+    private Integer checkService(ServiceRegistration service) throws TrustedHttpClientException {
+      // We think this service is online and available. Prove it.
+      String serviceUrl = UrlSupport.concat(service.getHost(), service.getPath(), "dispatch");
+
+      HttpHead options = new HttpHead(serviceUrl);
+      HttpResponse response = null;
+      long start = System.nanoTime();
+      try {
+        response = client.execute(options, heartbeatTimeout, heartbeatTimeout);
+        if (response == null)
+          return null;
+        long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        hostsStatistics.updateHeartbeatLatency(service.getHost(), latency);
+        servicesStatistics.updateHeartbeatLatency(service, latency);
+        return response.getStatusLine().getStatusCode();
+      } finally {
+        try {
+          client.close(response);
+        } catch (IOException e) {
+          // ignore
+        }
+      }
+    }
+
   }
 
   /**
@@ -35,6 +35,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.management.MBeanNotificationInfo;
 import javax.management.Notification;
@@ -51,6 +52,8 @@ public class HostsStatistics extends NotificationBroadcasterSupport implements H
 
   private Map<String, Integer> hosts = new HashMap<String, Integer>();
 
+  private Map<String, Long> heartbeatLatencies = new ConcurrentHashMap<>();
+
   public HostsStatistics(List<ServiceStatistics> statistics) {
     for (ServiceStatistics stats : statistics) {
       String host = stats.getServiceRegistration().getHost();
@@ -89,6 +92,18 @@ public class HostsStatistics extends NotificationBroadcasterSupport implements H
     sendNotification(JmxUtil.createUpdateNotification(this, sequenceNumber++, "Host updated"));
   }
 
+  /**
+   * Records the round trip time of a heartbeat request to a service on the given host.
+   *
+   * @param host
+   *          the host's base URL
+   * @param millis
+   *          the round trip time in milliseconds
+   */
+  public void updateHeartbeatLatency(String host, long millis) {
+    heartbeatLatencies.put(host, millis);
+  }
+
   @Override
   public MBeanNotificationInfo[] getNotificationInfo() {
     String[] types = new String[] { JmxUtil.OPENCAST_UPDATE_NOTIFICATION };
@@ -178,4 +193,16 @@ public class HostsStatistics extends NotificationBroadcasterSupport implements H
     return maintenanceHosts.toArray(new String[maintenanceHosts.size()]);
   }
 
+  /**
+   * @see org.opencastproject.serviceregistry.impl.jmx.HostsStatisticsMXBean#getHeartbeatLatencies()
+   */
+  @Override
+  public String[] getHeartbeatLatencies() {
+    List<String> latencies = new ArrayList<String>();
+    for (Entry<String, Long> entry : heartbeatLatencies.entrySet()) {
+      latencies.add(entry.getKey() + ";" + entry.getValue());
+    }
+    return latencies.toArray(new String[latencies.size()]);
+  }
+
 }
@@ -82,4 +82,11 @@ public interface HostsStatisticsMXBean {
    */
   int getInMaintenanceCount();
 
+  /**
+   * Gets the round trip time of the last heartbeat request per host, formatted as <code>host;milliseconds</code>
+   *
+   * @return an array including the last heartbeat latencies
+   */
+  String[] getHeartbeatLatencies();
+
 }
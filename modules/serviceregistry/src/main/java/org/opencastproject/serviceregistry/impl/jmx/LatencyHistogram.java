@@ -0,0 +1,77 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package org.opencastproject.serviceregistry.impl.jmx;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread safe histogram of latencies with fixed bucket boundaries, in milliseconds.
+ */
+public class LatencyHistogram {
+
+  /** The upper bounds of the buckets in milliseconds, the last bucket takes everything above */
+  private static final long[] BUCKET_BOUNDS = { 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000 };
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKET_BOUNDS.length + 1);
+
+  /**
+   * Records a latency.
+   *
+   * @param millis
+   *          the latency in milliseconds
+   */
+  public void record(long millis) {
+    int bucket = 0;
+    while (bucket < BUCKET_BOUNDS.length && millis > BUCKET_BOUNDS[bucket]) {
+      bucket++;
+    }
+    counts.incrementAndGet(bucket);
+  }
+
+  /**
+   * Returns the bucket labels, e.g. <code>&lt;=10ms</code>, in the same order as {@link #getCounts()}.
+   *
+   * @return the bucket labels
+   */
+  public String[] getBuckets() {
+    String[] buckets = new String[BUCKET_BOUNDS.length + 1];
+    for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+      buckets[i] = "<=" + BUCKET_BOUNDS[i] + "ms";
+    }
+    buckets[BUCKET_BOUNDS.length] = ">" + BUCKET_BOUNDS[BUCKET_BOUNDS.length - 1] + "ms";
+    return buckets;
+  }
+
+  /**
+   * Returns the number of recorded latencies per bucket.
+   *
+   * @return the counts per bucket
+   */
+  public long[] getCounts() {
+    long[] result = new long[counts.length()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = counts.get(i);
+    }
+    return result;
+  }
+
+}
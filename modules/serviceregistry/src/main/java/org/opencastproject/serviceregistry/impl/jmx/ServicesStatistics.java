@@ -37,6 +37,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.management.MBeanNotificationInfo;
 import javax.management.Notification;
@@ -49,6 +50,8 @@ public class ServicesStatistics extends NotificationBroadcasterSupport implement
   private static final String DELIMITER = ";";
 
   private Map<Tuple<String, String>, ServiceState> services = new HashMap<Tuple<String, String>, ServiceState>();
+  private Map<Tuple<String, String>, Long> heartbeatLatencies = new ConcurrentHashMap<>();
+  private final LatencyHistogram heartbeatLatencyHistogram = new LatencyHistogram();
   private long sequenceNumber = 1;
   private final String hostName;
 
@@ -77,6 +80,19 @@ public class ServicesStatistics extends NotificationBroadcasterSupport implement
     sendNotification(JmxUtil.createUpdateNotification(this, sequenceNumber++, "Service updated"));
   }
 
+  /**
+   * Records the round trip time of a heartbeat request to the given service.
+   *
+   * @param registration
+   *          the service registration
+   * @param millis
+   *          the round trip time in milliseconds
+   */
+  public void updateHeartbeatLatency(ServiceRegistration registration, long millis) {
+    heartbeatLatencies.put(Tuple.tuple(registration.getHost(), registration.getServiceType()), millis);
+    heartbeatLatencyHistogram.record(millis);
+  }
+
   @Override
   public MBeanNotificationInfo[] getNotificationInfo() {
     String[] types = new String[] { JmxUtil.OPENCAST_UPDATE_NOTIFICATION };
@@ -274,4 +290,32 @@ public class ServicesStatistics extends NotificationBroadcasterSupport implement
     return erroServices.toArray(new String[erroServices.size()]);
   }
 
+  /**
+   * @see org.opencastproject.serviceregistry.impl.jmx.ServicesStatisticsMXBean#getHeartbeatLatencies()
+   */
+  @Override
+  public String[] getHeartbeatLatencies() {
+    List<String> latencies = new ArrayList<String>();
+    for (Entry<Tuple<String, String>, Long> entry : heartbeatLatencies.entrySet()) {
+      latencies.add(entry.getKey().getA() + DELIMITER + entry.getKey().getB() + DELIMITER + entry.getValue());
+    }
+    return latencies.toArray(new String[latencies.size()]);
+  }
+
+  /**
+   * @see org.opencastproject.serviceregistry.impl.jmx.ServicesStatisticsMXBean#getHeartbeatLatencyBuckets()
+   */
+  @Override
+  public String[] getHeartbeatLatencyBuckets() {
+    return heartbeatLatencyHistogram.getBuckets();
+  }
+
+  /**
+   * @see org.opencastproject.serviceregistry.impl.jmx.ServicesStatisticsMXBean#getHeartbeatLatencyHistogram()
+   */
+  @Override
+  public long[] getHeartbeatLatencyHistogram() {
+    return heartbeatLatencyHistogram.getCounts();
+  }
+
 }
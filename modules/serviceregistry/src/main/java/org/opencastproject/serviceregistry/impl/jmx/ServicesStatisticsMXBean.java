@@ -138,4 +138,25 @@ public interface ServicesStatisticsMXBean {
    */
   int getErrorServiceCountByNode();
 
+  /**
+   * Gets the round trip time of the last heartbeat request per service, formatted as <code>host;service type;milliseconds</code>
+   *
+   * @return an array including the last heartbeat latencies
+   */
+  String[] getHeartbeatLatencies();
+
+  /**
+   * Gets the bucket labels of the heartbeat latency histogram
+   *
+   * @return an array including the bucket labels
+   */
+  String[] getHeartbeatLatencyBuckets();
+
+  /**
+   * Gets the number of heartbeat requests per bucket of the heartbeat latency histogram
+   *
+   * @return an array including the counts, in the same order as the bucket labels
+   */
+  long[] getHeartbeatLatencyHistogram();
+
 }
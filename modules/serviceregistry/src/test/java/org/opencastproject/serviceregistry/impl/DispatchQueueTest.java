@@ -0,0 +1,122 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package org.opencastproject.serviceregistry.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.opencastproject.serviceregistry.impl.ServiceRegistryJpaImpl.TYPE_WORKFLOW;
+
+import org.opencastproject.job.api.Job.Status;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+public class DispatchQueueTest {
+
+  private DispatchQueue queue;
+
+  @Before
+  public void setUp() {
+    queue = new DispatchQueue();
+  }
+
+  private List<Long> ids() {
+    return queue.getEntries().stream().map(DispatchQueue.Entry::getId).collect(Collectors.toList());
+  }
+
+  @Test
+  public void testDispatchOrder() {
+    queue.update(1L, TYPE_WORKFLOW, "START_OPERATION", Status.QUEUED, true, new Date(100));
+    queue.update(2L, "composer", "Encode", Status.QUEUED, true, new Date(300));
+    queue.update(3L, "inspection", "Inspect", Status.QUEUED, true, new Date(200));
+    queue.update(4L, "composer", "Encode", Status.RESTART, true, new Date(400));
+
+    // Restarted jobs first, then by creation date, workflow jobs last
+    assertEquals(Arrays.asList(4L, 3L, 2L, 1L), ids());
+  }
+
+  @Test
+  public void testStatusTransitions() {
+    queue.update(1L, "composer", "Encode", Status.QUEUED, true, new Date());
+    queue.update(2L, "composer", "Encode", Status.QUEUED, false, new Date());
+    assertEquals(1, queue.size());
+    assertTrue(queue.contains(1L));
+    assertFalse(queue.contains(2L));
+
+    queue.update(1L, "composer", "Encode", Status.RUNNING, true, new Date());
+    assertEquals(0, queue.size());
+    assertTrue(queue.getEntries().isEmpty());
+  }
+
+  @Test
+  public void testReconcile() {
+    queue.update(1L, "composer", "Encode", Status.QUEUED, true, new Date(100));
+    queue.update(2L, "composer", "Encode", Status.QUEUED, true, new Date(200));
+
+    queue.reconcile(queue.snapshot(), Arrays.asList(new DispatchQueue.Entry(2L, "composer", "Encode", false, 200),
+            new DispatchQueue.Entry(3L, "inspection", "Inspect", true, 300)));
+
+    assertEquals(Arrays.asList(3L, 2L), ids());
+  }
+
+  @Test
+  public void testReconcileKeepsJobsQueuedDuringRead() {
+    queue.update(1L, "composer", "Encode", Status.QUEUED, true, new Date(100));
+    Set<Long> snapshot = queue.snapshot();
+
+    // Job 2 is created while the dispatchable jobs are read from the database, so the result does not contain it
+    queue.update(2L, "composer", "Encode", Status.QUEUED, true, new Date(200));
+    queue.reconcile(snapshot, Collections.<DispatchQueue.Entry> emptyList());
+
+    assertEquals(Arrays.asList(2L), ids());
+  }
+
+  @Test
+  public void testAddAll() {
+    queue.update(1L, "composer", "Encode", Status.QUEUED, true, new Date(100));
+    queue.addAll(Arrays.asList(new DispatchQueue.Entry(2L, "composer", "Encode", false, 200)));
+
+    assertEquals(Arrays.asList(1L, 2L), ids());
+  }
+
+  @Test
+  public void testAwaitChanges() throws Exception {
+    assertFalse(queue.awaitChanges(10, TimeUnit.MILLISECONDS));
+
+    queue.update(1L, "composer", "Encode", Status.QUEUED, true, new Date());
+    assertTrue(queue.awaitChanges(10, TimeUnit.MILLISECONDS));
+
+    // Requeueing a job which is already known must not wake up the dispatcher
+    queue.update(1L, "composer", "Encode", Status.QUEUED, true, new Date());
+    assertFalse(queue.awaitChanges(10, TimeUnit.MILLISECONDS));
+  }
+
+}
@@ -0,0 +1,137 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package org.opencastproject.serviceregistry.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class HostLoadLedgerTest {
+
+  private static final String HOST_A = "http://a:8080";
+  private static final String HOST_B = "http://b:8080";
+
+  private HostLoadLedger ledger;
+
+  @Before
+  public void setUp() {
+    ledger = new HostLoadLedger();
+  }
+
+  @Test
+  public void testAddAndRemove() {
+    assertTrue(ledger.add(1L, HOST_A, 1.5f));
+    assertTrue(ledger.add(2L, HOST_A, 0.1f));
+    assertTrue(ledger.add(3L, HOST_B, 2.0f));
+    assertEquals(1.6f, ledger.getLoad(HOST_A), 0.0001f);
+    assertEquals(2.0f, ledger.getLoad(HOST_B), 0.0001f);
+
+    // Jobs are only accounted for once
+    assertFalse(ledger.add(1L, HOST_A, 1.5f));
+    assertEquals(1.6f, ledger.getLoad(HOST_A), 0.0001f);
+
+    assertEquals(1.5f, ledger.remove(1L), 0.0001f);
+    assertNull(ledger.remove(1L));
+    assertEquals(0.1f, ledger.getLoad(HOST_A), 0.0001f);
+    assertEquals(2, ledger.size());
+    assertEquals(2, ledger.getLoads().size());
+  }
+
+  @Test
+  public void testConcurrentUpdates() throws Exception {
+    final int callers = 64;
+    final int jobsPerCaller = 1000;
+    ExecutorService executor = Executors.newFixedThreadPool(callers);
+    try {
+      List<Future<?>> results = new ArrayList<>();
+      for (int i = 0; i < callers; i++) {
+        final long offset = (long) i * jobsPerCaller;
+        final String host = i % 2 == 0 ? HOST_A : HOST_B;
+        results.add(executor.submit((Callable<Void>) () -> {
+          for (long job = offset; job < offset + jobsPerCaller; job++) {
+            ledger.add(job, host, 0.1f);
+            ledger.add(job, host, 0.1f);
+            if (job % 2 == 0) {
+              ledger.remove(job);
+              ledger.remove(job);
+            }
+          }
+          return null;
+        }));
+      }
+      for (Future<?> result : results) {
+        result.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    int remaining = callers * jobsPerCaller / 2;
+    assertEquals(remaining, ledger.size());
+    assertEquals(remaining / 2 * 0.1f, ledger.getLoad(HOST_A), 0.001f);
+    assertEquals(remaining / 2 * 0.1f, ledger.getLoad(HOST_B), 0.001f);
+  }
+
+  @Test
+  public void testConcurrentRemovalOfNewHostJob() throws Exception {
+    final int jobs = 10000;
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      // Every job runs on a new host, so the removal races with the creation of the host's load
+      Future<?> adder = executor.submit((Callable<Void>) () -> {
+        for (long job = 0; job < jobs; job++) {
+          ledger.add(job, "http://host-" + job + ":8080", 1.0f);
+        }
+        return null;
+      });
+      Future<?> remover = executor.submit((Callable<Void>) () -> {
+        for (long job = 0; job < jobs; job++) {
+          while (ledger.remove(job) == null) {
+            Thread.yield();
+          }
+        }
+        return null;
+      });
+      adder.get();
+      remover.get();
+    } finally {
+      executor.shutdown();
+    }
+
+    assertEquals(0, ledger.size());
+    for (float load : ledger.getLoads().values()) {
+      assertEquals(0.0f, load, 0.0001f);
+    }
+  }
+
+}
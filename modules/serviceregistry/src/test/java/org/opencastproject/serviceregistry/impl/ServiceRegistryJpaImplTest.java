@@ -23,6 +23,7 @@ package org.opencastproject.serviceregistry.impl;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
 
 import org.opencastproject.job.api.Job;
 import org.opencastproject.job.api.Job.Status;
@@ -38,8 +39,10 @@ import org.opencastproject.security.api.TrustedHttpClient;
 import org.opencastproject.security.api.TrustedHttpClientException;
 import org.opencastproject.security.api.User;
 import org.opencastproject.security.api.UserDirectoryService;
+import org.opencastproject.serviceregistry.api.ServiceRegistration;
 import org.opencastproject.serviceregistry.api.ServiceRegistryException;
 import org.opencastproject.serviceregistry.api.SystemLoad;
+import org.opencastproject.serviceregistry.api.SystemLoad.NodeLoad;
 import org.opencastproject.serviceregistry.impl.ServiceRegistryJpaImpl.JobDispatcher;
 import org.opencastproject.serviceregistry.impl.ServiceRegistryJpaImpl.JobProducerHeartbeat;
 import org.opencastproject.systems.OpencastConstants;
@@ -78,8 +81,12 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 
 import javax.management.ObjectInstance;
 import javax.persistence.EntityManagerFactory;
@@ -104,6 +111,8 @@ public class ServiceRegistryJpaImplTest {
   private static final String TEST_HOST = "http://localhost:8080";
   private static final String TEST_HOST_OTHER = "http://otherhost:8080";
   private static final String TEST_HOST_THIRD = "http://thirdhost:8080";
+  private static final String HEARTBEAT_SERVICE = "heartbeat";
+  private static final String HEARTBEAT_PATH = "/heartbeat";
 
   private static final long JOB_BARRIER_TIMEOUT = 100L; //in ms
   private static final long DISPATCH_START_DELAY = 10L; //in ms
@@ -223,7 +232,7 @@ public class ServiceRegistryJpaImplTest {
     final BasicHttpResponse unavailableResponse = new BasicHttpResponse(
             new BasicStatusLine(new HttpVersion(1, 1), HttpStatus.SC_SERVICE_UNAVAILABLE, "No message"));
     TrustedHttpClient trustedHttpClient = EasyMock.createNiceMock(TrustedHttpClient.class);
-    EasyMock.expect(trustedHttpClient.execute(EasyMock.capture(request))).andAnswer(new IAnswer<HttpResponse>() {
+    IAnswer<HttpResponse> answer = new IAnswer<HttpResponse>() {
       @Override
       public HttpResponse answer() throws Throwable {
         if (!request.hasCaptured())
@@ -237,7 +246,10 @@ public class ServiceRegistryJpaImplTest {
 
         return successResponse;
       }
-    }).anyTimes();
+    };
+    EasyMock.expect(trustedHttpClient.execute(EasyMock.capture(request))).andAnswer(answer).anyTimes();
+    EasyMock.expect(trustedHttpClient.execute(EasyMock.capture(request), EasyMock.anyInt(), EasyMock.anyInt()))
+            .andAnswer(answer).anyTimes();
     EasyMock.replay(trustedHttpClient);
     serviceRegistryJpaImpl.setTrustedHttpClient(trustedHttpClient);
   }
@@ -494,4 +506,180 @@ public class ServiceRegistryJpaImplTest {
     Assert.assertEquals(runTime, updatedJob.getRunTime());
   }
 
+  @Test
+  public void testBatchDispatch() throws Exception {
+    List<Job> jobs = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      jobs.add(serviceRegistryJpaImpl.createJob(TEST_HOST, TEST_SERVICE_2, TEST_OPERATION, null, null, true, null,
+              0.1f));
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    serviceRegistryJpaImpl.dispatchExecutor = executor;
+    try {
+      launchDispatcherOnce(false);
+      for (Job job : jobs) {
+        job = awaitDispatch(job);
+        assertEquals(TEST_HOST, job.getProcessingHost());
+        assertEquals(Status.DISPATCHING, job.getStatus());
+      }
+    } finally {
+      serviceRegistryJpaImpl.dispatchExecutor = null;
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testBatchDispatchRequeuesDeclinedJobs() throws Exception {
+    // The mock http client declines all jobs of the ingest service
+    List<Job> jobs = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      jobs.add(serviceRegistryJpaImpl.createJob(TEST_HOST, TEST_SERVICE, TEST_OPERATION, null, null, true, null,
+              0.1f));
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    serviceRegistryJpaImpl.dispatchExecutor = executor;
+    try {
+      launchDispatcherOnce(false);
+      Thread.sleep(JOB_BARRIER_TIMEOUT);
+      for (Job job : jobs) {
+        job = serviceRegistryJpaImpl.getJob(job.getId());
+        Assert.assertTrue(StringUtils.isBlank(job.getProcessingHost()));
+        assertEquals(Status.QUEUED, job.getStatus());
+      }
+    } finally {
+      serviceRegistryJpaImpl.dispatchExecutor = null;
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testMoveLoad() throws Exception {
+    SystemLoad systemLoad = new SystemLoad();
+    systemLoad.addNodeLoad(new NodeLoad(TEST_HOST, 0.0f, 4.0f));
+    systemLoad.addNodeLoad(new NodeLoad(TEST_HOST_OTHER, 0.0f, 4.0f));
+    systemLoad.updateNodeLoad(TEST_HOST, 1.0f);
+
+    // The job was planned for the first host, but the other one accepted it
+    ServiceRegistryJpaImpl.moveLoad(systemLoad, TEST_HOST, TEST_HOST_OTHER, 1.0f);
+    assertEquals(0.0f, systemLoad.get(TEST_HOST).getCurrentLoad(), 0.001f);
+    assertEquals(1.0f, systemLoad.get(TEST_HOST_OTHER).getCurrentLoad(), 0.001f);
+
+    // Accepted by the planned host
+    ServiceRegistryJpaImpl.moveLoad(systemLoad, TEST_HOST_OTHER, TEST_HOST_OTHER, 1.0f);
+    assertEquals(1.0f, systemLoad.get(TEST_HOST_OTHER).getCurrentLoad(), 0.001f);
+
+    // No host accepted the job
+    ServiceRegistryJpaImpl.moveLoad(systemLoad, TEST_HOST_OTHER, null, 1.0f);
+    assertEquals(0.0f, systemLoad.get(TEST_HOST_OTHER).getCurrentLoad(), 0.001f);
+  }
+
+  /** Waits for the job to be assigned to a host by the dispatcher */
+  private Job awaitDispatch(Job job) throws Exception {
+    long deadline = System.currentTimeMillis() + 10 * JOB_BARRIER_TIMEOUT;
+    Job current = serviceRegistryJpaImpl.getJob(job.getId());
+    while (StringUtils.isBlank(current.getProcessingHost()) && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+      current = serviceRegistryJpaImpl.getJob(job.getId());
+    }
+    return current;
+  }
+
+  @Test
+  public void testHeartbeatTimesChecksFromStart() throws Exception {
+    // With a single heartbeat thread, the second check only starts after the first one responded
+    runHeartbeats(1, request -> {
+      sleep(300);
+      return HttpStatus.SC_OK;
+    }, () -> {
+      assertTrue(isOnline(HEARTBEAT_SERVICE, TEST_HOST));
+      assertTrue(isOnline(HEARTBEAT_SERVICE, TEST_HOST_OTHER));
+    });
+  }
+
+  @Test
+  public void testHeartbeatTimeout() throws Exception {
+    runHeartbeats(2, request -> {
+      if (request.getURI().toString().startsWith(TEST_HOST_OTHER))
+        sleep(5000);
+      return HttpStatus.SC_OK;
+    }, () -> {
+      assertTrue(isOnline(HEARTBEAT_SERVICE, TEST_HOST));
+      Assert.assertFalse(isOnline(HEARTBEAT_SERVICE, TEST_HOST_OTHER));
+    });
+  }
+
+  @Test
+  public void testConcurrentHeartbeats() throws Exception {
+    // Each request only succeeds if the other one is sent at the same time
+    final AtomicReference<CountDownLatch> inFlight = new AtomicReference<>();
+    runHeartbeats(2, request -> {
+      CountDownLatch latch = inFlight.get();
+      latch.countDown();
+      try {
+        return latch.await(300, TimeUnit.MILLISECONDS) ? HttpStatus.SC_OK : HttpStatus.SC_SERVICE_UNAVAILABLE;
+      } catch (InterruptedException e) {
+        return HttpStatus.SC_SERVICE_UNAVAILABLE;
+      }
+    }, () -> {
+      assertTrue(isOnline(HEARTBEAT_SERVICE, TEST_HOST));
+      assertTrue(isOnline(HEARTBEAT_SERVICE, TEST_HOST_OTHER));
+    }, () -> inFlight.set(new CountDownLatch(2)));
+  }
+
+  /**
+   * Registers a job producing service on two hosts and runs the heartbeat twice, which marks services that failed both
+   * checks as offline.
+   */
+  private void runHeartbeats(int concurrency, Function<HttpUriRequest, Integer> statusCodes, Runnable assertions,
+          Runnable... beforeEachRun) throws Exception {
+    TrustedHttpClient client = EasyMock.createNiceMock(TrustedHttpClient.class);
+    EasyMock.expect(client.execute(EasyMock.anyObject(HttpUriRequest.class), EasyMock.anyInt(), EasyMock.anyInt()))
+            .andAnswer(() -> {
+              HttpUriRequest current = (HttpUriRequest) EasyMock.getCurrentArguments()[0];
+              return new BasicHttpResponse(new BasicStatusLine(new HttpVersion(1, 1), statusCodes.apply(current),
+                      "No message"));
+            }).anyTimes();
+    EasyMock.replay(client);
+
+    TrustedHttpClient originalClient = serviceRegistryJpaImpl.client;
+    ExecutorService originalExecutor = serviceRegistryJpaImpl.heartbeatExecutor;
+    int originalTimeout = serviceRegistryJpaImpl.heartbeatTimeout;
+    ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+    try {
+      serviceRegistryJpaImpl.registerService(HEARTBEAT_SERVICE, TEST_HOST, HEARTBEAT_PATH, true);
+      serviceRegistryJpaImpl.registerService(HEARTBEAT_SERVICE, TEST_HOST_OTHER, HEARTBEAT_PATH, true);
+      serviceRegistryJpaImpl.setTrustedHttpClient(client);
+      serviceRegistryJpaImpl.heartbeatExecutor = executor;
+      serviceRegistryJpaImpl.heartbeatTimeout = 200;
+      JobProducerHeartbeat heartbeat = serviceRegistryJpaImpl.new JobProducerHeartbeat();
+      for (int i = 0; i < 2; i++) {
+        for (Runnable before : beforeEachRun) {
+          before.run();
+        }
+        heartbeat.run();
+      }
+      assertions.run();
+    } finally {
+      serviceRegistryJpaImpl.setTrustedHttpClient(originalClient);
+      serviceRegistryJpaImpl.heartbeatExecutor = originalExecutor;
+      serviceRegistryJpaImpl.heartbeatTimeout = originalTimeout;
+      executor.shutdownNow();
+      serviceRegistryJpaImpl.unRegisterService(HEARTBEAT_SERVICE, TEST_HOST);
+      serviceRegistryJpaImpl.unRegisterService(HEARTBEAT_SERVICE, TEST_HOST_OTHER);
+    }
+  }
+
+  private static boolean isOnline(String serviceType, String host) {
+    ServiceRegistration registration = serviceRegistryJpaImpl.getServiceRegistration(serviceType, host);
+    return registration != null && registration.isOnline();
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
 }
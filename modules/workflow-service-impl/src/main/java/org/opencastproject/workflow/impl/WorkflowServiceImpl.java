@@ -1334,7 +1334,7 @@ public class WorkflowServiceImpl extends AbstractIndexProducer implements Workfl
           messageSender.sendObjectMessage(WorkflowItem.WORKFLOW_QUEUE, MessageSender.DestinationType.Queue,
                   WorkflowItem.updateInstance(workflowInstance, dcXml, accessControlList));
         }
-        index(workflowInstance);
+        index(workflowInstance, xml);
       } catch (ServiceRegistryException e) {
         logger.error(
                 "Update of workflow job %s in the service registry failed, service registry and workflow index may be out of sync",
@@ -1355,7 +1355,7 @@ public class WorkflowServiceImpl extends AbstractIndexProducer implements Workfl
       }
 
       try {
-        WorkflowInstance clone = WorkflowParser.parseWorkflowInstance(WorkflowParser.toXml(workflowInstance));
+        WorkflowInstance clone = WorkflowParser.parseWorkflowInstance(xml);
         fireListeners(originalWorkflowInstance, clone);
       } catch (Exception e) {
         // Can't happen, since we are converting from an in-memory object
@@ -1379,6 +1379,21 @@ public class WorkflowServiceImpl extends AbstractIndexProducer implements Workfl
     index.update(workflowInstance);
   }
 
+  /**
+   * Updates the search index entries for this workflow instance, reusing the serialized form already written to the
+   * workflow job.
+   *
+   * @param workflowInstance
+   *          the workflow
+   * @param xml
+   *          the serialized workflow
+   * @throws WorkflowDatabaseException
+   *           if there is a problem storing the workflow instance
+   */
+  protected void index(final WorkflowInstance workflowInstance, final String xml) throws WorkflowDatabaseException {
+    index.update(workflowInstance, xml);
+  }
+
   /**
    * {@inheritDoc}
    *
@@ -44,6 +44,19 @@ public interface WorkflowServiceIndex {
    */
   void update(WorkflowInstance instance) throws WorkflowDatabaseException;
 
+  /**
+   * Update the workflow instance using its already serialized form, or add it to persistence if it is not already
+   * stored.
+   *
+   * @param instance
+   *          The workflow instance to store
+   * @param xml
+   *          The workflow instance serialized by {@link org.opencastproject.workflow.api.WorkflowParser#toXml}
+   * @throws WorkflowDatabaseException
+   *           if there is a problem storing the workflow instance
+   */
+  void update(WorkflowInstance instance, String xml) throws WorkflowDatabaseException;
+
   /**
    * Remove the workflow instance with this id.
    *
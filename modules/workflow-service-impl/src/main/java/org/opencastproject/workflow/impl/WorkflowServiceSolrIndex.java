@@ -45,6 +45,7 @@ import org.opencastproject.serviceregistry.api.ServiceRegistryException;
 import org.opencastproject.solr.SolrServerFactory;
 import org.opencastproject.util.NotFoundException;
 import org.opencastproject.util.SolrUtils;
+import org.opencastproject.util.jmx.JmxUtil;
 import org.opencastproject.workflow.api.WorkflowDatabaseException;
 import org.opencastproject.workflow.api.WorkflowInstance;
 import org.opencastproject.workflow.api.WorkflowInstance.WorkflowState;
@@ -59,12 +60,14 @@ import org.opencastproject.workflow.api.WorkflowSetImpl;
 import org.opencastproject.workflow.api.WorkflowStatistics;
 import org.opencastproject.workflow.api.WorkflowStatistics.WorkflowDefinitionReport;
 import org.opencastproject.workflow.api.WorkflowStatistics.WorkflowDefinitionReport.OperationReport;
+import org.opencastproject.workflow.impl.jmx.WorkflowIndexStatistics;
 
 import com.entwinemedia.fn.Fn;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.BooleanUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.client.solrj.SolrQuery.ORDER;
@@ -94,19 +97,23 @@ import java.net.URL;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.ObjectInstance;
 
 /**
  * Provides data access to the workflow service through file storage in the workspace, indexed via solr.
  */
 @Component(
   property = {
-    "service.description=Workflow Service Index",
-    "synchronousIndexing=false"
+    "service.description=Workflow Service Index"
   },
   immediate = true,
   service = { WorkflowServiceIndex.class }
@@ -122,6 +129,18 @@ public class WorkflowServiceSolrIndex implements WorkflowServiceIndex {
   /** Configuration key for an embedded solr configuration and data directory */
   public static final String CONFIG_SOLR_ROOT = "org.opencastproject.workflow.solr.dir";
 
+  /** Configuration key for indexing workflows synchronously as they are stored */
+  public static final String OPT_SYNCHRONOUS_INDEXING = "synchronousIndexing";
+
+  /** Configuration key for the time window in which asynchronous updates of the same workflow are coalesced */
+  public static final String OPT_INDEX_COALESCE_WINDOW = "index.coalesce.window";
+
+  /** Default time window in milliseconds in which asynchronous updates of the same workflow are coalesced */
+  public static final long DEFAULT_INDEX_COALESCE_WINDOW = 500L;
+
+  /** Type of the JMX bean exposing the statistics of the asynchronous index updates */
+  private static final String JMX_INDEX_STATISTICS_TYPE = "WorkflowIndexStatistics";
+
   /** Connection to the solr server. Solr is used to search for workflows. The workflow data are stored as xml files. */
   protected SolrServer solrServer = null;
 
@@ -212,8 +231,30 @@ public class WorkflowServiceSolrIndex implements WorkflowServiceIndex {
   /** Whether to index workflows synchronously as they are stored */
   protected boolean synchronousIndexing = true;
 
-  /** The thread pool to use in asynchronous indexing */
-  protected ExecutorService indexingExecutor;
+  /** The time window in milliseconds in which asynchronous updates of the same workflow are coalesced */
+  protected long coalesceWindow = DEFAULT_INDEX_COALESCE_WINDOW;
+
+  /** The thread writing the pending updates to the index in asynchronous indexing */
+  protected ScheduledExecutorService indexingExecutor;
+
+  /** The workflows waiting to be indexed asynchronously, by workflow identifier */
+  private final Map<Long, PendingUpdate> pendingUpdates = new ConcurrentHashMap<>();
+
+  /** Serializes writing the pending updates to the index */
+  private final Object flushLock = new Object();
+
+  /** The workflows removed from the index while the pending updates are written, guarded by the solr server */
+  private final Set<Long> removedWhileFlushing = new HashSet<>();
+
+  /** Whether the index has been cleared while the pending updates are written, guarded by the solr server */
+  private boolean clearedWhileFlushing = false;
+
+  /** The statistics of the asynchronous index updates */
+  private final WorkflowIndexStatistics indexStatistics = new WorkflowIndexStatistics(pendingUpdates::size,
+          this::getIndexLag);
+
+  /** The registered JMX bean of the index statistics */
+  private ObjectInstance indexStatisticsBean;
 
   public static final Fn<Job, Boolean> operationIsStartWorkflow = new Fn<Job, Boolean>() {
     @Override
@@ -225,7 +266,8 @@ public class WorkflowServiceSolrIndex implements WorkflowServiceIndex {
   /**
    * Callback from the OSGi environment on component registration. The indexing behavior can be set using component
    * context properties. <code>synchronousIndexing=true|false</code> determines whether threads performing workflow
-   * updates block on adding the workflow instances to the search index.
+   * updates block on adding the workflow instances to the search index. When indexing asynchronously, updates of the
+   * same workflow within <code>index.coalesce.window</code> milliseconds are coalesced and written in one batch.
    *
    * @param cc
    *          the component context
@@ -242,15 +284,31 @@ public class WorkflowServiceSolrIndex implements WorkflowServiceIndex {
     } else {
       solrRoot = SolrServerFactory.getEmbeddedDir(cc, CONFIG_SOLR_ROOT, "workflow");
     }
-    Object syncIndexingConfig = cc.getProperties().get("synchronousIndexing");
-    if (syncIndexingConfig != null && (syncIndexingConfig instanceof Boolean)) {
+    Object syncIndexingConfig = cc.getProperties().get(OPT_SYNCHRONOUS_INDEXING);
+    if (syncIndexingConfig instanceof Boolean) {
       this.synchronousIndexing = (Boolean) syncIndexingConfig;
+    } else if (syncIndexingConfig != null) {
+      this.synchronousIndexing = BooleanUtils.toBoolean(StringUtils.trimToNull(syncIndexingConfig.toString()));
+    }
+    Object coalesceWindowConfig = cc.getProperties().get(OPT_INDEX_COALESCE_WINDOW);
+    if (coalesceWindowConfig != null) {
+      try {
+        coalesceWindow = Math.max(1L, Long.parseLong(StringUtils.trim(coalesceWindowConfig.toString())));
+      } catch (NumberFormatException e) {
+        logger.warn("Configured {} is not a number, using the default of {}ms", OPT_INDEX_COALESCE_WINDOW,
+                DEFAULT_INDEX_COALESCE_WINDOW);
+        coalesceWindow = DEFAULT_INDEX_COALESCE_WINDOW;
+      }
     }
     if (this.synchronousIndexing) {
       logger.debug("Workflows will be added to the search index synchronously");
     } else {
-      logger.debug("Workflows will be added to the search index asynchronously");
-      indexingExecutor = Executors.newSingleThreadExecutor();
+      logger.debug("Workflows will be added to the search index asynchronously, coalescing updates within {}ms",
+              coalesceWindow);
+      indexingExecutor = Executors.newSingleThreadScheduledExecutor();
+      indexingExecutor.scheduleWithFixedDelay(this::flushPendingUpdates, coalesceWindow, coalesceWindow,
+              TimeUnit.MILLISECONDS);
+      indexStatisticsBean = JmxUtil.registerMXBean(indexStatistics, JMX_INDEX_STATISTICS_TYPE);
     }
     String systemUserName = cc.getBundleContext().getProperty(SecurityUtil.PROPERTY_KEY_SYS_USER);
     activate(systemUserName);
@@ -319,7 +377,7 @@ public class WorkflowServiceSolrIndex implements WorkflowServiceIndex {
           Organization organization = orgDirectory.getOrganization(instance.getOrganizationId());
           securityService.setOrganization(organization);
           securityService.setUser(SecurityUtil.createSystemUser(systemUserName, organization));
-          index(instance);
+          index(instance, payload);
         } catch (WorkflowParsingException | WorkflowDatabaseException | NotFoundException e) {
           logger.warn("Skipping restoring of workflow {}", payload, e);
         }
@@ -380,6 +438,20 @@ public class WorkflowServiceSolrIndex implements WorkflowServiceIndex {
    */
   @Deactivate
   public void deactivate() {
+    if (indexingExecutor != null) {
+      indexingExecutor.shutdown();
+      try {
+        indexingExecutor.awaitTermination(coalesceWindow * 10, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      // Write whatever is left before the index goes away
+      flushPendingUpdates();
+    }
+    if (indexStatisticsBean != null) {
+      JmxUtil.unregisterMXBean(indexStatisticsBean);
+      indexStatisticsBean = null;
+    }
     SolrServerFactory.shutdown(solrServer);
   }
 
@@ -402,9 +474,29 @@ public class WorkflowServiceSolrIndex implements WorkflowServiceIndex {
   }
 
   public void index(final WorkflowInstance instance) throws WorkflowDatabaseException {
+    final String xml;
+    try {
+      xml = WorkflowParser.toXml(instance);
+    } catch (WorkflowParsingException e) {
+      throw new WorkflowDatabaseException("Unable to serialize workflow " + instance.getId(), e);
+    }
+    index(instance, xml);
+  }
+
+  /**
+   * Adds the workflow instance to the search index, reusing its serialized form instead of serializing it again.
+   *
+   * @param instance
+   *          the workflow instance
+   * @param xml
+   *          the serialized workflow instance
+   * @throws WorkflowDatabaseException
+   *           if the workflow instance cannot be indexed
+   */
+  public void index(final WorkflowInstance instance, final String xml) throws WorkflowDatabaseException {
     if (synchronousIndexing) {
       try {
-        SolrInputDocument doc = createDocument(instance);
+        SolrInputDocument doc = createDocument(instance, xml);
         synchronized (solrServer) {
           solrServer.add(doc);
           solrServer.commit();
@@ -413,24 +505,112 @@ public class WorkflowServiceSolrIndex implements WorkflowServiceIndex {
         throw new WorkflowDatabaseException("Unable to index workflow", e);
       }
     } else {
-      indexingExecutor.submit(new Runnable() {
-        @Override
-        public void run() {
-          try {
-            SolrInputDocument doc = createDocument(instance);
-            synchronized (solrServer) {
-              solrServer.add(doc);
-              // Use solr's autoCommit feature instead of committing on each document addition.
-              // See http://opencast.jira.com/browse/MH-7040 and
-              // http://osdir.com/ml/solr-user.lucene.apache.org/2009-09/msg00744.html
-              // solrServer.commit();
+      // Only the latest state of a workflow is indexed, so a newer update simply replaces a pending one. The document
+      // is created later on, using the security context of the latest update. The caller keeps modifying the
+      // instance, so queue its current state as serialized by now.
+      final Organization organization = securityService.getOrganization();
+      final User user = securityService.getUser();
+      pendingUpdates.compute(instance.getId(), (id, pending) -> {
+        if (pending == null)
+          return new PendingUpdate(id, xml, organization, user, System.currentTimeMillis());
+        indexStatistics.updateCoalesced();
+        return new PendingUpdate(id, xml, organization, user, pending.queued);
+      });
+    }
+  }
+
+  /**
+   * Writes the pending asynchronous updates to the index as one batch with a single commit. The documents are created
+   * without holding the index lock, so that workflows can be removed from the index meanwhile. Those are left out of
+   * the batch.
+   */
+  protected void flushPendingUpdates() {
+    synchronized (flushLock) {
+      if (pendingUpdates.isEmpty())
+        return;
+
+      synchronized (solrServer) {
+        removedWhileFlushing.clear();
+        clearedWhileFlushing = false;
+      }
+
+      List<SolrInputDocument> docs = new ArrayList<>(pendingUpdates.size());
+      List<PendingUpdate> batch = new ArrayList<>(pendingUpdates.size());
+      for (Long id : new ArrayList<>(pendingUpdates.keySet())) {
+        final PendingUpdate pending = pendingUpdates.remove(id);
+        if (pending == null)
+          continue;
+        try {
+          final SolrInputDocument[] doc = new SolrInputDocument[1];
+          SecurityUtil.runAs(securityService, pending.organization, pending.user, () -> {
+            try {
+              doc[0] = createDocument(WorkflowParser.parseWorkflowInstance(pending.xml), pending.xml);
+            } catch (Exception e) {
+              throw new IllegalStateException(e);
             }
-          } catch (Exception e) {
-            WorkflowServiceSolrIndex.logger.warn("Unable to index {}: {}", instance, e);
+          });
+          docs.add(doc[0]);
+          batch.add(pending);
+        } catch (Exception e) {
+          logger.warn("Unable to index workflow {}", id, e);
+          indexStatistics.updateFailed(1);
+        }
+      }
+
+      synchronized (solrServer) {
+        if (clearedWhileFlushing) {
+          logger.debug("Index has been cleared, dropping {} workflow updates", batch.size());
+          return;
+        }
+        long oldest = Long.MAX_VALUE;
+        for (int i = batch.size() - 1; i >= 0; i--) {
+          if (removedWhileFlushing.contains(batch.get(i).id)) {
+            batch.remove(i);
+            docs.remove(i);
+          } else {
+            oldest = Math.min(oldest, batch.get(i).queued);
           }
         }
-      });
+        if (docs.isEmpty())
+          return;
+
+        try {
+          solrServer.add(docs);
+          solrServer.commit();
+          indexStatistics.updateBatch(docs.size(), System.currentTimeMillis() - oldest);
+          logger.debug("Indexed {} workflows", docs.size());
+        } catch (Exception e) {
+          logger.warn("Unable to index {} workflows, retrying with the next batch", docs.size(), e);
+          // Retry unless the workflow has been updated again in the meantime
+          for (PendingUpdate pending : batch) {
+            pendingUpdates.putIfAbsent(pending.id, pending);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the statistics of the asynchronous index updates.
+   *
+   * @return the index statistics
+   */
+  WorkflowIndexStatistics getIndexStatistics() {
+    return indexStatistics;
+  }
+
+  /**
+   * Returns the age of the oldest pending asynchronous index update.
+   *
+   * @return the lag in milliseconds
+   */
+  private long getIndexLag() {
+    long now = System.currentTimeMillis();
+    long oldest = now;
+    for (PendingUpdate pending : pendingUpdates.values()) {
+      oldest = Math.min(oldest, pending.queued);
     }
+    return now - oldest;
   }
 
   /**
@@ -442,11 +622,24 @@ public class WorkflowServiceSolrIndex implements WorkflowServiceIndex {
    * @throws Exception
    */
   protected SolrInputDocument createDocument(WorkflowInstance instance) throws Exception {
+    return createDocument(instance, WorkflowParser.toXml(instance));
+  }
+
+  /**
+   * Adds the workflow instance to the search index.
+   *
+   * @param instance
+   *          the instance
+   * @param xml
+   *          the serialized instance
+   * @return the solr input document
+   * @throws Exception
+   */
+  protected SolrInputDocument createDocument(WorkflowInstance instance, String xml) throws Exception {
     SolrInputDocument doc = new SolrInputDocument();
     doc.addField(ID_KEY, instance.getId());
     doc.addField(WORKFLOW_DEFINITION_KEY, instance.getTemplate());
     doc.addField(STATE_KEY, instance.getState().toString());
-    String xml = WorkflowParser.toXml(instance);
     doc.addField(XML_KEY, xml);
 
     // index the current operation if there is one. If the workflow is finished, there is no current operation, so use a
@@ -1069,6 +1262,9 @@ public class WorkflowServiceSolrIndex implements WorkflowServiceIndex {
   public void remove(long id) throws WorkflowDatabaseException, NotFoundException {
     try {
       synchronized (solrServer) {
+        pendingUpdates.remove(id);
+        if (!synchronousIndexing)
+          removedWhileFlushing.add(id);
         solrServer.deleteById(Long.toString(id));
         solrServer.commit();
       }
@@ -1087,12 +1283,25 @@ public class WorkflowServiceSolrIndex implements WorkflowServiceIndex {
     index(instance);
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * @see org.opencastproject.workflow.impl.WorkflowServiceIndex#update(org.opencastproject.workflow.api.WorkflowInstance,
+   *      String)
+   */
+  @Override
+  public void update(WorkflowInstance instance, String xml) throws WorkflowDatabaseException {
+    index(instance, xml);
+  }
+
   /**
    * Clears the index of all workflow instances.
    */
   public void clear() throws WorkflowDatabaseException {
     try {
       synchronized (solrServer) {
+        pendingUpdates.clear();
+        clearedWhileFlushing = true;
         solrServer.deleteByQuery("*:*");
         solrServer.commit();
       }
@@ -1156,4 +1365,27 @@ public class WorkflowServiceSolrIndex implements WorkflowServiceIndex {
     this.assetManager = assetManager;
   }
 
+  /** A workflow waiting to be indexed asynchronously */
+  private static final class PendingUpdate {
+
+    private final long id;
+
+    /** The serialized workflow instance at the time of the update */
+    private final String xml;
+    private final Organization organization;
+    private final User user;
+
+    /** The time the workflow was first queued since it was last indexed */
+    private final long queued;
+
+    private PendingUpdate(long id, String xml, Organization organization, User user, long queued) {
+      this.id = id;
+      this.xml = xml;
+      this.organization = organization;
+      this.user = user;
+      this.queued = queued;
+    }
+
+  }
+
 }
@@ -0,0 +1,123 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.workflow.impl.jmx;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+public class WorkflowIndexStatistics implements WorkflowIndexStatisticsMXBean {
+
+  private final IntSupplier queueSize;
+  private final LongSupplier lag;
+
+  private final AtomicLong batches = new AtomicLong();
+  private final AtomicLong indexed = new AtomicLong();
+  private final AtomicLong coalesced = new AtomicLong();
+  private final AtomicLong failed = new AtomicLong();
+  private volatile long lastBatchLag = 0L;
+
+  /**
+   * Creates the statistics of an asynchronously updated workflow index.
+   *
+   * @param queueSize
+   *          provides the number of pending index updates
+   * @param lag
+   *          provides the age of the oldest pending update in milliseconds
+   */
+  public WorkflowIndexStatistics(IntSupplier queueSize, LongSupplier lag) {
+    this.queueSize = queueSize;
+    this.lag = lag;
+  }
+
+  public void updateBatch(int size, long batchLag) {
+    batches.incrementAndGet();
+    indexed.addAndGet(size);
+    lastBatchLag = batchLag;
+  }
+
+  public void updateCoalesced() {
+    coalesced.incrementAndGet();
+  }
+
+  public void updateFailed(int count) {
+    failed.addAndGet(count);
+  }
+
+  /**
+   * @see org.opencastproject.workflow.impl.jmx.WorkflowIndexStatisticsMXBean#getQueueSize()
+   */
+  @Override
+  public int getQueueSize() {
+    return queueSize.getAsInt();
+  }
+
+  /**
+   * @see org.opencastproject.workflow.impl.jmx.WorkflowIndexStatisticsMXBean#getLag()
+   */
+  @Override
+  public long getLag() {
+    return lag.getAsLong();
+  }
+
+  /**
+   * @see org.opencastproject.workflow.impl.jmx.WorkflowIndexStatisticsMXBean#getLastBatchLag()
+   */
+  @Override
+  public long getLastBatchLag() {
+    return lastBatchLag;
+  }
+
+  /**
+   * @see org.opencastproject.workflow.impl.jmx.WorkflowIndexStatisticsMXBean#getBatches()
+   */
+  @Override
+  public long getBatches() {
+    return batches.get();
+  }
+
+  /**
+   * @see org.opencastproject.workflow.impl.jmx.WorkflowIndexStatisticsMXBean#getIndexed()
+   */
+  @Override
+  public long getIndexed() {
+    return indexed.get();
+  }
+
+  /**
+   * @see org.opencastproject.workflow.impl.jmx.WorkflowIndexStatisticsMXBean#getCoalesced()
+   */
+  @Override
+  public long getCoalesced() {
+    return coalesced.get();
+  }
+
+  /**
+   * @see org.opencastproject.workflow.impl.jmx.WorkflowIndexStatisticsMXBean#getFailed()
+   */
+  @Override
+  public long getFailed() {
+    return failed.get();
+  }
+
+}
@@ -0,0 +1,79 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.workflow.impl.jmx;
+
+/**
+ * JMX Bean interface exposing statistics of the asynchronous workflow index updates.
+ */
+public interface WorkflowIndexStatisticsMXBean {
+
+  /**
+   * Gets the number of workflows waiting to be indexed
+   *
+   * @return the number of pending index updates
+   */
+  int getQueueSize();
+
+  /**
+   * Gets the age of the oldest pending index update
+   *
+   * @return the lag of the index in milliseconds
+   */
+  long getLag();
+
+  /**
+   * Gets the time it took the last batch from the first queued update until the index commit
+   *
+   * @return the lag of the last batch in milliseconds
+   */
+  long getLastBatchLag();
+
+  /**
+   * Gets the number of index commits
+   *
+   * @return the number of batches written to the index
+   */
+  long getBatches();
+
+  /**
+   * Gets the number of workflow documents written to the index
+   *
+   * @return the number of indexed workflows
+   */
+  long getIndexed();
+
+  /**
+   * Gets the number of updates that have been superseded by a later update of the same workflow before being indexed
+   *
+   * @return the number of coalesced updates
+   */
+  long getCoalesced();
+
+  /**
+   * Gets the number of workflow documents which failed to be indexed
+   *
+   * @return the number of failed index updates
+   */
+  long getFailed();
+
+}
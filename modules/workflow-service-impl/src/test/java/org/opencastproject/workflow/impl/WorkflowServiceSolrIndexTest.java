@@ -22,6 +22,7 @@
 package org.opencastproject.workflow.impl;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 import org.opencastproject.job.api.Job;
 import org.opencastproject.job.api.JobImpl;
@@ -36,6 +37,7 @@ import org.opencastproject.security.api.SecurityService;
 import org.opencastproject.security.api.User;
 import org.opencastproject.serviceregistry.api.ServiceRegistry;
 import org.opencastproject.util.PathSupport;
+import org.opencastproject.workflow.api.WorkflowInstance;
 import org.opencastproject.workflow.api.WorkflowInstance.WorkflowState;
 import org.opencastproject.workflow.api.WorkflowInstanceImpl;
 import org.opencastproject.workflow.api.WorkflowParser;
@@ -43,6 +45,7 @@ import org.opencastproject.workflow.api.WorkflowQuery;
 import org.opencastproject.workflow.api.WorkflowService;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.solr.common.SolrInputDocument;
 import org.easymock.EasyMock;
 import org.junit.After;
 import org.junit.Before;
@@ -60,6 +63,9 @@ public class WorkflowServiceSolrIndexTest {
 
   private WorkflowServiceSolrIndex dao = null;
 
+  /** Called whenever the index creates a document */
+  private Runnable onCreateDocument = null;
+
   @Before
   public void setUp() throws Exception {
     // security service
@@ -100,7 +106,14 @@ public class WorkflowServiceSolrIndexTest {
     EasyMock.replay(messageSender);
 
     // Now create the dao
-    dao = new WorkflowServiceSolrIndex();
+    dao = new WorkflowServiceSolrIndex() {
+      @Override
+      protected SolrInputDocument createDocument(WorkflowInstance instance, String xml) throws Exception {
+        if (onCreateDocument != null)
+          onCreateDocument.run();
+        return super.createDocument(instance, xml);
+      }
+    };
     dao.solrRoot = PathSupport.concat("target", Long.toString(System.currentTimeMillis()));
     dao.setServiceRegistry(serviceRegistry);
     dao.setSecurityService(securityService);
@@ -186,4 +199,83 @@ public class WorkflowServiceSolrIndexTest {
     assertEquals(expected, solrQuery);
   }
 
+  /**
+   * Tests whether the workflow already serialized for the workflow job is indexed as is
+   */
+  @Test
+  public void testCreateDocumentReusesSerializedWorkflow() throws Exception {
+    WorkflowInstanceImpl workflow = createWorkflow(456, WorkflowState.RUNNING);
+    String xml = WorkflowParser.toXml(workflow);
+
+    SolrInputDocument doc = dao.createDocument(workflow, xml);
+    assertSame(xml, doc.getFieldValue("xml"));
+  }
+
+  /**
+   * Tests whether asynchronous updates of the same workflow are coalesced and written to the index on flushing
+   */
+  @Test
+  public void testAsynchronousUpdatesAreCoalesced() throws Exception {
+    dao.synchronousIndexing = false;
+    WorkflowInstanceImpl workflow = createWorkflow(456, WorkflowState.RUNNING);
+    dao.update(workflow);
+    workflow.setState(WorkflowState.PAUSED);
+    dao.update(workflow);
+
+    assertEquals(1, dao.getIndexStatistics().getQueueSize());
+    assertEquals(1, dao.getIndexStatistics().getCoalesced());
+    assertEquals(0, dao.countWorkflowInstances(WorkflowState.PAUSED, null));
+
+    dao.flushPendingUpdates();
+    assertEquals(0, dao.getIndexStatistics().getQueueSize());
+    assertEquals(1, dao.getIndexStatistics().getBatches());
+    assertEquals(1, dao.getIndexStatistics().getIndexed());
+    assertEquals(1, dao.countWorkflowInstances(WorkflowState.PAUSED, null));
+    assertEquals(0, dao.countWorkflowInstances(WorkflowState.RUNNING, null));
+  }
+
+  /**
+   * Tests whether a workflow removed before its pending update is written stays out of the index
+   */
+  @Test
+  public void testRemovedWorkflowIsNotFlushed() throws Exception {
+    dao.synchronousIndexing = false;
+    dao.update(createWorkflow(456, WorkflowState.RUNNING));
+    dao.remove(456);
+
+    dao.flushPendingUpdates();
+    assertEquals(0, dao.getIndexStatistics().getBatches());
+    assertEquals(0, dao.countWorkflowInstances(WorkflowState.RUNNING, null));
+  }
+
+  /**
+   * Tests whether a workflow removed while the pending updates are written stays out of the index
+   */
+  @Test
+  public void testWorkflowRemovedWhileFlushingIsNotIndexed() throws Exception {
+    dao.synchronousIndexing = false;
+    dao.update(createWorkflow(456, WorkflowState.RUNNING));
+    dao.update(createWorkflow(789, WorkflowState.RUNNING));
+    onCreateDocument = () -> {
+      try {
+        dao.remove(456);
+      } catch (Exception e) {
+        throw new IllegalStateException(e);
+      }
+    };
+
+    dao.flushPendingUpdates();
+    assertEquals(1, dao.getIndexStatistics().getIndexed());
+    assertEquals(1, dao.countWorkflowInstances(WorkflowState.RUNNING, null));
+  }
+
+  private static WorkflowInstanceImpl createWorkflow(long id, WorkflowState state) throws Exception {
+    WorkflowInstanceImpl workflow = new WorkflowInstanceImpl();
+    workflow.setId(id);
+    workflow.setOrganizationId(DefaultOrganization.DEFAULT_ORGANIZATION_ID);
+    workflow.setState(state);
+    workflow.setMediaPackage(MediaPackageBuilderFactory.newInstance().newMediaPackageBuilder().createNew());
+    return workflow;
+  }
+
 }
@@ -26,6 +26,7 @@ import org.opencastproject.security.api.SecurityService;
 import org.opencastproject.serviceregistry.api.ServiceRegistry;
 import org.opencastproject.systems.OpencastConstants;
 import org.opencastproject.util.Checksum;
+import org.opencastproject.util.ChecksumIndex;
 import org.opencastproject.util.FileSupport;
 import org.opencastproject.util.Log;
 import org.opencastproject.util.NotFoundException;
@@ -37,7 +38,6 @@ import org.opencastproject.workingfilerepository.api.PathMappable;
 import org.opencastproject.workingfilerepository.api.WorkingFileRepository;
 import org.opencastproject.workingfilerepository.jmx.WorkingFileRepositoryBean;
 
-import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -163,6 +163,7 @@ public class WorkingFileRepositoryImpl implements WorkingFileRepository, PathMap
 
       File parentDirectory = f.getParentFile();
       logger.debug("Attempting to delete {}", parentDirectory.getAbsolutePath());
+      ChecksumIndex.invalidate(parentDirectory);
       FileUtils.forceDelete(parentDirectory);
       File parentsParentDirectory = parentDirectory.getParentFile();
       if (parentsParentDirectory.isDirectory() && parentsParentDirectory.list().length == 0)
@@ -282,6 +283,7 @@ public class WorkingFileRepositoryImpl implements WorkingFileRepository, PathMap
     }
 
     FileOutputStream out = null;
+    String md5 = null;
     try {
 
       fTmp = File.createTempFile(f.getName(), ".tmp", dir);
@@ -303,7 +305,7 @@ public class WorkingFileRepositoryImpl implements WorkingFileRepository, PathMap
       }
 
       // Store the hash
-      String md5 = Checksum.convertToHex(dis.getMessageDigest().digest());
+      md5 = Checksum.convertToHex(dis.getMessageDigest().digest());
       try {
         FileUtils.writeStringToFile(md5FileTmp, md5);
       } catch (IOException e) {
@@ -331,6 +333,7 @@ public class WorkingFileRepositoryImpl implements WorkingFileRepository, PathMap
       Files.move(md5FileTmp.toPath(), md5File.toPath(), StandardCopyOption.REPLACE_EXISTING);
       Files.move(fTmp.toPath(), f.toPath(), StandardCopyOption.REPLACE_EXISTING);
     }
+    indexChecksum(f, md5);
 
     // Clean up any other files
     if (filesToDelete != null && filesToDelete.length > 0) {
@@ -356,20 +359,32 @@ public class WorkingFileRepositoryImpl implements WorkingFileRepository, PathMap
    *         if the hash cannot be created
    */
   protected File createMd5(File f) throws IOException {
-    FileInputStream md5In = null;
     File md5File = null;
     try {
-      md5In = new FileInputStream(f);
-      String md5 = DigestUtils.md5Hex(md5In);
-      IOUtils.closeQuietly(md5In);
+      String md5 = ChecksumIndex.md5(f);
       md5File = getMd5File(f);
       FileUtils.writeStringToFile(md5File, md5);
       return md5File;
     } catch (IOException e) {
       FileUtils.deleteQuietly(md5File);
       throw e;
-    } finally {
-      IOUtils.closeQuietly(md5In);
+    }
+  }
+
+  /**
+   * Adds the checksum calculated while writing a file to the checksum index, so that links to the file and the
+   * workspace don't need to read the file again.
+   *
+   * @param f
+   *         the file
+   * @param md5
+   *         the file's md5 checksum
+   */
+  private void indexChecksum(File f, String md5) {
+    try {
+      ChecksumIndex.put(f, md5);
+    } catch (IOException e) {
+      logger.debug("Unable to index checksum of {}: {}", f, e.getMessage());
     }
   }
 
@@ -573,6 +588,7 @@ public class WorkingFileRepositoryImpl implements WorkingFileRepository, PathMap
         f.createNewFile();
       } else {
         logger.debug("Attempting to overwrite the file at {}", f.getAbsolutePath());
+        ChecksumIndex.invalidate(f);
       }
       out = new FileOutputStream(f);
 
@@ -599,6 +615,8 @@ public class WorkingFileRepositoryImpl implements WorkingFileRepository, PathMap
       } finally {
         IOUtils.closeQuietly(dis);
       }
+      IOUtils.closeQuietly(out);
+      indexChecksum(f, md5);
 
     } catch (IOException e) {
       FileUtils.deleteQuietly(f);
@@ -629,7 +647,12 @@ public class WorkingFileRepositoryImpl implements WorkingFileRepository, PathMap
     try {
       destFile = new File(destDir, PathSupport.toSafeName(toFileName));
       FileSupport.link(source, destFile);
-      createMd5(destFile);
+      // The copy has the same content, so there is no need to calculate its checksum again
+      File sourceMd5 = getMd5File(source);
+      if (sourceMd5.isFile())
+        FileUtils.copyFile(sourceMd5, getMd5File(destFile));
+      else
+        createMd5(destFile);
     } catch (Exception e) {
       FileUtils.deleteDirectory(destDir);
     }
@@ -703,6 +726,7 @@ public class WorkingFileRepositoryImpl implements WorkingFileRepository, PathMap
       throw new IllegalStateException(md5File + " is not a regular file");
     if (!md5File.delete())
       throw new IOException("MD5 hash " + md5File + " cannot be deleted");
+    ChecksumIndex.invalidate(f);
     if (!f.delete())
       throw new IOException(f + " cannot be deleted");
 
@@ -791,20 +815,13 @@ public class WorkingFileRepositoryImpl implements WorkingFileRepository, PathMap
 
     // Check if there is a precalculated md5 hash
     File md5HashFile = getMd5File(file);
-    if (file.exists()) {
+    if (md5HashFile.exists()) {
       logger.trace("Reading precalculated hash for {} from {}", file, md5HashFile.getName());
       return FileUtils.readFileToString(md5HashFile, "utf-8");
     }
 
-    // Calculate the md5 hash
-    InputStream in = null;
-    String md5 = null;
-    try {
-      in = new FileInputStream(file);
-      md5 = DigestUtils.md5Hex(in);
-    } finally {
-      IOUtils.closeQuietly(in);
-    }
+    // Calculate the md5 hash, unless it is indexed already
+    String md5 = ChecksumIndex.md5(file);
 
     // Write the md5 hash to disk for later reference
     try {
@@ -0,0 +1,212 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.workspace.impl;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Content addressed cache of the files downloaded into the workspace, keyed by their md5 checksum.
+ * <p>
+ * Cache entries are hard links to the downloaded files, so a file which is needed again, for example by another job
+ * working on the same media, is linked into place instead of being downloaded and hashed again. The least recently
+ * used entries are evicted once the cache exceeds its size budget. Since the workspace copies are links of their own,
+ * evicting an entry never affects files in use.
+ */
+public final class WorkspaceCache {
+
+  /** The logging facility */
+  private static final Logger logger = LoggerFactory.getLogger(WorkspaceCache.class);
+
+  /** The format of the checksums used as cache keys */
+  private static final Pattern CHECKSUM = Pattern.compile("[0-9a-f]{32}");
+
+  /** The cache directory */
+  private final File directory;
+
+  /** The size budget of the cache in bytes */
+  private final long maxSize;
+
+  /** The sizes of the cached files by checksum, in access order */
+  private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+  /** The size of all cached files in bytes */
+  private long size = 0L;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  /**
+   * Creates a cache in the given directory, picking up the entries of a previous run.
+   *
+   * @param directory
+   *          the cache directory, which must be on the same file system as the workspace
+   * @param maxSize
+   *          the size budget in bytes
+   * @throws IOException
+   *           if the cache directory cannot be created
+   */
+  WorkspaceCache(File directory, long maxSize) throws IOException {
+    this.directory = directory;
+    this.maxSize = maxSize;
+    FileUtils.forceMkdir(directory);
+
+    File[] files = directory.listFiles(File::isFile);
+    if (files != null) {
+      Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+      synchronized (this) {
+        for (File file : files) {
+          if (isChecksum(file.getName())) {
+            entries.put(file.getName(), file.length());
+            size += file.length();
+          } else {
+            FileUtils.deleteQuietly(file);
+          }
+        }
+        evict();
+      }
+    }
+    logger.info("Workspace cache at {} holds {} files ({} of {} bytes)", directory, entries.size(), size, maxSize);
+  }
+
+  /**
+   * Returns whether the given value can be used as a cache key.
+   *
+   * @param checksum
+   *          the checksum
+   * @return <code>true</code> if the value is an md5 checksum
+   */
+  static boolean isChecksum(String checksum) {
+    return checksum != null && CHECKSUM.matcher(checksum).matches();
+  }
+
+  /**
+   * Links the cached file with the given checksum to the destination.
+   *
+   * @param checksum
+   *          the md5 checksum of the requested content
+   * @param dst
+   *          the destination in the workspace
+   * @return <code>true</code> if the content was found in the cache and linked to the destination
+   */
+  boolean get(String checksum, File dst) {
+    final File cached = new File(directory, checksum);
+    synchronized (this) {
+      if (entries.get(checksum) == null) {
+        misses.incrementAndGet();
+        return false;
+      }
+      if (!cached.isFile()) {
+        // Removed from outside, e.g. by the workspace cleaner
+        size -= entries.remove(checksum);
+        misses.incrementAndGet();
+        return false;
+      }
+    }
+
+    try {
+      if (!dst.isFile() || !Files.isSameFile(cached.toPath(), dst.toPath())) {
+        FileUtils.forceMkdir(dst.getParentFile());
+        Files.deleteIfExists(dst.toPath());
+        Files.createLink(dst.toPath(), cached.toPath());
+      }
+    } catch (IOException e) {
+      // The entry may have been evicted in the meantime
+      logger.debug("Unable to link {} from the workspace cache to {}", checksum, dst, e);
+      misses.incrementAndGet();
+      return false;
+    }
+    hits.incrementAndGet();
+    return true;
+  }
+
+  /**
+   * Adds a file to the cache unless the cache already holds its content.
+   *
+   * @param checksum
+   *          the md5 checksum of the file
+   * @param file
+   *          the file in the workspace
+   */
+  synchronized void put(String checksum, File file) {
+    if (!isChecksum(checksum) || !file.isFile() || entries.containsKey(checksum)) {
+      return;
+    }
+    final File cached = new File(directory, checksum);
+    try {
+      Files.deleteIfExists(cached.toPath());
+      Files.createLink(cached.toPath(), file.toPath());
+    } catch (IOException | UnsupportedOperationException e) {
+      logger.debug("Unable to add {} to the workspace cache", file, e);
+      return;
+    }
+    entries.put(checksum, file.length());
+    size += file.length();
+    evict();
+  }
+
+  /** Removes the least recently used entries until the cache fits its size budget. */
+  private void evict() {
+    Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+    while (size > maxSize && iterator.hasNext()) {
+      Map.Entry<String, Long> entry = iterator.next();
+      FileUtils.deleteQuietly(new File(directory, entry.getKey()));
+      size -= entry.getValue();
+      iterator.remove();
+      logger.debug("Evicted {} from the workspace cache", entry.getKey());
+    }
+  }
+
+  /** Returns the number of requests served from the cache */
+  public long getHits() {
+    return hits.get();
+  }
+
+  /** Returns the number of requests which could not be served from the cache */
+  public long getMisses() {
+    return misses.get();
+  }
+
+  /** Returns the size of all cached files in bytes */
+  public synchronized long getSize() {
+    return size;
+  }
+
+  /** Returns the number of cached files */
+  public synchronized int getEntries() {
+    return entries.size();
+  }
+
+}
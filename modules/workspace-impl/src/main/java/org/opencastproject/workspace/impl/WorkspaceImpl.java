@@ -41,6 +41,8 @@ import org.opencastproject.mediapackage.identifier.Id;
 import org.opencastproject.security.api.SecurityService;
 import org.opencastproject.security.api.TrustedHttpClient;
 import org.opencastproject.security.api.TrustedHttpClientException;
+import org.opencastproject.util.Checksum;
+import org.opencastproject.util.ChecksumIndex;
 import org.opencastproject.util.FileSupport;
 import org.opencastproject.util.HttpUtil;
 import org.opencastproject.util.IoSupport;
@@ -57,14 +59,15 @@ import org.opencastproject.workingfilerepository.api.WorkingFileRepository;
 import org.opencastproject.workspace.api.Workspace;
 import org.opencastproject.workspace.impl.jmx.WorkspaceBean;
 
-import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.input.TeeInputStream;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.http.Header;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpHead;
 import org.apache.http.client.utils.URIBuilder;
 import org.osgi.service.component.ComponentContext;
 import org.osgi.service.component.annotations.Activate;
@@ -85,6 +88,9 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Collections;
 import java.util.Date;
 import java.util.Map;
@@ -124,6 +130,11 @@ public final class WorkspaceImpl implements Workspace {
   public static final String WORKSPACE_CLEANUP_PERIOD_KEY = "org.opencastproject.workspace.cleanup.period";
   /** Configuration key for garbage collection max age. */
   public static final String WORKSPACE_CLEANUP_MAX_AGE_KEY = "org.opencastproject.workspace.cleanup.max.age";
+  /** Configuration key for the size budget of the workspace cache in megabytes. */
+  public static final String WORKSPACE_CACHE_MAX_SIZE_KEY = "org.opencastproject.workspace.cache.max.size";
+
+  /** Name of the workspace cache directory within the workspace root */
+  private static final String CACHE_DIR = ".cache";
 
   /** Workspace JMX type */
   private static final String JMX_WORKSPACE_TYPE = "Workspace";
@@ -132,7 +143,7 @@ public final class WorkspaceImpl implements Workspace {
   private static final String UNKNOWN_FILENAME = "unknown";
 
   /** The JMX workspace bean */
-  private WorkspaceBean workspaceBean = new WorkspaceBean(this);
+  private WorkspaceBean workspaceBean;
 
   /** The JMX bean object instance */
   private ObjectInstance registeredMXBean;
@@ -169,6 +180,9 @@ public final class WorkspaceImpl implements Workspace {
   /** The workspce cleaner */
   private WorkspaceCleaner workspaceCleaner = null;
 
+  /** The content addressed cache of downloaded files, <code>null</code> if disabled */
+  private WorkspaceCache cache = null;
+
   public WorkspaceImpl() {
   }
 
@@ -290,6 +304,21 @@ public final class WorkspaceImpl implements Workspace {
       }
     }
 
+    // Set up the content addressed cache of downloaded files
+    long cacheMaxSize = 0L;
+    if (ensureContextProp(cc, WORKSPACE_CACHE_MAX_SIZE_KEY)) {
+      String maxSize = cc.getBundleContext().getProperty(WORKSPACE_CACHE_MAX_SIZE_KEY);
+      try {
+        cacheMaxSize = Long.parseLong(StringUtils.trim(maxSize)) * 1024L * 1024L;
+      } catch (NumberFormatException e) {
+        logger.warn("Invalid configuration for workspace cache size ({}={})", WORKSPACE_CACHE_MAX_SIZE_KEY, maxSize);
+      }
+    }
+    if (cacheMaxSize > 0) {
+      cache = createCache(new File(wsRoot, CACHE_DIR), cacheMaxSize);
+    }
+
+    workspaceBean = new WorkspaceBean(this, cache);
     registeredMXBean = JmxUtil.registerMXBean(workspaceBean, JMX_WORKSPACE_TYPE);
 
     // Start cleanup scheduler if we have sensible cleanup values:
@@ -322,6 +351,33 @@ public final class WorkspaceImpl implements Workspace {
     downloadPath = DistributionPathUtils.getDownloadPath(cc);
   }
 
+  /**
+   * Creates the workspace cache if files can be hard linked within the workspace, since the cache would double the
+   * disk space used otherwise.
+   *
+   * @return the cache or <code>null</code> if it cannot be used
+   */
+  private WorkspaceCache createCache(File cacheDir, long maxSize) {
+    File srcFile = null;
+    File targetFile = null;
+    try {
+      FileUtils.forceMkdir(cacheDir);
+      srcFile = File.createTempFile(".linktest.", ".tmp", new File(wsRoot));
+      targetFile = new File(cacheDir, srcFile.getName());
+      if (!FileSupport.supportsLinking(srcFile, targetFile)) {
+        logger.warn("Hard links within the workspace are not possible, the workspace cache is disabled");
+        return null;
+      }
+      return new WorkspaceCache(cacheDir, maxSize);
+    } catch (IOException e) {
+      logger.warn("Unable to set up the workspace cache at {}", cacheDir, e);
+      return null;
+    } finally {
+      FileUtils.deleteQuietly(srcFile);
+      FileUtils.deleteQuietly(targetFile);
+    }
+  }
+
   /** Callback from OSGi on service deactivation. */
   @Deactivate
   public void deactivate() {
@@ -493,6 +549,16 @@ public final class WorkspaceImpl implements Workspace {
    * @return the file
    */
   private File downloadIfNecessary(final URI src, final File dst) throws IOException, NotFoundException {
+    // Link the file from the cache if its content is already present on this node
+    String checksum = null;
+    if (cache != null) {
+      checksum = getChecksum(src);
+      if (checksum != null && cache.get(checksum, dst)) {
+        logger.debug("Linked {} from the workspace cache to {}", src, dst);
+        return dst;
+      }
+    }
+
     HttpGet get = createGetRequest(src, dst, Collections.emptyMap());
     while (true) {
       // run the http request and handle its response
@@ -502,6 +568,9 @@ public final class WorkspaceImpl implements Workspace {
         try {
           response = trustedHttpClient.execute(get);
           result = handleDownloadResponse(response, src, dst);
+          if (cache != null) {
+            checksum = StringUtils.defaultIfBlank(getChecksum(response), checksum);
+          }
         } finally {
           if (response != null) {
             trustedHttpClient.close(response);
@@ -509,6 +578,9 @@ public final class WorkspaceImpl implements Workspace {
         }
         for (Option<File> ff : result.right()) {
           for (File f : ff) {
+            if (cache != null && checksum != null) {
+              cache.put(checksum, f);
+            }
             return f;
           }
           FileUtils.deleteQuietly(dst);
@@ -527,6 +599,42 @@ public final class WorkspaceImpl implements Workspace {
     }
   }
 
+  /**
+   * Asks the server for the checksum of the content at <code>uri</code> without downloading it.
+   *
+   * @return the md5 checksum or <code>null</code> if the server does not provide one
+   */
+  private String getChecksum(final URI uri) throws IOException {
+    HttpResponse response = null;
+    try {
+      response = trustedHttpClient.execute(new HttpHead(uri));
+      if (response.getStatusLine().getStatusCode() == SC_OK) {
+        return getChecksum(response);
+      }
+    } catch (TrustedHttpClientException e) {
+      logger.debug("Unable to get the checksum of {}", uri, e);
+    } finally {
+      if (response != null) {
+        trustedHttpClient.close(response);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the checksum provided as entity tag of an HTTP response.
+   *
+   * @return the md5 checksum or <code>null</code> if the response does not provide one
+   */
+  private static String getChecksum(final HttpResponse response) {
+    final Header etag = response.getFirstHeader("ETag");
+    if (etag == null) {
+      return null;
+    }
+    final String checksum = StringUtils.remove(StringUtils.removeStart(etag.getValue(), "W/"), '"');
+    return WorkspaceCache.isChecksum(checksum) ? checksum : null;
+  }
+
   /**
    * {@link #downloadIfNecessary(java.net.URI, java.io.File)} as a function.
    * <code>src_uri -&gt; dst_file -&gt; dst_file</code>
@@ -542,17 +650,33 @@ public final class WorkspaceImpl implements Workspace {
 
   /**
    * Download content of an HTTP response to a file.
+   * <p>
+   * The content is written to a temporary file which then replaces the destination, since the destination may be a hard
+   * link sharing its content with the workspace cache.
    *
    * @return the destination file
    */
   private static File downloadTo(final HttpResponse response, final File dst) throws IOException {
-    // ignore return value
-    dst.createNewFile();
-    try (InputStream in = response.getEntity().getContent()) {
-      try (OutputStream out = new FileOutputStream(dst)) {
-        IOUtils.copyLarge(in, out);
+    final MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("MD5");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("This system does not support md5 checksums", e);
+    }
+    FileUtils.forceMkdir(dst.getParentFile());
+    final File tmp = File.createTempFile(".download.", ".tmp", dst.getParentFile());
+    try {
+      try (InputStream in = new DigestInputStream(response.getEntity().getContent(), digest)) {
+        try (OutputStream out = new FileOutputStream(tmp)) {
+          IOUtils.copyLarge(in, out);
+        }
       }
+      Files.move(tmp.toPath(), dst.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      FileUtils.deleteQuietly(tmp);
     }
+    // Remember the checksum so conditional requests for this file don't need to read it again
+    ChecksumIndex.put(dst, Checksum.convertToHex(digest.digest()));
     return dst;
   }
 
@@ -577,9 +701,7 @@ public final class WorkspaceImpl implements Workspace {
       throw new IllegalArgumentException("File " + file.getAbsolutePath() + " can not be read");
     }
 
-    try (InputStream in = new FileInputStream(file)) {
-      return DigestUtils.md5Hex(in);
-    }
+    return ChecksumIndex.md5(file);
   }
 
   @Override
@@ -614,6 +736,7 @@ public final class WorkspaceImpl implements Workspace {
     if (f.isFile()) {
       synchronized (lock) {
         File mpElementDir = f.getParentFile();
+        ChecksumIndex.invalidate(f);
         FileUtils.forceDelete(f);
 
         // Remove containing folder if a mediapackage element or a not a static collection
@@ -636,6 +759,7 @@ public final class WorkspaceImpl implements Workspace {
   public void delete(String mediaPackageID, String mediaPackageElementID) throws NotFoundException, IOException {
     // delete locally
     final File f = workspaceFile(WorkingFileRepository.MEDIAPACKAGE_PATH_PREFIX, mediaPackageID, mediaPackageElementID);
+    ChecksumIndex.invalidate(f);
     FileUtils.deleteQuietly(f);
     FileSupport.delete(f.getParentFile());
     // delete in WFR
@@ -654,6 +778,8 @@ public final class WorkspaceImpl implements Workspace {
     File workspaceFile = null;
     synchronized (lock) {
       workspaceFile = toWorkspaceFile(uri);
+      // Unlink an existing file before writing, it may share its content with the workspace cache
+      Files.deleteIfExists(workspaceFile.toPath());
       FileUtils.touch(workspaceFile);
     }
 
@@ -690,6 +816,8 @@ public final class WorkspaceImpl implements Workspace {
     try {
       synchronized (lock) {
         tempFile = toWorkspaceFile(uri);
+        // Unlink an existing file before writing, it may share its content with the workspace cache
+        Files.deleteIfExists(tempFile.toPath());
         FileUtils.touch(tempFile);
         out = new FileOutputStream(tempFile);
       }
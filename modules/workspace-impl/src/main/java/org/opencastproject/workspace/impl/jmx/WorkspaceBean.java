@@ -23,13 +23,18 @@ package org.opencastproject.workspace.impl.jmx;
 
 import org.opencastproject.util.data.Option.Match;
 import org.opencastproject.workspace.api.Workspace;
+import org.opencastproject.workspace.impl.WorkspaceCache;
 
 public class WorkspaceBean implements WorkspaceMXBean {
 
   private final Workspace workspace;
 
-  public WorkspaceBean(Workspace workspace) {
+  /** The workspace cache, <code>null</code> if disabled */
+  private final WorkspaceCache cache;
+
+  public WorkspaceBean(Workspace workspace, WorkspaceCache cache) {
     this.workspace = workspace;
+    this.cache = cache;
   }
 
   /**
@@ -86,4 +91,36 @@ public class WorkspaceBean implements WorkspaceMXBean {
     });
   }
 
+  /**
+   * @see org.opencastproject.workspace.impl.jmx.WorkspaceMXBean#getCacheHits()
+   */
+  @Override
+  public long getCacheHits() {
+    return cache != null ? cache.getHits() : 0L;
+  }
+
+  /**
+   * @see org.opencastproject.workspace.impl.jmx.WorkspaceMXBean#getCacheMisses()
+   */
+  @Override
+  public long getCacheMisses() {
+    return cache != null ? cache.getMisses() : 0L;
+  }
+
+  /**
+   * @see org.opencastproject.workspace.impl.jmx.WorkspaceMXBean#getCacheSize()
+   */
+  @Override
+  public long getCacheSize() {
+    return cache != null ? cache.getSize() : -1L;
+  }
+
+  /**
+   * @see org.opencastproject.workspace.impl.jmx.WorkspaceMXBean#getCacheEntries()
+   */
+  @Override
+  public int getCacheEntries() {
+    return cache != null ? cache.getEntries() : 0;
+  }
+
 }
@@ -47,4 +47,32 @@ public interface WorkspaceMXBean {
    */
   long getTotalSpace();
 
+  /**
+   * Gets the number of files linked from the workspace cache instead of being downloaded
+   *
+   * @return the number of cache hits
+   */
+  long getCacheHits();
+
+  /**
+   * Gets the number of files which had to be downloaded although the workspace cache is enabled
+   *
+   * @return the number of cache misses
+   */
+  long getCacheMisses();
+
+  /**
+   * Gets the size of the files in the workspace cache in bytes
+   *
+   * @return cache size in bytes or -1 if the cache is disabled
+   */
+  long getCacheSize();
+
+  /**
+   * Gets the number of files in the workspace cache
+   *
+   * @return the number of cached files
+   */
+  int getCacheEntries();
+
 }
@@ -0,0 +1,202 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.workspace.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.opencastproject.security.api.DefaultOrganization;
+import org.opencastproject.security.api.SecurityService;
+import org.opencastproject.security.api.TrustedHttpClient;
+import org.opencastproject.workingfilerepository.api.WorkingFileRepository;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.HttpHead;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.easymock.EasyMock;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.osgi.framework.BundleContext;
+import org.osgi.service.component.ComponentContext;
+
+import java.io.File;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+public class WorkspaceCacheTest {
+
+  private static final String CHECKSUM_A = "0cc175b9c0f1b6a831c399e269772661";
+  private static final String CHECKSUM_B = "92eb5ffee6ae2fec3ad71c777531578f";
+  private static final String CHECKSUM_C = "4a8a08f09d37b73795649038408b5f33";
+
+  private static final URI TRACK = URI.create("http://localhost:8080/files/mediapackage/mp/track/track.mp4");
+
+  @Rule
+  public TemporaryFolder testFolder = new TemporaryFolder();
+
+  private File workspace;
+
+  @Before
+  public void setUp() throws Exception {
+    workspace = testFolder.newFolder("workspace");
+  }
+
+  private File file(String name, int size) throws Exception {
+    File file = new File(workspace, name);
+    FileUtils.writeStringToFile(file, StringUtils.repeat('x', size), StandardCharsets.UTF_8);
+    return file;
+  }
+
+  @Test
+  public void testLinkFromCache() throws Exception {
+    WorkspaceCache cache = new WorkspaceCache(new File(workspace, ".cache"), 1024);
+    File downloaded = file("mp1/track.mp4", 10);
+
+    File dst = new File(workspace, "mp2/track.mp4");
+    assertFalse(cache.get(CHECKSUM_A, dst));
+    cache.put(CHECKSUM_A, downloaded);
+    assertTrue(cache.get(CHECKSUM_A, dst));
+    assertTrue(Files.isSameFile(downloaded.toPath(), dst.toPath()));
+
+    // Deleting the workspace copies must not affect the cache
+    FileUtils.deleteQuietly(downloaded);
+    FileUtils.deleteQuietly(dst);
+    assertTrue(cache.get(CHECKSUM_A, dst));
+    assertEquals(10, dst.length());
+
+    assertEquals(2, cache.getHits());
+    assertEquals(1, cache.getMisses());
+  }
+
+  @Test
+  public void testEviction() throws Exception {
+    WorkspaceCache cache = new WorkspaceCache(new File(workspace, ".cache"), 25);
+    cache.put(CHECKSUM_A, file("a", 10));
+    cache.put(CHECKSUM_B, file("b", 10));
+
+    // Access a, so that b is the least recently used entry
+    assertTrue(cache.get(CHECKSUM_A, new File(workspace, "a2")));
+    cache.put(CHECKSUM_C, file("c", 10));
+
+    assertEquals(2, cache.getEntries());
+    assertEquals(20, cache.getSize());
+    assertTrue(cache.get(CHECKSUM_A, new File(workspace, "a3")));
+    assertFalse(cache.get(CHECKSUM_B, new File(workspace, "b2")));
+    assertTrue(cache.get(CHECKSUM_C, new File(workspace, "c2")));
+  }
+
+  @Test
+  public void testRestore() throws Exception {
+    File cacheDir = new File(workspace, ".cache");
+    new WorkspaceCache(cacheDir, 1024).put(CHECKSUM_A, file("a", 10));
+
+    WorkspaceCache cache = new WorkspaceCache(cacheDir, 1024);
+    assertEquals(1, cache.getEntries());
+    assertEquals(10, cache.getSize());
+    assertTrue(cache.get(CHECKSUM_A, new File(workspace, "a2")));
+  }
+
+  @Test
+  public void testPutOverLinkedWorkspaceFile() throws Exception {
+    File cached = new File(workspace, ".cache/" + CHECKSUM_A);
+    FileUtils.writeStringToFile(cached, "a", StandardCharsets.UTF_8);
+    WorkspaceImpl ws = createWorkspace(CHECKSUM_A, "b");
+    try {
+      File linked = ws.get(TRACK);
+      assertTrue(Files.isSameFile(cached.toPath(), linked.toPath()));
+
+      // Overwriting the workspace copy must not change the cached content
+      ws.put("mp", "track", "track.mp4", IOUtils.toInputStream("b", StandardCharsets.UTF_8));
+      assertEquals("b", FileUtils.readFileToString(linked, StandardCharsets.UTF_8));
+      assertEquals("a", FileUtils.readFileToString(cached, StandardCharsets.UTF_8));
+    } finally {
+      ws.deactivate();
+    }
+  }
+
+  @Test
+  public void testDownloadOverLinkedWorkspaceFile() throws Exception {
+    File cached = new File(workspace, ".cache/" + CHECKSUM_A);
+    FileUtils.writeStringToFile(cached, "a", StandardCharsets.UTF_8);
+    WorkspaceImpl ws = createWorkspace(CHECKSUM_A, "b");
+    try {
+      File linked = ws.get(TRACK);
+      assertTrue(Files.isSameFile(cached.toPath(), linked.toPath()));
+
+      // The content changed on the server and is not cached yet, so it is downloaded over the linked copy
+      ws.deactivate();
+      ws = createWorkspace(CHECKSUM_B, "b");
+      assertEquals("b", FileUtils.readFileToString(ws.get(TRACK), StandardCharsets.UTF_8));
+      assertEquals("a", FileUtils.readFileToString(cached, StandardCharsets.UTF_8));
+    } finally {
+      ws.deactivate();
+    }
+  }
+
+  /**
+   * Creates a workspace with a cache, whose server reports the given checksum and content for {@link #TRACK}.
+   */
+  private WorkspaceImpl createWorkspace(String checksum, String content) throws Exception {
+    BundleContext bc = EasyMock.createNiceMock(BundleContext.class);
+    EasyMock.expect(bc.getProperty(WorkspaceImpl.WORKSPACE_CACHE_MAX_SIZE_KEY)).andReturn("1").anyTimes();
+    ComponentContext cc = EasyMock.createNiceMock(ComponentContext.class);
+    EasyMock.expect(cc.getBundleContext()).andReturn(bc).anyTimes();
+
+    SecurityService securityService = EasyMock.createNiceMock(SecurityService.class);
+    EasyMock.expect(securityService.getOrganization()).andReturn(new DefaultOrganization()).anyTimes();
+
+    WorkingFileRepository repo = EasyMock.createNiceMock(WorkingFileRepository.class);
+    EasyMock.expect(repo.getBaseUri()).andReturn(new URI("http://localhost:8080/files")).anyTimes();
+    EasyMock.expect(repo.getURI(EasyMock.anyString(), EasyMock.anyString(), EasyMock.anyString()))
+            .andReturn(TRACK).anyTimes();
+
+    TrustedHttpClient httpClient = EasyMock.createNiceMock(TrustedHttpClient.class);
+    EasyMock.expect(httpClient.execute(EasyMock.anyObject(HttpUriRequest.class))).andAnswer(() -> {
+      HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+      response.setHeader("ETag", "\"" + checksum + "\"");
+      if (!(EasyMock.getCurrentArguments()[0] instanceof HttpHead)) {
+        response.setEntity(new StringEntity(content, StandardCharsets.UTF_8));
+      }
+      return response;
+    }).anyTimes();
+    EasyMock.replay(bc, cc, securityService, repo, httpClient);
+
+    WorkspaceImpl ws = new WorkspaceImpl(workspace.getAbsolutePath(), false);
+    ws.setSecurityService(securityService);
+    ws.setRepository(repo);
+    ws.setTrustedHttpClient(httpClient);
+    ws.activate(cc);
+    return ws;
+  }
+
+}